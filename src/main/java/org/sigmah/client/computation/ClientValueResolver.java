@@ -55,6 +55,7 @@ public class ClientValueResolver implements ValueResolver {
 	@Override
 	public void resolve(Collection<FlexibleElementDTO> elements, int containerId, final AsyncCallback<Map<Integer, ComputedValue>> callback) {
 		final BatchCommand batchCommand = new BatchCommand();
+		batchCommand.setReadOnly(true);
 		for (final FlexibleElementDTO element : elements) {
 			// TODO: Should support core versions.
 			batchCommand.add(new GetValue(containerId, element.getId(), element.getEntityName()));
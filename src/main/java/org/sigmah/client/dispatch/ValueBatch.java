@@ -0,0 +1,102 @@
+package org.sigmah.client.dispatch;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sigmah.client.ui.widget.Loadable;
+import org.sigmah.shared.command.GetValues;
+import org.sigmah.shared.command.result.ListResult;
+import org.sigmah.shared.command.result.ValueResult;
+import org.sigmah.shared.dto.element.FlexibleElementDTO;
+
+/**
+ * Groups the value retrievals of many flexible elements of a same container into a single {@link GetValues} command.<br>
+ * Each element keeps its own result handler, called in the order the elements were added.
+ */
+public class ValueBatch {
+
+	private final GetValues command;
+	private final List<CommandResultHandler<ValueResult>> handlers;
+
+	/**
+	 * Creates a new batch for the given container.
+	 * 
+	 * @param containerId
+	 *          The container id.
+	 * @param amendmentId
+	 *          The amendment id (may be {@code null}).
+	 */
+	public ValueBatch(final Integer containerId, final Integer amendmentId) {
+		this.command = new GetValues(containerId, amendmentId);
+		this.handlers = new ArrayList<CommandResultHandler<ValueResult>>();
+	}
+
+	/**
+	 * Adds an element whose value should be retrieved.
+	 * 
+	 * @param element
+	 *          The flexible element.
+	 * @param handler
+	 *          The handler receiving the value of this element.
+	 */
+	public void add(final FlexibleElementDTO element, final CommandResultHandler<ValueResult> handler) {
+		command.add(element.getId(), element.getEntityName());
+		handlers.add(handler);
+	}
+
+	/**
+	 * Adds the batch command to the given queue. Does nothing if no element has been added.
+	 * 
+	 * @param queue
+	 *          The dispatch queue.
+	 * @param loadables
+	 *          (optional) The {@code Loadable} elements.
+	 */
+	public void addTo(final DispatchQueue queue, final Loadable... loadables) {
+
+		if (handlers.isEmpty()) {
+			return;
+		}
+
+		queue.add(command, new CommandResultHandler<ListResult<ValueResult>>() {
+
+			@Override
+			protected void onCommandSuccess(final ListResult<ValueResult> result) {
+				for (int index = 0; index < handlers.size(); index++) {
+					handlers.get(index).onSuccess(result.getList().get(index));
+				}
+			}
+
+			@Override
+			protected void onCommandFailure(final Throwable caught) {
+				for (final CommandResultHandler<ValueResult> handler : handlers) {
+					handler.onFailure(caught);
+				}
+			}
+
+		}, loadables);
+	}
+
+}
@@ -47,6 +47,7 @@ import org.sigmah.client.util.ToStringBuilder;
 import org.sigmah.offline.dispatch.LocalDispatchServiceAsync;
 import org.sigmah.shared.command.Synchronize;
 import org.sigmah.shared.command.base.Command;
+import org.sigmah.shared.command.result.OfflineSnapshotResult;
 import org.sigmah.shared.command.result.Result;
 
 import com.allen_sauer.gwt.log.client.Log;
@@ -276,6 +277,14 @@ public class SecureDispatchAsync extends AbstractDispatchAsync {
 					cast.onSuccess(command, result, authenticationProvider.get());
 				}
 			}
+
+			// Commands executed by the server on behalf of the client.
+			if (result instanceof OfflineSnapshotResult) {
+				final OfflineSnapshotResult snapshot = (OfflineSnapshotResult) result;
+				for (int index = 0; index < snapshot.size(); index++) {
+					fireSuccess(snapshot.getCommands().get(index), snapshot.getResults().get(index));
+				}
+			}
 		}
 	}
 
@@ -54,9 +54,8 @@ import org.sigmah.shared.dto.layout.LayoutConstraintDTO;
 import org.sigmah.shared.dto.layout.LayoutDTO;
 import org.sigmah.shared.dto.layout.LayoutGroupDTO;
 import org.sigmah.shared.dto.orgunit.OrgUnitDTO;
-import org.sigmah.shared.servlet.ServletConstants.Servlet;
 import org.sigmah.shared.servlet.ServletConstants.ServletMethod;
-import org.sigmah.shared.servlet.ServletUrlBuilder;
+import org.sigmah.shared.servlet.ServletRequestBuilder;
 import org.sigmah.shared.util.ValueResultUtils;
 
 import com.allen_sauer.gwt.log.client.Log;
@@ -74,6 +73,7 @@ import com.google.inject.ImplementedBy;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.sigmah.client.computation.ComputationTriggerManager;
+import org.sigmah.client.util.ExportLauncher;
 
 /**
  * OrgUnit Details Presenter.
@@ -171,12 +171,11 @@ public class OrgUnitDetailsPresenter extends AbstractOrgUnitPresenter<OrgUnitDet
 			@Override
 			public void handleEvent(final ButtonEvent be) {
 
-				final ServletUrlBuilder urlBuilder =
-						new ServletUrlBuilder(injector.getAuthenticationProvider(), injector.getPageManager(), Servlet.EXPORT, ServletMethod.EXPORT_ORG_UNIT);
+				final ServletRequestBuilder requestBuilder = ExportLauncher.request(injector, ServletMethod.EXPORT_ORG_UNIT);
 
-				urlBuilder.addParameter(RequestParameter.ID, getOrgUnit().getId());
+				requestBuilder.addParameter(RequestParameter.ID, getOrgUnit().getId());
 
-				ClientUtils.launchDownload(urlBuilder.toString());
+				ExportLauncher.launch(injector, requestBuilder);
 			}
 		});
 
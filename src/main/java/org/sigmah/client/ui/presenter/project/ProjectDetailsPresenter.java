@@ -30,6 +30,7 @@ import java.util.Map;
 
 import org.sigmah.client.dispatch.CommandResultHandler;
 import org.sigmah.client.dispatch.DispatchQueue;
+import org.sigmah.client.dispatch.ValueBatch;
 import org.sigmah.client.dispatch.monitor.LoadingMask;
 import org.sigmah.client.event.UpdateEvent;
 import org.sigmah.client.i18n.I18N;
@@ -41,7 +42,6 @@ import org.sigmah.client.ui.view.project.ProjectDetailsView;
 import org.sigmah.client.ui.widget.button.Button;
 import org.sigmah.client.util.ClientUtils;
 import org.sigmah.shared.command.GetOrgUnit;
-import org.sigmah.shared.command.GetValue;
 import org.sigmah.shared.command.UpdateProject;
 import org.sigmah.shared.command.result.ValueResult;
 import org.sigmah.shared.command.result.VoidResult;
@@ -213,6 +213,17 @@ public class ProjectDetailsPresenter extends AbstractProjectPresenter<ProjectDet
 
 		final DispatchQueue queue = new DispatchQueue(dispatch, true);
 
+		// Retrieving the current amendment id.
+		final Integer amendmentId;
+		if (getProject().getCurrentAmendment() != null) {
+			amendmentId = getProject().getCurrentAmendment().getId();
+		} else {
+			amendmentId = null;
+		}
+
+		// Values of every element are retrieved with a single remote call.
+		final ValueBatch values = new ValueBatch(getProject().getId(), amendmentId);
+
 		for (final LayoutGroupDTO groupLayout : layout.getGroups()) {
 
 			// Creates the fieldset and positions it.
@@ -241,16 +252,7 @@ public class ProjectDetailsPresenter extends AbstractProjectPresenter<ProjectDet
 				// -- ELEMENT VALUE
 				// --
 
-				// Retrieving the current amendment id.
-				final Integer amendmentId;
-				if (getProject().getCurrentAmendment() != null) {
-					amendmentId = getProject().getCurrentAmendment().getId();
-				} else {
-					amendmentId = null;
-				}
-
-				// Remote call to ask for this element value.
-				queue.add(new GetValue(getProject().getId(), elementDTO.getId(), elementDTO.getEntityName(), amendmentId), new CommandResultHandler<ValueResult>() {
+				values.add(elementDTO, new CommandResultHandler<ValueResult>() {
 
 					@Override
 					public void onCommandFailure(final Throwable throwable) {
@@ -329,10 +331,11 @@ public class ProjectDetailsPresenter extends AbstractProjectPresenter<ProjectDet
 							}
 						});
 					}
-				}, new LoadingMask(view.getMainPanel()));
+				});
 			}
 		}
 
+		values.addTo(queue, new LoadingMask(view.getMainPanel()));
 		queue.start();
 
 		view.setMainPanelWidget(gridLayout);
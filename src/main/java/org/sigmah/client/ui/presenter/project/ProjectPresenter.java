@@ -66,9 +66,8 @@ import org.sigmah.shared.dto.layout.LayoutGroupDTO;
 import org.sigmah.shared.dto.referential.AmendmentAction;
 import org.sigmah.shared.dto.referential.GlobalPermissionEnum;
 import org.sigmah.shared.dto.referential.ProjectModelType;
-import org.sigmah.shared.servlet.ServletConstants.Servlet;
 import org.sigmah.shared.servlet.ServletConstants.ServletMethod;
-import org.sigmah.shared.servlet.ServletUrlBuilder;
+import org.sigmah.shared.servlet.ServletRequestBuilder;
 import org.sigmah.shared.util.ExportUtils.ExportType;
 import org.sigmah.shared.util.ProfileUtils;
 
@@ -86,15 +85,11 @@ import com.extjs.gxt.ui.client.widget.ContentPanel;
 import com.extjs.gxt.ui.client.widget.Header;
 import com.extjs.gxt.ui.client.widget.form.ComboBox;
 import com.extjs.gxt.ui.client.widget.form.Field;
-import com.extjs.gxt.ui.client.widget.form.FormPanel.Method;
 import com.extjs.gxt.ui.client.widget.form.LabelField;
 import com.extjs.gxt.ui.client.widget.layout.FormLayout;
 import com.extjs.gxt.ui.client.widget.tips.ToolTipConfig;
-import com.google.gwt.dom.client.FormElement;
 import com.google.gwt.i18n.client.DateTimeFormat;
-import com.google.gwt.user.client.DOM;
 import com.google.gwt.user.client.ui.HTMLTable;
-import com.google.gwt.user.client.ui.RootPanel;
 import com.google.gwt.user.client.ui.Widget;
 import com.google.inject.ImplementedBy;
 import com.google.inject.Inject;
@@ -103,6 +98,7 @@ import java.util.List;
 import org.sigmah.client.ui.res.icon.IconImageBundle;
 import org.sigmah.client.ui.widget.Loadable;
 import org.sigmah.client.util.DateUtils;
+import org.sigmah.client.util.ExportLauncher;
 import org.sigmah.client.util.profiler.Profiler;
 import org.sigmah.client.util.profiler.Scenario;
 import org.sigmah.shared.dto.referential.AmendmentState;
@@ -847,8 +843,7 @@ public class ProjectPresenter extends AbstractPresenter<ProjectPresenter.View> i
 			@Override
 			public void onExportProject(final Field<Boolean> indicatorField, final Field<Boolean> logFrameField) {
 
-				final ServletUrlBuilder urlBuilder =
-						new ServletUrlBuilder(injector.getAuthenticationProvider(), injector.getPageManager(), Servlet.EXPORT, ServletMethod.EXPORT_PROJECT);
+				final ServletRequestBuilder requestBuilder = ExportLauncher.request(injector, ServletMethod.EXPORT_PROJECT);
 
 				final ExportType type;
 
@@ -865,18 +860,10 @@ public class ProjectPresenter extends AbstractPresenter<ProjectPresenter.View> i
 					type = ExportType.PROJECT_SYNTHESIS;
 				}
 
-				urlBuilder.addParameter(RequestParameter.ID, project.getId());
-				urlBuilder.addParameter(RequestParameter.TYPE, type);
+				requestBuilder.addParameter(RequestParameter.ID, project.getId());
+				requestBuilder.addParameter(RequestParameter.TYPE, type);
 
-				final FormElement form = FormElement.as(DOM.createForm());
-				form.setAction(urlBuilder.toString());
-				form.setTarget("_downloadFrame");
-				form.setMethod(Method.POST.name());
-
-				RootPanel.getBodyElement().appendChild(form);
-
-				form.submit();
-				form.removeFromParent();
+				ExportLauncher.launch(injector, requestBuilder);
 			}
 		});
 	}
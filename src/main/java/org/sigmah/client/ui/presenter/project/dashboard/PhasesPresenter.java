@@ -33,6 +33,7 @@ import java.util.Map;
 
 import org.sigmah.client.dispatch.CommandResultHandler;
 import org.sigmah.client.dispatch.DispatchQueue;
+import org.sigmah.client.dispatch.ValueBatch;
 import org.sigmah.client.dispatch.monitor.LoadingMask;
 import org.sigmah.client.event.UpdateEvent;
 import org.sigmah.client.i18n.I18N;
@@ -45,7 +46,6 @@ import org.sigmah.client.ui.view.base.ViewInterface;
 import org.sigmah.client.ui.view.project.dashboard.PhasesView;
 import org.sigmah.client.ui.widget.button.Button;
 import org.sigmah.shared.command.ChangePhase;
-import org.sigmah.shared.command.GetValue;
 import org.sigmah.shared.command.UpdateProject;
 import org.sigmah.shared.command.result.ValueResult;
 import org.sigmah.shared.command.result.VoidResult;
@@ -631,6 +631,17 @@ public class PhasesPresenter extends AbstractPresenter<PhasesPresenter.View> {
 		// Prepare the manager of computation elements
 		computationTriggerManager.prepareForProject(project);
 
+		// Retrieving the current amendment id.
+		final Integer amendmentId;
+		if (project.getCurrentAmendment() != null) {
+			amendmentId = project.getCurrentAmendment().getId();
+		} else {
+			amendmentId = null;
+		}
+
+		// Values of every element are retrieved with a single remote call.
+		final ValueBatch values = new ValueBatch(project.getId(), amendmentId);
+
 		// For each layout group.
 		for (final LayoutGroupDTO groupDTO : phaseDTO.getPhaseModel().getLayout().getGroups()) {
 
@@ -659,16 +670,7 @@ public class PhasesPresenter extends AbstractPresenter<PhasesPresenter.View> {
 				// -- ELEMENT VALUE
 				// --
 
-				// Retrieving the current amendment id.
-				final Integer amendmentId;
-				if (project.getCurrentAmendment() != null) {
-					amendmentId = project.getCurrentAmendment().getId();
-				} else {
-					amendmentId = null;
-				}
-
-				// Remote call to ask for this element value.
-				queue.add(new GetValue(getCurrentProject().getId(), elementDTO.getId(), elementDTO.getEntityName(), amendmentId),
+				values.add(elementDTO,
 					new CommandResultHandler<ValueResult>() {
 
 						@Override
@@ -773,6 +775,7 @@ public class PhasesPresenter extends AbstractPresenter<PhasesPresenter.View> {
 			}
 		}
 
+		values.addTo(queue);
 		queue.start();
 
 	}
@@ -32,13 +32,12 @@ import org.sigmah.client.ui.notif.N10N;
 import org.sigmah.client.ui.presenter.base.AbstractPagePresenter;
 import org.sigmah.client.ui.view.base.ViewPopupInterface;
 import org.sigmah.client.ui.view.project.export.ExportProjectsView;
-import org.sigmah.client.util.ClientUtils;
+import org.sigmah.client.util.ExportLauncher;
 import org.sigmah.shared.command.GetGlobalExports;
 import org.sigmah.shared.command.result.ListResult;
 import org.sigmah.shared.dto.GlobalExportDTO;
-import org.sigmah.shared.servlet.ServletConstants.Servlet;
 import org.sigmah.shared.servlet.ServletConstants.ServletMethod;
-import org.sigmah.shared.servlet.ServletUrlBuilder;
+import org.sigmah.shared.servlet.ServletRequestBuilder;
 import org.sigmah.shared.util.ExportUtils.ExportDataVersion;
 
 import com.extjs.gxt.ui.client.event.BaseEvent;
@@ -132,23 +131,22 @@ public class ExportProjectsPresenter extends AbstractPagePresenter<ExportProject
 			@Override
 			public void handleEvent(BaseEvent be) {
 
-				final ServletUrlBuilder urlBuilder =
-						new ServletUrlBuilder(injector.getAuthenticationProvider(), injector.getPageManager(), Servlet.EXPORT, ServletMethod.EXPORT_GLOBAL);
+				final ServletRequestBuilder requestBuilder = ExportLauncher.request(injector, ServletMethod.EXPORT_GLOBAL);
 
-				urlBuilder.addParameter(RequestParameter.ID, auth().getOrganizationId());
+				requestBuilder.addParameter(RequestParameter.ID, auth().getOrganizationId());
 
 				if (view.getLiveChoice().getValue()) {
 
-					urlBuilder.addParameter(RequestParameter.VERSION, ExportDataVersion.LIVE_DATA);
-					ClientUtils.launchDownload(urlBuilder.toString());
+					requestBuilder.addParameter(RequestParameter.VERSION, ExportDataVersion.LIVE_DATA);
+					ExportLauncher.launch(injector, requestBuilder);
 					view.hide();
 
 				} else {
 					if (view.getPeriods().getValue() != null) {
 
-						urlBuilder.addParameter(RequestParameter.VERSION, ExportDataVersion.BACKED_UP_DATA);
-						urlBuilder.addParameter(RequestParameter.GLOBAL_EXPORT_ID, view.getPeriods().getValue().getId());
-						ClientUtils.launchDownload(urlBuilder.toString());
+						requestBuilder.addParameter(RequestParameter.VERSION, ExportDataVersion.BACKED_UP_DATA);
+						requestBuilder.addParameter(RequestParameter.GLOBAL_EXPORT_ID, view.getPeriods().getValue().getId());
+						ExportLauncher.launch(injector, requestBuilder);
 						view.hide();
 					} else {
 						N10N.warn("No Selected Backup Export");
@@ -88,6 +88,8 @@ public class ExportProjectsSettingPresenter extends AbstractPagePresenter<Export
 
 		Radio getExcelChoice();
 
+		Radio getExcelXlsxChoice();
+
 		Button getSaveButton();
 
 		ListStore<SimpleComboBoxData> getExportScheduleStore();
@@ -152,6 +154,10 @@ public class ExportProjectsSettingPresenter extends AbstractPagePresenter<Export
 							view.getExcelChoice().setValue(true);
 							break;
 
+						case XLSX:
+							view.getExcelXlsxChoice().setValue(true);
+							break;
+
 						case ODS:
 							view.getCalcChoice().setValue(true);
 							break;
@@ -206,6 +212,8 @@ public class ExportProjectsSettingPresenter extends AbstractPagePresenter<Export
 
 				if (view.getExcelChoice().getValue()) {
 					settings.setExportFormat(ExportUtils.ExportFormat.XLS);
+				} else if (view.getExcelXlsxChoice().getValue()) {
+					settings.setExportFormat(ExportUtils.ExportFormat.XLSX);
 				} else {
 					settings.setExportFormat(ExportUtils.ExportFormat.ODS);
 				}
@@ -59,7 +59,7 @@ import org.sigmah.client.ui.widget.HasTreeGrid;
 import org.sigmah.client.ui.widget.button.Button;
 import org.sigmah.client.ui.widget.button.SplitButton;
 import org.sigmah.client.ui.widget.form.FormPanel;
-import org.sigmah.client.util.ClientUtils;
+import org.sigmah.client.util.ExportLauncher;
 import org.sigmah.shared.command.BatchCommand;
 import org.sigmah.shared.command.CreateEntity;
 import org.sigmah.shared.command.Delete;
@@ -76,7 +76,7 @@ import org.sigmah.shared.dto.IndicatorGroup;
 import org.sigmah.shared.dto.base.EntityDTO;
 import org.sigmah.shared.dto.referential.GlobalPermissionEnum;
 import org.sigmah.shared.servlet.ServletConstants;
-import org.sigmah.shared.servlet.ServletUrlBuilder;
+import org.sigmah.shared.servlet.ServletRequestBuilder;
 import org.sigmah.shared.util.ProfileUtils;
 
 /**
@@ -355,12 +355,11 @@ public class ProjectIndicatorManagementPresenter extends AbstractProjectPresente
 	}
 	
 	private void onExport() {
-		final ServletUrlBuilder urlBuilder =
-				new ServletUrlBuilder(injector.getAuthenticationProvider(), injector.getPageManager(), ServletConstants.Servlet.EXPORT, ServletConstants.ServletMethod.EXPORT_PROJECT_INDICATORS);
+		final ServletRequestBuilder requestBuilder = ExportLauncher.request(injector, ServletConstants.ServletMethod.EXPORT_PROJECT_INDICATORS);
 		
-		urlBuilder.addParameter(RequestParameter.ID, getProject().getId());
+		requestBuilder.addParameter(RequestParameter.ID, getProject().getId());
 
-		ClientUtils.launchDownload(urlBuilder.toString());
+		ExportLauncher.launch(injector, requestBuilder);
 	}
 	
 	private void deleteIndicatorGroup(IndicatorGroup selected) {
@@ -36,7 +36,7 @@ import org.sigmah.client.ui.presenter.project.logframe.ConfirmPasteDialog.Confir
 import org.sigmah.client.ui.view.project.logframe.ProjectLogFrameGrid;
 import org.sigmah.client.ui.view.project.logframe.ProjectLogFrameView;
 import org.sigmah.client.ui.widget.button.Button;
-import org.sigmah.client.util.ClientUtils;
+import org.sigmah.client.util.ExportLauncher;
 import org.sigmah.client.util.MessageType;
 import org.sigmah.shared.command.CopyLogFrame;
 import org.sigmah.shared.command.UpdateLogFrame;
@@ -44,9 +44,8 @@ import org.sigmah.shared.dto.logframe.LogFrameDTO;
 import org.sigmah.shared.dto.referential.AmendmentState;
 import org.sigmah.shared.dto.referential.GlobalPermissionEnum;
 import org.sigmah.shared.dto.referential.IndicatorCopyStrategy;
-import org.sigmah.shared.servlet.ServletConstants.Servlet;
 import org.sigmah.shared.servlet.ServletConstants.ServletMethod;
-import org.sigmah.shared.servlet.ServletUrlBuilder;
+import org.sigmah.shared.servlet.ServletRequestBuilder;
 import org.sigmah.shared.util.ProfileUtils;
 
 import com.allen_sauer.gwt.log.client.Log;
@@ -199,12 +198,11 @@ public class ProjectLogFramePresenter extends AbstractProjectPresenter<ProjectLo
 			@Override
 			public void handleEvent(final ButtonEvent be) {
 
-				final ServletUrlBuilder urlBuilder =
-						new ServletUrlBuilder(injector.getAuthenticationProvider(), injector.getPageManager(), Servlet.EXPORT, ServletMethod.EXPORT_PROJECT_LOGFRAME);
+				final ServletRequestBuilder requestBuilder = ExportLauncher.request(injector, ServletMethod.EXPORT_PROJECT_LOGFRAME);
 
-				urlBuilder.addParameter(RequestParameter.ID, getProject().getId());
+				requestBuilder.addParameter(RequestParameter.ID, getProject().getId());
 
-				ClientUtils.launchDownload(urlBuilder.toString());
+				ExportLauncher.launch(injector, requestBuilder);
 			}
 		});
 
@@ -37,7 +37,7 @@ import org.sigmah.client.ui.presenter.base.AbstractPagePresenter;
 import org.sigmah.client.ui.view.base.ViewPopupInterface;
 import org.sigmah.client.ui.view.project.projectcore.DiffEntry;
 import org.sigmah.client.ui.view.project.projectcore.ProjectCoreDiffView;
-import org.sigmah.shared.command.GetValue;
+import org.sigmah.shared.command.GetValues;
 import org.sigmah.shared.command.result.ValueResult;
 import org.sigmah.shared.dto.AmendmentDTO;
 import org.sigmah.shared.dto.ProjectDTO;
@@ -52,9 +52,7 @@ import com.extjs.gxt.ui.client.widget.grid.Grid;
 import com.google.inject.ImplementedBy;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import org.sigmah.shared.command.BatchCommand;
 import org.sigmah.shared.command.result.ListResult;
-import org.sigmah.shared.command.result.Result;
 
 /**
  * Manages the diff view between core versions.
@@ -189,22 +187,19 @@ public class ProjectCoreDiffPresenter extends AbstractPagePresenter<ProjectCoreD
 		if (event.getSelectedItem() != null) {
 			final AmendmentDTO coreVersion = event.getSelectedItem();
 
-			final BatchCommand batchCommand = new BatchCommand();
+			final GetValues getValues = new GetValues(project.getId(), coreVersion.getId());
 			
 			for (int index = 0; index < view.getProjectFieldsValueStore().getCount(); index++) {
-				final DiffEntry entry = view.getProjectFieldsValueStore().getAt(index);
-				final FlexibleElementDTO field = entry.getField();
-
-				batchCommand.add(new GetValue(project.getId(), field.getId(), 
-					field.getEntityName(), coreVersion.getId()));
+				final FlexibleElementDTO field = view.getProjectFieldsValueStore().getAt(index).getField();
+				getValues.add(field.getId(), field.getEntityName());
 			}
 			
-			dispatch.execute(batchCommand, new CommandResultHandler<ListResult<Result>>() {
+			dispatch.execute(getValues, new CommandResultHandler<ListResult<ValueResult>>() {
 
 				@Override
-				protected void onCommandSuccess(ListResult<Result> results) {
+				protected void onCommandSuccess(ListResult<ValueResult> results) {
 					for (int index = 0; index < view.getProjectFieldsValueStore().getCount(); index++) {
-						final ValueResult result = (ValueResult) results.getList().get(index);
+						final ValueResult result = results.getList().get(index);
 						final DiffEntry entry = view.getProjectFieldsValueStore().getAt(index);
 						
 						entry.setValue(position, result.getValueObject());
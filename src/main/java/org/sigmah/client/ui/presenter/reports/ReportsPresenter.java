@@ -44,6 +44,7 @@ import org.sigmah.client.ui.widget.button.Button;
 import org.sigmah.client.ui.widget.panel.FoldPanel;
 import org.sigmah.client.util.ClientConfiguration;
 import org.sigmah.client.util.ClientUtils;
+import org.sigmah.client.util.ExportLauncher;
 import org.sigmah.client.util.MessageType;
 import org.sigmah.shared.command.CreateEntity;
 import org.sigmah.shared.command.GetProjectDocuments;
@@ -69,9 +70,8 @@ import org.sigmah.shared.dto.report.ReportReference;
 import org.sigmah.shared.dto.report.RichTextElementDTO;
 import org.sigmah.shared.file.Cause;
 import org.sigmah.shared.file.ProgressListener;
-import org.sigmah.shared.servlet.ServletConstants.Servlet;
 import org.sigmah.shared.servlet.ServletConstants.ServletMethod;
-import org.sigmah.shared.servlet.ServletUrlBuilder;
+import org.sigmah.shared.servlet.ServletRequestBuilder;
 import org.sigmah.shared.util.ExportUtils.ExportFormat;
 import org.sigmah.shared.util.ExportUtils.ExportType;
 import org.sigmah.shared.util.ProfileUtils;
@@ -80,14 +80,10 @@ import com.allen_sauer.gwt.log.client.Log;
 import com.extjs.gxt.ui.client.Style.SortDir;
 import com.extjs.gxt.ui.client.store.ListStore;
 import com.extjs.gxt.ui.client.widget.Component;
-import com.extjs.gxt.ui.client.widget.form.FormPanel.Method;
 import com.extjs.gxt.ui.client.widget.menu.Menu;
-import com.google.gwt.dom.client.FormElement;
-import com.google.gwt.user.client.DOM;
 import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.google.gwt.user.client.ui.HasHTML;
-import com.google.gwt.user.client.ui.RootPanel;
 import com.google.inject.ImplementedBy;
 import com.google.inject.Inject;
 import org.sigmah.shared.file.TransfertManager;
@@ -921,22 +917,13 @@ public class ReportsPresenter extends AbstractPresenter<ReportsPresenter.View> {
 	 */
 	private void onExportReport(final ProjectReportDTO report) {
 
-		final ServletUrlBuilder urlBuilder =
-				new ServletUrlBuilder(injector.getAuthenticationProvider(), injector.getPageManager(), Servlet.EXPORT, ServletMethod.EXPORT_REPORT);
+		final ServletRequestBuilder requestBuilder = ExportLauncher.request(injector, ServletMethod.EXPORT_REPORT);
 
-		urlBuilder.addParameter(RequestParameter.ID, report.getId());
-		urlBuilder.addParameter(RequestParameter.TYPE, ExportType.PROJECT_REPORT);
-		urlBuilder.addParameter(RequestParameter.FORMAT, ExportFormat.MS_WORD);
+		requestBuilder.addParameter(RequestParameter.ID, report.getId());
+		requestBuilder.addParameter(RequestParameter.TYPE, ExportType.PROJECT_REPORT);
+		requestBuilder.addParameter(RequestParameter.FORMAT, ExportFormat.MS_WORD);
 
-		final FormElement form = FormElement.as(DOM.createForm());
-		form.setAction(urlBuilder.toString());
-		form.setTarget("_downloadFrame");
-		form.setMethod(Method.POST.name());
-
-		RootPanel.getBodyElement().appendChild(form);
-
-		form.submit();
-		form.removeFromParent();
+		ExportLauncher.launch(injector, requestBuilder);
 	}
 
 }
@@ -100,6 +100,7 @@ public class ParametersAdminView extends AbstractView implements ParametersAdmin
 	private RadioGroup exportManagementRadioGroup;
 	private Radio exportManagementOdsRadio;
 	private Radio exportManagementXlsRadio;
+	private Radio exportManagementXlsxRadio;
 	private Button exportManagementSaveButton;
 
 	// Export.
@@ -220,8 +221,10 @@ public class ParametersAdminView extends AbstractView implements ParametersAdmin
 		// File format.
 		exportManagementOdsRadio = Forms.radio(I18N.CONSTANTS.openDocumentSpreadsheet());
 		exportManagementXlsRadio = Forms.radio(I18N.CONSTANTS.msExcel());
+		exportManagementXlsxRadio = Forms.radio(I18N.CONSTANTS.msExcelXlsx());
 
-		exportManagementRadioGroup = Forms.radioGroup(I18N.CONSTANTS.chooseFileType(), Orientation.VERTICAL, exportManagementOdsRadio, exportManagementXlsRadio);
+		exportManagementRadioGroup =
+				Forms.radioGroup(I18N.CONSTANTS.chooseFileType(), Orientation.VERTICAL, exportManagementOdsRadio, exportManagementXlsRadio, exportManagementXlsxRadio);
 		exportManagementForm.add(exportManagementRadioGroup);
 
 		// button
@@ -393,6 +396,7 @@ public class ParametersAdminView extends AbstractView implements ParametersAdmin
 	public void setSelectedExportFormat(final ExportFormat exportFormat) {
 
 		exportManagementXlsRadio.setValue(null);
+		exportManagementXlsxRadio.setValue(null);
 		exportManagementOdsRadio.setValue(null);
 
 		if (exportFormat == null) {
@@ -404,6 +408,10 @@ public class ParametersAdminView extends AbstractView implements ParametersAdmin
 				exportManagementXlsRadio.setValue(true);
 				break;
 
+			case XLSX:
+				exportManagementXlsxRadio.setValue(true);
+				break;
+
 			case ODS:
 				exportManagementOdsRadio.setValue(true);
 				break;
@@ -425,6 +433,9 @@ public class ParametersAdminView extends AbstractView implements ParametersAdmin
 		} else if (exportManagementXlsRadio.equals(exportManagementRadioGroup.getValue())) {
 			return ExportFormat.XLS;
 
+		} else if (exportManagementXlsxRadio.equals(exportManagementRadioGroup.getValue())) {
+			return ExportFormat.XLSX;
+
 		} else {
 			return null;
 		}
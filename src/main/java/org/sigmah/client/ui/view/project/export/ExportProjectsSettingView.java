@@ -91,6 +91,7 @@ public class ExportProjectsSettingView extends AbstractPopupView<PopupWidget> im
 	public static Map<Integer, SimpleComboBoxData> weekScheduleMap;
 	private Radio calcChoice;
 	private Radio excelChoice;
+	private Radio excelXlsxChoice;
 	private Button saveButton;
 	private ListStore<SimpleComboBoxData> exportScheduleStore;
 	private ComboBox<SimpleComboBoxData> exportSchedulesBox;
@@ -146,11 +147,16 @@ public class ExportProjectsSettingView extends AbstractPopupView<PopupWidget> im
 		excelChoice.setBoxLabel(I18N.CONSTANTS.msExcel());
 		excelChoice.setName("type");
 
+		excelXlsxChoice = new Radio();
+		excelXlsxChoice.setBoxLabel(I18N.CONSTANTS.msExcelXlsx());
+		excelXlsxChoice.setName("type");
+
 		RadioGroup radioGroup = new RadioGroup();
 		radioGroup.setOrientation(Orientation.VERTICAL);
 		radioGroup.setFieldLabel(I18N.CONSTANTS.chooseFileType());
 		radioGroup.add(calcChoice);
 		radioGroup.add(excelChoice);
+		radioGroup.add(excelXlsxChoice);
 		panel.add(radioGroup);
 
 		// configure fields
@@ -466,6 +472,11 @@ public class ExportProjectsSettingView extends AbstractPopupView<PopupWidget> im
 		return excelChoice;
 	}
 
+	@Override
+	public Radio getExcelXlsxChoice() {
+		return excelXlsxChoice;
+	}
+
 	@Override
 	public Button getSaveButton() {
 		return saveButton;
@@ -87,7 +87,12 @@ public class BackupStatusWidget implements IsWidget {
 			labelWidget = new Label(I18N.CONSTANTS.backupManagement_status_noBackup());
 
 		} else if (backupFile.isRunning()) {
-			labelWidget = new Label(I18N.CONSTANTS.backupManagement_status_runningProcess());
+			if (backupFile.getTotalFiles() != null && backupFile.getTotalFiles() > 0) {
+				labelWidget = new Label(I18N.CONSTANTS.backupManagement_status_runningProcess()
+					+ " (" + backupFile.getProcessedFiles() + " / " + backupFile.getTotalFiles() + ")");
+			} else {
+				labelWidget = new Label(I18N.CONSTANTS.backupManagement_status_runningProcess());
+			}
 
 		} else {
 			labelWidget = new Anchor(I18N.CONSTANTS.backupManagement_status_downloadLink());
@@ -24,6 +24,7 @@ package org.sigmah.client.ui.widget;
 
 
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 
 import org.sigmah.client.i18n.I18N;
@@ -32,11 +33,14 @@ import org.sigmah.shared.dto.history.HistoryTokenListDTO;
 import org.sigmah.shared.dto.history.HistoryTokenManager;
 
 import com.extjs.gxt.ui.client.Style.SortDir;
+import com.extjs.gxt.ui.client.event.ButtonEvent;
+import com.extjs.gxt.ui.client.event.SelectionListener;
 import com.extjs.gxt.ui.client.store.ListStore;
 import com.extjs.gxt.ui.client.store.Store;
 import com.extjs.gxt.ui.client.store.StoreSorter;
 import com.extjs.gxt.ui.client.widget.Label;
 import com.extjs.gxt.ui.client.widget.Window;
+import com.extjs.gxt.ui.client.widget.button.Button;
 import com.extjs.gxt.ui.client.widget.grid.ColumnConfig;
 import com.extjs.gxt.ui.client.widget.grid.ColumnData;
 import com.extjs.gxt.ui.client.widget.grid.ColumnModel;
@@ -60,6 +64,20 @@ public final class HistoryWindow {
 	 */
 	private static HistoryWindow instance;
 
+	/**
+	 * Loads the older tokens of a paged history.
+	 */
+	public interface NextPageLoader {
+
+		/**
+		 * Loads the page following the given tokens and adds it with {@link HistoryWindow#append(List, NextPageLoader)}.
+		 * 
+		 * @param lastTokens
+		 *          The oldest tokens displayed.
+		 */
+		void loadNextPage(HistoryTokenListDTO lastTokens);
+	}
+
 	/**
 	 * Show the history.
 	 * 
@@ -69,12 +87,41 @@ public final class HistoryWindow {
 	 *          The history manager.
 	 */
 	public static void show(final List<HistoryTokenListDTO> tokens, final HistoryTokenManager manager) {
+		show(tokens, manager, null);
+	}
+
+	/**
+	 * Show the first page of the history.
+	 * 
+	 * @param tokens
+	 *          The first page of the history.
+	 * @param manager
+	 *          The history manager.
+	 * @param nextPageLoader
+	 *          Loader of the next page, {@code null} if the history is complete.
+	 */
+	public static void show(final List<HistoryTokenListDTO> tokens, final HistoryTokenManager manager, final NextPageLoader nextPageLoader) {
 
 		if (instance == null) {
 			instance = new HistoryWindow();
 		}
 
-		instance.showHistory(tokens, manager);
+		instance.showHistory(tokens, manager, nextPageLoader);
+	}
+
+	/**
+	 * Adds a page to the displayed history.
+	 * 
+	 * @param tokens
+	 *          The next page of the history.
+	 * @param nextPageLoader
+	 *          Loader of the next page, {@code null} if the history is complete.
+	 */
+	public static void append(final List<HistoryTokenListDTO> tokens, final NextPageLoader nextPageLoader) {
+
+		if (instance != null) {
+			instance.appendHistory(tokens, nextPageLoader);
+		}
 	}
 
 	/**
@@ -93,6 +140,8 @@ public final class HistoryWindow {
 	private final Grid<HistoryTokenListDTO> grid;
 	private HistoryTokenManager manager;
 	private final Label noHistoryLabel;
+	private final Button moreButton;
+	private NextPageLoader nextPageLoader;
 
 	/**
 	 * Builds the window.
@@ -136,6 +185,19 @@ public final class HistoryWindow {
 		// Builds the no history label.
 		noHistoryLabel = new Label(I18N.CONSTANTS.historyNoHistory());
 
+		// Builds the next page button.
+		moreButton = new Button(I18N.CONSTANTS.historyMore(), new SelectionListener<ButtonEvent>() {
+
+			@Override
+			public void componentSelected(ButtonEvent ce) {
+				if (nextPageLoader != null) {
+					moreButton.disable();
+					nextPageLoader.loadNextPage(getLastTokens());
+				}
+			}
+		});
+		window.addButton(moreButton);
+
 		window.add(grid);
 	}
 
@@ -248,14 +310,17 @@ public final class HistoryWindow {
 	 *          The history.
 	 * @param manager
 	 *          The history manager.
+	 * @param nextPageLoader
+	 *          Loader of the next page, {@code null} if the history is complete.
 	 */
-	private void showHistory(List<HistoryTokenListDTO> tokens, HistoryTokenManager manager) {
+	private void showHistory(List<HistoryTokenListDTO> tokens, HistoryTokenManager manager, NextPageLoader nextPageLoader) {
 
 		// Hides if shown.
 		window.hide();
 
 		// Sets the current manager.
 		this.manager = manager;
+		setNextPageLoader(nextPageLoader);
 
 		// Reset window.
 		window.removeAll();
@@ -280,4 +345,75 @@ public final class HistoryWindow {
 		window.setHeadingText(I18N.CONSTANTS.history() + ": " + manager.getElementLabel());
 		window.show();
 	}
+
+	/**
+	 * Adds a page to the displayed history. The first group of the page may continue the last displayed group.
+	 * 
+	 * @param tokens
+	 *          The next page of the history.
+	 * @param nextPageLoader
+	 *          Loader of the next page, {@code null} if the history is complete.
+	 */
+	private void appendHistory(List<HistoryTokenListDTO> tokens, NextPageLoader nextPageLoader) {
+
+		setNextPageLoader(nextPageLoader);
+
+		if (tokens == null) {
+			return;
+		}
+
+		for (final HistoryTokenListDTO group : tokens) {
+			final HistoryTokenListDTO existing = findByDate(group.getDate());
+
+			if (existing != null) {
+				existing.getTokens().addAll(group.getTokens());
+				store.update(existing);
+			} else {
+				store.add(group);
+			}
+		}
+	}
+
+	/**
+	 * Sets the loader of the next page and shows the next page button if there is one.
+	 * 
+	 * @param nextPageLoader
+	 *          Loader of the next page, {@code null} if the history is complete.
+	 */
+	private void setNextPageLoader(NextPageLoader nextPageLoader) {
+		this.nextPageLoader = nextPageLoader;
+		moreButton.setVisible(nextPageLoader != null);
+		moreButton.enable();
+	}
+
+	/**
+	 * Returns the displayed group of the given date.
+	 * 
+	 * @param date
+	 *          The date of the group.
+	 * @return The group or {@code null}.
+	 */
+	private HistoryTokenListDTO findByDate(Date date) {
+		for (final HistoryTokenListDTO group : store.getModels()) {
+			if (group.getDate().equals(date)) {
+				return group;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the oldest displayed group, whatever the sort order of the grid.
+	 * 
+	 * @return The oldest group or {@code null} if the history is empty.
+	 */
+	private HistoryTokenListDTO getLastTokens() {
+		HistoryTokenListDTO last = null;
+		for (final HistoryTokenListDTO group : store.getModels()) {
+			if (last == null || group.getDate().before(last.getDate())) {
+				last = group;
+			}
+		}
+		return last;
+	}
 }
@@ -0,0 +1,159 @@
+package org.sigmah.client.util;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.sigmah.client.i18n.I18N;
+import org.sigmah.client.inject.Injector;
+import org.sigmah.client.page.RequestParameter;
+import org.sigmah.client.ui.notif.N10N;
+import org.sigmah.shared.servlet.ServletConstants.Servlet;
+import org.sigmah.shared.servlet.ServletConstants.ServletMethod;
+import org.sigmah.shared.servlet.ServletRequestBuilder;
+import org.sigmah.shared.servlet.ServletUrlBuilder;
+import org.sigmah.shared.util.ExportUtils.ExportJobStatus;
+
+import com.allen_sauer.gwt.log.client.Log;
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.http.client.Response;
+import com.google.gwt.user.client.Timer;
+
+/**
+ * Launches the exports generated by the server in background jobs.
+ * <p>
+ * The export request returns a job id, the job status is polled until the document is ready and the document is then
+ * downloaded.
+ * </p>
+ */
+public final class ExportLauncher {
+
+	/**
+	 * Delay between two status requests (in milliseconds).
+	 */
+	private static final int POLL_DELAY = 2000;
+
+	/**
+	 * Utility class.
+	 */
+	private ExportLauncher() {
+		// Provides only static methods.
+	}
+
+	/**
+	 * Creates the request of the given export servlet method.
+	 * 
+	 * @param injector
+	 *          The client-side injector.
+	 * @param method
+	 *          The export servlet method.
+	 * @return The request builder, to be completed with the export parameters.
+	 */
+	public static ServletRequestBuilder request(final Injector injector, final ServletMethod method) {
+		return new ServletRequestBuilder(injector, RequestBuilder.GET, Servlet.EXPORT, method);
+	}
+
+	/**
+	 * Sends the given export request and downloads the document once generated.
+	 * 
+	 * @param injector
+	 *          The client-side injector.
+	 * @param exportRequest
+	 *          The export request (see {@link #request(Injector, ServletMethod)}).
+	 */
+	public static void launch(final Injector injector, final ServletRequestBuilder exportRequest) {
+
+		exportRequest.send(new ServletRequestBuilder.RequestCallbackAdapter() {
+
+			@Override
+			public void onResponseReceived(final Request request, final Response response) {
+				if (response.getStatusCode() != Response.SC_OK) {
+					onFailure();
+					return;
+				}
+				poll(injector, response.getText().trim());
+			}
+
+			@Override
+			public void onError(final Request request, final Throwable exception) {
+				super.onError(request, exception);
+				onFailure();
+			}
+		});
+	}
+
+	/**
+	 * Requests the status of the given job until it is finished.
+	 * 
+	 * @param injector
+	 *          The client-side injector.
+	 * @param jobId
+	 *          The export job id.
+	 */
+	private static void poll(final Injector injector, final String jobId) {
+
+		final ServletRequestBuilder statusRequest = new ServletRequestBuilder(injector, RequestBuilder.GET, Servlet.EXPORT, ServletMethod.EXPORT_STATUS);
+		statusRequest.addParameter(RequestParameter.ID, jobId);
+
+		statusRequest.send(new ServletRequestBuilder.RequestCallbackAdapter() {
+
+			@Override
+			public void onResponseReceived(final Request request, final Response response) {
+
+				final ExportJobStatus status = response.getStatusCode() == Response.SC_OK ? ExportJobStatus.valueOfOrNull(response.getText()) : null;
+
+				if (status == null || status == ExportJobStatus.FAILED) {
+					onFailure();
+
+				} else if (status == ExportJobStatus.DONE) {
+					final ServletUrlBuilder urlBuilder =
+							new ServletUrlBuilder(injector.getAuthenticationProvider(), injector.getPageManager(), Servlet.EXPORT, ServletMethod.DOWNLOAD_EXPORT);
+					urlBuilder.addParameter(RequestParameter.ID, jobId);
+					ClientUtils.launchDownload(urlBuilder.toString());
+
+				} else {
+					new Timer() {
+
+						@Override
+						public void run() {
+							poll(injector, jobId);
+						}
+					}.schedule(POLL_DELAY);
+				}
+			}
+
+			@Override
+			public void onError(final Request request, final Throwable exception) {
+				super.onError(request, exception);
+				onFailure();
+			}
+		});
+	}
+
+	/**
+	 * Notifies the user that the export failed.
+	 */
+	private static void onFailure() {
+		N10N.error(I18N.CONSTANTS.error(), I18N.CONSTANTS.serverError());
+	}
+
+}
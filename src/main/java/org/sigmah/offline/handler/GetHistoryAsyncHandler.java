@@ -22,6 +22,8 @@ package org.sigmah.offline.handler;
  * #L%
  */
 
+import java.util.ArrayList;
+
 import org.sigmah.client.dispatch.DispatchListener;
 import org.sigmah.offline.dao.HistoryAsyncDAO;
 import org.sigmah.offline.dispatch.AsyncCommandHandler;
@@ -53,11 +55,21 @@ public class GetHistoryAsyncHandler implements AsyncCommandHandler<GetHistory, L
 	
 	@Override
 	public void execute(GetHistory command, OfflineExecutionContext executionContext, AsyncCallback<ListResult<HistoryTokenListDTO>> callback) {
+		if(command.getBeforeDate() != null) {
+			// The first page already contained the complete local history.
+			callback.onSuccess(new ListResult<HistoryTokenListDTO>(new ArrayList<HistoryTokenListDTO>()));
+			return;
+		}
+		
+		// Only complete histories are stored: the first page is answered with the complete history.
 		historyAsyncDAO.get(command, callback);
 	}
 
 	@Override
 	public void onSuccess(GetHistory command, ListResult<HistoryTokenListDTO> result, Authentication authentication) {
-		historyAsyncDAO.saveOrUpdate(command, result);
+		// Only complete histories are stored.
+		if(!command.isPaged()) {
+			historyAsyncDAO.saveOrUpdate(command, result);
+		}
 	}
 }
@@ -33,6 +33,8 @@ import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import org.sigmah.offline.dao.ProjectAsyncDAO;
 import org.sigmah.offline.dao.RequestManager;
@@ -62,7 +64,7 @@ public class GetMonitoredPointsAsyncHandler implements AsyncCommandHandler<GetMo
 	@Override
 	public void execute(GetMonitoredPoints command, OfflineExecutionContext executionContext, final AsyncCallback<ListResult<MonitoredPointDTO>> callback) {
 		if(command.getProjectId() == null) {
-			loadAllMonitoredPoints(callback);
+			loadAllMonitoredPoints(command, callback);
 		} else {
 			loadProjectMonitoredPoints(command.getProjectId(), callback);
 		}
@@ -76,7 +78,7 @@ public class GetMonitoredPointsAsyncHandler implements AsyncCommandHandler<GetMo
 		monitoredPointAsyncDAO.saveAll(result, null);
 	}
 
-	private void loadAllMonitoredPoints(final AsyncCallback<ListResult<MonitoredPointDTO>> callback) {
+	private void loadAllMonitoredPoints(final GetMonitoredPoints command, final AsyncCallback<ListResult<MonitoredPointDTO>> callback) {
 		monitoredPointAsyncDAO.getAllWithoutCompletionDate(new AsyncCallback<List<MonitoredPointDTO>>() {
 				@Override
 				public void onFailure(Throwable caught) {
@@ -84,7 +86,8 @@ public class GetMonitoredPointsAsyncHandler implements AsyncCommandHandler<GetMo
 				}
 
 				@Override
-			public void onSuccess(List<MonitoredPointDTO> result) {
+			public void onSuccess(List<MonitoredPointDTO> all) {
+				final List<MonitoredPointDTO> result = filter(command, all);
 				final RequestManager<ListResult<MonitoredPointDTO>> manager = new RequestManager<ListResult<MonitoredPointDTO>>(new ListResult<MonitoredPointDTO>(result), callback);
 						
 				for (final MonitoredPointDTO monitoredPoint : result) {
@@ -137,4 +140,28 @@ public class GetMonitoredPointsAsyncHandler implements AsyncCommandHandler<GetMo
 			}
 		};
 	}
+
+	/**
+	 * Applies the date window and the limit of the given command.
+	 */
+	private static List<MonitoredPointDTO> filter(final GetMonitoredPoints command, final List<MonitoredPointDTO> all) {
+		final List<MonitoredPointDTO> result = new ArrayList<MonitoredPointDTO>();
+		for (final MonitoredPointDTO monitoredPoint : all) {
+			if (command.isInWindow(monitoredPoint.getExpectedDate())) {
+				result.add(monitoredPoint);
+			}
+		}
+		
+		if (command.getLimit() != null && result.size() > command.getLimit()) {
+			Collections.sort(result, new Comparator<MonitoredPointDTO>() {
+				@Override
+				public int compare(MonitoredPointDTO o1, MonitoredPointDTO o2) {
+					return o1.getExpectedDate().compareTo(o2.getExpectedDate());
+				}
+			});
+			return new ArrayList<MonitoredPointDTO>(result.subList(0, command.getLimit()));
+		}
+		return result;
+	}
+	
 }
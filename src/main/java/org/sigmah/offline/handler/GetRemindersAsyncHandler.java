@@ -34,6 +34,8 @@ import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import org.sigmah.offline.dao.ProjectAsyncDAO;
 import org.sigmah.offline.dao.RequestManager;
@@ -62,7 +64,7 @@ public class GetRemindersAsyncHandler implements AsyncCommandHandler<GetReminder
 	@Override
 	public void execute(GetReminders command, OfflineExecutionContext executionContext, final AsyncCallback<ListResult<ReminderDTO>> callback) {
 		if(command.getProjectId() == null) {
-			loadAllReminders(callback);
+			loadAllReminders(command, callback);
 		} else {
 			loadProjectReminders(command.getProjectId(), callback);
 		}
@@ -76,7 +78,7 @@ public class GetRemindersAsyncHandler implements AsyncCommandHandler<GetReminder
 		reminderAsyncDAO.saveAll(result, null);
 	}
 	
-	private void loadAllReminders(final AsyncCallback<ListResult<ReminderDTO>> callback) {
+	private void loadAllReminders(final GetReminders command, final AsyncCallback<ListResult<ReminderDTO>> callback) {
 		reminderAsyncDAO.getAllWithoutCompletionDate(new AsyncCallback<List<ReminderDTO>>() {
 			@Override
 				public void onFailure(Throwable caught) {
@@ -84,7 +86,8 @@ public class GetRemindersAsyncHandler implements AsyncCommandHandler<GetReminder
 				}
 
 				@Override
-			public void onSuccess(List<ReminderDTO> result) {
+			public void onSuccess(List<ReminderDTO> all) {
+				final List<ReminderDTO> result = filter(command, all);
 				final RequestManager<ListResult<ReminderDTO>> manager = new RequestManager<ListResult<ReminderDTO>>(new ListResult<ReminderDTO>(result), callback);
 						
 				for (final ReminderDTO reminder : result) {
@@ -137,4 +140,28 @@ public class GetRemindersAsyncHandler implements AsyncCommandHandler<GetReminder
 			}
 		};
 	}
+
+	/**
+	 * Applies the date window and the limit of the given command.
+	 */
+	private static List<ReminderDTO> filter(final GetReminders command, final List<ReminderDTO> all) {
+		final List<ReminderDTO> result = new ArrayList<ReminderDTO>();
+		for (final ReminderDTO reminder : all) {
+			if (command.isInWindow(reminder.getExpectedDate())) {
+				result.add(reminder);
+			}
+		}
+		
+		if (command.getLimit() != null && result.size() > command.getLimit()) {
+			Collections.sort(result, new Comparator<ReminderDTO>() {
+				@Override
+				public int compare(ReminderDTO o1, ReminderDTO o2) {
+					return o1.getExpectedDate().compareTo(o2.getExpectedDate());
+				}
+			});
+			return new ArrayList<ReminderDTO>(result.subList(0, command.getLimit()));
+		}
+		return result;
+	}
+	
 }
@@ -0,0 +1,102 @@
+package org.sigmah.offline.handler;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import org.sigmah.client.dispatch.CommandResultHandler;
+import org.sigmah.client.dispatch.DispatchListener;
+import org.sigmah.offline.dao.RequestManager;
+import org.sigmah.offline.dao.RequestManagerCallback;
+import org.sigmah.offline.dao.ValueAsyncDAO;
+import org.sigmah.offline.dispatch.AsyncCommandHandler;
+import org.sigmah.offline.dispatch.OfflineExecutionContext;
+import org.sigmah.shared.command.GetValues;
+import org.sigmah.shared.command.result.Authentication;
+import org.sigmah.shared.command.result.ListResult;
+import org.sigmah.shared.command.result.ValueResult;
+
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * JavaScript implementation of {@link org.sigmah.server.handler.GetValuesHandler}.
+ * Used when the user is offline.
+ * <p>
+ * Values are stored one by one, like the values of {@link org.sigmah.shared.command.GetValue}.
+ * </p>
+ */
+@Singleton
+public class GetValuesAsyncHandler implements AsyncCommandHandler<GetValues, ListResult<ValueResult>>, DispatchListener<GetValues, ListResult<ValueResult>> {
+
+	private final ValueAsyncDAO valueAsyncDAO;
+
+	@Inject
+	public GetValuesAsyncHandler(ValueAsyncDAO valueAsyncDAO) {
+		this.valueAsyncDAO = valueAsyncDAO;
+	}
+
+	@Override
+	public void execute(GetValues command, OfflineExecutionContext executionContext, final AsyncCallback<ListResult<ValueResult>> callback) {
+		final ValueResult[] values = new ValueResult[command.size()];
+
+		final RequestManager<ListResult<ValueResult>> requestManager = new RequestManager<ListResult<ValueResult>>(new ListResult<ValueResult>(),
+			new CommandResultHandler<ListResult<ValueResult>>() {
+
+				@Override
+				protected void onCommandSuccess(ListResult<ValueResult> result) {
+					result.setList(Arrays.asList(values));
+					callback.onSuccess(result);
+				}
+			});
+
+		for (int index = 0; index < command.size(); index++) {
+			final int entry = index;
+			valueAsyncDAO.get(command.toGetValue(index), new RequestManagerCallback<ListResult<ValueResult>, ValueResult>(requestManager) {
+
+				@Override
+				public void onRequestSuccess(ValueResult result) {
+					values[entry] = result;
+				}
+			});
+		}
+
+		requestManager.ready();
+	}
+
+	@Override
+	public void onSuccess(GetValues command, ListResult<ValueResult> result, Authentication authentication) {
+		if (result == null || result.getList() == null) {
+			return;
+		}
+
+		for (int index = 0; index < command.size() && index < result.getList().size(); index++) {
+			final ValueResult valueResult = result.getList().get(index);
+			if (valueResult != null) {
+				valueAsyncDAO.saveOrUpdate(command.toGetValue(index), valueResult);
+			}
+		}
+	}
+
+}
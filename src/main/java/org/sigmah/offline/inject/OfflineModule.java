@@ -42,6 +42,7 @@ import org.sigmah.offline.handler.GetProjectsFromIdAsyncHandler;
 import org.sigmah.offline.handler.GetRemindersAsyncHandler;
 import org.sigmah.offline.handler.GetUsersByOrganizationAsyncHandler;
 import org.sigmah.offline.handler.GetValueAsyncHandler;
+import org.sigmah.offline.handler.GetValuesAsyncHandler;
 import org.sigmah.offline.handler.PrepareFileUploadAsyncHandler;
 import org.sigmah.offline.handler.SecureNavigationAsyncHandler;
 import org.sigmah.shared.command.GetCalendar;
@@ -58,6 +59,7 @@ import org.sigmah.shared.command.GetProjectsFromId;
 import org.sigmah.shared.command.GetReminders;
 import org.sigmah.shared.command.GetUsersByOrganization;
 import org.sigmah.shared.command.GetValue;
+import org.sigmah.shared.command.GetValues;
 import org.sigmah.shared.command.PrepareFileUpload;
 import org.sigmah.shared.command.SecureNavigationCommand;
 import org.sigmah.shared.command.base.Command;
@@ -138,6 +140,7 @@ public class OfflineModule extends AbstractGinModule {
 			GetSitesCountAsyncHandler getSitesCountAsyncHandler,
 			GetUsersByOrganizationAsyncHandler getUsersByOrganizationAsyncHandler,
 			GetValueAsyncHandler getValueAsyncHandler,
+			GetValuesAsyncHandler getValuesAsyncHandler,
             PrepareFileUploadAsyncHandler prepareFileUploadAsyncHandler,
 			SecureNavigationAsyncHandler secureNavigationAsyncHandler,
 			UpdateEntityAsyncHandler updateEntityAsyncHandler,
@@ -179,6 +182,7 @@ public class OfflineModule extends AbstractGinModule {
         registerHandler(GetSitesCount.class, getSitesCountAsyncHandler);
         registerHandler(GetUsersByOrganization.class, getUsersByOrganizationAsyncHandler);
         registerHandler(GetValue.class, getValueAsyncHandler);
+        registerHandler(GetValues.class, getValuesAsyncHandler);
 		registerHandler(PrepareFileUpload.class, prepareFileUploadAsyncHandler);
         registerHandler(SecureNavigationCommand.class, secureNavigationAsyncHandler);
         registerHandler(UpdateEntity.class, updateEntityAsyncHandler);
@@ -29,16 +29,14 @@ import java.util.Map;
 
 import org.sigmah.client.dispatch.DispatchAsync;
 import org.sigmah.offline.dao.UpdateDiaryAsyncDAO;
-import org.sigmah.shared.command.GetHistory;
 import org.sigmah.shared.command.GetProject;
 import org.sigmah.shared.command.GetProjects;
-import org.sigmah.shared.command.GetValue;
+import org.sigmah.shared.command.GetOfflineSnapshot;
+import org.sigmah.shared.command.GetValues;
 import org.sigmah.shared.command.base.Command;
 import org.sigmah.shared.command.result.ListResult;
-import org.sigmah.shared.command.result.ValueResult;
 import org.sigmah.shared.dto.ProjectDTO;
 import org.sigmah.shared.dto.element.FlexibleElementDTO;
-import org.sigmah.shared.dto.history.HistoryTokenListDTO;
 
 import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.google.inject.Inject;
@@ -48,6 +46,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import org.sigmah.client.dispatch.CommandResultHandler;
 import org.sigmah.client.i18n.I18N;
+import org.sigmah.client.security.AuthenticationProvider;
 import org.sigmah.client.page.Page;
 import org.sigmah.client.ui.notif.N10N;
 import org.sigmah.client.ui.widget.Loadable;
@@ -56,23 +55,17 @@ import org.sigmah.offline.dao.MonitoredPointAsyncDAO;
 import org.sigmah.offline.dao.OrgUnitAsyncDAO;
 import org.sigmah.offline.dao.ReminderAsyncDAO;
 import org.sigmah.offline.dao.TransfertAsyncDAO;
-import org.sigmah.shared.command.GetCalendar;
 import org.sigmah.shared.command.GetOrgUnit;
-import org.sigmah.shared.command.GetProjectReport;
-import org.sigmah.shared.command.GetProjectReports;
 import org.sigmah.shared.command.SecureNavigationCommand;
 import org.sigmah.shared.command.Synchronize;
-import org.sigmah.shared.command.result.Calendar;
+import org.sigmah.shared.command.result.Authentication;
+import org.sigmah.shared.command.result.OfflineSnapshotResult;
 import org.sigmah.shared.command.result.SecureNavigationResult;
 import org.sigmah.shared.command.result.SynchronizeResult;
 import org.sigmah.shared.command.result.VoidResult;
 import org.sigmah.shared.dto.ProjectFundingDTO;
-import org.sigmah.shared.dto.calendar.CalendarType;
-import org.sigmah.shared.dto.calendar.PersonalCalendarIdentifier;
 import org.sigmah.shared.dto.orgunit.OrgUnitDTO;
 import org.sigmah.shared.dto.referential.ContainerInformation;
-import org.sigmah.shared.dto.report.ProjectReportDTO;
-import org.sigmah.shared.dto.report.ReportReference;
 
 /**
  * Manage sync operations.
@@ -85,8 +78,9 @@ public class Synchronizer {
     private static final double ACCESS_RIGHTS_VALUE = 0.05;
     private static final double GET_PROJECT_VALUE = 0.1;
     private static final double GET_ORGUNIT_VALUE = 0.05;
-    private static final double ORGUNIT_DETAIL_VALUE = 0.3;
-    private static final double PROJECT_DETAIL_VALUE = 0.5;
+    private static final double ORGUNIT_DETAIL_VALUE = 0.1;
+    private static final double PROJECT_DETAIL_VALUE = 0.2;
+    private static final double SNAPSHOT_VALUE = 0.5;
     
     @Inject
 	private UpdateDiaryAsyncDAO updateDiaryAsyncDAO;
@@ -109,6 +103,9 @@ public class Synchronizer {
 	@Inject
 	private OrgUnitAsyncDAO orgUnitAsyncDAO;
 	
+	@Inject
+	private AuthenticationProvider authenticationProvider;
+	
     /**
 	 * Send to the server the modifications done offline.
 	 * 
@@ -210,6 +207,13 @@ public class Synchronizer {
 			}
 		}, dispatcher);
 		
+		// Values, history, calendars and reports of every project/orgunit.
+		// Containers already synchronized only get their changes.
+		final Authentication authentication = authenticationProvider.get();
+		final GetOfflineSnapshot snapshot = new GetOfflineSnapshot(withHistory);
+		snapshot.setSince(UpdateDates.getSnapshotDate(authentication));
+		snapshot.setKnownContainerIds(UpdateDates.getSnapshotContainerIds(authentication));
+		
         // Storing access rights
         final double pageAccessProgress = ACCESS_RIGHTS_VALUE / Page.values().length;
         for(final Page page : Page.values()) {
@@ -263,7 +267,8 @@ public class Synchronizer {
 							protected void onCommandSuccess(ProjectDTO result) {
 								if(result != null && result.getProjectModel() != null) {
 									final List<FlexibleElementDTO> elements = result.getProjectModel().getAllElements();
-									queueDetails(queue, projectId, result.getCalendarId(), elements, projectProgress, progress, progressListener, withHistory);
+									addToSnapshot(snapshot, projectId, result.getCalendarId(), elements);
+									updateProgress(projectProgress, progress, progressListener);
 								} else {
 									Log.warn("Project '" + projectId + "' was not found on the server.");
 								}
@@ -295,6 +300,8 @@ public class Synchronizer {
 						if(result == null || result.isEmpty()) {
 							// If nothing has been found.
 							updateProgress(ORGUNIT_DETAIL_VALUE, progress, progressListener);
+							queueSnapshot(queue, snapshot, authentication.getUserEmail(), progress, progressListener);
+							callback.onSuccess(null);
 							return;
 						}
 						
@@ -311,7 +318,8 @@ public class Synchronizer {
 										// BUGFIX #795: Checking if an actual org unit exists for the given id.
 										if(result != null && result.getOrgUnitModel() != null) {
 											final List<FlexibleElementDTO> elements = result.getOrgUnitModel().getAllElements();
-											queueDetails(queue, orgUnitId, result.getCalendarId(), elements, orgUnitProgress, progress, progressListener, withHistory);
+											addToSnapshot(snapshot, orgUnitId, result.getCalendarId(), elements);
+											updateProgress(orgUnitProgress, progress, progressListener);
 										} else {
 											Log.warn("Cached org unit '" + orgUnitId + "' was not found on the server.");
 										}
@@ -322,6 +330,7 @@ public class Synchronizer {
 							}
 						}
 						
+						queueSnapshot(queue, snapshot, authentication.getUserEmail(), progress, progressListener);
 						callback.onSuccess(null);
 					}
 				});
@@ -332,96 +341,50 @@ public class Synchronizer {
 	}
 	
 	/**
-	 * Adds the operations required to download the details of a project/orgunit.
+	 * Adds a project/orgunit to the offline snapshot.
 	 * 
-	 * @param queue
-     *          Command queue.
+	 * @param snapshot
+     *          Snapshot command.
 	 * @param containerId
      *          Identifier of the project/orgunit.
 	 * @param calendarId
      *          Identifier of the calendar of the project/orgunit (may be null).
 	 * @param elements
      *          Full list of flexibles elements.
-	 * @param categoryProgress
-     *          Percentage of progress for the given element.
+	 */
+	private void addToSnapshot(final GetOfflineSnapshot snapshot, int containerId, final Integer calendarId, List<FlexibleElementDTO> elements) {
+		final GetValues values = new GetValues(containerId, null);
+		for(final FlexibleElementDTO element : elements) {
+			values.add(element.getId(), element.getEntityName());
+		}
+		snapshot.add(values, calendarId);
+	}
+	
+	/**
+	 * Adds the snapshot command to the queue. Values, history, calendars and
+	 * reports of every project/orgunit are retrieved by this single command
+	 * and stored by the dispatch listeners.
+	 * 
+	 * @param queue
+     *          Command queue.
+	 * @param snapshot
+     *          Snapshot command, filled by the previous entries of the queue.
+	 * @param email
+     *          Email of the current user.
 	 * @param progress
      *          Current progress.
 	 * @param progressListener
      *          Listener to call to update the progress bar.
 	 */
-	private void queueDetails(final CommandQueue queue, int containerId, final Integer calendarId, 
-		List<FlexibleElementDTO> elements, double categoryProgress, final double[] progress, 
-		final SynchroProgressListener progressListener, final boolean withHistory) {
+	private void queueSnapshot(final CommandQueue queue, final GetOfflineSnapshot snapshot, final String email, 
+		final double[] progress, final SynchroProgressListener progressListener) {
 		
-		final double flexibleElementCount = elements.size();
-		final double historyCount = withHistory ? elements.size() : 0;
-		final double calendarCount = calendarId != null ? 1.0 : 0.0;
-		final double projectReports = 1.0;
-
-		final double elementProgress = categoryProgress / (flexibleElementCount + historyCount + calendarCount + projectReports);
-
-		// Fetching flexible elements and their history
-		for(final FlexibleElementDTO element : elements) {
-			// Caching element value
-			final GetValue getValue =  new GetValue(containerId, element.getId(), element.getEntityName());
-			queue.add(getValue, new CommandResultHandler<ValueResult>() {
-				@Override
-				protected void onCommandSuccess(ValueResult result) {
-					// Success
-					updateProgress(elementProgress, progress, progressListener);
-				}
-			});
-
-			// Caching value history
-			if(withHistory) {
-				final GetHistory getHistory = new GetHistory(element.getId(), containerId);
-				queue.add(getHistory, new CommandResultHandler<ListResult<HistoryTokenListDTO>>() {
-					@Override
-					protected void onCommandSuccess(ListResult<HistoryTokenListDTO> result) {
-						// Success
-						updateProgress(elementProgress, progress, progressListener);
-					}
-				});
-			}
-		}
-
-		// Fetching the calendar
-		if(calendarId != null) {
-			final PersonalCalendarIdentifier identifier = new PersonalCalendarIdentifier(calendarId);
-			queue.add(new GetCalendar(CalendarType.Personal, identifier), new CommandResultHandler<Calendar>() {
-
-				@Override
-				protected void onCommandSuccess(Calendar result) {
-					// Success
-					updateProgress(elementProgress, progress, progressListener);
-				}
-			});
-		}
-
-		// Fetching project reports
-		queue.add(new GetProjectReports(containerId, null), new CommandResultHandler<ListResult<ReportReference>>() {
+		queue.add(snapshot, new CommandResultHandler<OfflineSnapshotResult>() {
 
 			@Override
-			protected void onCommandSuccess(ListResult<ReportReference> result) {
-				if(result == null || result.isEmpty()) {
-					// No reports
-					updateProgress(elementProgress, progress, progressListener);
-					
-				} else {
-					final double reportProgress = elementProgress / result.getSize();
-
-					// Fetching actuals reports
-					for(final ReportReference reportReference : result.getList()) {
-						queue.add(new GetProjectReport(reportReference.getId()), new CommandResultHandler<ProjectReportDTO>() {
-
-							@Override
-							protected void onCommandSuccess(ProjectReportDTO result) {
-								// Success
-								updateProgress(reportProgress, progress, progressListener);
-							}
-						});
-					}
-				}
+			protected void onCommandSuccess(OfflineSnapshotResult result) {
+				UpdateDates.setSnapshot(email, result.getDate(), snapshot.getContainerIds());
+				updateProgress(SNAPSHOT_VALUE, progress, progressListener);
 			}
 		});
 	}
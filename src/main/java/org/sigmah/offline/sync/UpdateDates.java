@@ -23,7 +23,10 @@ package org.sigmah.offline.sync;
  */
 
 import com.google.gwt.storage.client.Storage;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import org.sigmah.shared.command.result.Authentication;
 
 /**
@@ -35,6 +38,8 @@ public final class UpdateDates {
     
     private static final String ITEM_DATABASE_UPDATE_DATE = ".database-update-date";
     private static final String ITEM_SIGMAH_UPDATE_DATE = "sigmah.update-date";
+    private static final String ITEM_SNAPSHOT_DATE = ".snapshot-date";
+    private static final String ITEM_SNAPSHOT_CONTAINERS = ".snapshot-containers";
     
     private UpdateDates() {
     }
@@ -68,6 +73,77 @@ public final class UpdateDates {
                 storage.setItem(item, Long.toString(date.getTime()));
             } else {
                 storage.removeItem(item);
+                // Without local data, the next snapshot has to be complete.
+                setSnapshot(email, null, null);
+            }
+        }
+    }
+    
+    /**
+     * Returns the server date of the last offline snapshot.
+     * 
+     * @param authentication Current user.
+     * @return The date or <code>null</code> if the next snapshot has to be complete.
+     */
+    public static Date getSnapshotDate(Authentication authentication) {
+        Date snapshotDate = null;
+        
+        final Storage storage = Storage.getLocalStorageIfSupported();
+        if(authentication != null && storage != null) {
+            final String date = storage.getItem(authentication.getUserEmail() + ITEM_SNAPSHOT_DATE);
+            if(date != null) {
+                snapshotDate = new Date(Long.parseLong(date));
+            }
+        }
+        
+        return snapshotDate;
+    }
+    
+    /**
+     * Returns the ids of the projects and org units included in the last offline snapshot.
+     * 
+     * @param authentication Current user.
+     * @return The container ids (empty if unknown).
+     */
+    public static List<Integer> getSnapshotContainerIds(Authentication authentication) {
+        final List<Integer> containerIds = new ArrayList<Integer>();
+        
+        final Storage storage = Storage.getLocalStorageIfSupported();
+        if(authentication != null && storage != null) {
+            final String ids = storage.getItem(authentication.getUserEmail() + ITEM_SNAPSHOT_CONTAINERS);
+            if(ids != null && !ids.isEmpty()) {
+                for(final String id : ids.split(",")) {
+                    containerIds.add(Integer.valueOf(id));
+                }
+            }
+        }
+        
+        return containerIds;
+    }
+    
+    /**
+     * Saves the server date and the containers of the last offline snapshot.
+     * 
+     * @param email Email of the current user.
+     * @param date Server date of the snapshot or <code>null</code> to force a complete snapshot.
+     * @param containerIds Ids of the projects and org units of the snapshot.
+     */
+    public static void setSnapshot(String email, Date date, Collection<Integer> containerIds) {
+        final Storage storage = Storage.getLocalStorageIfSupported();
+        if(storage != null) {
+            if(date != null && containerIds != null) {
+                final StringBuilder ids = new StringBuilder();
+                for(final Integer containerId : containerIds) {
+                    if(ids.length() > 0) {
+                        ids.append(',');
+                    }
+                    ids.append(containerId);
+                }
+                storage.setItem(email + ITEM_SNAPSHOT_DATE, Long.toString(date.getTime()));
+                storage.setItem(email + ITEM_SNAPSHOT_CONTAINERS, ids.toString());
+            } else {
+                storage.removeItem(email + ITEM_SNAPSHOT_DATE);
+                storage.removeItem(email + ITEM_SNAPSHOT_CONTAINERS);
             }
         }
     }
@@ -0,0 +1,215 @@
+package org.sigmah.server.autoExport;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.sigmah.server.conf.Properties;
+import org.sigmah.server.domain.export.GlobalExportSettings;
+import org.sigmah.shared.conf.PropertyKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Provider;
+import com.google.inject.persist.UnitOfWork;
+
+/**
+ * Base of the scheduled jobs processing the {@link GlobalExportSettings} of every organization.
+ * <p>
+ * Organizations are processed concurrently by a bounded pool of workers (see
+ * {@link PropertyKey#EXPORT_AUTO_PARALLELISM}). Each organization is processed in its own unit of work, and thus with
+ * its own {@link EntityManager} and transaction: a failing organization does not roll back the others.
+ * </p>
+ */
+public abstract class AbstractOrganizationJob implements Job {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AbstractOrganizationJob.class);
+
+	/**
+	 * Number of organizations processed at the same time when the property is not set.
+	 */
+	private static final int DEFAULT_PARALLELISM = 2;
+
+	private final UnitOfWork unitOfWork;
+	private final Provider<EntityManager> entityManagerProvider;
+	private final Properties properties;
+
+	protected AbstractOrganizationJob(final UnitOfWork unitOfWork, final Provider<EntityManager> entityManagerProvider, final Properties properties) {
+		this.unitOfWork = unitOfWork;
+		this.entityManagerProvider = entityManagerProvider;
+		this.properties = properties;
+	}
+
+	/**
+	 * Processes the given organization settings.<br>
+	 * Called from a worker thread, inside a transaction of the given entity manager.
+	 * 
+	 * @param settings
+	 *          Settings of the organization.
+	 * @param em
+	 *          Entity manager of the current worker.
+	 * @return {@code true} if something has been done, {@code false} if the organization has been skipped.
+	 * @throws Exception
+	 *           If the processing failed, the transaction is then rolled back.
+	 */
+	protected abstract boolean execute(GlobalExportSettings settings, EntityManager em) throws Exception;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(final JobExecutionContext executionContext) throws JobExecutionException {
+
+		final String jobName = getClass().getSimpleName();
+		final long start = System.nanoTime();
+
+		final List<Integer> settingsIds = findSettingsIds();
+		if (settingsIds.isEmpty()) {
+			return;
+		}
+
+		final int parallelism = Math.max(1, Math.min(properties.getIntegerProperty(PropertyKey.EXPORT_AUTO_PARALLELISM, DEFAULT_PARALLELISM), settingsIds.size()));
+		final ExecutorService executorService = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+
+			private final AtomicInteger counter = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "sigmah-" + jobName + "-worker-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		final List<Future<Boolean>> futures = new ArrayList<>(settingsIds.size());
+		for (final Integer settingsId : settingsIds) {
+			futures.add(executorService.submit(new Callable<Boolean>() {
+
+				@Override
+				public Boolean call() {
+					return process(settingsId);
+				}
+			}));
+		}
+		executorService.shutdown();
+
+		int failures = 0;
+		try {
+			for (final Future<Boolean> future : futures) {
+				if (!future.get()) {
+					failures++;
+				}
+			}
+
+		} catch (final InterruptedException e) {
+			executorService.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new JobExecutionException(e);
+
+		} catch (final ExecutionException e) {
+			// process() catches every exception.
+			throw new JobExecutionException(e);
+		}
+
+		LOG.info("{} processed {} organization(s) with {} worker(s) in {} ms, {} failure(s).", jobName, settingsIds.size(), parallelism,
+			TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failures);
+	}
+
+	/**
+	 * Processes the given settings in a new unit of work and transaction.
+	 * 
+	 * @param settingsId
+	 *          Id of the settings.
+	 * @return {@code false} if the processing failed.
+	 */
+	private boolean process(final Integer settingsId) {
+
+		final long start = System.nanoTime();
+		Integer organizationId = null;
+		EntityTransaction tx = null;
+
+		unitOfWork.begin();
+		try {
+			final EntityManager em = entityManagerProvider.get();
+
+			tx = em.getTransaction();
+			tx.begin();
+
+			final GlobalExportSettings settings = em.find(GlobalExportSettings.class, settingsId);
+			organizationId = settings.getOrganization().getId();
+
+			final boolean done = execute(settings, em);
+
+			tx.commit();
+
+			if (done) {
+				LOG.info("{} of organization #{} done in {} ms.", getClass().getSimpleName(), organizationId,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			}
+			return true;
+
+		} catch (final Exception e) {
+			if (tx != null && tx.isActive()) {
+				tx.rollback();
+			}
+			LOG.error(getClass().getSimpleName() + " of organization #" + organizationId + " (settings #" + settingsId + ") failed after "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.", e);
+			return false;
+
+		} finally {
+			unitOfWork.end();
+		}
+	}
+
+	/**
+	 * Finds the ids of every organization settings.
+	 * 
+	 * @return The settings ids.
+	 */
+	private List<Integer> findSettingsIds() {
+
+		unitOfWork.begin();
+		try {
+			return entityManagerProvider.get().createQuery("SELECT ges.id FROM GlobalExportSettings ges", Integer.class).getResultList();
+
+		} finally {
+			unitOfWork.end();
+		}
+	}
+
+}
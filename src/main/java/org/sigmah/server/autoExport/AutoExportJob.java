@@ -24,157 +24,117 @@ package org.sigmah.server.autoExport;
 
 import java.util.Calendar;
 import java.util.Date;
-import java.util.List;
-import java.util.Map;
 
 import javax.persistence.EntityManager;
-import javax.persistence.EntityTransaction;
-
-import org.quartz.Job;
-import org.quartz.JobDataMap;
-import org.quartz.JobExecutionContext;
-import org.quartz.JobExecutionException;
-import org.sigmah.server.dao.GlobalExportDAO;
-import org.sigmah.server.dao.impl.GlobalExportHibernateDAO;
+
+import org.sigmah.server.conf.Properties;
 import org.sigmah.server.domain.export.GlobalExport;
 import org.sigmah.server.domain.export.GlobalExportSettings;
 import org.sigmah.server.i18n.I18nServer;
 import org.sigmah.server.servlet.exporter.data.GlobalExportDataProvider;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import com.google.inject.Injector;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.persist.UnitOfWork;
 
 /**
  * Scheduled (in link{GlobalExportJobActivator}) job to generate global exports by check export frequency of each
- * organization Runs in a separate thread ATTENTION: This job must not run at the same time with link{AutoDeleteJob}
+ * organization. Organizations are exported concurrently, each one in its own transaction (see
+ * {@link AbstractOrganizationJob}). ATTENTION: This job must not run at the same time with link{AutoDeleteJob}
  * 
  * @author sherzod V1.3
  * @author Mehdi Benabdeslam (mehdi.benabdeslam@netapsys.fr) v2.0
  */
 
-public class AutoExportJob implements Job {
-
-	private static final Logger LOG = LoggerFactory.getLogger(AutoExportJob.class);
-
-	@Override
-	public void execute(JobExecutionContext executionContext) throws JobExecutionException {
-
-		final JobDataMap dataMap = executionContext.getJobDetail().getJobDataMap();
-		final EntityManager em = (EntityManager) dataMap.get("em");
-		final Injector injector = (Injector) dataMap.get("injector");
-
-		EntityTransaction tx = null;
-
-		LOG.debug("******************* AUTO CREATE EXPORT ********************");
-
-		try {
-
-			// Open transaction
-
-			/**
-			 * NOTE: it is impossible to use @Transactional for this method The reason is link{TransactionalInterceptor} gets
-			 * EntityManager from the injector which is out of scope
-			 */
-
-			tx = em.getTransaction();
-			tx.begin();
-
-			final GlobalExportDAO exportDAO = injector.getInstance(GlobalExportHibernateDAO.class);
-			final GlobalExportDataProvider dataProvider = injector.getInstance(GlobalExportDataProvider.class);
-
-			final List<GlobalExportSettings> settings = exportDAO.getGlobalExportSettings();
-			for (final GlobalExportSettings setting : settings) {
-
-				/**
-				 * Check for auto export schedule
-				 */
+public class AutoExportJob extends AbstractOrganizationJob {
 
-				// skip if no export schedule is specified
-				if (setting.getAutoExportFrequency() == null || setting.getAutoExportFrequency() < 1)
-					continue;
+	private final GlobalExportDataProvider dataProvider;
+	private final I18nServer i18nServer;
 
-				final Calendar systemCalendar = Calendar.getInstance();
-
-				boolean doExport = false;
-
-				if ((setting.getAutoExportFrequency() >= 31) && (setting.getAutoExportFrequency() <= 58)) {
-
-					// Case of Monthly Auto Export
-					if ((setting.getAutoExportFrequency() - 30) == systemCalendar.get(Calendar.DAY_OF_MONTH)) {
-						doExport = true;
-					}
-				} else if ((setting.getAutoExportFrequency() >= 61) && (setting.getAutoExportFrequency() <= 67)) {
+	@Inject
+	public AutoExportJob(final UnitOfWork unitOfWork, final Provider<EntityManager> entityManagerProvider, final Properties properties,
+			final GlobalExportDataProvider dataProvider, final I18nServer i18nServer) {
+		super(unitOfWork, entityManagerProvider, properties);
+		this.dataProvider = dataProvider;
+		this.i18nServer = i18nServer;
+	}
 
-					// Case of Weekly Auto Export
-					if ((setting.getAutoExportFrequency() - 60) == systemCalendar.get(Calendar.DAY_OF_WEEK)) {
-						doExport = true;
-					}
+	@Override
+	protected boolean execute(final GlobalExportSettings setting, final EntityManager em) throws Exception {
 
-				} else {
-					// Regular Auto-Export every N-days
+		/**
+		 * Check for auto export schedule
+		 */
 
-					final Calendar scheduledCalendar = Calendar.getInstance();
-					Date lastExportDate = setting.getLastExportDate();
+		// skip if no export schedule is specified
+		if (setting.getAutoExportFrequency() == null || setting.getAutoExportFrequency() < 1)
+			return false;
 
-					if (lastExportDate == null) {
+		final Calendar systemCalendar = Calendar.getInstance();
 
-						lastExportDate = systemCalendar.getTime();
-						setting.setLastExportDate(lastExportDate);
-						em.merge(setting);
+		boolean doExport = false;
 
-					} else {
-						scheduledCalendar.setTime(lastExportDate);
-						// add scheduled days to the last exported date
-						scheduledCalendar.add(Calendar.DAY_OF_MONTH, setting.getAutoExportFrequency());
-					}
+		if ((setting.getAutoExportFrequency() >= 31) && (setting.getAutoExportFrequency() <= 58)) {
 
-					final Date systemDate = getZeroTimeDate(systemCalendar.getTime());
-					final Date scheduledDate = getZeroTimeDate(scheduledCalendar.getTime());
+			// Case of Monthly Auto Export
+			if ((setting.getAutoExportFrequency() - 30) == systemCalendar.get(Calendar.DAY_OF_MONTH)) {
+				doExport = true;
+			}
+		} else if ((setting.getAutoExportFrequency() >= 61) && (setting.getAutoExportFrequency() <= 67)) {
 
-					if (systemDate.compareTo(scheduledDate) >= 0) {
-						doExport = true;
-					}
+			// Case of Weekly Auto Export
+			if ((setting.getAutoExportFrequency() - 60) == systemCalendar.get(Calendar.DAY_OF_WEEK)) {
+				doExport = true;
+			}
 
-				}
+		} else {
+			// Regular Auto-Export every N-days
 
-				if (doExport) {
+			final Calendar scheduledCalendar = Calendar.getInstance();
+			Date lastExportDate = setting.getLastExportDate();
 
-					/**
-					 * Start auto export
-					 */
+			if (lastExportDate == null) {
 
-					// persist global export logger
-					final GlobalExport globalExport = new GlobalExport();
-					globalExport.setOrganization(setting.getOrganization());
-					globalExport.setDate(systemCalendar.getTime());
-					em.persist(globalExport);
+				lastExportDate = systemCalendar.getTime();
+				setting.setLastExportDate(lastExportDate);
+				em.merge(setting);
 
-					em.flush();
+			} else {
+				scheduledCalendar.setTime(lastExportDate);
+				// add scheduled days to the last exported date
+				scheduledCalendar.add(Calendar.DAY_OF_MONTH, setting.getAutoExportFrequency());
+			}
 
-					// generate export content
+			final Date systemDate = getZeroTimeDate(systemCalendar.getTime());
+			final Date scheduledDate = getZeroTimeDate(scheduledCalendar.getTime());
 
-					final Map<String, List<String[]>> exportData =
-							dataProvider.generateGlobalExportData(setting.getOrganization().getId(), em, injector.getInstance(I18nServer.class), null, null);
+			if (systemDate.compareTo(scheduledDate) >= 0) {
+				doExport = true;
+			}
 
-					// persist export content
-					dataProvider.persistGlobalExportDataAsCsv(globalExport, em, exportData);
+		}
 
-				}
+		if (!doExport) {
+			return false;
+		}
 
-			}
-			tx.commit();
+		/**
+		 * Start auto export
+		 */
 
-			LOG.info("Scheduled EXPORT of global exports fired");
+		// persist global export logger
+		final GlobalExport globalExport = new GlobalExport();
+		globalExport.setOrganization(setting.getOrganization());
+		globalExport.setDate(systemCalendar.getTime());
+		em.persist(globalExport);
 
-		} catch (Exception ex) {
+		em.flush();
 
-			if (tx != null && tx.isActive())
-				tx.rollback();
+		// generate export content and persist it chunk by chunk
+		dataProvider.generateGlobalExportData(setting.getOrganization().getId(), em, i18nServer, null, null,
+			dataProvider.createContentWriter(globalExport, em));
 
-			LOG.error("Scheduled global export job failed : " + ex.getMessage());
-			ex.printStackTrace();
-		}
+		return true;
 	}
 
 	public static Date getZeroTimeDate(Date fecha) {
@@ -24,8 +24,6 @@ package org.sigmah.server.autoExport;
 
 import java.util.Calendar;
 
-import javax.persistence.EntityManager;
-
 import org.quartz.JobDetail;
 import org.quartz.Trigger;
 import org.quartz.TriggerUtils;
@@ -33,15 +31,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
-import com.google.inject.Injector;
-import com.google.inject.Provider;
 import com.google.inject.Singleton;
 
 /**
  * Schedules jobs link{AutoDeleteJob}, link{AutoExportJob} To see details of schedule read comments for corresponding
- * jobs Activator itself instantiated by link{SigmahAuthDictionaryServlet} to obtain access to EntityManager object
- * which is request scoped and inaccessable by other server side threads like jobs ATTENTION: This job must not run at
- * the same time with link{AutoExportJob}
+ * jobs. Jobs are created by link{GuiceJobFactory} and open their own units of work. ATTENTION: This job must not run
+ * at the same time with link{AutoExportJob}
  * 
  * @author sherzod V1.3
  * @author Mehdi Benabdeslam (mehdi.benabdeslam@netapsys.fr) v2.0
@@ -52,15 +47,11 @@ public class GlobalExportJobActivator {
 
 	private static final Logger LOG = LoggerFactory.getLogger(GlobalExportJobActivator.class);
 
-	private final Provider<EntityManager> entityManagerProvider;
-
 	@Inject
-	public GlobalExportJobActivator(final QuartzScheduler quartz, Provider<EntityManager> entityManagerProvider, final Injector injector) {
+	public GlobalExportJobActivator(final QuartzScheduler quartz) {
 
 		LOG.debug("****************  STARTING JOBS *****************");
 
-		this.entityManagerProvider = entityManagerProvider;
-
 		try {
 
 			/**
@@ -68,8 +59,6 @@ public class GlobalExportJobActivator {
 			 */
 
 			final JobDetail exportJobDetail = new JobDetail("autoExportJob", null, AutoExportJob.class);
-			exportJobDetail.getJobDataMap().put("em", this.entityManagerProvider.get());
-			exportJobDetail.getJobDataMap().put("injector", injector);
 
 			// Trigger exportTrigger = TriggerUtils.makeSecondlyTrigger(120); // test fire every 5sec
 
@@ -90,8 +79,6 @@ public class GlobalExportJobActivator {
 			 */
 
 			final JobDetail deleteJobDetail = new JobDetail("autoDeleteJob", null, AutoDeleteJob.class);
-			deleteJobDetail.getJobDataMap().put("em", this.entityManagerProvider.get());
-			deleteJobDetail.getJobDataMap().put("injector", injector);
 
 			// Trigger deleteTrigger = TriggerUtils.makeSecondlyTrigger(60, 0); // test
 
@@ -0,0 +1,257 @@
+package org.sigmah.server.computation;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import com.google.inject.Singleton;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.sigmah.server.domain.OrgUnitModel;
+import org.sigmah.server.domain.ProjectModel;
+import org.sigmah.shared.computation.Computation;
+import org.sigmah.shared.computation.Computations;
+import org.sigmah.shared.dto.element.FlexibleElementDTO;
+
+/**
+ * LRU cache of parsed and compiled <code>Computation</code>s.
+ * <p>
+ * Computations are identified by their model, the revision of this model and
+ * their rule. Models do not have a persisted revision: the revision is a
+ * counter incremented each time the model is modified through
+ * {@link #invalidate(ProjectModel)} or {@link #invalidate(OrgUnitModel)}.
+ * Computations of older revisions are never requested again and are evicted
+ * by the LRU policy.
+ * </p>
+ *
+ * @since 2.2
+ */
+@Singleton
+public class ComputationCache {
+
+	/**
+	 * Maximum number of computations kept in memory.
+	 */
+	private static final int MAXIMUM_SIZE = 1024;
+
+	/**
+	 * Cached computations, from the least recently used to the most recently used.
+	 */
+	private final Map<Key, Computation> computations = new LinkedHashMap<Key, Computation>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Key, Computation> eldest) {
+			return size() > MAXIMUM_SIZE;
+		}
+	};
+
+	/**
+	 * Current revision of each model (models without revision are at revision 0).
+	 */
+	private final Map<ModelReference, Integer> revisions = new HashMap<>();
+
+	/**
+	 * Retrieves the computation of the given rule for the given project model.
+	 * <p>
+	 * The rule is parsed (and the layout of the model is read) only if the
+	 * computation is not already in the cache.
+	 * </p>
+	 *
+	 * @param projectModel
+	 *          Model containing the computation element.
+	 * @param rule
+	 *          Rule of the computation element.
+	 * @return The computation of the given rule.
+	 */
+	public Computation getComputation(final ProjectModel projectModel, final String rule) {
+		final ModelReference model = new ModelReference(ProjectModel.class, projectModel.getId());
+		final Key key = new Key(model, getRevision(model), rule);
+
+		Computation computation = get(key);
+		if (computation == null) {
+			computation = parse(rule, ServerComputations.getAllElementsFromModel(projectModel));
+			put(key, computation);
+		}
+		return computation;
+	}
+
+	/**
+	 * Retrieves the computation of the given rule for the given org unit model.
+	 * <p>
+	 * The rule is parsed (and the layout of the model is read) only if the
+	 * computation is not already in the cache.
+	 * </p>
+	 *
+	 * @param orgUnitModel
+	 *          Model containing the computation element.
+	 * @param rule
+	 *          Rule of the computation element.
+	 * @return The computation of the given rule.
+	 */
+	public Computation getComputation(final OrgUnitModel orgUnitModel, final String rule) {
+		final ModelReference model = new ModelReference(OrgUnitModel.class, orgUnitModel.getId());
+		final Key key = new Key(model, getRevision(model), rule);
+
+		Computation computation = get(key);
+		if (computation == null) {
+			computation = parse(rule, ServerComputations.getAllElementsFromModel(orgUnitModel));
+			put(key, computation);
+		}
+		return computation;
+	}
+
+	/**
+	 * Increments the revision of the given project model.
+	 * <p>
+	 * Must be called each time the elements of the model are modified.
+	 * </p>
+	 *
+	 * @param projectModel
+	 *          Modified model.
+	 */
+	public void invalidate(final ProjectModel projectModel) {
+		incrementRevision(new ModelReference(ProjectModel.class, projectModel.getId()));
+	}
+
+	/**
+	 * Increments the revision of the given org unit model.
+	 * <p>
+	 * Must be called each time the elements of the model are modified.
+	 * </p>
+	 *
+	 * @param orgUnitModel
+	 *          Modified model.
+	 */
+	public void invalidate(final OrgUnitModel orgUnitModel) {
+		incrementRevision(new ModelReference(OrgUnitModel.class, orgUnitModel.getId()));
+	}
+
+	/**
+	 * Removes every computation from the cache.
+	 * <p>
+	 * To use when elements are modified without knowing their model.
+	 * </p>
+	 */
+	public synchronized void clear() {
+		computations.clear();
+	}
+
+	/**
+	 * Parse the given rule and compiles the result.
+	 */
+	private static Computation parse(final String rule, final Collection<FlexibleElementDTO> allElements) {
+		final Computation computation = Computations.parse(rule, allElements);
+		computation.compile();
+		computation.getDependencies();
+		return computation;
+	}
+
+	private synchronized Computation get(final Key key) {
+		return computations.get(key);
+	}
+
+	private synchronized void put(final Key key, final Computation computation) {
+		computations.put(key, computation);
+	}
+
+	private synchronized int getRevision(final ModelReference model) {
+		final Integer revision = revisions.get(model);
+		return revision != null ? revision : 0;
+	}
+
+	private synchronized void incrementRevision(final ModelReference model) {
+		revisions.put(model, getRevision(model) + 1);
+	}
+
+	/**
+	 * Identifies a project model or an org unit model.
+	 */
+	private static final class ModelReference {
+
+		private final Class<?> type;
+		private final Integer id;
+
+		ModelReference(final Class<?> type, final Integer id) {
+			this.type = type;
+			this.id = id;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = type.hashCode();
+			hash = 31 * hash + (id != null ? id.hashCode() : 0);
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ModelReference)) {
+				return false;
+			}
+			final ModelReference other = (ModelReference) obj;
+			return type == other.type && (id != null ? id.equals(other.id) : other.id == null);
+		}
+	}
+
+	/**
+	 * Key of a cached computation: model, model revision and rule.
+	 */
+	private static final class Key {
+
+		private final ModelReference model;
+		private final int revision;
+		private final String rule;
+
+		Key(final ModelReference model, final int revision, final String rule) {
+			this.model = model;
+			this.revision = revision;
+			this.rule = rule;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = model.hashCode();
+			hash = 31 * hash + revision;
+			hash = 31 * hash + (rule != null ? rule.hashCode() : 0);
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return revision == other.revision && model.equals(other.model) && (rule != null ? rule.equals(other.rule) : other.rule == null);
+		}
+	}
+
+}
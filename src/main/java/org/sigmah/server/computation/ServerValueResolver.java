@@ -23,20 +23,31 @@ package org.sigmah.server.computation;
  */
 
 import com.google.gwt.user.client.rpc.AsyncCallback;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
 import org.sigmah.server.dao.base.EntityManagerProvider;
+import org.sigmah.server.dao.util.InClauses;
+import org.sigmah.server.domain.Project;
+import org.sigmah.server.domain.element.DefaultFlexibleElement;
 import org.sigmah.shared.computation.ValueResolver;
 import org.sigmah.shared.computation.value.ComputedValue;
 import org.sigmah.shared.computation.value.ComputedValues;
+import org.sigmah.shared.dto.element.BudgetElementDTO;
 import org.sigmah.shared.dto.element.DefaultFlexibleElementDTO;
 import org.sigmah.shared.dto.element.FlexibleElementDTO;
 
 /**
  * Server implementation of {@link ValueResolver}.
+ * <p>
+ * Every dependency is loaded with a single <code>IN</code> query, whatever
+ * the number of elements and containers.
+ * </p>
  * 
  * @author Raphaël Calabro (raphael.calabro@netapsys.fr)
  * @since 2.1
@@ -48,31 +59,155 @@ public class ServerValueResolver extends EntityManagerProvider implements ValueR
 	 */
 	@Override
 	public void resolve(Collection<FlexibleElementDTO> elements, int containerId, AsyncCallback<Map<Integer, ComputedValue>> callback) {
-		final HashMap<Integer, ComputedValue> values = new HashMap<>();
+		final Map<Integer, ComputedValue> values = resolve(elements, Collections.singleton(containerId)).get(containerId);
+		callback.onSuccess(values != null ? values : new HashMap<Integer, ComputedValue>());
+	}
+
+	/**
+	 * Resolve the values of the given elements for the given container and
+	 * returns a resolver answering from these values.
+	 * <p>
+	 * Useful to evaluate many computations sharing dependencies: the union of
+	 * their dependencies is loaded once. Elements that were not prefetched are
+	 * resolved by this resolver.
+	 * </p>
+	 * 
+	 * @param elements
+	 *          Elements to resolve.
+	 * @param containerId
+	 *          Identifier of the container (project or orgunit).
+	 * @return A resolver backed by the prefetched values.
+	 */
+	public ValueResolver prefetch(final Collection<FlexibleElementDTO> elements, final int containerId) {
 		
-		final TypedQuery<String> query = em().createQuery("SELECT v.value FROM Value v WHERE v.containerId = :containerId AND v.element.id = :elementId", String.class);
-		query.setParameter("containerId", containerId);
+		final Map<Integer, ComputedValue> prefetched = resolve(elements, Collections.singleton(containerId)).get(containerId);
 		
-		for (final FlexibleElementDTO element : elements) {
-			if (!(element instanceof DefaultFlexibleElementDTO)) {
-				final Integer id = element.getId();
-				query.setParameter("elementId", id);
+		return new ValueResolver() {
+			
+			@Override
+			public void resolve(Collection<FlexibleElementDTO> elements, int containerId, AsyncCallback<Map<Integer, ComputedValue>> callback) {
+				final HashMap<Integer, ComputedValue> values = new HashMap<>();
+				final ArrayList<FlexibleElementDTO> missing = new ArrayList<>();
 				
-				String result = null;
-				try {
-					result = query.getSingleResult();
-				} catch(NoResultException e) {
-					// Ignored.
+				for (final FlexibleElementDTO element : elements) {
+					final ComputedValue value = prefetched.get(element.getId());
+					if (value != null) {
+						values.put(element.getId(), value);
+					} else {
+						missing.add(element);
+					}
 				}
+				
+				if (!missing.isEmpty()) {
+					values.putAll(ServerValueResolver.this.resolve(missing, Collections.singleton(containerId)).get(containerId));
+				}
+				
+				callback.onSuccess(values);
+			}
+		};
+	}
 
-				values.put(id, ComputedValues.from(result));
+	/**
+	 * Resolve the values of the given elements for every given container.
+	 * 
+	 * @param elements
+	 *          Elements to resolve.
+	 * @param containerIds
+	 *          Identifiers of the containers (projects or orgunits).
+	 * @return A map: container id → element id → value. Every requested
+	 * container and element is present in the map.
+	 */
+	public Map<Integer, Map<Integer, ComputedValue>> resolve(final Collection<FlexibleElementDTO> elements, final Collection<Integer> containerIds) {
+		
+		final List<Integer> containers = new ArrayList<>(new LinkedHashSet<>(containerIds));
+		
+		final List<Integer> storedElementIds = new ArrayList<>();
+		final List<Integer> defaultElementIds = new ArrayList<>();
+		
+		for (final FlexibleElementDTO element : elements) {
+			if (element instanceof DefaultFlexibleElementDTO && !(element instanceof BudgetElementDTO)) {
+				// Values of default elements are stored in the container itself.
+				defaultElementIds.add(element.getId());
 			} else {
-				// TODO: Should also handle DefaultFlexibleElement.
-				throw new UnsupportedOperationException("DefaultFlexibleElement are not supported yet.");
+				storedElementIds.add(element.getId());
+			}
+		}
+		
+		final Map<Integer, Map<Integer, String>> rawValues = new HashMap<>();
+		for (final Integer containerId : containers) {
+			rawValues.put(containerId, new HashMap<Integer, String>());
+		}
+		
+		if (!containers.isEmpty() && !storedElementIds.isEmpty()) {
+			findStoredValues(containers, storedElementIds, rawValues);
+		}
+		
+		if (!containers.isEmpty() && !defaultElementIds.isEmpty()) {
+			findDefaultValues(containers, defaultElementIds, rawValues);
+		}
+		
+		final Map<Integer, Map<Integer, ComputedValue>> values = new HashMap<>();
+		for (final Integer containerId : containers) {
+			final Map<Integer, String> containerRawValues = rawValues.get(containerId);
+			final HashMap<Integer, ComputedValue> containerValues = new HashMap<>();
+			
+			for (final FlexibleElementDTO element : elements) {
+				containerValues.put(element.getId(), ComputedValues.from(containerRawValues.get(element.getId())));
 			}
+			values.put(containerId, containerValues);
 		}
 		
-		callback.onSuccess(values);
+		return values;
+	}
+	
+	/**
+	 * Loads the values stored in the <code>Value</code> table.
+	 * 
+	 * @param containerIds
+	 *          Identifiers of the containers.
+	 * @param elementIds
+	 *          Identifiers of the elements.
+	 * @param rawValues
+	 *          Map to fill.
+	 */
+	private void findStoredValues(final List<Integer> containerIds, final List<Integer> elementIds, final Map<Integer, Map<Integer, String>> rawValues) {
+		
+		final TypedQuery<Object[]> query = em().createQuery("SELECT v.containerId, v.element.id, v.value FROM Value v "
+			+ "WHERE v.containerId IN (:containerIds) AND v.element.id IN (:elementIds)", Object[].class);
+		
+		for (final List<Integer> containerIdsPart : InClauses.partition(containerIds)) {
+			query.setParameter("containerIds", containerIdsPart);
+			
+			for (final Object[] row : InClauses.getResultList(query, "elementIds", elementIds)) {
+				rawValues.get((Integer) row[0]).put((Integer) row[1], (String) row[2]);
+			}
+		}
+	}
+	
+	/**
+	 * Reads the values of default elements from the projects.
+	 * 
+	 * @param containerIds
+	 *          Identifiers of the containers.
+	 * @param elementIds
+	 *          Identifiers of the default elements.
+	 * @param rawValues
+	 *          Map to fill.
+	 */
+	private void findDefaultValues(final List<Integer> containerIds, final List<Integer> elementIds, final Map<Integer, Map<Integer, String>> rawValues) {
+		
+		final TypedQuery<DefaultFlexibleElement> elementsQuery = em().createQuery("SELECT e FROM DefaultFlexibleElement e WHERE e.id IN (:ids)", DefaultFlexibleElement.class);
+		final List<DefaultFlexibleElement> defaultElements = InClauses.getResultList(elementsQuery, "ids", elementIds);
+		
+		// Org units are not projects: their default elements have no value.
+		final TypedQuery<Project> projectsQuery = em().createQuery("SELECT p FROM Project p WHERE p.id IN (:ids)", Project.class);
+		
+		for (final Project project : InClauses.getResultList(projectsQuery, "ids", containerIds)) {
+			final Map<Integer, String> containerRawValues = rawValues.get(project.getId());
+			for (final DefaultFlexibleElement element : defaultElements) {
+				containerRawValues.put(element.getId(), element.getValue(project));
+			}
+		}
 	}
 	
 }
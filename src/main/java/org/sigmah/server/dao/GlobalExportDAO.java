@@ -45,6 +45,18 @@ public interface GlobalExportDAO extends DAO<GlobalExport, Integer> {
 
 	List<GlobalExport> getOlderExports(Date oldDate, Organization organization);
 
+	/**
+	 * Deletes the exports of the given organization older than the given date, and their contents, with bulk
+	 * statements.
+	 * 
+	 * @param oldDate
+	 *          Exports created before this date are deleted.
+	 * @param organizationId
+	 *          The organization id.
+	 * @return The number of deleted exports.
+	 */
+	int deleteOlderExports(Date oldDate, Integer organizationId);
+
 	List<GlobalExportSettings> getGlobalExportSettings();
 
 }
@@ -0,0 +1,121 @@
+package org.sigmah.server.dao;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.sigmah.server.dao.base.DAO;
+import org.sigmah.server.domain.HistoryToken;
+
+/**
+ * Data Access Object for the {@link HistoryToken} domain class.
+ * <p>
+ * When the {@code history.compact} property is enabled, long and list values are stored as deltas of the previous token
+ * value (see {@link org.sigmah.server.dao.util.HistoryValueDelta}). Values read from {@link HistoryToken#getValue()}
+ * may thus be incomplete: use {@link #findValues(Collection)} to get them.
+ * </p>
+ */
+public interface HistoryTokenDAO extends DAO<HistoryToken, Integer> {
+
+	/**
+	 * Finds the history tokens of an element, most recent first (by date then by id).
+	 * 
+	 * @param projectId
+	 *          The project id.
+	 * @param elementId
+	 *          The element id.
+	 * @param minDate
+	 *          (optional) Date before which tokens are ignored.
+	 * @param beforeDate
+	 *          (optional) Date of the last token of the previous page.
+	 * @param beforeId
+	 *          (optional) Id of the last token of the previous page.
+	 * @param maxResults
+	 *          (optional) Maximum number of tokens.
+	 * @return The tokens.
+	 */
+	List<HistoryToken> findHistory(Integer projectId, Integer elementId, Date minDate, Date beforeDate, Integer beforeId, Integer maxResults);
+
+	/**
+	 * Returns if the given element has at least one history token.
+	 * 
+	 * @param projectId
+	 *          The project id.
+	 * @param elementId
+	 *          The element id.
+	 * @return {@code true} if a token exists.
+	 */
+	boolean hasHistory(Integer projectId, Integer elementId);
+
+	/**
+	 * Finds the most recent history token (by date then by id) of each of the given elements, in a single query per
+	 * {@link org.sigmah.server.dao.util.InClauses#MAX_PARAMETERS} elements.
+	 * 
+	 * @param projectId
+	 *          The project id.
+	 * @param elementIds
+	 *          The element ids.
+	 * @return The latest tokens mapped by element id. Elements without history are absent.
+	 */
+	Map<Integer, HistoryToken> findLatestTokens(Integer projectId, Collection<Integer> elementIds);
+
+	/**
+	 * Returns the complete values of the given tokens, rebuilding the values stored as deltas.
+	 * 
+	 * @param tokens
+	 *          The tokens.
+	 * @return The values mapped by token id.
+	 */
+	Map<Integer, String> findValues(Collection<HistoryToken> tokens);
+
+	/**
+	 * Persists a new history token, storing its value as a delta of the previous token value when it is worth it.
+	 * 
+	 * @param token
+	 *          The token with its complete value.
+	 * @return The persisted token.
+	 */
+	HistoryToken historize(HistoryToken token);
+
+	/**
+	 * Stores the complete value of the given token if it is a delta, for example before it is referenced by a core
+	 * version. Tokens based on it are not affected.
+	 * 
+	 * @param token
+	 *          The token.
+	 */
+	void expand(HistoryToken token);
+
+	/**
+	 * Stores the complete value of each given token stored as a delta, rebuilding all the values at once.
+	 * 
+	 * @param tokens
+	 *          The tokens.
+	 * @see #expand(HistoryToken)
+	 */
+	void expand(Collection<HistoryToken> tokens);
+
+}
@@ -24,11 +24,13 @@ package org.sigmah.server.dao;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.sigmah.server.dao.base.DAO;
 import org.sigmah.server.domain.Project;
 import org.sigmah.server.domain.ProjectModel;
 import org.sigmah.shared.dto.referential.ProjectModelStatus;
+import org.sigmah.shared.dto.referential.ProjectModelType;
 
 /**
  * Data Access Object for the {@link org.sigmah.server.domain.Project} domain object.
@@ -46,6 +48,29 @@ public interface ProjectDAO extends DAO<Project, Integer> {
 	 */
 	List<Project> getProjects(Collection<ProjectModel> pmodels);
 
+	/**
+	 * Retrieves a page of the <b>active</b> (not deleted) {@link Project} ids related to the given project models.
+	 * 
+	 * @param pmodelIds
+	 *          The {@link ProjectModel} ids.
+	 * @param afterId
+	 *          Only the ids greater than this one are returned ({@code 0} for the first page).
+	 * @param maxResults
+	 *          The maximum number of ids returned.
+	 * @return The <b>active</b> {@link Project} ids sorted in ascending order.
+	 */
+	List<Integer> getProjectIds(Collection<Integer> pmodelIds, int afterId, int maxResults);
+
+	/**
+	 * Retrieves the {@link Project}s with the given {@code ids}.<br>
+	 * The partners, country, owner and manager of each project are fetched by the same query.
+	 * 
+	 * @param ids
+	 *          The {@link Project} ids.
+	 * @return The {@link Project}s sorted by id.
+	 */
+	List<Project> getProjectsWithDetails(Collection<Integer> ids);
+
 	/**
 	 * Retrieves the <b>active</b> (not deleted) <b>draft</b> {@link Project}s related to the given {@code ownerId}.<br>
 	 * Draft projects have a project model with {@link ProjectModelStatus#DRAFT} status.
@@ -57,4 +82,32 @@ public interface ProjectDAO extends DAO<Project, Integer> {
 	 */
 	List<Project> findDraftProjects(Integer ownerId);
 
+	/**
+	 * Retrieves the <b>active</b> (not deleted) projects whose partners belong to the org units hierarchies starting
+	 * from the given {@code rootOrgUnitIds}.<br>
+	 * The hierarchies are walked in the database with a single recursive query.
+	 * 
+	 * @param rootOrgUnitIds
+	 *          The ids of the root org units (included in the hierarchies).
+	 * @param organizationId
+	 *          The organization id used to filter the project models visibility (ignored if {@code modelType} is
+	 *          {@code null}).
+	 * @param modelType
+	 *          The visibility type of the project models, or {@code null} to retrieve projects of every type.
+	 * @param favoriteUserId
+	 *          If not {@code null}, only the favorite projects of this user are retrieved.
+	 * @return A map associating each project id to the id of one of its org units in the hierarchies.
+	 */
+	Map<Integer, Integer> findProjectOrgUnitIdsInHierarchies(Collection<Integer> rootOrgUnitIds, Integer organizationId, ProjectModelType modelType,
+			Integer favoriteUserId);
+
+	/**
+	 * Retrieves the {@link Project}s with the given {@code ids}.
+	 * 
+	 * @param ids
+	 *          The project ids.
+	 * @return The {@link Project}s with the given {@code ids}.
+	 */
+	List<Project> findByIds(Collection<Integer> ids);
+
 }
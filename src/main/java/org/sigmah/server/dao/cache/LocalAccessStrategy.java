@@ -0,0 +1,96 @@
+package org.sigmah.server.dao.cache;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cache.spi.access.SoftLock;
+
+/**
+ * Read-write access strategy to a {@link LocalRegion}, shared by the entity, collection and natural id regions.
+ * <p>
+ * Values written by a transaction are never put in the cache: the written keys are locked until the transaction
+ * completes and the next load caches the committed state. {@link AccessType#READ_ONLY} and
+ * {@link AccessType#NONSTRICT_READ_WRITE} get the same (stricter) behaviour.
+ * </p>
+ * 
+ * @param <R>
+ *          Type of the region.
+ */
+abstract class LocalAccessStrategy<R extends LocalRegion> {
+
+	protected final R region;
+
+	protected LocalAccessStrategy(final R region, final AccessType accessType) {
+		if (accessType == AccessType.TRANSACTIONAL) {
+			throw new CacheException("Transactional access is not supported by region '" + region.getName() + "'.");
+		}
+		this.region = region;
+	}
+
+	public Object get(final Object key, final long txTimestamp) throws CacheException {
+		return region.read(key);
+	}
+
+	public boolean putFromLoad(final Object key, final Object value, final long txTimestamp, final Object version) throws CacheException {
+		return putFromLoad(key, value, txTimestamp, version, region.getFactory().isMinimalPutsEnabledByDefault());
+	}
+
+	public boolean putFromLoad(final Object key, final Object value, final long txTimestamp, final Object version, final boolean minimalPutOverride)
+			throws CacheException {
+		return region.write(key, value, txTimestamp, minimalPutOverride);
+	}
+
+	public SoftLock lockItem(final Object key, final Object version) throws CacheException {
+		return region.lock(key);
+	}
+
+	public SoftLock lockRegion() throws CacheException {
+		return region.lockAll();
+	}
+
+	public void unlockItem(final Object key, final SoftLock lock) throws CacheException {
+		region.unlock(key);
+	}
+
+	public void unlockRegion(final SoftLock lock) throws CacheException {
+		region.unlockAll();
+	}
+
+	public void remove(final Object key) throws CacheException {
+		region.invalidate(key);
+	}
+
+	public void removeAll() throws CacheException {
+		region.invalidateAll();
+	}
+
+	public void evict(final Object key) throws CacheException {
+		region.invalidate(key);
+	}
+
+	public void evictAll() throws CacheException {
+		region.invalidateAll();
+	}
+
+}
@@ -0,0 +1,58 @@
+package org.sigmah.server.dao.cache;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.CacheDataDescription;
+import org.hibernate.cache.spi.CollectionRegion;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cache.spi.access.CollectionRegionAccessStrategy;
+
+/**
+ * Collection region of the {@link LocalRegionFactory}.
+ */
+public class LocalCollectionRegion extends LocalRegion implements CollectionRegion {
+
+	private static final class Access extends LocalAccessStrategy<LocalCollectionRegion> implements CollectionRegionAccessStrategy {
+
+		private Access(final LocalCollectionRegion region, final AccessType accessType) {
+			super(region, accessType);
+		}
+
+		@Override
+		public CollectionRegion getRegion() {
+			return region;
+		}
+
+	}
+
+	public LocalCollectionRegion(final String name, final CacheDataDescription metadata, final LocalRegionFactory factory, final int maxEntries) {
+		super(name, metadata, factory, maxEntries);
+	}
+
+	@Override
+	public CollectionRegionAccessStrategy buildAccessStrategy(final AccessType accessType) throws CacheException {
+		return new Access(this, accessType);
+	}
+
+}
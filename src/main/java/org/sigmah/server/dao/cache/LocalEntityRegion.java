@@ -0,0 +1,99 @@
+package org.sigmah.server.dao.cache;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.CacheDataDescription;
+import org.hibernate.cache.spi.EntityRegion;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cache.spi.access.EntityRegionAccessStrategy;
+import org.hibernate.cache.spi.access.SoftLock;
+
+/**
+ * Entity region of the {@link LocalRegionFactory}.
+ * <p>
+ * Every write of a cached entity also invalidates the collection regions: Hibernate does not evict an inverse
+ * ({@code mappedBy}) collection when one of its elements is inserted, deleted or moved to another owner.
+ * </p>
+ */
+public class LocalEntityRegion extends LocalRegion implements EntityRegion {
+
+	private static final class Access extends LocalAccessStrategy<LocalEntityRegion> implements EntityRegionAccessStrategy {
+
+		private Access(final LocalEntityRegion region, final AccessType accessType) {
+			super(region, accessType);
+		}
+
+		@Override
+		public EntityRegion getRegion() {
+			return region;
+		}
+
+		@Override
+		public boolean insert(final Object key, final Object value, final Object version) throws CacheException {
+			region.getFactory().invalidateCollections();
+			return false;
+		}
+
+		@Override
+		public boolean afterInsert(final Object key, final Object value, final Object version) throws CacheException {
+			region.getFactory().invalidateCollections();
+			return false;
+		}
+
+		@Override
+		public boolean update(final Object key, final Object value, final Object currentVersion, final Object previousVersion) throws CacheException {
+			return false;
+		}
+
+		@Override
+		public boolean afterUpdate(final Object key, final Object value, final Object currentVersion, final Object previousVersion, final SoftLock lock)
+				throws CacheException {
+			unlockItem(key, lock);
+			return false;
+		}
+
+		@Override
+		public SoftLock lockItem(final Object key, final Object version) throws CacheException {
+			region.getFactory().invalidateCollections();
+			return super.lockItem(key, version);
+		}
+
+		@Override
+		public void unlockItem(final Object key, final SoftLock lock) throws CacheException {
+			super.unlockItem(key, lock);
+			region.getFactory().invalidateCollections();
+		}
+
+	}
+
+	public LocalEntityRegion(final String name, final CacheDataDescription metadata, final LocalRegionFactory factory, final int maxEntries) {
+		super(name, metadata, factory, maxEntries);
+	}
+
+	@Override
+	public EntityRegionAccessStrategy buildAccessStrategy(final AccessType accessType) throws CacheException {
+		return new Access(this, accessType);
+	}
+
+}
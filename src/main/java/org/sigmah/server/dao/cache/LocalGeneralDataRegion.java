@@ -0,0 +1,58 @@
+package org.sigmah.server.dao.cache;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.QueryResultsRegion;
+import org.hibernate.cache.spi.TimestampsRegion;
+
+/**
+ * Query results and update timestamps region of the {@link LocalRegionFactory}.
+ */
+public class LocalGeneralDataRegion extends LocalRegion implements QueryResultsRegion, TimestampsRegion {
+
+	public LocalGeneralDataRegion(final String name, final LocalRegionFactory factory, final int maxEntries) {
+		super(name, null, factory, maxEntries);
+	}
+
+	@Override
+	public Object get(final Object key) throws CacheException {
+		return read(key);
+	}
+
+	@Override
+	public void put(final Object key, final Object value) throws CacheException {
+		write(key, value);
+	}
+
+	@Override
+	public void evict(final Object key) throws CacheException {
+		invalidate(key);
+	}
+
+	@Override
+	public void evictAll() throws CacheException {
+		invalidateAll();
+	}
+
+}
@@ -0,0 +1,377 @@
+package org.sigmah.server.dao.cache;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.CacheDataDescription;
+import org.hibernate.cache.spi.TransactionalDataRegion;
+import org.hibernate.cache.spi.access.SoftLock;
+
+/**
+ * Heap region of the {@link LocalRegionFactory}.
+ * <p>
+ * Holds at most {@code maxEntries} items in LRU order and implements the read-write protocol shared by the access
+ * strategies: a key is locked (and its item removed) while a transaction writes it, and values loaded by transactions
+ * started before the last write of a key (or of the whole region) are not put in the cache. Hit, miss, put and
+ * eviction counts are kept for the metrics servlet.
+ * </p>
+ */
+public abstract class LocalRegion implements TransactionalDataRegion {
+
+	/**
+	 * Write state of a key: number of pending writes and timestamp of the last one.
+	 */
+	private static final class Lock implements SoftLock {
+
+		private int count;
+		private long timestamp;
+
+	}
+
+	/**
+	 * Lock returned when the whole region is locked.
+	 */
+	private static final SoftLock REGION_LOCK = new SoftLock() {
+	};
+
+	private final String name;
+	private final CacheDataDescription metadata;
+	private final LocalRegionFactory factory;
+	private final int maxEntries;
+
+	/**
+	 * Cached items, in access order. Guarded by {@code this}.
+	 */
+	private final Map<Object, Object> items;
+
+	/**
+	 * Write state of the keys written since the last region invalidation. Guarded by {@code this}.
+	 */
+	private final Map<Object, Lock> locks = new HashMap<>();
+
+	/**
+	 * Timestamp of the last region invalidation. Guarded by {@code this}.
+	 */
+	private long invalidationTimestamp;
+
+	/**
+	 * Number of pending region locks. Guarded by {@code this}.
+	 */
+	private int regionLocks;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong putCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	protected LocalRegion(final String name, final CacheDataDescription metadata, final LocalRegionFactory factory, final int maxEntries) {
+		this.name = name;
+		this.metadata = metadata;
+		this.factory = factory;
+		this.maxEntries = maxEntries;
+		this.items = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Object, Object> eldest) {
+				if (size() > LocalRegion.this.maxEntries) {
+					evictionCount.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	// --------------------------------------------------------------------------------
+	//
+	// Read-write protocol.
+	//
+	// --------------------------------------------------------------------------------
+
+	/**
+	 * Returns the cached value of the given key.
+	 * 
+	 * @param key
+	 *          The cache key.
+	 * @return The cached value, or {@code null} on a miss.
+	 */
+	public synchronized Object read(final Object key) {
+		final Object value = items.get(key);
+		if (value != null) {
+			hitCount.incrementAndGet();
+		} else {
+			missCount.incrementAndGet();
+		}
+		return value;
+	}
+
+	/**
+	 * Caches a value loaded from the database, unless the key (or the region) has been written since the loading
+	 * transaction started.
+	 * 
+	 * @param key
+	 *          The cache key.
+	 * @param value
+	 *          The loaded value.
+	 * @param txTimestamp
+	 *          Start timestamp of the loading transaction.
+	 * @param minimalPut
+	 *          {@code true} to keep an already cached value.
+	 * @return {@code true} if the value has been cached.
+	 */
+	public synchronized boolean write(final Object key, final Object value, final long txTimestamp, final boolean minimalPut) {
+		if (regionLocks > 0 || txTimestamp <= invalidationTimestamp) {
+			return false;
+		}
+
+		// The lock is kept (until pruned): a slower transaction started before the write may still try to cache the
+		// previous value.
+		final Lock lock = locks.get(key);
+		if (lock != null && (lock.count > 0 || txTimestamp <= lock.timestamp)) {
+			return false;
+		}
+
+		if (minimalPut && items.containsKey(key)) {
+			return false;
+		}
+
+		items.put(key, value);
+		putCount.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Caches a value unconditionally (general data regions).
+	 * 
+	 * @param key
+	 *          The cache key.
+	 * @param value
+	 *          The value.
+	 */
+	public synchronized void write(final Object key, final Object value) {
+		items.put(key, value);
+		putCount.incrementAndGet();
+	}
+
+	/**
+	 * Locks the given key before it is written: its item is removed and no loaded value is cached until it is
+	 * unlocked.
+	 * 
+	 * @param key
+	 *          The cache key.
+	 * @return The lock.
+	 */
+	public synchronized SoftLock lock(final Object key) {
+		items.remove(key);
+
+		Lock lock = locks.get(key);
+		if (lock == null) {
+			lock = new Lock();
+			locks.put(key, lock);
+		}
+		lock.count++;
+		lock.timestamp = factory.nextTimestamp();
+		return lock;
+	}
+
+	/**
+	 * Unlocks the given key after its write has completed (or failed).
+	 * 
+	 * @param key
+	 *          The cache key.
+	 */
+	public synchronized void unlock(final Object key) {
+		items.remove(key);
+
+		Lock lock = locks.get(key);
+		if (lock == null) {
+			lock = new Lock();
+			locks.put(key, lock);
+		}
+		lock.count = Math.max(0, lock.count - 1);
+		lock.timestamp = factory.nextTimestamp();
+
+		if (locks.size() > maxEntries) {
+			pruneLocks();
+		}
+	}
+
+	/**
+	 * Removes the given key from the region, ignoring the values loaded by the transactions already started.
+	 * 
+	 * @param key
+	 *          The cache key.
+	 */
+	public synchronized void invalidate(final Object key) {
+		items.remove(key);
+
+		Lock lock = locks.get(key);
+		if (lock == null) {
+			lock = new Lock();
+			locks.put(key, lock);
+		}
+		lock.timestamp = factory.nextTimestamp();
+
+		if (locks.size() > maxEntries) {
+			pruneLocks();
+		}
+	}
+
+	/**
+	 * Empties the region, ignoring the values loaded by the transactions already started.
+	 */
+	public synchronized void invalidateAll() {
+		items.clear();
+		pruneLocks();
+	}
+
+	/**
+	 * Locks the whole region.
+	 * 
+	 * @return The region lock.
+	 */
+	public synchronized SoftLock lockAll() {
+		regionLocks++;
+		invalidateAll();
+		return REGION_LOCK;
+	}
+
+	/**
+	 * Unlocks the whole region.
+	 */
+	public synchronized void unlockAll() {
+		regionLocks = Math.max(0, regionLocks - 1);
+		invalidateAll();
+	}
+
+	/**
+	 * Drops the write state of the unlocked keys, replacing it by a region invalidation.
+	 */
+	private void pruneLocks() {
+		final Iterator<Lock> iterator = locks.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().count == 0) {
+				iterator.remove();
+			}
+		}
+		invalidationTimestamp = factory.nextTimestamp();
+	}
+
+	// --------------------------------------------------------------------------------
+	//
+	// Statistics.
+	//
+	// --------------------------------------------------------------------------------
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getPutCount() {
+		return putCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	// --------------------------------------------------------------------------------
+	//
+	// Region.
+	//
+	// --------------------------------------------------------------------------------
+
+	protected LocalRegionFactory getFactory() {
+		return factory;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public synchronized void destroy() throws CacheException {
+		items.clear();
+		locks.clear();
+	}
+
+	@Override
+	public synchronized boolean contains(final Object key) {
+		return items.containsKey(key);
+	}
+
+	@Override
+	public long getSizeInMemory() {
+		return -1L;
+	}
+
+	@Override
+	public synchronized long getElementCountInMemory() {
+		return items.size();
+	}
+
+	@Override
+	public long getElementCountOnDisk() {
+		return 0L;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public synchronized Map toMap() {
+		return new HashMap<>(items);
+	}
+
+	@Override
+	public long nextTimestamp() {
+		return factory.nextTimestamp();
+	}
+
+	@Override
+	public int getTimeout() {
+		return LocalRegionFactory.TIMEOUT;
+	}
+
+	@Override
+	public boolean isTransactionAware() {
+		return false;
+	}
+
+	@Override
+	public CacheDataDescription getCacheDataDescription() {
+		return metadata;
+	}
+
+}
@@ -0,0 +1,209 @@
+package org.sigmah.server.dao.cache;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.CacheDataDescription;
+import org.hibernate.cache.spi.CollectionRegion;
+import org.hibernate.cache.spi.EntityRegion;
+import org.hibernate.cache.spi.NaturalIdRegion;
+import org.hibernate.cache.spi.QueryResultsRegion;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cache.spi.TimestampsRegion;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cfg.Settings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hibernate second-level cache provider keeping the regions in the local heap.
+ * <p>
+ * Registered through the {@code hibernate.cache.region.factory_class} property of the persistence unit and only used
+ * when {@code hibernate.cache.use_second_level_cache} is enabled. Each region holds at most
+ * {@value #MAX_ENTRIES_PROPERTY} items (default {@value #DEFAULT_MAX_ENTRIES}). The regions of the running factory
+ * are exposed through {@link #getRegions()} for the metrics servlet.
+ * </p>
+ */
+public class LocalRegionFactory implements RegionFactory {
+
+	private static final long serialVersionUID = -5170914398524613075L;
+
+	/**
+	 * Log.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(LocalRegionFactory.class);
+
+	/**
+	 * Persistence unit property defining the maximum number of items of a region.
+	 */
+	public static final String MAX_ENTRIES_PROPERTY = "hibernate.cache.local.max_entries";
+
+	/**
+	 * Default maximum number of items of a region.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	/**
+	 * Number of timestamp units per millisecond.
+	 */
+	private static final int ONE_MS = 1 << 12;
+
+	/**
+	 * Lock timeout, in timestamp units.
+	 */
+	static final int TIMEOUT = 60000 * ONE_MS;
+
+	/**
+	 * Factory started by Hibernate, if any.
+	 */
+	private static volatile LocalRegionFactory current;
+
+	/**
+	 * Regions of this factory, by name.
+	 */
+	private final Map<String, LocalRegion> regions = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Last generated timestamp.
+	 */
+	private final AtomicLong lastTimestamp = new AtomicLong();
+
+	private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+	/**
+	 * Returns the regions of the running factory, sorted by name.
+	 * 
+	 * @return The regions, empty if the second-level cache is disabled.
+	 */
+	public static List<LocalRegion> getRegions() {
+		final LocalRegionFactory factory = current;
+		if (factory == null) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<>(factory.regions.values());
+	}
+
+	/**
+	 * Invalidates every collection region.
+	 */
+	void invalidateCollections() {
+		for (final LocalRegion region : regions.values()) {
+			if (region instanceof CollectionRegion) {
+				region.invalidateAll();
+			}
+		}
+	}
+
+	private <R extends LocalRegion> R register(final R region) {
+		regions.put(region.getName(), region);
+		return region;
+	}
+
+	@Override
+	public void start(final Settings settings, final Properties properties) throws CacheException {
+		final String value = properties.getProperty(MAX_ENTRIES_PROPERTY);
+		if (value != null && !value.trim().isEmpty()) {
+			try {
+				maxEntries = Integer.parseInt(value.trim());
+			} catch (final NumberFormatException e) {
+				throw new CacheException("Invalid value for '" + MAX_ENTRIES_PROPERTY + "': " + value, e);
+			}
+		}
+
+		current = this;
+
+		if (LOG.isInfoEnabled()) {
+			LOG.info("Second-level cache started (max {} items per region).", maxEntries);
+		}
+	}
+
+	@Override
+	public void stop() {
+		for (final LocalRegion region : regions.values()) {
+			region.destroy();
+		}
+		regions.clear();
+
+		if (current == this) {
+			current = null;
+		}
+	}
+
+	@Override
+	public boolean isMinimalPutsEnabledByDefault() {
+		return true;
+	}
+
+	@Override
+	public AccessType getDefaultAccessType() {
+		return AccessType.READ_WRITE;
+	}
+
+	@Override
+	public long nextTimestamp() {
+		while (true) {
+			final long last = lastTimestamp.get();
+			final long next = Math.max(System.currentTimeMillis() * ONE_MS, last + 1);
+			if (lastTimestamp.compareAndSet(last, next)) {
+				return next;
+			}
+		}
+	}
+
+	@Override
+	public EntityRegion buildEntityRegion(final String regionName, final Properties properties, final CacheDataDescription metadata) throws CacheException {
+		return register(new LocalEntityRegion(regionName, metadata, this, maxEntries));
+	}
+
+	@Override
+	public NaturalIdRegion buildNaturalIdRegion(final String regionName, final Properties properties, final CacheDataDescription metadata)
+			throws CacheException {
+		return register(new LocalNaturalIdRegion(regionName, metadata, this, maxEntries));
+	}
+
+	@Override
+	public CollectionRegion buildCollectionRegion(final String regionName, final Properties properties, final CacheDataDescription metadata)
+			throws CacheException {
+		return register(new LocalCollectionRegion(regionName, metadata, this, maxEntries));
+	}
+
+	@Override
+	public QueryResultsRegion buildQueryResultsRegion(final String regionName, final Properties properties) throws CacheException {
+		return register(new LocalGeneralDataRegion(regionName, this, maxEntries));
+	}
+
+	@Override
+	public TimestampsRegion buildTimestampsRegion(final String regionName, final Properties properties) throws CacheException {
+		// Update timestamps must never be evicted, or stale query results would be considered up to date.
+		return register(new LocalGeneralDataRegion(regionName, this, Integer.MAX_VALUE));
+	}
+
+}
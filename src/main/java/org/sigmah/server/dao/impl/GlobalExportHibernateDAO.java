@@ -74,6 +74,24 @@ public class GlobalExportHibernateDAO extends AbstractDAO<GlobalExport, Integer>
 		return query.getResultList();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int deleteOlderExports(final Date oldDate, final Integer organizationId) {
+
+		em().createQuery("DELETE FROM GlobalExportContent c WHERE c.globalExport.id IN "
+			+ "(SELECT e.id FROM GlobalExport e WHERE e.organization.id = :organizationId AND e.date < :oldDate)")
+			.setParameter("organizationId", organizationId)
+			.setParameter("oldDate", oldDate)
+			.executeUpdate();
+
+		return em().createQuery("DELETE FROM GlobalExport e WHERE e.organization.id = :organizationId AND e.date < :oldDate")
+			.setParameter("organizationId", organizationId)
+			.setParameter("oldDate", oldDate)
+			.executeUpdate();
+	}
+
 	@Override
 	public List<GlobalExportSettings> getGlobalExportSettings() {
 
@@ -0,0 +1,306 @@
+package org.sigmah.server.dao.impl;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+import org.sigmah.server.conf.Properties;
+import org.sigmah.server.dao.HistoryTokenDAO;
+import org.sigmah.server.dao.base.AbstractDAO;
+import org.sigmah.server.dao.util.HistoryValueDelta;
+import org.sigmah.server.dao.util.InClauses;
+import org.sigmah.server.domain.HistoryToken;
+import org.sigmah.server.domain.util.EntityConstants;
+import org.sigmah.shared.conf.PropertyKey;
+import org.sigmah.shared.util.ValueResultUtils;
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+
+/**
+ * {@link HistoryTokenDAO} implementation.
+ */
+public class HistoryTokenHibernateDAO extends AbstractDAO<HistoryToken, Integer> implements HistoryTokenDAO {
+
+	/**
+	 * Values shorter than this are stored complete, unless they are lists.
+	 */
+	private static final int COMPACT_MIN_LENGTH = 256;
+
+	/**
+	 * Maximum number of deltas to apply to rebuild a value. Bounds the number of tokens read to rebuild a page.
+	 */
+	private static final int MAX_DELTA_DEPTH = 16;
+
+	/**
+	 * Injected injector, the application properties are only read when a token is stored.
+	 */
+	private final Injector injector;
+
+	@Inject
+	public HistoryTokenHibernateDAO(final Injector injector) {
+		this.injector = injector;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<HistoryToken> findHistory(final Integer projectId, final Integer elementId, final Date minDate, final Date beforeDate, final Integer beforeId,
+			final Integer maxResults) {
+
+		final StringBuilder builder = new StringBuilder("SELECT h FROM HistoryToken h WHERE h.projectId = :projectId AND h.elementId = :elementId");
+		if (minDate != null) {
+			builder.append(" AND h.date >= :minDate");
+		}
+		if (beforeDate != null && beforeId != null) {
+			builder.append(" AND (h.date < :beforeDate OR (h.date = :beforeDate AND h.id < :beforeId))");
+		}
+		builder.append(" ORDER BY h.date DESC, h.id DESC");
+
+		final TypedQuery<HistoryToken> query = em().createQuery(builder.toString(), entityClass);
+		query.setParameter("projectId", projectId);
+		query.setParameter("elementId", elementId);
+		if (minDate != null) {
+			query.setParameter("minDate", minDate);
+		}
+		if (beforeDate != null && beforeId != null) {
+			query.setParameter("beforeDate", beforeDate);
+			query.setParameter("beforeId", beforeId);
+		}
+		if (maxResults != null) {
+			query.setMaxResults(maxResults);
+		}
+
+		return query.getResultList();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasHistory(final Integer projectId, final Integer elementId) {
+
+		final TypedQuery<Integer> query =
+				em().createQuery("SELECT h.id FROM HistoryToken h WHERE h.projectId = :projectId AND h.elementId = :elementId", Integer.class);
+		query.setParameter("projectId", projectId);
+		query.setParameter("elementId", elementId);
+		query.setMaxResults(1);
+
+		return !query.getResultList().isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<Integer, HistoryToken> findLatestTokens(final Integer projectId, final Collection<Integer> elementIds) {
+
+		final Map<Integer, HistoryToken> tokens = new HashMap<Integer, HistoryToken>();
+
+		if (elementIds == null || elementIds.isEmpty()) {
+			return tokens;
+		}
+
+		// DISTINCT ON keeps the first row of each element: walks the (project, element, date, id) index once.
+		final StringBuilder builder = new StringBuilder();
+		builder.append("SELECT DISTINCT ON (h.").append(EntityConstants.HISTORY_TOKEN_COLUMN_ELEMENT_ID).append(") h.* ");
+		builder.append("FROM ").append(EntityConstants.HISTORY_TOKEN_TABLE).append(" h ");
+		builder.append("WHERE h.").append(EntityConstants.PROJECT_COLUMN_ID).append(" = :projectId ");
+		builder.append("AND h.").append(EntityConstants.HISTORY_TOKEN_COLUMN_ELEMENT_ID).append(" IN (:elementIds) ");
+		builder.append("ORDER BY h.").append(EntityConstants.HISTORY_TOKEN_COLUMN_ELEMENT_ID);
+		builder.append(", h.").append(EntityConstants.HISTORY_TOKEN_COLUMN_DATE).append(" DESC");
+		builder.append(", h.").append(EntityConstants.HISTORY_TOKEN_COLUMN_ID).append(" DESC");
+
+		final Query query = em().createNativeQuery(builder.toString(), entityClass);
+		query.setParameter("projectId", projectId);
+
+		for (final List<Integer> partition : InClauses.partition(elementIds)) {
+			query.setParameter("elementIds", partition);
+
+			@SuppressWarnings("unchecked")
+			final List<HistoryToken> results = query.getResultList();
+			for (final HistoryToken token : results) {
+				tokens.put(token.getElementId(), token);
+			}
+		}
+
+		return tokens;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<Integer, String> findValues(final Collection<HistoryToken> tokens) {
+
+		final Map<Integer, HistoryToken> tokensById = new HashMap<Integer, HistoryToken>();
+		for (final HistoryToken token : tokens) {
+			tokensById.put(token.getId(), token);
+		}
+
+		// Loads the missing base tokens, one level of deltas at a time.
+		Set<Integer> missingIds = findMissingBases(tokensById.values(), tokensById);
+		while (!missingIds.isEmpty()) {
+
+			final TypedQuery<HistoryToken> query = em().createQuery("SELECT h FROM HistoryToken h WHERE h.id IN (:ids)", entityClass);
+			final List<HistoryToken> bases = InClauses.getResultList(query, "ids", missingIds);
+
+			for (final HistoryToken base : bases) {
+				tokensById.put(base.getId(), base);
+			}
+
+			if (bases.size() < missingIds.size()) {
+				throw new IllegalStateException("History tokens " + missingIds + " cannot be found.");
+			}
+
+			missingIds = findMissingBases(bases, tokensById);
+		}
+
+		final Map<Integer, String> values = new HashMap<Integer, String>();
+		for (final HistoryToken token : tokens) {
+			values.put(token.getId(), rebuildValue(token, tokensById, values));
+		}
+
+		return values;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public HistoryToken historize(final HistoryToken token) {
+
+		final String value = token.getValue();
+
+		if (value != null && isWorthCompacting(value) && injector.getInstance(Properties.class).getBooleanProperty(PropertyKey.HISTORY_COMPACT)) {
+
+			final List<HistoryToken> previous = findHistory(token.getProjectId(), token.getElementId(), null, null, null, 1);
+
+			// A delta may only be based on an older token.
+			if (!previous.isEmpty() && !previous.get(0).getDate().after(token.getDate())) {
+
+				final HistoryToken base = previous.get(0);
+				final int depth = base.isDelta() ? base.getDeltaDepth() + 1 : 1;
+
+				if (depth <= MAX_DELTA_DEPTH) {
+					final String baseValue = findValues(previous).get(base.getId());
+					final String delta = baseValue != null ? HistoryValueDelta.encode(baseValue, value) : null;
+
+					if (delta != null && delta.length() < value.length() / 2) {
+						token.setValue(delta);
+						token.setBaseTokenId(base.getId());
+						token.setDeltaDepth(depth);
+					}
+				}
+			}
+		}
+
+		em().persist(token);
+		return token;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void expand(final HistoryToken token) {
+
+		final List<HistoryToken> tokens = new ArrayList<HistoryToken>();
+		tokens.add(token);
+
+		expand(tokens);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void expand(final Collection<HistoryToken> tokens) {
+
+		final List<HistoryToken> deltas = new ArrayList<HistoryToken>();
+		for (final HistoryToken token : tokens) {
+			if (token.isDelta()) {
+				deltas.add(token);
+			}
+		}
+
+		if (deltas.isEmpty()) {
+			return;
+		}
+
+		final Map<Integer, String> values = findValues(deltas);
+		for (final HistoryToken token : deltas) {
+			token.setValue(values.get(token.getId()));
+			token.setBaseTokenId(null);
+			token.setDeltaDepth(null);
+		}
+	}
+
+	// --------------------------------------------------------------------------------
+	//
+	// UTILITY METHODS.
+	//
+	// --------------------------------------------------------------------------------
+
+	private static boolean isWorthCompacting(final String value) {
+		return value.length() >= COMPACT_MIN_LENGTH || value.contains(ValueResultUtils.DEFAULT_VALUE_SEPARATOR);
+	}
+
+	private static Set<Integer> findMissingBases(final Collection<HistoryToken> tokens, final Map<Integer, HistoryToken> tokensById) {
+
+		final Set<Integer> missingIds = new HashSet<Integer>();
+		for (final HistoryToken token : tokens) {
+			if (token.isDelta() && !tokensById.containsKey(token.getBaseTokenId())) {
+				missingIds.add(token.getBaseTokenId());
+			}
+		}
+		return missingIds;
+	}
+
+	private static String rebuildValue(final HistoryToken token, final Map<Integer, HistoryToken> tokensById, final Map<Integer, String> values) {
+
+		if (!token.isDelta()) {
+			return token.getValue();
+		}
+
+		String baseValue = values.get(token.getBaseTokenId());
+		if (baseValue == null) {
+			baseValue = rebuildValue(tokensById.get(token.getBaseTokenId()), tokensById, values);
+			values.put(token.getBaseTokenId(), baseValue);
+		}
+
+		return HistoryValueDelta.decode(baseValue, token.getValue());
+	}
+
+}
@@ -22,16 +22,24 @@ package org.sigmah.server.dao.impl;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 
+
 import org.sigmah.server.dao.ProjectDAO;
 import org.sigmah.server.dao.base.AbstractDAO;
+import org.sigmah.server.dao.util.InClauses;
 import org.sigmah.server.domain.Project;
 import org.sigmah.server.domain.ProjectModel;
+import org.sigmah.server.domain.util.EntityConstants;
 import org.sigmah.shared.dto.referential.ProjectModelStatus;
+import org.sigmah.shared.dto.referential.ProjectModelType;
 
 /**
  * {@link ProjectDAO} implementation.
@@ -50,6 +58,60 @@ public class ProjectHibernateDAO extends AbstractDAO<Project, Integer> implement
 		return query.getResultList();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Integer> getProjectIds(final Collection<Integer> pmodelIds, final int afterId, final int maxResults) {
+
+		final StringBuilder builder = new StringBuilder();
+
+		builder.append("SELECT ");
+		builder.append("  p.id ");
+		builder.append("FROM ");
+		builder.append("  Project p ");
+		builder.append("WHERE ");
+		builder.append("  p.projectModel.id IN (:pmodelIds) ");
+		builder.append("  AND p.dateDeleted IS NULL ");
+		builder.append("  AND p.id > :afterId ");
+		builder.append("ORDER BY p.id");
+
+		final TypedQuery<Integer> query = em().createQuery(builder.toString(), Integer.class);
+		query.setParameter("pmodelIds", pmodelIds);
+		query.setParameter("afterId", afterId);
+		query.setMaxResults(maxResults);
+		return query.getResultList();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Project> getProjectsWithDetails(final Collection<Integer> ids) {
+
+		if (ids.isEmpty()) {
+			return new ArrayList<Project>();
+		}
+
+		final StringBuilder builder = new StringBuilder();
+
+		builder.append("SELECT DISTINCT ");
+		builder.append("  p ");
+		builder.append("FROM ");
+		builder.append("  Project p ");
+		builder.append("  LEFT JOIN FETCH p.partners ");
+		builder.append("  LEFT JOIN FETCH p.country ");
+		builder.append("  LEFT JOIN FETCH p.owner ");
+		builder.append("  LEFT JOIN FETCH p.manager ");
+		builder.append("WHERE ");
+		builder.append("  p.id IN (:ids) ");
+		builder.append("ORDER BY p.id");
+
+		final TypedQuery<Project> query = em().createQuery(builder.toString(), Project.class);
+		query.setParameter("ids", ids);
+		return query.getResultList();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -77,4 +139,84 @@ public class ProjectHibernateDAO extends AbstractDAO<Project, Integer> implement
 		return query.getResultList();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<Integer, Integer> findProjectOrgUnitIdsInHierarchies(final Collection<Integer> rootOrgUnitIds, final Integer organizationId,
+			final ProjectModelType modelType, final Integer favoriteUserId) {
+
+		final Map<Integer, Integer> projectIdToOrgUnitId = new HashMap<>();
+
+		if (rootOrgUnitIds == null || rootOrgUnitIds.isEmpty()) {
+			return projectIdToOrgUnitId;
+		}
+
+		final StringBuilder builder = new StringBuilder();
+
+		// UNION (instead of UNION ALL) stops the recursion if the hierarchy contains a cycle.
+		builder.append("WITH RECURSIVE units(id) AS ( ");
+		builder.append("  SELECT ").append(EntityConstants.ORG_UNIT_COLUMN_ID).append(" FROM ").append(EntityConstants.ORG_UNIT_TABLE);
+		builder.append("  WHERE ").append(EntityConstants.ORG_UNIT_COLUMN_ID).append(" IN (:rootIds) ");
+		builder.append("  UNION ");
+		builder.append("  SELECT child.").append(EntityConstants.ORG_UNIT_COLUMN_ID).append(" FROM ").append(EntityConstants.ORG_UNIT_TABLE).append(" child ");
+		builder.append("  JOIN units parent ON child.").append(EntityConstants.ORG_UNIT_COLUMN_PARENT).append(" = parent.id ");
+		builder.append(") ");
+		builder.append("SELECT pid.").append(EntityConstants.USER_DATABASE_COLUMN_ID).append(", MIN(pid.").append(EntityConstants.ORG_UNIT_COLUMN_ID).append(") ");
+		builder.append("FROM ").append(EntityConstants.ORG_UNIT_USER_DATABASE_LINK_TABLE).append(" pid ");
+		builder.append("JOIN units u ON u.id = pid.").append(EntityConstants.ORG_UNIT_COLUMN_ID).append(' ');
+		builder.append("JOIN ").append(EntityConstants.PROJECT_TABLE).append(" p ON p.").append(EntityConstants.USER_DATABASE_COLUMN_ID).append(" = pid.")
+			.append(EntityConstants.USER_DATABASE_COLUMN_ID).append(' ');
+		builder.append("JOIN ").append(EntityConstants.USER_DATABASE_TABLE).append(" d ON d.").append(EntityConstants.USER_DATABASE_COLUMN_ID).append(" = p.")
+			.append(EntityConstants.USER_DATABASE_COLUMN_ID).append(' ');
+
+		if (modelType != null) {
+			builder.append("JOIN ").append(EntityConstants.PROJECT_MODEL_VISIBILITY_TABLE).append(" v ON v.").append(EntityConstants.PROJECT_MODEL_COLUMN_ID)
+				.append(" = p.").append(EntityConstants.PROJECT_MODEL_COLUMN_ID);
+			builder.append("  AND v.").append(EntityConstants.ORGANIZATION_COLUMN_ID).append(" = :organizationId");
+			builder.append("  AND v.").append(EntityConstants.PROJECT_MODEL_VISIBILITY_COLUMN_TYPE).append(" = :modelType ");
+		}
+
+		if (favoriteUserId != null) {
+			builder.append("JOIN ").append(EntityConstants.PROJECT_COLUMN_USER_LINK_TABLE).append(" f ON f.").append(EntityConstants.PROJECT_USER_LINK_COLUMN_PROJECT_ID)
+				.append(" = p.").append(EntityConstants.USER_DATABASE_COLUMN_ID);
+			builder.append("  AND f.").append(EntityConstants.PROJECT_USER_LINK_COLUMN_USER_ID).append(" = :favoriteUserId ");
+		}
+
+		builder.append("WHERE d.").append(EntityConstants.COLUMN_DATE_DELETED).append(" IS NULL ");
+		builder.append("GROUP BY pid.").append(EntityConstants.USER_DATABASE_COLUMN_ID);
+
+		final Query query = em().createNativeQuery(builder.toString());
+		query.setParameter("rootIds", rootOrgUnitIds);
+		if (modelType != null) {
+			query.setParameter("organizationId", organizationId);
+			query.setParameter("modelType", modelType.name());
+		}
+		if (favoriteUserId != null) {
+			query.setParameter("favoriteUserId", favoriteUserId);
+		}
+
+		@SuppressWarnings("unchecked")
+		final List<Object[]> rows = query.getResultList();
+		for (final Object[] row : rows) {
+			projectIdToOrgUnitId.put(((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+		}
+
+		return projectIdToOrgUnitId;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Project> findByIds(final Collection<Integer> ids) {
+
+		if (ids == null || ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		final TypedQuery<Project> query = em().createQuery("SELECT p FROM Project p WHERE p.id IN (:ids)", entityClass);
+		return InClauses.getResultList(query, "ids", ids);
+	}
+
 }
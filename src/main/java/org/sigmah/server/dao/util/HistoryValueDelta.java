@@ -0,0 +1,105 @@
+package org.sigmah.server.dao.util;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+/**
+ * Compact encoding of a history token value as a difference with the value of a previous token.
+ * <p>
+ * A delta keeps the length of the prefix and of the suffix shared with the base value, and the characters in between:
+ * {@code <prefix length>:<suffix length>:<middle>}. This suits long texts edited locally and lists of ids joined with
+ * {@code ~} to which items are added or removed.
+ * </p>
+ */
+public final class HistoryValueDelta {
+
+	private static final char SEPARATOR = ':';
+
+	private HistoryValueDelta() {
+		// Utility class.
+	}
+
+	/**
+	 * Encodes the given {@code value} as a delta with the given {@code base}.
+	 * 
+	 * @param base
+	 *          The value of the previous token.
+	 * @param value
+	 *          The value to encode.
+	 * @return The delta.
+	 */
+	public static String encode(final String base, final String value) {
+
+		final int maxPrefix = Math.min(base.length(), value.length());
+
+		int prefix = 0;
+		while (prefix < maxPrefix && base.charAt(prefix) == value.charAt(prefix)) {
+			prefix++;
+		}
+
+		final int maxSuffix = maxPrefix - prefix;
+
+		int suffix = 0;
+		while (suffix < maxSuffix && base.charAt(base.length() - 1 - suffix) == value.charAt(value.length() - 1 - suffix)) {
+			suffix++;
+		}
+
+		return String.valueOf(prefix) + SEPARATOR + suffix + SEPARATOR + value.substring(prefix, value.length() - suffix);
+	}
+
+	/**
+	 * Rebuilds a value from the value of its base token and its delta.
+	 * 
+	 * @param base
+	 *          The value of the base token.
+	 * @param delta
+	 *          The delta returned by {@link #encode(String, String)}.
+	 * @return The value.
+	 * @throws IllegalArgumentException
+	 *           If the delta is malformed or does not match the base.
+	 */
+	public static String decode(final String base, final String delta) {
+
+		final int first = delta.indexOf(SEPARATOR);
+		final int second = first >= 0 ? delta.indexOf(SEPARATOR, first + 1) : -1;
+
+		if (second < 0) {
+			throw new IllegalArgumentException("Malformed history delta '" + delta + "'.");
+		}
+
+		final int prefix;
+		final int suffix;
+		try {
+			prefix = Integer.parseInt(delta.substring(0, first));
+			suffix = Integer.parseInt(delta.substring(first + 1, second));
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException("Malformed history delta '" + delta + "'.", e);
+		}
+
+		if (prefix + suffix > base.length()) {
+			throw new IllegalArgumentException("History delta '" + delta + "' does not match its base value.");
+		}
+
+		return base.substring(0, prefix) + delta.substring(second + 1) + base.substring(base.length() - suffix);
+	}
+
+}
@@ -0,0 +1,85 @@
+package org.sigmah.server.dao.util;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.TypedQuery;
+
+import org.apache.commons.collections4.ListUtils;
+
+/**
+ * Binds collections of any size to the {@code IN} clauses of queries.
+ * <p>
+ * Databases limit the number of parameters of a statement: collections are split into parts of at most
+ * {@link #MAX_PARAMETERS} values and queries are executed once per part.
+ * </p>
+ */
+public final class InClauses {
+
+	/**
+	 * Maximum number of parameters bound into a single {@code IN} clause.
+	 */
+	public static final int MAX_PARAMETERS = 1000;
+
+	private InClauses() {
+		// Utility class.
+	}
+
+	/**
+	 * Splits the given values into parts small enough to be bound into a single {@code IN} clause.
+	 * 
+	 * @param values
+	 *          The values.
+	 * @return The consecutive parts of the given values, in iteration order.
+	 */
+	public static <T> List<List<T>> partition(final Collection<T> values) {
+		return ListUtils.partition(values instanceof List ? (List<T>) values : new ArrayList<T>(values), MAX_PARAMETERS);
+	}
+
+	/**
+	 * Executes the given query once per part of the given values, bound to the given parameter.
+	 * 
+	 * @param query
+	 *          The query, its other parameters must already be bound.
+	 * @param parameter
+	 *          Name of the parameter of the {@code IN} clause.
+	 * @param values
+	 *          The values of the {@code IN} clause.
+	 * @return The results of every part, in the order the parts are executed. Empty if no value is given.
+	 */
+	public static <T> List<T> getResultList(final TypedQuery<T> query, final String parameter, final Collection<?> values) {
+
+		final List<T> results = new ArrayList<T>();
+
+		for (final List<?> part : partition(values)) {
+			query.setParameter(parameter, part);
+			results.addAll(query.getResultList());
+		}
+
+		return results;
+	}
+
+}
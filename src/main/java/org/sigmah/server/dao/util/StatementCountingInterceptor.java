@@ -0,0 +1,165 @@
+package org.sigmah.server.dao.util;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Transaction;
+import org.sigmah.server.domain.util.EntityConstants;
+
+/**
+ * Hibernate interceptor counting the SQL statements prepared by the current thread.
+ * <p>
+ * Registered through the {@code hibernate.ejb.interceptor} property of the persistence unit. The count is per thread
+ * and never reset: callers measure a section of code by subtracting two values of {@link #getStatementCount()}.
+ * </p>
+ * <p>
+ * The interceptor also counts the committed transactions which wrote to the exported data (see
+ * {@link #getDataVersion()}).
+ * </p>
+ */
+public class StatementCountingInterceptor extends EmptyInterceptor {
+
+	/**
+	 * Serial version UID.
+	 */
+	private static final long serialVersionUID = 2364870391457245036L;
+
+	/**
+	 * Number of statements prepared by each thread.
+	 */
+	private static final ThreadLocal<int[]> STATEMENT_COUNT = new ThreadLocal<int[]>() {
+
+		@Override
+		protected int[] initialValue() {
+			return new int[1];
+		}
+	};
+
+	/**
+	 * Whether the current transaction of each thread has prepared an {@code INSERT}, {@code UPDATE} or {@code DELETE}
+	 * statement.
+	 */
+	private static final ThreadLocal<boolean[]> WRITE_PENDING = new ThreadLocal<boolean[]>() {
+
+		@Override
+		protected boolean[] initialValue() {
+			return new boolean[1];
+		}
+	};
+
+	/**
+	 * Tables (in lower case) whose writes do not change the data: sessions bookkeeping.
+	 */
+	private static final Set<String> IGNORED_TABLES = new HashSet<>(Arrays.asList(EntityConstants.AUTHENTICATION_TABLE.toLowerCase(Locale.ROOT)));
+
+	/**
+	 * Version of the data, incremented after each committed writing transaction. Starts at the current time so that
+	 * the versions of two executions of the server do not overlap.
+	 */
+	private static final AtomicLong DATA_VERSION = new AtomicLong(System.currentTimeMillis());
+
+	/**
+	 * Returns the current version of the data.<br>
+	 * The version changes each time a transaction writing to the database is committed, whatever the modified
+	 * entities (including bulk and native statements), except for the writes to the ignored tables (logins).
+	 * 
+	 * @return The data version.
+	 */
+	public static long getDataVersion() {
+		return DATA_VERSION.get();
+	}
+
+	/**
+	 * Returns the number of SQL statements prepared so far by the current thread.
+	 * 
+	 * @return The statement count (may overflow, only differences are meaningful).
+	 */
+	public static int getStatementCount() {
+		return STATEMENT_COUNT.get()[0];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String onPrepareStatement(final String sql) {
+		STATEMENT_COUNT.get()[0]++;
+		if (isWrite(sql)) {
+			WRITE_PENDING.get()[0] = true;
+		}
+		return super.onPrepareStatement(sql);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterTransactionCompletion(final Transaction tx) {
+		final boolean[] writePending = WRITE_PENDING.get();
+		if (writePending[0] && tx.wasCommitted()) {
+			DATA_VERSION.incrementAndGet();
+		}
+		writePending[0] = false;
+		super.afterTransactionCompletion(tx);
+	}
+
+	/**
+	 * Returns if the given statement modifies the data.
+	 * 
+	 * @param sql
+	 *          The SQL statement.
+	 * @return {@code true} for {@code INSERT}, {@code UPDATE} and {@code DELETE} statements, unless they modify one of
+	 *         the ignored tables.
+	 */
+	static boolean isWrite(final String sql) {
+		final String[] words = sql.trim().split("[\\s(]+", 4);
+		if (words.length < 2) {
+			return false;
+		}
+
+		final String table;
+		switch (words[0].toLowerCase(Locale.ROOT)) {
+			case "update":
+				table = words[1];
+				break;
+			case "insert":
+			case "delete":
+				// "insert into table" / "delete from table" (the keyword is optional for some dialects).
+				table = words.length > 2 && ("into".equalsIgnoreCase(words[1]) || "from".equalsIgnoreCase(words[1])) ? words[2] : words[1];
+				break;
+			default:
+				return false;
+		}
+
+		// Without schema nor quotes.
+		final String name = table.substring(table.lastIndexOf('.') + 1).replace("\"", "").replace("`", "");
+		return !IGNORED_TABLES.contains(name.toLowerCase(Locale.ROOT));
+	}
+
+}
@@ -0,0 +1,254 @@
+package org.sigmah.server.dispatch.impl;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.inject.Singleton;
+
+/**
+ * Always-on execution metrics of the dispatched commands, aggregated by command class.
+ * <p>
+ * Recording is lock-free: every counter is an atomic value and the latency histogram uses power-of-two buckets, so
+ * finding the bucket of a duration costs a single bit scan. Bucket {@code i} counts the executions lasting less than
+ * {@code 2^(10 + i)} microseconds (about 1 ms for the first bucket), the last bucket counts all the slower ones.
+ * </p>
+ * <p>
+ * Durations and SQL statements of a command include the ones of its sub-commands.
+ * </p>
+ */
+@Singleton
+public class DispatchMetrics {
+
+	/**
+	 * Shift (in microseconds) of the upper bound of the first histogram bucket.
+	 */
+	static final int FIRST_BUCKET_SHIFT = 10;
+
+	/**
+	 * Number of histogram buckets, including the overflow bucket (the last upper bound is about 67 seconds).
+	 */
+	public static final int BUCKET_COUNT = 18;
+
+	/**
+	 * Metrics by command class.
+	 */
+	private final ConcurrentMap<Class<?>, CommandMetrics> metrics = new ConcurrentHashMap<>();
+
+	/**
+	 * Records a command execution.
+	 * 
+	 * @param commandClass
+	 *          The executed command class.
+	 * @param durationNanos
+	 *          The execution duration (in nanoseconds).
+	 * @param sqlStatements
+	 *          The number of SQL statements prepared during the execution.
+	 * @param failed
+	 *          {@code true} if the execution threw an exception.
+	 */
+	public void record(final Class<?> commandClass, final long durationNanos, final int sqlStatements, final boolean failed) {
+
+		CommandMetrics commandMetrics = metrics.get(commandClass);
+
+		if (commandMetrics == null) {
+			final CommandMetrics created = new CommandMetrics();
+			commandMetrics = metrics.putIfAbsent(commandClass, created);
+			if (commandMetrics == null) {
+				commandMetrics = created;
+			}
+		}
+
+		commandMetrics.record(durationNanos, sqlStatements, failed);
+	}
+
+	/**
+	 * Returns a snapshot of the metrics of every executed command, the most time consuming first.
+	 * 
+	 * @return The metrics snapshots, never {@code null}.
+	 */
+	public List<Snapshot> getSnapshots() {
+
+		final List<Snapshot> snapshots = new ArrayList<>(metrics.size());
+
+		for (final Map.Entry<Class<?>, CommandMetrics> entry : metrics.entrySet()) {
+			snapshots.add(entry.getValue().snapshot(entry.getKey().getSimpleName()));
+		}
+
+		Collections.sort(snapshots, new Comparator<Snapshot>() {
+
+			@Override
+			public int compare(final Snapshot o1, final Snapshot o2) {
+				return Long.compare(o2.getTotalNanos(), o1.getTotalNanos());
+			}
+		});
+
+		return snapshots;
+	}
+
+	/**
+	 * Resets every metric.
+	 */
+	public void reset() {
+		metrics.clear();
+	}
+
+	/**
+	 * Returns the histogram bucket of the given duration.
+	 * 
+	 * @param durationNanos
+	 *          The duration (in nanoseconds).
+	 * @return The bucket index, between {@code 0} and {@code BUCKET_COUNT - 1}.
+	 */
+	static int bucketIndex(final long durationNanos) {
+		final long units = (durationNanos / 1000L) >> FIRST_BUCKET_SHIFT;
+		if (units <= 0L) {
+			return 0;
+		}
+		return Math.min(64 - Long.numberOfLeadingZeros(units), BUCKET_COUNT - 1);
+	}
+
+	/**
+	 * Returns the upper bound of the given histogram bucket.
+	 * 
+	 * @param index
+	 *          The bucket index.
+	 * @return The exclusive upper bound (in seconds), or {@link Double#POSITIVE_INFINITY} for the last bucket.
+	 */
+	public static double bucketUpperBound(final int index) {
+		if (index >= BUCKET_COUNT - 1) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return (1L << (FIRST_BUCKET_SHIFT + index)) / 1000000d;
+	}
+
+	/**
+	 * Mutable metrics of one command class.
+	 */
+	private static final class CommandMetrics {
+
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong errors = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final AtomicLong sqlStatements = new AtomicLong();
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+		void record(final long durationNanos, final int statements, final boolean failed) {
+
+			count.incrementAndGet();
+			totalNanos.addAndGet(durationNanos);
+			sqlStatements.addAndGet(statements);
+			buckets.incrementAndGet(bucketIndex(durationNanos));
+
+			if (failed) {
+				errors.incrementAndGet();
+			}
+
+			long max = maxNanos.get();
+			while (durationNanos > max && !maxNanos.compareAndSet(max, durationNanos)) {
+				max = maxNanos.get();
+			}
+		}
+
+		Snapshot snapshot(final String command) {
+
+			final long[] bucketCounts = new long[BUCKET_COUNT];
+			for (int index = 0; index < BUCKET_COUNT; index++) {
+				bucketCounts[index] = buckets.get(index);
+			}
+
+			return new Snapshot(command, count.get(), errors.get(), totalNanos.get(), maxNanos.get(), sqlStatements.get(), bucketCounts);
+		}
+	}
+
+	/**
+	 * Immutable copy of the metrics of one command class.<br>
+	 * Counters are read one by one, so a snapshot taken during an execution may be slightly inconsistent.
+	 */
+	public static final class Snapshot {
+
+		private final String command;
+		private final long count;
+		private final long errors;
+		private final long totalNanos;
+		private final long maxNanos;
+		private final long sqlStatements;
+		private final long[] buckets;
+
+		Snapshot(final String command, final long count, final long errors, final long totalNanos, final long maxNanos, final long sqlStatements,
+				final long[] buckets) {
+			this.command = command;
+			this.count = count;
+			this.errors = errors;
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+			this.sqlStatements = sqlStatements;
+			this.buckets = buckets;
+		}
+
+		public String getCommand() {
+			return command;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getErrors() {
+			return errors;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		public long getSqlStatements() {
+			return sqlStatements;
+		}
+
+		/**
+		 * Returns the number of executions counted by the given histogram bucket.
+		 * 
+		 * @param index
+		 *          The bucket index, see {@link DispatchMetrics#bucketUpperBound(int)}.
+		 * @return The number of executions in the bucket (not cumulative).
+		 */
+		public long getBucket(final int index) {
+			return buckets[index];
+		}
+	}
+
+}
@@ -0,0 +1,257 @@
+package org.sigmah.server.dispatch.impl;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+
+import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
+import org.sigmah.server.domain.User;
+import org.sigmah.shared.command.GetCalendar;
+import org.sigmah.shared.command.GetHistory;
+import org.sigmah.shared.command.GetProjectReport;
+import org.sigmah.shared.command.GetProjectReports;
+import org.sigmah.shared.command.GetValue;
+import org.sigmah.shared.command.GetValues;
+import org.sigmah.shared.command.base.Command;
+import org.sigmah.shared.command.result.Result;
+import org.sigmah.shared.dispatch.CommandException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.persist.UnitOfWork;
+
+/**
+ * Executes independent read-only commands on a bounded pool of worker threads.
+ * <p>
+ * Each worker runs its command in its own unit of work, and thus with its own {@link EntityManager}. The user of the
+ * calling context is reloaded by each worker so that no entity is shared between two persistence contexts.
+ * </p>
+ * <p>
+ * Commands executed this way are not registered for rollback. Commands are only executed concurrently if every one of
+ * them is known to be read-only (see {@link #isReadOnly(List)}), otherwise they are executed in sequence in the calling
+ * thread with the usual rollback behaviour. Commands given by a worker thread are also executed in the calling thread,
+ * so that nested fan-outs cannot exhaust the pool.
+ * </p>
+ */
+@Singleton
+public class ParallelCommandExecutor {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(ParallelCommandExecutor.class);
+
+	/**
+	 * Number of worker threads.
+	 */
+	private static final int POOL_SIZE = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+	/**
+	 * Commands whose handlers never modify data.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final Set<Class<? extends Command>> READ_ONLY_COMMANDS = Collections.unmodifiableSet(new HashSet<Class<? extends Command>>(Arrays.asList(
+		GetValue.class, GetValues.class, GetHistory.class, GetCalendar.class, GetProjectReports.class, GetProjectReport.class)));
+
+	/**
+	 * Dispatch used to create the worker execution contexts.
+	 */
+	private final UserDispatch dispatch;
+
+	/**
+	 * Unit of work opened by each worker.
+	 */
+	private final UnitOfWork unitOfWork;
+
+	/**
+	 * Entity manager of the current thread.
+	 */
+	private final Provider<EntityManager> entityManagerProvider;
+
+	/**
+	 * Worker threads.
+	 */
+	private final ExecutorService executorService;
+
+	@Inject
+	public ParallelCommandExecutor(final UserDispatch dispatch, final UnitOfWork unitOfWork, final Provider<EntityManager> entityManagerProvider) {
+		this.dispatch = dispatch;
+		this.unitOfWork = unitOfWork;
+		this.entityManagerProvider = entityManagerProvider;
+		this.executorService = Executors.newFixedThreadPool(POOL_SIZE, new ThreadFactory() {
+
+			private final AtomicInteger counter = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new WorkerThread(runnable, "sigmah-command-worker-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Returns {@code true} if every given command is known to be read-only.
+	 * 
+	 * @param commands
+	 *          The commands.
+	 * @return {@code true} if the given commands can be executed concurrently without rollback.
+	 */
+	@SuppressWarnings("rawtypes")
+	public static boolean isReadOnly(final List<Command> commands) {
+		for (final Command command : commands) {
+			if (command == null || !READ_ONLY_COMMANDS.contains(command.getClass())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Executes the given {@code commands}, concurrently if they are all read-only and if the calling thread is not
+	 * already a worker.
+	 * 
+	 * @param commands
+	 *          The commands to execute.
+	 * @param context
+	 *          The calling execution context, providing the user and the request.
+	 * @return The results, in the order of the given {@code commands}.
+	 * @throws CommandException
+	 *           The exception of the first failing command (in the order of the {@code commands}).
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked"
+	})
+	public List<Result> executeAll(final List<Command> commands, final UserExecutionContext context) throws CommandException {
+
+		if (commands.size() < 2 || !isReadOnly(commands)) {
+			// Mutating commands keep the sequential execution and its rollback.
+			return executeSequentially(commands, context, true);
+		}
+
+		if (Thread.currentThread() instanceof WorkerThread) {
+			// Nested fan-out: waiting for other workers from a worker could exhaust the pool.
+			return executeSequentially(commands, context, false);
+		}
+
+		final Integer userId = context.getUser() != null ? context.getUser().getId() : null;
+		final List<Future<Result>> futures = new ArrayList<>(commands.size());
+
+		for (final Command command : commands) {
+			futures.add(executorService.submit(new Callable<Result>() {
+
+				@Override
+				public Result call() throws Exception {
+					unitOfWork.begin();
+					try {
+						final User user = userId != null ? entityManagerProvider.get().find(User.class, userId) : null;
+						final UserExecutionContext workerContext = dispatch.createContext(user, context.getRequest(), context.getOriginPageToken());
+						return workerContext.execute(command, false);
+
+					} finally {
+						unitOfWork.end();
+					}
+				}
+			}));
+		}
+
+		final List<Result> results = new ArrayList<>(futures.size());
+
+		try {
+			for (final Future<Result> future : futures) {
+				results.add(future.get());
+			}
+
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CommandException("Interrupted while waiting for the commands results.", e);
+
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof CommandException) {
+				throw (CommandException) e.getCause();
+			}
+			throw new CommandException(e.getCause());
+
+		} finally {
+			// Remaining commands are useless once a command failed.
+			for (final Future<Result> future : futures) {
+				future.cancel(false);
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Executes the given {@code commands} one after the other in the calling thread.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked"
+	})
+	private static List<Result> executeSequentially(final List<Command> commands, final UserExecutionContext context, final boolean allowRollback)
+			throws CommandException {
+		final List<Result> results = new ArrayList<>(commands.size());
+		for (final Command command : commands) {
+			results.add(context.execute(command, allowRollback));
+		}
+		return results;
+	}
+
+	/**
+	 * Stops the worker threads.
+	 */
+	public void shutdown() {
+		if (LOG.isInfoEnabled()) {
+			LOG.info("Stopping command workers.");
+		}
+		executorService.shutdownNow();
+	}
+
+	/**
+	 * Thread of the worker pool.
+	 */
+	private static final class WorkerThread extends Thread {
+
+		private WorkerThread(final Runnable runnable, final String name) {
+			super(runnable, name);
+		}
+
+	}
+
+}
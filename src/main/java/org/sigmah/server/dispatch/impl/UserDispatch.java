@@ -25,20 +25,23 @@ package org.sigmah.server.dispatch.impl;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpServletRequest;
 
-import org.apache.commons.lang3.time.StopWatch;
 import org.sigmah.client.page.Page;
 import org.sigmah.client.page.PageRequest;
 import org.sigmah.client.page.RequestParameter;
 import org.sigmah.client.security.SecureDispatchAsync.CommandExecution;
+import org.sigmah.server.dao.util.StatementCountingInterceptor;
 import org.sigmah.server.dispatch.CommandHandler;
 import org.sigmah.server.dispatch.CommandHandlerRegistry;
 import org.sigmah.server.dispatch.Dispatch;
 import org.sigmah.server.dispatch.ExecutionContext;
 import org.sigmah.server.domain.User;
 import org.sigmah.server.servlet.base.ServletExecutionContext;
+import org.sigmah.server.util.Languages;
+import org.sigmah.shared.Language;
 import org.sigmah.shared.command.base.Command;
 import org.sigmah.shared.command.result.Result;
 import org.sigmah.shared.dispatch.CommandException;
@@ -85,10 +88,12 @@ public class UserDispatch implements Dispatch {
 		 * @param {@link #user}
 		 * @param {@link #request}
 		 * @param {@link #originPageToken}
+		 * @param {@link #language}
 		 */
-		private UserExecutionContext(final UserDispatch dispatch, final User user, final HttpServletRequest request, final String originPageToken) {
+		private UserExecutionContext(final UserDispatch dispatch, final User user, final HttpServletRequest request, final String originPageToken,
+				final Language language) {
 
-			super(user, request, originPageToken);
+			super(user, request, originPageToken, language);
 
 			this.dispatch = dispatch;
 			this.commandResults = new java.util.ArrayList<CommandResult<?, ?>>();
@@ -108,7 +113,7 @@ public class UserDispatch implements Dispatch {
 		 */
 		public UserExecutionContext(final ServletExecutionContext servletContext) {
 
-			super(servletContext.getUser(), servletContext.getRequest(), servletContext.getOriginPageToken());
+			super(servletContext.getUser(), servletContext.getRequest(), servletContext.getOriginPageToken(), servletContext.getLanguage());
 
 			this.dispatch = null;
 			this.commandResults = null;
@@ -204,9 +209,15 @@ public class UserDispatch implements Dispatch {
 	 */
 	private final CommandHandlerRegistry handlerRegistry;
 
+	/**
+	 * The execution metrics of the commands.
+	 */
+	private final DispatchMetrics metrics;
+
 	@Inject
-	public UserDispatch(final CommandHandlerRegistry handlerRegistry) {
+	public UserDispatch(final CommandHandlerRegistry handlerRegistry, final DispatchMetrics metrics) {
 		this.handlerRegistry = handlerRegistry;
+		this.metrics = metrics;
 	}
 
 	/**
@@ -275,8 +286,9 @@ public class UserDispatch implements Dispatch {
 	public <C extends Command<R>, R extends Result> R execute(final C command, final ServletExecutionContext executionContext)
 			throws DispatchException {
 		
-		// Builds a new user execution context.
-		final UserExecutionContext context = createContext(executionContext.getUser(), executionContext.getRequest(), null);
+		// Builds a new user execution context (keeping the language of the given context, which may not have a request).
+		final UserExecutionContext context = new UserExecutionContext(this, executionContext.getUser(), executionContext.getRequest(), null,
+			executionContext.getLanguage());
 
 		try {
 			// Tries to execute the action.
@@ -303,7 +315,7 @@ public class UserDispatch implements Dispatch {
 	 */
 	public UserExecutionContext createContext(final User user, final HttpServletRequest request, final String originPageToken) {
 		
-		return new UserExecutionContext(this, user, request, originPageToken);
+		return new UserExecutionContext(this, user, request, originPageToken, Languages.getLanguage(request));
 	}
 
 	/**
@@ -328,24 +340,25 @@ public class UserDispatch implements Dispatch {
 			LOG.debug("EXECUTING COMMAND - Command: '{}' ; Handler: '{}' ; User: '{}'.", command, handler, context.getUser());
 		}
 
-		final StopWatch chrono;
-		if (LOG.isDebugEnabled()) {
-			chrono = new StopWatch();
-			chrono.start();
+		final long start = System.nanoTime();
+		final int statementsBefore = StatementCountingInterceptor.getStatementCount();
+		boolean failed = true;
 
-		} else {
-			chrono = null;
-		}
+		try {
 
-		// Asks for the action execution.
-		final R executionResult = handler.execute(command, context);
+			// Asks for the action execution.
+			final R executionResult = handler.execute(command, context);
+			failed = false;
 
-		if (LOG.isDebugEnabled() && chrono != null) {
-			chrono.stop();
-			LOG.debug("COMMAND '{}' EXECUTED IN {} MS.", command, chrono.getTime());
-		}
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("COMMAND '{}' EXECUTED IN {} MS.", command, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			}
 
-		return executionResult;
+			return executionResult;
+
+		} finally {
+			metrics.record(command.getClass(), System.nanoTime() - start, StatementCountingInterceptor.getStatementCount() - statementsBefore, failed);
+		}
 	}
 
 	/**
@@ -41,6 +41,8 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.sigmah.server.domain.base.AbstractEntityId;
 import org.sigmah.server.domain.util.EntityConstants;
 import org.sigmah.server.domain.util.SchemaElement;
@@ -54,6 +56,7 @@ import org.sigmah.server.domain.util.SchemaElement;
  */
 @Entity
 @Table(name = EntityConstants.COUNTRY_TABLE)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Country extends AbstractEntityId<Integer> implements SchemaElement {
 
 	/**
@@ -84,6 +84,21 @@ public class HistoryToken extends AbstractEntityId<Integer> {
 	@Column(name = EntityConstants.HISTORY_TOKEN_COLUMN_COMMENT, nullable = true)
 	private String comment;
 
+	/**
+	 * Id of the token the value is a delta of, {@code null} if the value is complete.
+	 * 
+	 * @see org.sigmah.server.dao.util.HistoryValueDelta
+	 */
+	@Column(name = EntityConstants.HISTORY_TOKEN_COLUMN_BASE_TOKEN_ID, nullable = true)
+	private Integer baseTokenId;
+
+	/**
+	 * Number of deltas to apply to a complete value to rebuild the value of this token, {@code null} if the value is
+	 * complete.
+	 */
+	@Column(name = EntityConstants.HISTORY_TOKEN_COLUMN_DELTA_DEPTH, nullable = true)
+	private Integer deltaDepth;
+
 	// --------------------------------------------------------------------------------
 	//
 	// FOREIGN KEYS.
@@ -200,6 +215,31 @@ public class HistoryToken extends AbstractEntityId<Integer> {
 		return coreVersion;
 	}
 
+	public Integer getBaseTokenId() {
+		return baseTokenId;
+	}
+
+	public void setBaseTokenId(Integer baseTokenId) {
+		this.baseTokenId = baseTokenId;
+	}
+
+	public Integer getDeltaDepth() {
+		return deltaDepth;
+	}
+
+	public void setDeltaDepth(Integer deltaDepth) {
+		this.deltaDepth = deltaDepth;
+	}
+
+	/**
+	 * Returns if the value of this token is a delta of another token value.
+	 * 
+	 * @return {@code true} if the value must be rebuilt from the base token value.
+	 */
+	public boolean isDelta() {
+		return baseTokenId != null;
+	}
+
 	public void setCoreVersion(Amendment coreVersion) {
 		this.coreVersion = coreVersion;
 	}
@@ -42,6 +42,8 @@ import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.sigmah.server.domain.base.AbstractEntityId;
 import org.sigmah.server.domain.layout.Layout;
 import org.sigmah.server.domain.util.EntityConstants;
@@ -55,6 +57,7 @@ import org.sigmah.server.domain.util.EntityConstants;
  */
 @Entity
 @Table(name = EntityConstants.PHASE_MODEL_TABLE)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class PhaseModel extends AbstractEntityId<Integer> {
 
 	/**
@@ -82,6 +85,7 @@ public class PhaseModel extends AbstractEntityId<Integer> {
 	//
 	// --------------------------------------------------------------------------------
 
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@OneToMany
 	@JoinTable(name = EntityConstants.PHASE_MODEL_SELF_LINK_TABLE, joinColumns = { 
 		@JoinColumn(name = EntityConstants.PHASE_MODEL_COLUMN_ID)
@@ -49,6 +49,8 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Filter;
 import org.hibernate.annotations.FilterDef;
 import org.hibernate.annotations.FilterDefs;
@@ -77,6 +79,7 @@ import org.sigmah.shared.dto.referential.ProjectModelType;
 })
 @Filters({ @Filter(name = EntityFilters.HIDE_DELETED, condition = EntityFilters.PROJECT_MODEL_HIDE_DELETED_CONDITION)
 })
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class ProjectModel extends AbstractEntityId<Integer> implements Deleteable, HasMaintenance {
 
 	/**
@@ -133,6 +136,7 @@ public class ProjectModel extends AbstractEntityId<Integer> implements Deleteabl
 	@OneToOne(mappedBy = "projectModel", cascade = CascadeType.ALL)
 	private LogFrameModel logFrameModel;
 
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@OneToMany(mappedBy = "parentProjectModel", cascade = CascadeType.ALL)
     @OrderBy("displayOrder ASC")
 	private List<PhaseModel> phaseModels = new ArrayList<>();
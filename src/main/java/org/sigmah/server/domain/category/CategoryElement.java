@@ -36,6 +36,8 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.sigmah.server.domain.Organization;
 import org.sigmah.server.domain.base.AbstractEntityId;
 import org.sigmah.server.domain.util.EntityConstants;
@@ -52,6 +54,7 @@ import org.sigmah.server.domain.util.EntityConstants;
  */
 @Entity
 @Table(name = EntityConstants.CATEGORY_ELEMENT_TABLE)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class CategoryElement extends AbstractEntityId<Integer> {
 
 	/**
@@ -44,6 +44,8 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.sigmah.server.domain.Organization;
 import org.sigmah.server.domain.base.AbstractEntityId;
 import org.sigmah.server.domain.util.EntityConstants;
@@ -58,6 +60,7 @@ import org.sigmah.shared.dto.referential.CategoryIcon;
  */
 @Entity
 @Table(name = EntityConstants.CATEGORY_TYPE_TABLE)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class CategoryType extends AbstractEntityId<Integer> {
 
 	/**
@@ -90,6 +93,7 @@ public class CategoryType extends AbstractEntityId<Integer> {
 	@JoinColumn(name = EntityConstants.ORGANIZATION_COLUMN_ID)
 	private Organization organization;
 
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@OneToMany(mappedBy = "parentType", cascade = CascadeType.ALL)
 	@OrderBy("label ASC")
 	private List<CategoryElement> elements = new ArrayList<CategoryElement>();
@@ -41,6 +41,8 @@ import javax.persistence.Transient;
 import javax.validation.constraints.NotNull;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.sigmah.server.domain.base.AbstractEntityId;
 import org.sigmah.server.domain.base.EntityId;
 import org.sigmah.server.domain.profile.PrivacyGroup;
@@ -68,6 +70,7 @@ import org.sigmah.shared.dto.referential.TextAreaType;
 @Entity
 @Table(name = EntityConstants.FLEXIBLE_ELEMENT_TABLE)
 @Inheritance(strategy = InheritanceType.JOINED)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public abstract class FlexibleElement extends AbstractEntityId<Integer> implements Historable {
 
 	/**
@@ -35,6 +35,8 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.sigmah.server.domain.base.AbstractEntityId;
 import org.sigmah.server.domain.category.CategoryElement;
 import org.sigmah.server.domain.util.EntityConstants;
@@ -48,6 +50,7 @@ import org.sigmah.server.domain.util.EntityConstants;
  */
 @Entity
 @Table(name = EntityConstants.QUESTION_CHOICE_ELEMENT_TABLE)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class QuestionChoiceElement extends AbstractEntityId<Integer> {
 
 	/**
@@ -36,6 +36,8 @@ import javax.persistence.Table;
 import javax.persistence.Transient;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.sigmah.server.domain.category.CategoryType;
 import org.sigmah.server.domain.quality.QualityCriterion;
 import org.sigmah.server.domain.util.EntityConstants;
@@ -69,6 +71,7 @@ public class QuestionElement extends FlexibleElement {
 	@JoinColumn(name = EntityConstants.QUESTION_ELEMENT_COLUMN_ID_QUALITY_CRITERION, nullable = true)
 	private QualityCriterion qualityCriterion;
 
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@OneToMany(mappedBy = "parentQuestion", cascade = CascadeType.ALL)
 	@OrderBy("sortOrder ASC")
 	private List<QuestionChoiceElement> choices = new ArrayList<QuestionChoiceElement>();
@@ -67,9 +67,24 @@ public class GlobalExportContent extends AbstractEntityId<Integer> {
 	@Size(max = EntityConstants.GLOBAL_EXPORT_CONTENT_PROJECT_MODEL_NAME_MAX_LENGTH)
 	private String projectModelName;
 
+	/**
+	 * Plain CSV content of the whole project model (exports created before the chunked storage).
+	 */
 	@Column(name = EntityConstants.GLOBAL_EXPORT_CONTENT_COLUMN_CSV_CONTENT, nullable = true, columnDefinition = EntityConstants.COLUMN_DEFINITION_TEXT)
 	private String csvContent;
 
+	/**
+	 * GZIP compressed CSV content of a chunk of rows of the project model.
+	 */
+	@Column(name = EntityConstants.GLOBAL_EXPORT_CONTENT_COLUMN_COMPRESSED_CONTENT, nullable = true, columnDefinition = EntityConstants.COLUMN_DEFINITION_BYTEA)
+	private byte[] compressedContent;
+
+	/**
+	 * Position of the chunk in the project model rows.
+	 */
+	@Column(name = EntityConstants.GLOBAL_EXPORT_CONTENT_COLUMN_CHUNK_INDEX, nullable = true)
+	private Integer chunkIndex;
+
 	// --------------------------------------------------------------------------------
 	//
 	// FOREIGN KEYS.
@@ -93,6 +108,7 @@ public class GlobalExportContent extends AbstractEntityId<Integer> {
 	@Override
 	protected void appendToString(final ToStringBuilder builder) {
 		builder.append("projectModelName", projectModelName);
+		builder.append("chunkIndex", chunkIndex);
 	}
 
 	// --------------------------------------------------------------------------------
@@ -127,6 +143,22 @@ public class GlobalExportContent extends AbstractEntityId<Integer> {
 		this.csvContent = csvContent;
 	}
 
+	public byte[] getCompressedContent() {
+		return compressedContent;
+	}
+
+	public void setCompressedContent(byte[] compressedContent) {
+		this.compressedContent = compressedContent;
+	}
+
+	public Integer getChunkIndex() {
+		return chunkIndex;
+	}
+
+	public void setChunkIndex(Integer chunkIndex) {
+		this.chunkIndex = chunkIndex;
+	}
+
 	public GlobalExport getGlobalExport() {
 		return globalExport;
 	}
@@ -36,6 +36,8 @@ import javax.persistence.OneToMany;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.sigmah.server.domain.base.AbstractEntityId;
 import org.sigmah.server.domain.element.FlexibleElement;
 import org.sigmah.server.domain.util.EntityConstants;
@@ -49,6 +51,7 @@ import org.sigmah.server.domain.util.EntityConstants;
  */
 @Entity
 @Table(name = EntityConstants.LAYOUT_TABLE)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Layout extends AbstractEntityId<Integer> {
 
 	/**
@@ -75,6 +78,7 @@ public class Layout extends AbstractEntityId<Integer> {
 	//
 	// --------------------------------------------------------------------------------
 
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@OneToMany(mappedBy = "parentLayout", cascade = CascadeType.ALL)
 	private List<LayoutGroup> groups = new ArrayList<LayoutGroup>();
 
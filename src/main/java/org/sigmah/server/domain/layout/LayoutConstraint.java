@@ -34,6 +34,8 @@ import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.sigmah.server.domain.base.AbstractEntityId;
 import org.sigmah.server.domain.element.FlexibleElement;
 import org.sigmah.server.domain.util.EntityConstants;
@@ -47,6 +49,7 @@ import org.sigmah.server.domain.util.EntityConstants;
  */
 @Entity
 @Table(name = EntityConstants.LAYOUT_CONSTRAINT_TABLE)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class LayoutConstraint extends AbstractEntityId<Integer> {
 
 	/**
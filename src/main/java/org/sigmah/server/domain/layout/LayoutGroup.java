@@ -41,6 +41,8 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.sigmah.server.domain.base.AbstractEntityId;
 import org.sigmah.server.domain.util.EntityConstants;
 
@@ -53,6 +55,7 @@ import org.sigmah.server.domain.util.EntityConstants;
  */
 @Entity
 @Table(name = EntityConstants.LAYOUT_GROUP_TABLE)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class LayoutGroup extends AbstractEntityId<Integer> {
 
 	/**
@@ -88,6 +91,7 @@ public class LayoutGroup extends AbstractEntityId<Integer> {
 	@NotNull
 	private Layout parentLayout;
 
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 	@OneToMany(mappedBy = "parentLayoutGroup", cascade = CascadeType.ALL)
 	@OrderBy("sortOrder ASC, id ASC")
 	private List<LayoutConstraint> constraints = new ArrayList<LayoutConstraint>();
@@ -45,6 +45,7 @@ public final class EntityConstants extends org.sigmah.shared.dto.util.EntityCons
 	// --------------------------------------------------------------------------------
 
 	public static final String COLUMN_DEFINITION_TEXT = "TEXT";
+	public static final String COLUMN_DEFINITION_BYTEA = "BYTEA";
 
 	public static final String COLUMN_DATE_CREATED = "dateCreated";
 	public static final String COLUMN_DATE_EDITED = "dateEdited";
@@ -419,6 +420,8 @@ public final class EntityConstants extends org.sigmah.shared.dto.util.EntityCons
 	public static final String GLOBAL_EXPORT_CONTENT_COLUMN_ID = "id";
 	public static final String GLOBAL_EXPORT_CONTENT_COLUMN_PROJECT_MODEL_NAME = "project_model_name";
 	public static final String GLOBAL_EXPORT_CONTENT_COLUMN_CSV_CONTENT = "csv_content";
+	public static final String GLOBAL_EXPORT_CONTENT_COLUMN_COMPRESSED_CONTENT = "compressed_content";
+	public static final String GLOBAL_EXPORT_CONTENT_COLUMN_CHUNK_INDEX = "chunk_index";
 	// TODO Replace with 'GlobalExport' id column.
 	public static final String GLOBAL_EXPORT_CONTENT_COLUMN_GLOBAL_EXPORT_ID = "global_export_id";
 
@@ -470,6 +473,8 @@ public final class EntityConstants extends org.sigmah.shared.dto.util.EntityCons
 	public static final String HISTORY_TOKEN_COLUMN_USER_ID = "id_user";
 	public static final String HISTORY_TOKEN_COLUMN_COMMENT = "comment";
 	public static final String HISTORY_TOKEN_COLUMN_CORE_VERSION = "core_version";
+	public static final String HISTORY_TOKEN_COLUMN_BASE_TOKEN_ID = "id_base_token";
+	public static final String HISTORY_TOKEN_COLUMN_DELTA_DEPTH = "delta_depth";
 
 	// --------------------------------------------------------------------------------
 	//
@@ -1080,6 +1085,8 @@ public final class EntityConstants extends org.sigmah.shared.dto.util.EntityCons
 	public static final String PROJECT_COLUMN_MONITORED_POINT_LIST_ID = "id_monitored_points_list";
 
 	public static final String PROJECT_COLUMN_USER_LINK_TABLE = "project_userlogin";
+	public static final String PROJECT_USER_LINK_COLUMN_PROJECT_ID = "project_databaseid";
+	public static final String PROJECT_USER_LINK_COLUMN_USER_ID = "favoriteusers_userid";
 
 	// --------------------------------------------------------------------------------
 	//
@@ -87,4 +87,9 @@ public interface BackupArchiveManager {
 	 */
 	void startBackupArchiveGeneration(BackupDTO backup, User user) throws IOException, CommandException;
 
+	/**
+	 * Stops the backup generation threads. Running processes are interrupted.
+	 */
+	void shutdown();
+
 }
@@ -26,7 +26,10 @@ package org.sigmah.server.file;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.CopyOption;
+import java.util.List;
 
 /**
  * Provides storage for the contents of uploaded files.
@@ -57,6 +60,80 @@ public interface FileStorageProvider {
 	 */
 	InputStream open(String storageId) throws IOException;
 
+	/**
+	 * Returns the size of the file of the given id.
+	 * 
+	 * @param storageId
+	 *          The unique storage id for this version of the file.
+	 * @return The size of the file in bytes.
+	 * @throws IOException
+	 *           If the given {@code storageId} does not exist or cannot be opened.
+	 */
+	long size(String storageId) throws IOException;
+
+	/**
+	 * Reads the file of the given id from the given {@code position}, without reading the preceding bytes.<br>
+	 * Bytes are read until the {@code destination} is full or the end of the file is reached.
+	 * 
+	 * @param storageId
+	 *          The unique storage id for this version of the file.
+	 * @param position
+	 *          Position of the first byte to read.
+	 * @param destination
+	 *          The buffer into which the bytes are written.
+	 * @return The number of bytes read, {@code 0} if {@code position} is after the end of the file.
+	 * @throws IOException
+	 *           If the given {@code storageId} does not exist or cannot be read.
+	 */
+	int read(String storageId, long position, ByteBuffer destination) throws IOException;
+
+	/**
+	 * Writes a range of the file of the given id to the given {@code target} channel, without reading the preceding
+	 * bytes and without copying the content to an intermediate array when the platform allows it.
+	 * 
+	 * @param storageId
+	 *          The unique storage id for this version of the file.
+	 * @param position
+	 *          Position of the first byte to transfer.
+	 * @param count
+	 *          Maximum number of bytes to transfer.
+	 * @param target
+	 *          The target channel.
+	 * @return The number of bytes transferred (less than {@code count} if the end of the file is reached).
+	 * @throws IOException
+	 *           If the given {@code storageId} does not exist or cannot be read, or if the target cannot be written.
+	 */
+	long transferTo(String storageId, long position, long count, WritableByteChannel target) throws IOException;
+
+	/**
+	 * Creates (or replaces) the file of the given id with the given size. Its content is undefined until written with
+	 * {@link #write(String, long, ByteBuffer)}.
+	 * 
+	 * @param storageId
+	 *          The unique storage id for this version of the file.
+	 * @param size
+	 *          The size of the file in bytes.
+	 * @throws IOException
+	 *           If the given {@code storageId} cannot be created.
+	 */
+	void allocate(String storageId, long size) throws IOException;
+
+	/**
+	 * Writes the remaining bytes of {@code source} in the file of the given id from the given {@code position}, without
+	 * rewriting the other bytes of the file.
+	 * 
+	 * @param storageId
+	 *          The unique storage id for this version of the file.
+	 * @param position
+	 *          Position of the first byte to write.
+	 * @param source
+	 *          The bytes to write.
+	 * @return The number of bytes written.
+	 * @throws IOException
+	 *           If the given {@code storageId} cannot be written.
+	 */
+	int write(String storageId, long position, ByteBuffer source) throws IOException;
+
 	/**
 	 * Delete the file of the given id.
 	 * 
@@ -68,6 +145,29 @@ public interface FileStorageProvider {
 	 */
 	boolean delete(String storageId) throws IOException;
 
+	/**
+	 * Renames the file of the given id, replacing the target file if it exists.
+	 * 
+	 * @param storageId
+	 *          The unique storage id of the file.
+	 * @param targetStorageId
+	 *          The new storage id of the file.
+	 * @throws IOException
+	 *           If the given {@code storageId} does not exist or cannot be moved.
+	 */
+	void move(String storageId, String targetStorageId) throws IOException;
+
+	/**
+	 * Returns the ids of the stored files starting with the given prefix.
+	 * 
+	 * @param prefix
+	 *          The prefix of the storage ids.
+	 * @return The matching storage ids (may be empty, never {@code null}).
+	 * @throws IOException
+	 *           If the files storage cannot be read.
+	 */
+	List<String> list(String prefix) throws IOException;
+
 	/**
 	 * Copy the content of an inputstream in the file referenced by the given path
 	 * 
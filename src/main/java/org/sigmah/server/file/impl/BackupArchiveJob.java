@@ -29,9 +29,16 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.Deflater;
 import java.util.zip.ZipOutputStream;
 
@@ -42,6 +49,7 @@ import org.sigmah.server.dao.OrgUnitDAO;
 import org.sigmah.server.dao.ProjectDAO;
 import org.sigmah.server.dao.UserDAO;
 import org.sigmah.server.dao.ValueDAO;
+import org.sigmah.server.dao.util.InClauses;
 import org.sigmah.server.domain.OrgUnit;
 import org.sigmah.server.domain.Project;
 import org.sigmah.server.domain.User;
@@ -87,15 +95,42 @@ public class BackupArchiveJob implements Runnable {
 		private Integer userId;
 		private Path tempArchiveFile;
 		private Path finalArchiveFile;
+		private Progress progress;
 
-		BackupArchiveJobArgument(final BackupDTO backup, final Integer userId, final Path tempArchiveFile, final Path finalArchiveFile) {
+		BackupArchiveJobArgument(final BackupDTO backup, final Integer userId, final Path tempArchiveFile, final Path finalArchiveFile,
+				final Progress progress) {
 			this.backup = backup;
 			this.userId = userId;
 			this.tempArchiveFile = tempArchiveFile;
 			this.finalArchiveFile = finalArchiveFile;
+			this.progress = progress;
 		}
 	}
 
+	/**
+	 * Progress of a backup archive job, readable from other threads.
+	 */
+	public static final class Progress {
+
+		private final AtomicInteger processedFiles = new AtomicInteger();
+		private final AtomicInteger totalFiles = new AtomicInteger();
+
+		public int getProcessedFiles() {
+			return processedFiles.get();
+		}
+
+		public int getTotalFiles() {
+			return totalFiles.get();
+		}
+	}
+
+	/**
+	 * Extensions of the files which are already compressed. These files are stored as-is in the archive since deflating
+	 * them again costs time without reducing their size.
+	 */
+	private static final Set<String> COMPRESSED_EXTENSIONS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("7z", "avi", "bz2",
+		"docx", "gif", "gz", "jpeg", "jpg", "mov", "mp3", "mp4", "odp", "ods", "odt", "pdf", "png", "pptx", "rar", "xlsx", "zip")));
+
 	/**
 	 * Logger.
 	 */
@@ -156,14 +191,17 @@ public class BackupArchiveJob implements Runnable {
 		final Path tempArchiveFile = arguments.tempArchiveFile;
 		final Path finalArchiveFile = arguments.finalArchiveFile;
 
-		try (final ZipArchiveOutputStream zipOutputStream = new ZipArchiveOutputStream(Files.newOutputStream(tempArchiveFile))) {
+		// Writing to the file (instead of a stream) allows stored entries without computing their size and CRC first.
+		try (final ZipArchiveOutputStream zipOutputStream = new ZipArchiveOutputStream(tempArchiveFile.toFile())) {
 
 			zipOutputStream.setMethod(ZipOutputStream.DEFLATED);
-			zipOutputStream.setLevel(Deflater.BEST_COMPRESSION);
+			zipOutputStream.setLevel(Deflater.DEFAULT_COMPRESSION);
 
 			final RepositoryElement repository = buildOrgUnitRepository(arguments.backup, arguments.userId);
 			repository.setName("");
 
+			arguments.progress.totalFiles.set(countFiles(repository));
+
 			zipRepository(repository, zipOutputStream, "");
 
 			// TODO Delete existing previous organization file(s).
@@ -250,15 +288,45 @@ public class BackupArchiveJob implements Runnable {
 		// Retrieves values for OrgUnits full tree.
 		final List<Value> values = valueDAO.findValuesForOrgUnits(orgUnitTree);
 
+		// Containers and file versions are resolved for the whole tree at once.
+		final List<Value> filesValues = new ArrayList<Value>();
+		final Set<Integer> containerIds = new HashSet<Integer>();
+		final Set<Integer> filesIds = new HashSet<Integer>();
+
 		for (final Value value : values) {
+			if (value.getElement() instanceof FilesListElement) {
+				filesValues.add(value);
+				containerIds.add(value.getContainerId());
+				filesIds.addAll(ValueResultUtils.splitValuesAsInteger(value.getValue()));
+			}
+		}
+
+		final Map<Integer, Project> projects = new HashMap<Integer, Project>();
+		for (final Project project : projectDAO.findByIds(containerIds)) {
+			projects.put(project.getId(), project);
+		}
 
-			if (!(value.getElement() instanceof FilesListElement)) {
-				// Not a file element.
-				continue;
+		final Map<Integer, OrgUnit> orgUnits = new HashMap<Integer, OrgUnit>();
+		for (final OrgUnit unit : orgUnitTree) {
+			orgUnits.put(unit.getId(), unit);
+		}
+
+		final Map<Integer, List<FileVersion>> versionsByFile = new HashMap<Integer, List<FileVersion>>();
+		for (final List<Integer> partition : InClauses.partition(filesIds)) {
+			for (final FileVersion version : fileDAO.findVersions(partition, loadingScope)) {
+				List<FileVersion> fileVersions = versionsByFile.get(version.getParentFile().getId());
+				if (fileVersions == null) {
+					fileVersions = new ArrayList<FileVersion>();
+					versionsByFile.put(version.getParentFile().getId(), fileVersions);
+				}
+				fileVersions.add(version);
 			}
+		}
+
+		for (final Value value : filesValues) {
 
-			final Project ud = projectDAO.findById(value.getContainerId());
-			final OrgUnit o;
+			final Project ud = projects.get(value.getContainerId());
+			OrgUnit o;
 
 			if (ud != null) {
 				// There is only one partner.
@@ -266,10 +334,19 @@ public class BackupArchiveJob implements Runnable {
 
 			} else {
 				// Container is an OrgUnit.
-				o = orgUnitDAO.findById(value.getContainerId());
+				o = orgUnits.get(value.getContainerId());
+				if (o == null) {
+					o = orgUnitDAO.findById(value.getContainerId());
+				}
 			}
 
-			final List<FileVersion> versions = fileDAO.findVersions(ValueResultUtils.splitValuesAsInteger(value.getValue()), loadingScope);
+			final List<FileVersion> versions = new ArrayList<FileVersion>();
+			for (final Integer fileId : ValueResultUtils.splitValuesAsInteger(value.getValue())) {
+				final List<FileVersion> fileVersions = versionsByFile.get(fileId);
+				if (fileVersions != null) {
+					versions.addAll(fileVersions);
+				}
+			}
 
 			FolderElement orgUnitRepository = (FolderElement) root.getById("o" + o.getId());
 			if (orgUnitRepository == null) {
@@ -349,12 +426,17 @@ public class BackupArchiveJob implements Runnable {
 			if(fileStorageProvider.exists(fileStorageId)) {
 				try (final InputStream is = new BufferedInputStream(fileStorageProvider.open(fileStorageId), ResponseHelper.BUFFER_SIZE)) {
 
-					zipOutputStream.putArchiveEntry(new ZipArchiveEntry(path));
+					final ZipArchiveEntry entry = new ZipArchiveEntry(path);
+					if (isCompressed(file.getName())) {
+						entry.setMethod(ZipOutputStream.STORED);
+					}
+					zipOutputStream.putArchiveEntry(entry);
 
 					final byte data[] = new byte[ResponseHelper.BUFFER_SIZE];
+					int length;
 
-					while ((is.read(data)) != -1) {
-						zipOutputStream.write(data);
+					while ((length = is.read(data)) != -1) {
+						zipOutputStream.write(data, 0, length);
 					}
 
 					zipOutputStream.closeArchiveEntry();
@@ -366,6 +448,8 @@ public class BackupArchiveJob implements Runnable {
 				LOG.warn("File '{0}' does not exists on the server ; continuing with next file.", fileStorageId);
 			}
 
+			arguments.progress.processedFiles.incrementAndGet();
+
 		} else if (root instanceof FolderElement) {
 
 			final FolderElement folder = (FolderElement) root;
@@ -376,6 +460,40 @@ public class BackupArchiveJob implements Runnable {
 		}
 	}
 
+	/**
+	 * Counts the files of the given repository tree.
+	 * 
+	 * @param root
+	 *          The root repository element.
+	 * @return The number of {@link FileElement} in the tree.
+	 */
+	private static int countFiles(final RepositoryElement root) {
+
+		if (root instanceof FileElement) {
+			return 1;
+		}
+
+		int count = 0;
+		if (root instanceof FolderElement) {
+			for (final RepositoryElement element : ((FolderElement) root).getChildren()) {
+				count += countFiles(element);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns if the given file name references an already compressed format (images, PDF, archives, office documents).
+	 * 
+	 * @param fileName
+	 *          The file name.
+	 * @return {@code true} if the file should be stored without compression.
+	 */
+	static boolean isCompressed(final String fileName) {
+		final int index = fileName.lastIndexOf('.');
+		return index >= 0 && COMPRESSED_EXTENSIONS.contains(fileName.substring(index + 1).toLowerCase(Locale.ROOT));
+	}
+
 	/**
 	 * Deletes the {@code "C:\fakepath\"} string from given {@code fileName} (which comes from an issue in Google Chrome).
 	 * It also replaces all wrong characters that can't be displayed in a file name or a directory name by "{@code _}".
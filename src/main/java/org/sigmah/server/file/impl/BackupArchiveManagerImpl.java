@@ -33,7 +33,14 @@ import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -44,6 +51,7 @@ import org.sigmah.server.domain.User;
 import org.sigmah.server.file.BackupArchiveJobFactory;
 import org.sigmah.server.file.BackupArchiveManager;
 import org.sigmah.server.file.impl.BackupArchiveJob.BackupArchiveJobArgument;
+import org.sigmah.server.file.impl.BackupArchiveJob.Progress;
 import org.sigmah.shared.conf.PropertyKey;
 import org.sigmah.shared.dto.BackupDTO;
 import org.sigmah.shared.dto.value.FileDTO.LoadingScope;
@@ -110,6 +118,16 @@ public class BackupArchiveManagerImpl implements BackupArchiveManager {
 		+ BACKUP_ARCHIVE_TEMP_EXT
 		+ ")");
 
+	/**
+	 * Number of backup archives generated at the same time, for all organizations.
+	 */
+	private static final int POOL_SIZE = 2;
+
+	/**
+	 * Number of backup archives generated at the same time for a single organization.
+	 */
+	private static final int MAX_RUNNING_PER_ORGANIZATION = 1;
+
 	/**
 	 * Injected application properties.
 	 */
@@ -125,11 +143,39 @@ public class BackupArchiveManagerImpl implements BackupArchiveManager {
 	 */
 	private final BackupArchiveJobFactory backupArchiveJobFactory;
 
+	/**
+	 * Threads generating the archives, shared by all organizations.
+	 */
+	private final ExecutorService executorService;
+
+	/**
+	 * Permits of the organizations having a running (or queued) backup process.
+	 */
+	private final ConcurrentMap<Integer, Semaphore> organizationPermits;
+
+	/**
+	 * Progress of the running processes, by temporary archive file name.
+	 */
+	private final ConcurrentMap<String, Progress> progresses;
+
 	@Inject
 	public BackupArchiveManagerImpl(final Properties properties, final OrgUnitDAO orgUnitDAO, final BackupArchiveJobFactory backupArchiveJobFactory) {
 		this.properties = properties;
 		this.orgUnitDAO = orgUnitDAO;
 		this.backupArchiveJobFactory = backupArchiveJobFactory;
+		this.organizationPermits = new ConcurrentHashMap<>();
+		this.progresses = new ConcurrentHashMap<>();
+		this.executorService = Executors.newFixedThreadPool(POOL_SIZE, new ThreadFactory() {
+
+			private final AtomicInteger counter = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "sigmah-backup-worker-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 	}
 
 	/**
@@ -246,14 +292,30 @@ public class BackupArchiveManagerImpl implements BackupArchiveManager {
 		}
 
 		// Archive files.
-		final Path tempArchiveFile = Paths.get(getArchiveRootPath(), buildArchiveFileName(backup, true));
+		final String tempArchiveFileName = buildArchiveFileName(backup, true);
+		final Path tempArchiveFile = Paths.get(getArchiveRootPath(), tempArchiveFileName);
 		final Path finalArchiveFile = Paths.get(getArchiveRootPath(), buildArchiveFileName(backup, false));
 
+		// Limits the number of processes of the organization.
+		Semaphore permits = organizationPermits.get(backup.getOrganizationId());
+		if (permits == null) {
+			final Semaphore newPermits = new Semaphore(MAX_RUNNING_PER_ORGANIZATION);
+			permits = organizationPermits.putIfAbsent(backup.getOrganizationId(), newPermits);
+			if (permits == null) {
+				permits = newPermits;
+			}
+		}
+
+		if (!permits.tryAcquire()) {
+			throw new FunctionalException(FunctionalException.ErrorCode.ADMIN_BACKUP_ARCHIVE_CREATION_FAILED, tempArchiveFile.toString());
+		}
+
 		// Creates temporary file.
 		try {
 			Files.createFile(tempArchiveFile);
 			
 		} catch(IOException e) {
+			permits.release();
 			throw new FunctionalException(e, FunctionalException.ErrorCode.ADMIN_BACKUP_ARCHIVE_CREATION_FAILED, tempArchiveFile.toString());
 		}
 
@@ -261,9 +323,44 @@ public class BackupArchiveManagerImpl implements BackupArchiveManager {
 			LOG.trace("Backup process file has been created: '{}'. Initializing job.", tempArchiveFile);
 		}
 
+		final Progress progress = new Progress();
+		progresses.put(tempArchiveFileName, progress);
+
+		final Runnable job = backupArchiveJobFactory.newJob(new BackupArchiveJobArgument(backup, user.getId(), tempArchiveFile, finalArchiveFile, progress));
+		final Semaphore organizationPermit = permits;
+
 		// Process is executed in a different thread in order to release current thread.
-		Executors.newSingleThreadExecutor().execute(
-			backupArchiveJobFactory.newJob(new BackupArchiveJobArgument(backup, user.getId(), tempArchiveFile, finalArchiveFile)));
+		try {
+			executorService.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						job.run();
+					} finally {
+						progresses.remove(tempArchiveFileName);
+						organizationPermit.release();
+					}
+				}
+			});
+
+		} catch (final RejectedExecutionException e) {
+			progresses.remove(tempArchiveFileName);
+			permits.release();
+			Files.deleteIfExists(tempArchiveFile);
+			throw new FunctionalException(e, FunctionalException.ErrorCode.ADMIN_BACKUP_ARCHIVE_CREATION_FAILED, tempArchiveFile.toString());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void shutdown() {
+		if (LOG.isInfoEnabled()) {
+			LOG.info("Stopping backup workers.");
+		}
+		executorService.shutdownNow();
 	}
 
 	// --------------------------------------------------------------------------------------------------------------
@@ -347,6 +444,12 @@ public class BackupArchiveManagerImpl implements BackupArchiveManager {
 		result.setArchiveFileName(filename);
 		result.setRunning(extension.equals(BACKUP_ARCHIVE_TEMP_EXT));
 
+		final Progress progress = result.isRunning() ? progresses.get(filename) : null;
+		if (progress != null) {
+			result.setProcessedFiles(progress.getProcessedFiles());
+			result.setTotalFiles(progress.getTotalFiles());
+		}
+
 		return result;
 	}
 }
@@ -26,10 +26,20 @@ package org.sigmah.server.file.impl;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.sigmah.server.conf.Properties;
 import org.sigmah.server.file.FileStorageProvider;
@@ -74,6 +84,85 @@ public class LocalFileStorageProvider implements FileStorageProvider {
 
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long size(final String storageId) throws IOException {
+
+		return Files.size(Paths.get(getStorageRootPath(), storageId));
+
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(final String storageId, final long position, final ByteBuffer destination) throws IOException {
+
+		try (final FileChannel channel = FileChannel.open(Paths.get(getStorageRootPath(), storageId), StandardOpenOption.READ)) {
+
+			int total = 0;
+			while (destination.hasRemaining()) {
+				final int read = channel.read(destination, position + total);
+				if (read < 0) {
+					break;
+				}
+				total += read;
+			}
+			return total;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long transferTo(final String storageId, final long position, final long count, final WritableByteChannel target) throws IOException {
+
+		try (final FileChannel channel = FileChannel.open(Paths.get(getStorageRootPath(), storageId), StandardOpenOption.READ)) {
+
+			final long end = Math.min(position + count, channel.size());
+
+			long current = position;
+			while (current < end) {
+				final long transferred = channel.transferTo(current, end - current, target);
+				if (transferred <= 0) {
+					break;
+				}
+				current += transferred;
+			}
+			return Math.max(current - position, 0L);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void allocate(final String storageId, final long size) throws IOException {
+
+		try (final RandomAccessFile file = new RandomAccessFile(Paths.get(getStorageRootPath(), storageId).toFile(), "rw")) {
+			file.setLength(size);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int write(final String storageId, final long position, final ByteBuffer source) throws IOException {
+
+		try (final FileChannel channel = FileChannel.open(Paths.get(getStorageRootPath(), storageId), StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+
+			int total = 0;
+			while (source.hasRemaining()) {
+				total += channel.write(source, position + total);
+			}
+			return total;
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -84,6 +173,41 @@ public class LocalFileStorageProvider implements FileStorageProvider {
 
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void move(final String storageId, final String targetStorageId) throws IOException {
+
+		final Path source = Paths.get(getStorageRootPath(), storageId);
+		final Path target = Paths.get(getStorageRootPath(), targetStorageId);
+
+		try {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (final AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<String> list(final String prefix) throws IOException {
+
+		final List<String> storageIds = new ArrayList<>();
+
+		try (final DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(getStorageRootPath()))) {
+			for (final Path path : stream) {
+				final String storageId = path.getFileName().toString();
+				if (storageId.startsWith(prefix) && Files.isRegularFile(path)) {
+					storageIds.add(storageId);
+				}
+			}
+		}
+		return storageIds;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
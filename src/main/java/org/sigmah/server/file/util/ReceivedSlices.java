@@ -0,0 +1,151 @@
+package org.sigmah.server.file.util;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Byte ranges of a file already received during a sliced upload.
+ * <p>
+ * Adjacent and overlapping ranges are merged, so receiving a slice twice or out of order does not change the result and
+ * the upload is complete as soon as a single range covers the whole file.
+ * </p>
+ */
+public class ReceivedSlices {
+
+	/**
+	 * Start (inclusive) and end (exclusive) of each range, sorted and disjoint.
+	 */
+	private final List<long[]> ranges = new ArrayList<long[]>();
+
+	/**
+	 * Reads the ranges previously written with {@link #write(OutputStream)}.
+	 * 
+	 * @param inputStream
+	 *          The stream to read.
+	 * @return The ranges.
+	 * @throws IOException
+	 *           If the stream cannot be read.
+	 */
+	public static ReceivedSlices read(final InputStream inputStream) throws IOException {
+
+		final DataInputStream dataInputStream = new DataInputStream(inputStream);
+		final ReceivedSlices slices = new ReceivedSlices();
+
+		final int count = dataInputStream.readInt();
+		for (int index = 0; index < count; index++) {
+			final long start = dataInputStream.readLong();
+			final long end = dataInputStream.readLong();
+			slices.ranges.add(new long[] { start, end });
+		}
+
+		return slices;
+	}
+
+	/**
+	 * Writes the ranges to the given stream.
+	 * 
+	 * @param outputStream
+	 *          The stream to write.
+	 * @throws IOException
+	 *           If the stream cannot be written.
+	 */
+	public void write(final OutputStream outputStream) throws IOException {
+
+		final DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+
+		dataOutputStream.writeInt(ranges.size());
+		for (final long[] range : ranges) {
+			dataOutputStream.writeLong(range[0]);
+			dataOutputStream.writeLong(range[1]);
+		}
+
+		dataOutputStream.flush();
+	}
+
+	/**
+	 * Marks the bytes from {@code start} (inclusive) to {@code end} (exclusive) as received.
+	 * 
+	 * @param start
+	 *          Position of the first byte.
+	 * @param end
+	 *          Position following the last byte.
+	 */
+	public void add(final long start, final long end) {
+
+		if (end <= start) {
+			return;
+		}
+
+		long mergedStart = start;
+		long mergedEnd = end;
+
+		int index = 0;
+		while (index < ranges.size() && ranges.get(index)[1] < start) {
+			index++;
+		}
+
+		// Absorbs every range touching the new one.
+		while (index < ranges.size() && ranges.get(index)[0] <= end) {
+			final long[] range = ranges.remove(index);
+			mergedStart = Math.min(mergedStart, range[0]);
+			mergedEnd = Math.max(mergedEnd, range[1]);
+		}
+
+		ranges.add(index, new long[] { mergedStart, mergedEnd });
+	}
+
+	/**
+	 * Returns if every byte of a file of the given size has been received.
+	 * 
+	 * @param size
+	 *          The file size.
+	 * @return {@code true} if the file is complete.
+	 */
+	public boolean isComplete(final long size) {
+		if (size <= 0) {
+			return true;
+		}
+		return ranges.size() == 1 && ranges.get(0)[0] <= 0 && ranges.get(0)[1] >= size;
+	}
+
+	/**
+	 * Returns the number of bytes received.
+	 * 
+	 * @return The number of bytes received.
+	 */
+	public long getReceivedBytes() {
+		long total = 0L;
+		for (final long[] range : ranges) {
+			total += range[1] - range[0];
+		}
+		return total;
+	}
+
+}
@@ -23,6 +23,7 @@ package org.sigmah.server.handler;
  */
 
 import java.util.ArrayList;
+import org.sigmah.server.dispatch.impl.ParallelCommandExecutor;
 import org.sigmah.server.dispatch.impl.UserDispatch;
 import org.sigmah.server.handler.base.AbstractCommandHandler;
 import org.sigmah.shared.command.BatchCommand;
@@ -31,6 +32,8 @@ import org.sigmah.shared.command.result.ListResult;
 import org.sigmah.shared.command.result.Result;
 import org.sigmah.shared.dispatch.CommandException;
 
+import com.google.inject.Inject;
+
 /**
  * Handler for {@link BatchCommand} command.
  * 
@@ -38,8 +41,21 @@ import org.sigmah.shared.dispatch.CommandException;
  */
 public class BatchCommandHandler extends AbstractCommandHandler<BatchCommand, ListResult<Result>> {
 
+	private final ParallelCommandExecutor parallelCommandExecutor;
+
+	@Inject
+	public BatchCommandHandler(final ParallelCommandExecutor parallelCommandExecutor) {
+		this.parallelCommandExecutor = parallelCommandExecutor;
+	}
+
 	@Override
 	protected ListResult<Result> execute(BatchCommand commands, UserDispatch.UserExecutionContext context) throws CommandException {
+		if (commands.isReadOnly() && ParallelCommandExecutor.isReadOnly(commands.getCommands())) {
+			// Independent read-only commands: nothing to rollback. The flag set by the client is only a hint, the commands
+			// themselves decide.
+			return new ListResult<Result>(parallelCommandExecutor.executeAll(commands.getCommands(), context));
+		}
+		
 		final ArrayList<Result> results = new ArrayList<Result>();
 		
 		for(final Command command : commands.getCommands()) {
@@ -22,10 +22,12 @@ package org.sigmah.server.handler;
  * #L%
  */
 
+import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import org.sigmah.server.dispatch.impl.UserDispatch;
 import org.sigmah.server.domain.User;
 import org.sigmah.server.handler.base.AbstractCommandHandler;
+import org.sigmah.server.security.AuthenticationCache;
 import org.sigmah.server.security.impl.BCrypt;
 import org.sigmah.shared.command.ChangePasswordCommand;
 import org.sigmah.shared.command.result.VoidResult;
@@ -38,6 +40,13 @@ import org.sigmah.shared.dispatch.FunctionalException;
  */
 public class ChangePasswordCommandHandler extends AbstractCommandHandler<ChangePasswordCommand, VoidResult> {
 
+	private final AuthenticationCache authenticationCache;
+
+	@Inject
+	public ChangePasswordCommandHandler(final AuthenticationCache authenticationCache) {
+		this.authenticationCache = authenticationCache;
+	}
+
 	@Override
 	protected VoidResult execute(ChangePasswordCommand command, UserDispatch.UserExecutionContext context) throws CommandException {
 		final User user = context.getUser();
@@ -52,6 +61,9 @@ public class ChangePasswordCommandHandler extends AbstractCommandHandler<ChangeP
 		
 		updatePassword(user, command.getNewPassword());
 		
+		// Cached sessions of the user are dropped.
+		authenticationCache.evictUser(user.getId());
+		
 		return null;
 	}
 	
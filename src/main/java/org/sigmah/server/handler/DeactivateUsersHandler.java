@@ -27,6 +27,7 @@ import org.sigmah.server.dao.UserDAO;
 import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
 import org.sigmah.server.domain.User;
 import org.sigmah.server.handler.base.AbstractCommandHandler;
+import org.sigmah.server.security.AuthenticationCache;
 import org.sigmah.shared.command.DeactivateUsers;
 import org.sigmah.shared.command.result.VoidResult;
 import org.sigmah.shared.dispatch.CommandException;
@@ -54,9 +55,12 @@ public class DeactivateUsersHandler extends AbstractCommandHandler<DeactivateUse
 
 	private final UserDAO userDAO;
 
+	private final AuthenticationCache authenticationCache;
+
 	@Inject
-	public DeactivateUsersHandler(final UserDAO userDAO) {
+	public DeactivateUsersHandler(final UserDAO userDAO, final AuthenticationCache authenticationCache) {
 		this.userDAO = userDAO;
+		this.authenticationCache = authenticationCache;
 	}
 
 	/**
@@ -92,6 +96,9 @@ public class DeactivateUsersHandler extends AbstractCommandHandler<DeactivateUse
 
 			user.setActive(!userDTO.getActive());
 			userDAO.persist(user, context.getUser());
+
+			// Cached sessions of the user are dropped.
+			authenticationCache.evictUser(user.getId());
 		}
 	}
 
@@ -27,6 +27,7 @@ import java.util.List;
 
 import javax.persistence.Query;
 
+import org.sigmah.server.computation.ComputationCache;
 import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
 import org.sigmah.server.domain.element.FlexibleElement;
 import org.sigmah.server.domain.layout.LayoutConstraint;
@@ -56,9 +57,14 @@ public class DeleteFlexibleElementsHandler extends AbstractCommandHandler<Delete
 	 */
 	private final static Logger LOG = LoggerFactory.getLogger(DeleteFlexibleElementsHandler.class);
 
-	@Inject
-	public DeleteFlexibleElementsHandler() {
+	/**
+	 * Cache of parsed computations.
+	 */
+	private final ComputationCache computationCache;
 
+	@Inject
+	public DeleteFlexibleElementsHandler(final ComputationCache computationCache) {
+		this.computationCache = computationCache;
 	}
 
 	/**
@@ -70,6 +76,7 @@ public class DeleteFlexibleElementsHandler extends AbstractCommandHandler<Delete
 
 		if (cmd.getFlexibleElements() != null) {
 			performDelete(cmd.getFlexibleElements());
+			computationCache.clear();
 		}
 
 		return null;
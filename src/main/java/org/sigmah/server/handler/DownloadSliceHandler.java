@@ -24,7 +24,8 @@ package org.sigmah.server.handler;
 
 import com.google.inject.Inject;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import org.sigmah.server.dao.FileDAO;
 import org.sigmah.server.dispatch.impl.UserDispatch;
 import org.sigmah.server.domain.value.FileVersion;
@@ -72,16 +73,10 @@ public class DownloadSliceHandler extends AbstractCommandHandler<DownloadSlice,
 			final byte[] bytes = new byte[length];
 
 			try {
-				try(final InputStream inputStream = fileStorageProvider.open(fileVersion.getPath())) {
-					long location = 0L;
-					while(location < start) {
-						location += inputStream.skip(start - location);
-					}
-					final int read = inputStream.read(bytes);
-					slice.setLast(read < command.getSize());
-				}
-
-				slice.setData(bytes);
+				// Positional read: the bytes preceding the slice are not read.
+				final int read = fileStorageProvider.read(fileVersion.getPath(), start, ByteBuffer.wrap(bytes));
+				slice.setLast(read < command.getSize());
+				slice.setData(read < length ? Arrays.copyOf(bytes, read) : bytes);
 
 			} catch(IOException ex) {
 				throw new CommandException(ex);
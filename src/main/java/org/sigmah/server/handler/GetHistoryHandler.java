@@ -27,9 +27,9 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import javax.persistence.TypedQuery;
-
+import org.sigmah.server.dao.HistoryTokenDAO;
 import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
 import org.sigmah.server.domain.HistoryToken;
 import org.sigmah.server.domain.User;
@@ -40,6 +40,8 @@ import org.sigmah.shared.dispatch.CommandException;
 import org.sigmah.shared.dto.history.HistoryTokenDTO;
 import org.sigmah.shared.dto.history.HistoryTokenListDTO;
 
+import com.google.inject.Inject;
+
 /**
  * Handler for {@link GetHistory} command
  * 
@@ -47,6 +49,16 @@ import org.sigmah.shared.dto.history.HistoryTokenListDTO;
  */
 public class GetHistoryHandler extends AbstractCommandHandler<GetHistory, ListResult<HistoryTokenListDTO>> {
 
+	/**
+	 * Injected {@link HistoryTokenDAO}.
+	 */
+	private final HistoryTokenDAO historyTokenDAO;
+
+	@Inject
+	public GetHistoryHandler(final HistoryTokenDAO historyTokenDAO) {
+		this.historyTokenDAO = historyTokenDAO;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -58,23 +70,9 @@ public class GetHistoryHandler extends AbstractCommandHandler<GetHistory, ListRe
 		final int projectId = cmd.getProjectId();
 		final Date maxDate = cmd.getMaxDate();
 
-		// Builds query.
-		final StringBuilder sb = new StringBuilder();
-		sb.append("SELECT h FROM HistoryToken h WHERE h.elementId = :elementId AND h.projectId = :projectId");
-		if (maxDate != null) {
-			sb.append(" AND h.date >= :maxDate");
-		}
-		sb.append(" ORDER BY h.date DESC");
-
-		final TypedQuery<HistoryToken> query = em().createQuery(sb.toString(), HistoryToken.class);
-		query.setParameter("elementId", elementId);
-		query.setParameter("projectId", projectId);
-		if (maxDate != null) {
-			query.setParameter("maxDate", maxDate);
-		}
-
-		// Retrieves query results and map results.
-		final List<HistoryToken> tokens = query.getResultList();
+		// Retrieves the requested page of tokens and their complete values.
+		final List<HistoryToken> tokens = historyTokenDAO.findHistory(projectId, elementId, maxDate, cmd.getBeforeDate(), cmd.getBeforeId(), cmd.getPageSize());
+		final Map<Integer, String> values = historyTokenDAO.findValues(tokens);
 
 		final HashMap<Date, HistoryTokenListDTO> mappedTokensDTO = new HashMap<Date, HistoryTokenListDTO>();
 		final ArrayList<HistoryTokenListDTO> tokensDTO = new ArrayList<HistoryTokenListDTO>();
@@ -105,7 +103,10 @@ public class GetHistoryHandler extends AbstractCommandHandler<GetHistory, ListRe
 
 				final String coreVersionName = token.getCoreVersion() != null ? token.getCoreVersion().getVersion() + ". " + token.getCoreVersion().getName() : null;
 				
-				list.getTokens().add(new HistoryTokenDTO(token.getValue(), token.getType(), token.getComment(), coreVersionName));
+				final HistoryTokenDTO tokenDTO = new HistoryTokenDTO(values.get(token.getId()), token.getType(), token.getComment(), coreVersionName);
+				tokenDTO.setId(token.getId());
+
+				list.getTokens().add(tokenDTO);
 			}
 		}
 
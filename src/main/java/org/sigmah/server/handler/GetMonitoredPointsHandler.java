@@ -23,25 +23,27 @@ package org.sigmah.server.handler;
  */
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 
+import org.sigmah.server.dao.ProjectDAO;
+import org.sigmah.server.dao.util.InClauses;
 import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
-import org.sigmah.server.domain.OrgUnit;
-import org.sigmah.server.domain.Project;
+import org.sigmah.server.domain.User;
 import org.sigmah.server.domain.reminder.MonitoredPoint;
 import org.sigmah.server.domain.util.DomainFilters;
 import org.sigmah.server.handler.base.AbstractCommandHandler;
-import org.sigmah.server.handler.util.Handlers;
 import org.sigmah.shared.command.GetMonitoredPoints;
 import org.sigmah.shared.command.result.ListResult;
 import org.sigmah.shared.dispatch.CommandException;
 import org.sigmah.shared.dto.reminder.MonitoredPointDTO;
-import org.sigmah.shared.dto.reminder.ReminderDTO;
+
+import com.google.inject.Inject;
 
 /**
  * Handler for the {@link GetMonitoredPoints} command.
@@ -50,6 +52,16 @@ import org.sigmah.shared.dto.reminder.ReminderDTO;
  */
 public class GetMonitoredPointsHandler extends AbstractCommandHandler<GetMonitoredPoints, ListResult<MonitoredPointDTO>> {
 
+	/**
+	 * Injected {@link ProjectDAO}.
+	 */
+	private final ProjectDAO projectDAO;
+
+	@Inject
+	public GetMonitoredPointsHandler(final ProjectDAO projectDAO) {
+		this.projectDAO = projectDAO;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -62,7 +74,7 @@ public class GetMonitoredPointsHandler extends AbstractCommandHandler<GetMonitor
 			dtos = findProjectPoints(cmd.getProjectId(), cmd.getMappingMode(), context);
 
 		} else {
-			dtos = findAllProjectsPoints(cmd.getMappingMode(), context);
+			dtos = findAllProjectsPoints(cmd, context);
 		}
 
 		return new ListResult<>(dtos);
@@ -94,57 +106,86 @@ public class GetMonitoredPointsHandler extends AbstractCommandHandler<GetMonitor
 	}
 
 	/**
-	 * Finds the monitored points for all the projects.
+	 * Finds the not completed monitored points of all the projects visible from the user org unit.
+	 * <p>
+	 * The projects of the org units hierarchy are resolved by a single recursive query, then the monitored points are loaded
+	 * with their project id, name and full name by a single join query.
+	 * </p>
 	 * 
-	 * @param mappingMode
-	 *          The mapping mode, may be {@code null}.
+	 * @param cmd
+	 *          The command, giving the mapping mode, the date window and the limit.
 	 * @param context
 	 *          The user execution context.
-	 * @return The monitored points DTOs.
+	 * @return The monitored points DTOs, the first expected first.
 	 */
-	private List<MonitoredPointDTO> findAllProjectsPoints(final MonitoredPointDTO.Mode mappingMode, final UserExecutionContext context) {
+	private List<MonitoredPointDTO> findAllProjectsPoints(final GetMonitoredPoints cmd, final UserExecutionContext context) {
 
 		final List<MonitoredPointDTO> dtos = new ArrayList<>();
 
 		DomainFilters.disableUserFilter(em());
 
-		// Use a set to be avoid duplicated entries.
-		final Set<OrgUnit> units = new HashSet<>();
+		final User user = context.getUser();
+		if (user == null || user.getOrgUnitWithProfiles() == null || user.getOrgUnitWithProfiles().getOrgUnit() == null) {
+			// No units available.
+			return dtos;
+		}
 
-		// Crawl the org units hierarchy from the user root org unit.
-		Handlers.crawlUnits(context.getUser(), units, true);
+		final Set<Integer> projectIds = projectDAO.findProjectOrgUnitIdsInHierarchies(
+			Collections.singleton(user.getOrgUnitWithProfiles().getOrgUnit().getId()), null, null, null).keySet();
 
-		// Retrieves all the corresponding org units.
-		for (final OrgUnit unit : units) {
+		if (projectIds.isEmpty()) {
+			return dtos;
+		}
 
-			// Builds and executes the query.
-			final Query query = em().createQuery("SELECT p.pointsList.points FROM Project p WHERE :unit MEMBER OF p.partners");
-			query.setParameter("unit", unit);
+		final StringBuilder builder = new StringBuilder();
+		builder.append("SELECT x, p.id, p.name, p.fullName FROM Project p JOIN p.pointsList l JOIN l.points x ");
+		builder.append("WHERE p.id IN (:projectIds) AND x.completionDate IS NULL");
+		if (cmd.getFromDate() != null) {
+			builder.append(" AND x.expectedDate >= :fromDate");
+		}
+		if (cmd.getToDate() != null) {
+			builder.append(" AND x.expectedDate < :toDate");
+		}
+		builder.append(" ORDER BY x.expectedDate, x.id");
+
+		final TypedQuery<Object[]> query = em().createQuery(builder.toString(), Object[].class);
+		if (cmd.getFromDate() != null) {
+			query.setParameter("fromDate", cmd.getFromDate());
+		}
+		if (cmd.getToDate() != null) {
+			query.setParameter("toDate", cmd.getToDate());
+		}
+		if (cmd.getLimit() != null) {
+			query.setMaxResults(cmd.getLimit());
+		}
 
-			@SuppressWarnings("unchecked")
-			final List<MonitoredPoint> monitoredPoints = query.getResultList();
+		final List<Object[]> rows = InClauses.getResultList(query, "projectIds", projectIds);
 
-			for (final MonitoredPoint monitoredPoint : monitoredPoints) {
+		if (projectIds.size() > InClauses.MAX_PARAMETERS) {
+			// Merges the ordered results of each partition.
+			Collections.sort(rows, new Comparator<Object[]>() {
 
-				if (monitoredPoint.getCompletionDate() != null) {
-					continue; // Not completed only.
+				@Override
+				public int compare(final Object[] o1, final Object[] o2) {
+					final MonitoredPoint first = (MonitoredPoint) o1[0];
+					final MonitoredPoint second = (MonitoredPoint) o2[0];
+					final int byDate = first.getExpectedDate().compareTo(second.getExpectedDate());
+					// Same tie-breaker as the query.
+					return byDate != 0 ? byDate : first.getId().compareTo(second.getId());
 				}
+			});
+		}
+
+		final int size = cmd.getLimit() != null ? Math.min(cmd.getLimit(), rows.size()) : rows.size();
+		for (final Object[] row : rows.subList(0, size)) {
+
+			final MonitoredPointDTO monitoredPointDTO = mapper().map((MonitoredPoint) row[0], new MonitoredPointDTO(), cmd.getMappingMode());
+
+			monitoredPointDTO.setProjectId((Integer) row[1]);
+			monitoredPointDTO.setProjectName((String) row[2]);
+			monitoredPointDTO.setProjectCode((String) row[3]);
 
-                final TypedQuery<Project> fullNameQuery = em().createQuery("SELECT p FROM Project p WHERE p.pointsList = :pointsList", Project.class);
-                
-                fullNameQuery.setParameter("pointsList", monitoredPoint.getParentList());
-               
-                final MonitoredPointDTO monitoredPointDTO = mapper().map(monitoredPoint, new MonitoredPointDTO(), mappingMode);
-                
-                Project project = fullNameQuery.getSingleResult();
-                
-                monitoredPointDTO.setProjectId(project.getId());
-                monitoredPointDTO.setProjectName(project.getName());
-                monitoredPointDTO.setProjectCode(project.getFullName());
-                
-				dtos.add(monitoredPointDTO);
-
-			}
+			dtos.add(monitoredPointDTO);
 		}
 
 		return dtos;
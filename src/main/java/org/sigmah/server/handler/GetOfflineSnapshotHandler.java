@@ -0,0 +1,237 @@
+package org.sigmah.server.handler;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.TypedQuery;
+
+import org.sigmah.server.dao.util.InClauses;
+import org.sigmah.server.dispatch.impl.ParallelCommandExecutor;
+import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
+import org.sigmah.server.handler.base.AbstractCommandHandler;
+import org.sigmah.shared.command.GetCalendar;
+import org.sigmah.shared.command.GetHistory;
+import org.sigmah.shared.command.GetOfflineSnapshot;
+import org.sigmah.shared.command.GetProjectReport;
+import org.sigmah.shared.command.GetProjectReports;
+import org.sigmah.shared.command.GetValues;
+import org.sigmah.shared.command.base.Command;
+import org.sigmah.shared.command.result.ListResult;
+import org.sigmah.shared.command.result.OfflineSnapshotResult;
+import org.sigmah.shared.command.result.Result;
+import org.sigmah.shared.dispatch.CommandException;
+import org.sigmah.shared.dto.calendar.CalendarType;
+import org.sigmah.shared.dto.calendar.PersonalCalendarIdentifier;
+import org.sigmah.shared.dto.element.ComputationElementDTO;
+import org.sigmah.shared.dto.element.DefaultFlexibleElementDTO;
+import org.sigmah.shared.dto.element.FilesListElementDTO;
+import org.sigmah.shared.dto.report.ReportReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+
+/**
+ * Handler for {@link GetOfflineSnapshot} command.
+ * <p>
+ * Builds the commands the synchronizer needs for every container and executes them concurrently, in two rounds (the
+ * report contents depend on the report lists). For the containers known by the client, only the elements having a
+ * value or an history token modified since the previous snapshot are kept. Default and computed elements are always
+ * sent because their values are not stored (or not dated) as values.
+ * </p>
+ */
+public class GetOfflineSnapshotHandler extends AbstractCommandHandler<GetOfflineSnapshot, OfflineSnapshotResult> {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(GetOfflineSnapshotHandler.class);
+
+	/**
+	 * Delay subtracted from the snapshot date, in milliseconds. A value or an history token is dated when its
+	 * transaction writes it but is only visible once the transaction commits: this delay must be longer than a write
+	 * transaction. Elements changed during this delay are sent twice, which is harmless.
+	 */
+	static final long SINCE_MARGIN = 5 * 60 * 1000L;
+
+	private final ParallelCommandExecutor parallelCommandExecutor;
+
+	@Inject
+	public GetOfflineSnapshotHandler(final ParallelCommandExecutor parallelCommandExecutor) {
+		this.parallelCommandExecutor = parallelCommandExecutor;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public OfflineSnapshotResult execute(final GetOfflineSnapshot cmd, final UserExecutionContext context) throws CommandException {
+
+		// Taken first: changes made while the snapshot is built are sent again by the next one.
+		final Date date = snapshotDate(new Date());
+
+		final Map<Integer, Set<Integer>> changedElementIds = findChangedElementIds(cmd);
+
+		final List<Command> commands = new ArrayList<Command>();
+		for (final GetValues containerValues : cmd.getContainers()) {
+			final Integer containerId = containerValues.getContainerId();
+
+			final GetValues values =
+					changedElementIds.containsKey(containerId) ? retainChanged(containerValues, changedElementIds.get(containerId)) : containerValues;
+
+			if (values.size() > 0) {
+				commands.add(values);
+			}
+
+			if (cmd.isWithHistory()) {
+				for (final Integer elementId : values.getElementIds()) {
+					commands.add(new GetHistory(elementId, containerId));
+				}
+			}
+
+			final Integer calendarId = cmd.getCalendarId(containerId);
+			if (calendarId != null) {
+				commands.add(new GetCalendar(CalendarType.Personal, new PersonalCalendarIdentifier(calendarId)));
+			}
+
+			commands.add(new GetProjectReports(containerId, null));
+		}
+
+		final List<Result> results = new ArrayList<Result>(parallelCommandExecutor.executeAll(commands, context));
+
+		// Report contents, only if they have been edited since the previous snapshot.
+		final List<Command> reportCommands = new ArrayList<Command>();
+		for (int index = 0; index < commands.size(); index++) {
+			if (commands.get(index) instanceof GetProjectReports) {
+				final GetProjectReports reportsCommand = (GetProjectReports) commands.get(index);
+				final boolean known = cmd.isKnown(reportsCommand.getProjectId());
+
+				@SuppressWarnings("unchecked")
+				final ListResult<ReportReference> references = (ListResult<ReportReference>) results.get(index);
+				for (final ReportReference reference : references.getList()) {
+					if (!known || reference.getLastEditDate() == null || reference.getLastEditDate().after(cmd.getSince())) {
+						reportCommands.add(new GetProjectReport(reference.getId()));
+					}
+				}
+			}
+		}
+
+		commands.addAll(reportCommands);
+		results.addAll(parallelCommandExecutor.executeAll(reportCommands, context));
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Offline snapshot of {} containers built with {} commands (since {}).", cmd.getContainers().size(), commands.size(), cmd.getSince());
+		}
+
+		return new OfflineSnapshotResult(commands, results, date);
+	}
+
+	/**
+	 * Returns the date of a snapshot started at the given date: the next snapshot sends the changes made after it.
+	 * 
+	 * @param startDate
+	 *          The date when the snapshot started.
+	 * @return The start date minus {@link #SINCE_MARGIN}, so that the changes of transactions still running when the
+	 *         snapshot is built are sent by the next one.
+	 */
+	static Date snapshotDate(final Date startDate) {
+		return new Date(startDate.getTime() - SINCE_MARGIN);
+	}
+
+	/**
+	 * Returns a copy of the given values command restricted to the changed elements, the default elements, the
+	 * computed elements and the files list elements.<br>
+	 * Adding a version to a file changes neither the value nor the history of its element, so files list elements are
+	 * always sent.
+	 * 
+	 * @param values
+	 *          Values of every element of a container.
+	 * @param changedElementIds
+	 *          Ids of the elements changed since the previous snapshot.
+	 * @return The restricted command.
+	 */
+	static GetValues retainChanged(final GetValues values, final Set<Integer> changedElementIds) {
+
+		final GetValues retained = new GetValues(values.getContainerId(), values.getAmendmentId());
+
+		for (int index = 0; index < values.size(); index++) {
+			final Integer elementId = values.getElementIds().get(index);
+			final String entityName = values.getElementEntityNames().get(index);
+
+			if (changedElementIds.contains(elementId) || DefaultFlexibleElementDTO.ENTITY_NAME.equals(entityName)
+				|| ComputationElementDTO.ENTITY_NAME.equals(entityName) || FilesListElementDTO.ENTITY_NAME.equals(entityName)) {
+				retained.add(elementId, entityName);
+			}
+		}
+
+		return retained;
+	}
+
+	/**
+	 * Finds the elements of the known containers having a value or an history token modified since the previous
+	 * snapshot.
+	 * 
+	 * @param cmd
+	 *          The command.
+	 * @return The changed element ids, by container id. Only the known containers are present.
+	 */
+	private Map<Integer, Set<Integer>> findChangedElementIds(final GetOfflineSnapshot cmd) {
+
+		final Map<Integer, Set<Integer>> changedElementIds = new HashMap<Integer, Set<Integer>>();
+
+		for (final Integer containerId : cmd.getContainerIds()) {
+			if (cmd.isKnown(containerId)) {
+				changedElementIds.put(containerId, new HashSet<Integer>());
+			}
+		}
+
+		if (changedElementIds.isEmpty()) {
+			return changedElementIds;
+		}
+
+		addChanges(changedElementIds, "SELECT v.containerId, v.element.id FROM Value v WHERE v.containerId IN (:containerIds) AND v.lastModificationDate > :since",
+			cmd.getSince());
+		addChanges(changedElementIds, "SELECT h.projectId, h.elementId FROM HistoryToken h WHERE h.projectId IN (:containerIds) AND h.date > :since",
+			cmd.getSince());
+
+		return changedElementIds;
+	}
+
+	private void addChanges(final Map<Integer, Set<Integer>> changedElementIds, final String jpql, final Date since) {
+
+		final TypedQuery<Object[]> query = em().createQuery(jpql, Object[].class);
+		query.setParameter("since", since);
+
+		for (final Object[] row : InClauses.getResultList(query, "containerIds", changedElementIds.keySet())) {
+			changedElementIds.get((Integer) row[0]).add((Integer) row[1]);
+		}
+	}
+
+}
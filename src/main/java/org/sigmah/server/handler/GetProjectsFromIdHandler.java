@@ -88,10 +88,8 @@ public class GetProjectsFromIdHandler extends AbstractCommandHandler<GetProjects
 		final IsMappingMode mappingMode = cmd.getMappingMode(); // May be null.
 
 		if (mappingMode == ProjectDTO.Mode._USE_PROJECT_MAPPER) {
-			// Using specific project mapper.
-			for (final Project project : projects) {
-				projectDTOList.add(projectMapper.map(project, true));
-			}
+			// Using specific project mapper (the whole set is mapped at once).
+			projectDTOList.addAll(projectMapper.mapAll(projects, true));
 
 		} else {
 			// Using provided mapping mode.
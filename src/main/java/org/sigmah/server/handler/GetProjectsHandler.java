@@ -26,16 +26,17 @@ package org.sigmah.server.handler;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.persistence.TypedQuery;
 
+import org.sigmah.server.dao.ProjectDAO;
 import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
-import org.sigmah.server.domain.OrgUnit;
+import org.sigmah.server.domain.Organization;
 import org.sigmah.server.domain.Project;
 import org.sigmah.server.domain.util.DomainFilters;
 import org.sigmah.server.handler.base.AbstractCommandHandler;
-import org.sigmah.server.handler.util.Handlers;
 import org.sigmah.server.handler.util.ProjectMapper;
 import org.sigmah.shared.command.GetProjects;
 import org.sigmah.shared.command.result.ListResult;
@@ -47,7 +48,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
-import java.util.HashMap;
 
 /**
  * Handler for {@link GetProjects} command.
@@ -67,9 +67,15 @@ public class GetProjectsHandler extends AbstractCommandHandler<GetProjects, List
 	 */
 	private final ProjectMapper projectMapper;
 
+	/**
+	 * Injected project DAO.
+	 */
+	private final ProjectDAO projectDAO;
+
 	@Inject
-	public GetProjectsHandler(final ProjectMapper projectMapper) {
+	public GetProjectsHandler(final ProjectMapper projectMapper, final ProjectDAO projectDAO) {
 		this.projectMapper = projectMapper;
+		this.projectDAO = projectDAO;
 	}
 
 	/**
@@ -120,60 +126,31 @@ public class GetProjectsHandler extends AbstractCommandHandler<GetProjects, List
 		// ---------------
 
 		final List<Integer> ids = cmd.getOrgUnitsIds();
-
-		// Use a set to be avoid duplicated entries.
-		final Set<OrgUnit> units = new HashSet<OrgUnit>();
+		final List<Integer> rootIds = new ArrayList<>();
 
 		// Checks if there is at least one org unit id specified.
 		if (ids == null) {
 			LOG.debug("No org unit specified, gets all projects for the user org unit.");
 
-			// Crawl the org units hierarchy from the user root org unit.
-			Handlers.crawlUnits(context.getUser().getOrgUnitWithProfiles().getOrgUnit(), units, true);
+			// Hierarchy starting from the user root org unit.
+			rootIds.add(context.getUser().getOrgUnitWithProfiles().getOrgUnit().getId());
 
 		} else {
-			// Crawl the org units hierarchy from each specified org unit.
-			OrgUnit unit;
-			for (final Integer id : ids) {
-				if ((unit = em().find(OrgUnit.class, id)) != null) {
-					Handlers.crawlUnits(unit, units, true);
-				}
-			}
-		}
-        
-        // Keep a link between projects and orgUnits.
-        final HashMap<Integer, Integer> projectIdToOrgUnitId = new HashMap<Integer, Integer>();
-        
-        // Creating the query to retrieve projects
-        final TypedQuery<Project> query = buildQuery(cmd);
-
-		// Retrieves all the corresponding org units.
-		for (final OrgUnit unit : units) {
-
-			// Builds and executes the query.
-            fillQuery(query, cmd, context, unit);
-
-			int count = 0;
-			final List<Project> listResults = query.getResultList();
-			for (final Project p : listResults) {
-                projectIdToOrgUnitId.put(p.getId(), unit.getId());
-
-				if (modelType == null) {
-					projects.add(p);
-					count++;
-				}
-				// Filters by model type.
-				else {
-					if (p.getProjectModel().getVisibility(context.getUser().getOrganization()) == modelType) {
-						projects.add(p);
-						count++;
-					}
-				}
-			}
-
-			LOG.debug("Found {}/{} projects for org unit #{}.", count, listResults.size(), unit.getName());
+			// Hierarchies starting from each specified org unit.
+			rootIds.addAll(ids);
 		}
 
+		// Keep a link between projects and orgUnits.
+		// The org units hierarchies, the favorites and the model visibility are resolved by a single query.
+		final Organization organization = context.getUser().getOrganization();
+		final Map<Integer, Integer> projectIdToOrgUnitId = projectDAO.findProjectOrgUnitIdsInHierarchies(rootIds,
+			organization != null ? organization.getId() : null, modelType, cmd.isFavoritesOnly() ? context.getUser().getId() : null);
+
+		final List<Project> unitsProjects = projectDAO.findByIds(projectIdToOrgUnitId.keySet());
+		projects.addAll(unitsProjects);
+
+		LOG.debug("Found {} projects in the org units hierarchies.", unitsProjects.size());
+
 		// ---------------
 		// Mapping and return.
 		// ---------------
@@ -182,10 +159,8 @@ public class GetProjectsHandler extends AbstractCommandHandler<GetProjects, List
 		final IsMappingMode mappingMode = cmd.getMappingMode(); // May be null.
 
 		if (mappingMode == ProjectDTO.Mode._USE_PROJECT_MAPPER) {
-			// Using custom project mapper.
-			for (final Project project : projects) {
-				projectsDTO.add(projectMapper.map(project, true));
-			}
+			// Using custom project mapper (the whole set is mapped at once).
+			projectsDTO.addAll(projectMapper.mapAll(projects, true));
 
 		} else {
 			// Using provided mapping mode.
@@ -201,21 +176,5 @@ public class GetProjectsHandler extends AbstractCommandHandler<GetProjects, List
 
 		return new ListResult<>(projectsDTO);
 	}
-    
-    private TypedQuery<Project> buildQuery(GetProjects getProjects) {
-        final StringBuilder stringBuilder = new StringBuilder("SELECT p FROM Project p WHERE :unit MEMBER OF p.partners");
-        
-        if(getProjects.isFavoritesOnly()) {
-            stringBuilder.append(" AND :user MEMBER OF p.favoriteUsers");
-        }
-        
-        return em().createQuery(stringBuilder.toString(), Project.class); 
-    }
-    
-    private void fillQuery(TypedQuery<Project> query, GetProjects getProjects, UserExecutionContext context, OrgUnit unit) {
-        query.setParameter("unit", unit);
-        if(getProjects.isFavoritesOnly()) {
-            query.setParameter("user", context.getUser());
-        }
-    }
+
 }
@@ -0,0 +1,135 @@
+package org.sigmah.server.handler;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.TypedQuery;
+
+import org.sigmah.server.dao.util.InClauses;
+import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
+import org.sigmah.server.domain.Amendment;
+import org.sigmah.server.domain.HistoryToken;
+import org.sigmah.server.domain.element.FlexibleElement;
+import org.sigmah.server.file.FileStorageProvider;
+import org.sigmah.server.handler.base.AbstractCommandHandler;
+import org.sigmah.server.handler.util.BulkValueLoader;
+import org.sigmah.shared.command.GetValues;
+import org.sigmah.shared.command.result.ListResult;
+import org.sigmah.shared.command.result.ValueResult;
+import org.sigmah.shared.dispatch.CommandException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+
+/**
+ * Handler getting the values of many {@link FlexibleElement}s of a container.<br>
+ * Values are loaded with a few set-based queries (see {@link BulkValueLoader}) instead of the queries of one
+ * {@link GetValueHandler} execution per element.
+ */
+public class GetValuesHandler extends AbstractCommandHandler<GetValues, ListResult<ValueResult>> {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(GetValuesHandler.class);
+
+	/**
+	 * Allow access to the files.
+	 */
+	private final FileStorageProvider fileStorageProvider;
+
+	@Inject
+	public GetValuesHandler(final FileStorageProvider fileStorageProvider) {
+		this.fileStorageProvider = fileStorageProvider;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ListResult<ValueResult> execute(final GetValues cmd, final UserExecutionContext context) throws CommandException {
+
+		LOG.debug("Getting {} values from the database for command: '{}'.", cmd.size(), cmd);
+
+		final List<ValueResult> values = new ArrayList<ValueResult>(cmd.size());
+
+		if (cmd.getContainerId() == null || cmd.getElementIds() == null || cmd.getElementIds().isEmpty()) {
+			return new ListResult<ValueResult>(values);
+		}
+
+		final Map<Integer, ValueResult> valuesByElementId =
+				new BulkValueLoader(em(), mapper(), fileStorageProvider).loadForContainer(cmd.getContainerId(), findElements(cmd.getElementIds()),
+					findAmendmentValues(cmd.getAmendmentId()));
+
+		for (final Integer elementId : cmd.getElementIds()) {
+			final ValueResult valueResult = valuesByElementId.get(elementId);
+			values.add(valueResult != null ? valueResult : new ValueResult());
+		}
+
+		return new ListResult<ValueResult>(values);
+	}
+
+	/**
+	 * Loads the flexible elements of the given ids.
+	 * 
+	 * @param elementIds
+	 *          Ids of the elements.
+	 * @return The elements found.
+	 */
+	private List<FlexibleElement> findElements(final List<Integer> elementIds) {
+
+		final TypedQuery<FlexibleElement> query = em().createQuery("SELECT fe FROM FlexibleElement fe WHERE fe.id IN (:ids)", FlexibleElement.class);
+		return InClauses.getResultList(query, "ids", elementIds);
+	}
+
+	/**
+	 * Returns the values saved by the given amendment.
+	 * 
+	 * @param amendmentId
+	 *          Id of the amendment (may be {@code null}).
+	 * @return The values by element id, or {@code null} if no amendment is given.
+	 */
+	private Map<Integer, String> findAmendmentValues(final Integer amendmentId) {
+
+		if (amendmentId == null) {
+			return null;
+		}
+
+		final Map<Integer, String> amendmentValues = new HashMap<Integer, String>();
+		final Amendment amendment = em().find(Amendment.class, amendmentId);
+
+		if (amendment != null && amendment.getValues() != null) {
+			for (final HistoryToken token : amendment.getValues()) {
+				amendmentValues.put(token.getElementId(), token.getValue());
+			}
+		}
+
+		return amendmentValues;
+	}
+
+}
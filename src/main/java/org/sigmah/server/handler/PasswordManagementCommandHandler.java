@@ -35,6 +35,7 @@ import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
 import org.sigmah.server.domain.User;
 import org.sigmah.server.handler.base.AbstractCommandHandler;
 import org.sigmah.server.mail.MailService;
+import org.sigmah.server.security.AuthenticationCache;
 import org.sigmah.server.security.Authenticator;
 import org.sigmah.shared.Language;
 import org.sigmah.shared.command.PasswordManagementCommand;
@@ -87,11 +88,18 @@ public class PasswordManagementCommandHandler extends AbstractCommandHandler<Pas
 	 */
 	private final MailService mailService;
 
+	/**
+	 * Injected {@link AuthenticationCache}.
+	 */
+	private final AuthenticationCache authenticationCache;
+
 	@Inject
-	public PasswordManagementCommandHandler(final UserDAO userDAO, final Authenticator authenticator, final MailService mailService) {
+	public PasswordManagementCommandHandler(final UserDAO userDAO, final Authenticator authenticator, final MailService mailService,
+			final AuthenticationCache authenticationCache) {
 		this.userDAO = userDAO;
 		this.authenticator = authenticator;
 		this.mailService = mailService;
+		this.authenticationCache = authenticationCache;
 	}
 
 	/**
@@ -220,6 +228,9 @@ public class PasswordManagementCommandHandler extends AbstractCommandHandler<Pas
 		user.clearChangePasswordKey();
 		userDAO.persist(user, context.getUser());
 
+		// Cached sessions of the user are dropped.
+		authenticationCache.evictUser(user.getId());
+
 		if (LOG.isInfoEnabled()) {
 			LOG.info("User '{}' ({}) password has been successfully updated using password reset link.", user, email);
 		}
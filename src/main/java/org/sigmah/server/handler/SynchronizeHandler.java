@@ -25,6 +25,7 @@ package org.sigmah.server.handler;
 import com.google.inject.Inject;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -44,9 +45,13 @@ import org.sigmah.shared.dispatch.UpdateConflictException;
 import org.sigmah.shared.dto.referential.ContainerInformation;
 import org.sigmah.shared.dto.referential.EmailKey;
 import org.sigmah.shared.dto.referential.EmailKeyEnum;
+import org.sigmah.shared.dto.element.event.ValueEventWrapper;
 import org.sigmah.shared.dto.referential.EmailType;
+import org.sigmah.shared.dto.referential.ValueEventChangeType;
 import org.sigmah.shared.dto.value.FileUploadUtils;
 import org.sigmah.shared.dto.value.FileVersionDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Handler for {@link Synchronize} command.
@@ -55,6 +60,11 @@ import org.sigmah.shared.dto.value.FileVersionDTO;
  */
 public class SynchronizeHandler extends AbstractCommandHandler<Synchronize, SynchronizeResult> {
 	
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(SynchronizeHandler.class);
+	
     /**
      * Access to the localized strings.
      */
@@ -77,12 +87,16 @@ public class SynchronizeHandler extends AbstractCommandHandler<Synchronize, Sync
 		final HashMap<Integer, Integer> files = new HashMap<>();
 		boolean errorConcernFiles = false;
 		
-        for (final Command<?> command : synchronize.getCommands()) {
+		final String comment = i18nServer.t(context.getLanguage(), "sigmahOfflineSynchronizeUpdateComment");
+		
+        for (final List<Command<?>> group : groupByContainer(synchronize.getCommands())) {
 			try {
-				if (command instanceof UpdateProject) {
-					((UpdateProject)command).setComment(i18nServer.t(context.getLanguage(), "sigmahOfflineSynchronizeUpdateComment"));
+				if (group.get(0) instanceof UpdateProject) {
+					executeContainerUpdates(group, comment, context);
+					continue;
 				}
 				
+				final Command<?> command = group.get(0);
 				final Result result = context.execute(command);
 				
 				if (command instanceof PrepareFileUpload) {
@@ -113,6 +127,172 @@ public class SynchronizeHandler extends AbstractCommandHandler<Synchronize, Sync
 		
         return new SynchronizeResult(errors, errorConcernFiles, files);
     }
+	
+	/**
+	 * Applies every offline modification of a container in a single {@link UpdateProject} (and so in a single
+	 * transaction).
+	 * <br>
+	 * If the merged update is rejected because of a conflict, the original commands are replayed one by one to keep
+	 * the modifications which are not in conflict, as before the grouping.
+	 * 
+	 * @param updates
+	 *          <code>UpdateProject</code> commands of the same container, in their original order.
+	 * @param comment
+	 *          Comment of the history tokens.
+	 * @param context
+	 *          Execution context.
+	 * @throws CommandException
+	 *          If an update failed.
+	 */
+	private void executeContainerUpdates(final List<Command<?>> updates, final String comment, final UserDispatch.UserExecutionContext context) throws CommandException {
+		
+		final UpdateProject merged = merge(updates);
+		merged.setComment(comment);
+		
+		if (updates.size() == 1) {
+			context.execute(merged);
+			return;
+		}
+		
+		try {
+			context.execute(merged);
+			
+		} catch (UpdateConflictException e) {
+			LOG.debug("Conflict while synchronizing container #{}, replaying its {} commands separately.", merged.getProjectId(), updates.size());
+			
+			UpdateConflictException conflict = null;
+			for (final Command<?> update : updates) {
+				((UpdateProject) update).setComment(comment);
+				try {
+					context.execute(update);
+				} catch (UpdateConflictException ex) {
+					conflict = merge(conflict, ex);
+				}
+			}
+			
+			if (conflict != null) {
+				throw conflict;
+			}
+		}
+	}
+	
+	/**
+	 * Groups the given commands by container.
+	 * <br>
+	 * Successive {@link UpdateProject} commands of a same container are placed in the same group. Any other command
+	 * ends the group, so that the commands are still applied in their original order. The other commands are kept in
+	 * their own group.
+	 * 
+	 * @param commands
+	 *          Commands to group.
+	 * @return The groups of commands.
+	 */
+	static List<List<Command<?>>> groupByContainer(final List<Command<?>> commands) {
+		
+		final ArrayList<List<Command<?>>> groups = new ArrayList<>();
+		
+		// Current run of updates, null if the previous command is not an update.
+		List<Command<?>> updates = null;
+		
+		for (final Command<?> command : commands) {
+			if (command instanceof UpdateProject) {
+				final int containerId = ((UpdateProject) command).getProjectId();
+				
+				if (updates == null || ((UpdateProject) updates.get(0)).getProjectId() != containerId) {
+					updates = new ArrayList<>();
+					groups.add(updates);
+				}
+				updates.add(command);
+				
+			} else {
+				updates = null;
+				groups.add(Collections.<Command<?>>singletonList(command));
+			}
+		}
+		
+		return groups;
+	}
+	
+	/**
+	 * Merges the given updates of a same container in a single command.
+	 * 
+	 * @param updates
+	 *          <code>UpdateProject</code> commands of the same container, in their original order.
+	 * @return A new <code>UpdateProject</code> with the coalesced values of every given command.
+	 * @see #coalesce(java.util.List) 
+	 */
+	static UpdateProject merge(final List<Command<?>> updates) {
+		
+		final ArrayList<ValueEventWrapper> values = new ArrayList<>();
+		for (final Command<?> update : updates) {
+			values.addAll(((UpdateProject) update).getValues());
+		}
+		
+		final UpdateProject merged = new UpdateProject();
+		merged.setProjectId(((UpdateProject) updates.get(0)).getProjectId());
+		merged.setValueEventWrappers(coalesce(values));
+		
+		return merged;
+	}
+	
+	/**
+	 * Keeps only the last modification of each value, like {@link UpdateProject} does for the events of a single
+	 * command.
+	 * <br>
+	 * Successive modifications of a basic value or edits of the same stored list item are replaced by the last one,
+	 * at the position of the last one. Additions and removals of list items are all kept.
+	 * 
+	 * @param values
+	 *          Modifications in their original order.
+	 * @return The coalesced modifications.
+	 */
+	static List<ValueEventWrapper> coalesce(final List<ValueEventWrapper> values) {
+		
+		final ArrayList<ValueEventWrapper> coalesced = new ArrayList<>();
+		final HashMap<String, Integer> lastIndexes = new HashMap<>();
+		
+		for (final ValueEventWrapper value : values) {
+			final String key;
+			if (value.getListValue() == null) {
+				key = String.valueOf(value.getSourceElement().getId());
+			} else if (value.getListValue().getId() != null && value.getChangeType() == ValueEventChangeType.EDIT) {
+				key = value.getSourceElement().getId() + "-" + value.getListValue().getId();
+			} else {
+				key = null;
+			}
+			
+			if (key != null) {
+				final Integer previous = lastIndexes.put(key, coalesced.size());
+				if (previous != null) {
+					coalesced.set(previous, null);
+				}
+			}
+			coalesced.add(value);
+		}
+		
+		coalesced.removeAll(Collections.<ValueEventWrapper>singleton(null));
+		return coalesced;
+	}
+	
+	/**
+	 * Merges the messages of the given conflicts.
+	 * 
+	 * @param first
+	 *          First conflict (may be <code>null</code>).
+	 * @param second
+	 *          Second conflict.
+	 * @return A conflict containing the messages of both conflicts.
+	 */
+	private static UpdateConflictException merge(final UpdateConflictException first, final UpdateConflictException second) {
+		if (first == null) {
+			return second;
+		}
+		
+		final ArrayList<String> parameters = new ArrayList<>(Arrays.asList(first.getParameters()));
+		parameters.addAll(Arrays.asList(second.getParameters()));
+		
+		return new UpdateConflictException(first.getContainer(), first.isFile() || second.isFile(), parameters.toArray(new String[0]));
+	}
     
     /**
      * Send errors of the synchronization by email.
@@ -22,13 +22,17 @@ package org.sigmah.server.handler;
  * #L%
  */
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 
 import javax.persistence.NoResultException;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 
+import org.sigmah.server.dao.HistoryTokenDAO;
+import org.sigmah.server.dao.util.InClauses;
 import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
 import org.sigmah.server.domain.Country;
 import org.sigmah.server.domain.HistoryToken;
@@ -63,9 +67,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Locale;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import org.sigmah.offline.sync.SuccessCallback;
-import org.sigmah.server.computation.ServerComputations;
+import org.sigmah.server.computation.ComputationCache;
 import org.sigmah.server.computation.ServerValueResolver;
 import org.sigmah.server.handler.util.Conflicts;
 import org.sigmah.server.handler.util.Handlers;
@@ -73,7 +80,7 @@ import org.sigmah.server.i18n.I18nServer;
 import org.sigmah.shared.Language;
 import org.sigmah.shared.command.result.ValueResult;
 import org.sigmah.shared.computation.Computation;
-import org.sigmah.shared.computation.Computations;
+import org.sigmah.shared.computation.ValueResolver;
 import org.sigmah.shared.computation.value.ComputedValue;
 import org.sigmah.shared.computation.value.ComputedValues;
 import org.sigmah.shared.dispatch.FunctionalException;
@@ -128,6 +135,18 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 	 */
 	@Inject
 	private ServerValueResolver valueResolver;
+	
+	/**
+	 * Cache of parsed computations.
+	 */
+	@Inject
+	private ComputationCache computationCache;
+
+	/**
+	 * History tokens DAO.
+	 */
+	@Inject
+	private HistoryTokenDAO historyTokenDAO;
 
 
 	/**
@@ -167,8 +186,23 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 		// Search the given project.
 		final Project project = em().find(Project.class, projectId);
 		
+		// Elements, values and history flags of the whole update are loaded at once.
+		final Set<Integer> elementIds = new HashSet<>();
+		final Set<Integer> defaultElementIds = new HashSet<>();
+		for (final ValueEventWrapper valueEvent : values) {
+			elementIds.add(valueEvent.getSourceElement().getId());
+			if (valueEvent.getSourceElement() instanceof DefaultFlexibleElementDTO) {
+				defaultElementIds.add(valueEvent.getSourceElement().getId());
+			}
+		}
+		
+		final Map<Integer, FlexibleElement> elements = findElements(elementIds);
+		final Map<Integer, Value> currentValues = retrieveCurrentValues(projectId, elementIds);
+		final Set<Integer> historizedElements = defaultElementIds.isEmpty() ? new HashSet<Integer>()
+			: new HashSet<>(historyTokenDAO.findLatestTokens(projectId, defaultElementIds).keySet());
+		
 		// Verify if the modifications conflicts with the project state.
-		final List<String> conflicts = searchForConflicts(project, values, context);
+		final List<String> conflicts = searchForConflicts(project, values, currentValues, context);
 		
 		final User user = context.getUser();
 		
@@ -180,7 +214,7 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 			
 			// Event parameters.
 			final FlexibleElementDTO source = valueEvent.getSourceElement();
-			final FlexibleElement element = em().find(FlexibleElement.class, source.getId());
+			final FlexibleElement element = elements.get(source.getId());
 			final TripletValueDTO updateListValue = valueEvent.getListValue();
 			final String updateSingleValue = valueEvent.getSingleValue();
 			final boolean isProjectCountryChanged = valueEvent.isProjectCountryChanged();
@@ -203,16 +237,9 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 				final String oldValue = saveDefaultElement(projectId, defaultElement.getType(), updateSingleValue, isProjectCountryChanged);
 
 				// Checks if the first value has already been historized or not.
-				List<HistoryToken> results = null;
-				if (element != null) {
-					final TypedQuery<HistoryToken> query =
-						em().createQuery("SELECT h FROM HistoryToken h WHERE h.elementId = :elementId AND h.projectId = :projectId", HistoryToken.class);
-					query.setParameter("elementId", element.getId());
-					query.setParameter("projectId", projectId);
-					results = query.getResultList();
-				}
+				final boolean historized = element != null && historizedElements.contains(element.getId());
 
-				if (results == null || results.isEmpty()) {
+				if (!historized) {
 					final Date oldDate;
 					final User oldOwner;
 					if (project != null) {
@@ -231,12 +258,16 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 
 				// Historize the value.
 				historize(historyDate, element, projectId, user, ValueEventChangeType.EDIT, updateSingleValue, null, comment);
+				
+				if (element != null && element.isHistorable()) {
+					historizedElements.add(element.getId());
+				}
 
 				continue;
 			}
 
 			// Retrieving the current value
-			final Value currentValue = retrieveOrCreateValue(projectId, source.getId(), user);
+			final Value currentValue = prepareValue(currentValues.get(source.getId()), projectId, source.getId(), user);
 
 			// Unique value of the flexible element.
 			if (updateListValue == null) {
@@ -290,8 +321,8 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 				LOG.debug("[execute] The new list of ids is : " + ids + ".");
 			}
 
-			// Store the value.
-			em().merge(currentValue);
+			// Store the value (the managed instance is kept for the next events of the same element).
+			currentValues.put(source.getId(), em().merge(currentValue));
 		}
 
 		// Update user permissions
@@ -404,7 +435,7 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 				historyToken.setValue(element.asHistoryToken(listValue));
 			}
 
-			em().persist(historyToken);
+			historyTokenDAO.historize(historyToken);
 		}
 	}
 
@@ -421,9 +452,23 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 	 * @return The value.
 	 */
 	public Value retrieveOrCreateValue(int projectId, Integer elementId, User user) {
-
-		// Retrieving the current value
-		Value currentValue = retrieveCurrentValue(projectId, elementId);
+		return prepareValue(retrieveCurrentValue(projectId, elementId), projectId, elementId, user);
+	}
+	
+	/**
+	 * Prepares the given value for an update or creates it if it is <code>null</code>.
+	 * 
+	 * @param currentValue
+	 *          The current value or <code>null</code> if none exists.
+	 * @param projectId
+	 *          The project id.
+	 * @param elementId
+	 *          The source element id.
+	 * @param user
+	 *          The user which launch the command.
+	 * @return The value.
+	 */
+	private Value prepareValue(Value currentValue, int projectId, Integer elementId, User user) {
 
 		// Update operation.
 		if (currentValue != null) {
@@ -478,18 +523,58 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 		return currentValue;
 	}
 	
+	/**
+	 * Retrieves the values of the given elements for the given project with a single query per
+	 * {@link InClauses#MAX_PARAMETERS} elements.
+	 * 
+	 * @param projectId
+	 *          The project id.
+	 * @param elementIds
+	 *          The source element ids.
+	 * @return The existing values mapped by element id.
+	 */
+	private Map<Integer, Value> retrieveCurrentValues(int projectId, Collection<Integer> elementIds) {
+		final HashMap<Integer, Value> currentValues = new HashMap<>();
+		
+		final TypedQuery<Value> query = em().createQuery("SELECT v FROM Value v WHERE v.containerId = :projectId and v.element.id IN (:elementIds)", Value.class);
+		query.setParameter("projectId", projectId);
+		
+		for (final Value value : InClauses.getResultList(query, "elementIds", elementIds)) {
+			currentValues.put(value.getElement().getId(), value);
+		}
+		
+		return currentValues;
+	}
+	
+	/**
+	 * Finds the given flexible elements with a single query per {@link InClauses#MAX_PARAMETERS} elements.
+	 * 
+	 * @param elementIds
+	 *          The element ids.
+	 * @return The elements mapped by id.
+	 */
+	private Map<Integer, FlexibleElement> findElements(Collection<Integer> elementIds) {
+		final HashMap<Integer, FlexibleElement> elements = new HashMap<>();
+		
+		final TypedQuery<FlexibleElement> query = em().createQuery("SELECT e FROM FlexibleElement e WHERE e.id IN (:elementIds)", FlexibleElement.class);
+		
+		for (final FlexibleElement element : InClauses.getResultList(query, "elementIds", elementIds)) {
+			elements.put(element.getId(), element);
+		}
+		
+		return elements;
+	}
+	
     /**
-     * Finds the current value of the given element from the database and returns it as HTML.
+     * Formats the current value of the given element as HTML.
      * 
-     * @param projectId
-     *          Identifier of the project.
+     * @param value
+     *          Current value of the element (may be <code>null</code>).
      * @param element
-     *          Element to search.
+     *          Element to format.
      * @return The value of the given element.
      */
-	private String getCurrentValueFormatted(int projectId, FlexibleElementDTO element) {
-        
-		final Value value = retrieveCurrentValue(projectId, element.getId());
+	private String getCurrentValueFormatted(Value value, FlexibleElementDTO element) {
 		
 		if(value != null) {
 			return element.toHTML(value.getValue());
@@ -710,10 +795,11 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 	 * 
 	 * @param project Updated project.
 	 * @param values Values to update.
-	 * @param projectId 
+	 * @param currentValues Current values of the updated elements, mapped by element id.
+	 * @param context Execution context.
 	 * @throws FunctionalException 
 	 */
-	private List<String> searchForConflicts(final Project project, final List<ValueEventWrapper> values, final UserExecutionContext context) throws FunctionalException {
+	private List<String> searchForConflicts(final Project project, final List<ValueEventWrapper> values, final Map<Integer, Value> currentValues, final UserExecutionContext context) throws FunctionalException {
 		
 		final ArrayList<String> conflicts = new ArrayList<>();
 		
@@ -737,6 +823,13 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
         // Verify computated values.
         conflictsRelatedToComputedElements(values, project, conflicts, language);
 		
+		// Closed phases are searched once for every updated element.
+		final Set<Integer> elementIds = new HashSet<>();
+		for (final ValueEventWrapper value : values) {
+			elementIds.add(value.getSourceElement().getId());
+		}
+		final Set<Integer> elementsInClosedPhases = conflictHandler.findElementsInClosedPhases(elementIds, project.getId());
+		
 		if (ProfileUtils.isGranted(profile, GlobalPermissionEnum.MODIFY_LOCKED_CONTENT)) {
 			// The user is allowed to edit locked fields.
 			final boolean projectIsClosed = project.getCloseDate() != null;
@@ -745,7 +838,7 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 			for (final ValueEventWrapper value : values) {
 				final FlexibleElementDTO source = value.getSourceElement();
 				
-				final boolean phaseIsClosed = conflictHandler.isParentPhaseClosed(source.getId(), project.getId());
+				final boolean phaseIsClosed = elementsInClosedPhases.contains(source.getId());
 				
 				if (projectIsClosed || phaseIsClosed || (source.getAmendable() && projectIsLocked)) {
 					final ValueResult result = new ValueResult();
@@ -754,7 +847,7 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 
 					if(!source.isCorrectRequiredValue(result)) {
 						conflicts.add(i18nServer.t(language, "conflictModifyLockedContentEmptyValue",
-							source.getFormattedLabel(), getCurrentValueFormatted(project.getId(), source)));
+							source.getFormattedLabel(), getCurrentValueFormatted(currentValues.get(source.getId()), source)));
 					}
 				}
 			}
@@ -768,7 +861,7 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 				final FlexibleElementDTO source = valueEvent.getSourceElement();
 				
 				conflicts.add(i18nServer.t(language, "conflictUpdatingAClosedProject",
-					source.getFormattedLabel(), getCurrentValueFormatted(project.getId(), source), getTargetValueFormatted(valueEvent)));
+					source.getFormattedLabel(), getCurrentValueFormatted(currentValues.get(source.getId()), source), getTargetValueFormatted(valueEvent)));
 			}
 			
 		} else {
@@ -778,12 +871,12 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 				final ValueEventWrapper valueEvent = iterator.next();
 				final FlexibleElementDTO source = valueEvent.getSourceElement();
 
-				if (conflictHandler.isParentPhaseClosed(source.getId(), project.getId())) {
+				if (elementsInClosedPhases.contains(source.getId())) {
 					// Removing the current value event from the update list.
 					iterator.remove();
 					
 					conflicts.add(i18nServer.t(language, "conflictUpdatingAClosedPhase",
-						source.getFormattedLabel(), getCurrentValueFormatted(project.getId(), source), getTargetValueFormatted(valueEvent)));
+						source.getFormattedLabel(), getCurrentValueFormatted(currentValues.get(source.getId()), source), getTargetValueFormatted(valueEvent)));
 				}
 			}
 			
@@ -798,7 +891,7 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 					if (source.getAmendable()) {
 						if (source instanceof BudgetElementDTO) {
 							final BudgetSubFieldDTO divisorField = ((BudgetElementDTO)source).getRatioDivisor();
-							final Value value = retrieveCurrentValue(project.getId(), source.getId());
+							final Value value = currentValues.get(source.getId());
 							conflict = getValueOfSubField(value.getValue(), divisorField) != getValueOfSubField(valueEvent.getSingleValue(), divisorField);
 
 						} else {
@@ -813,7 +906,7 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
 						iterator.remove();
 						
 						conflicts.add(i18nServer.t(language, "conflictUpdatingALockedField",
-							source.getFormattedLabel(), getCurrentValueFormatted(project.getId(), source), getTargetValueFormatted(valueEvent)));
+							source.getFormattedLabel(), getCurrentValueFormatted(currentValues.get(source.getId()), source), getTargetValueFormatted(valueEvent)));
 					}
 				}
 			}
@@ -836,53 +929,72 @@ public class UpdateProjectHandler extends AbstractCommandHandler<UpdateProject,
      */
     private void conflictsRelatedToComputedElements(final List<ValueEventWrapper> values, final Project project, final List<String> conflicts, final Language language) {
         
+        final Map<ValueEventWrapper, Computation> computations = new LinkedHashMap<>();
+        final Set<FlexibleElementDTO> dependencies = new HashSet<>();
+        
         for (final ValueEventWrapper value : values) {
             final FlexibleElementDTO source = value.getSourceElement();
             
             if (source instanceof ComputationElementDTO && ((ComputationElementDTO) source).hasConstraints()) {
-                // Recompute the value and check that the result matches the constraints.
-                final ComputationElementDTO computationElement = (ComputationElementDTO) source;
-                
-                final ComputedValue[] serverResult = new ComputedValue[1];
-                final ComputedValue clientResult = ComputedValues.from(value.getSingleValue());
+                final Computation computation = computationCache.getComputation(project.getProjectModel(), ((ComputationElementDTO) source).getRule());
+                computations.put(value, computation);
+                dependencies.addAll(computation.getDependencies());
+            }
+        }
+        
+        if (computations.isEmpty()) {
+            return;
+        }
+        
+        // Dependencies of every computation are loaded at once.
+        final ValueResolver resolver = valueResolver.prefetch(dependencies, project.getId());
+        
+        for (final Map.Entry<ValueEventWrapper, Computation> computationEntry : computations.entrySet()) {
+            final ValueEventWrapper value = computationEntry.getKey();
+            final FlexibleElementDTO source = value.getSourceElement();
+            
+            // Recompute the value and check that the result matches the constraints.
+            final ComputationElementDTO computationElement = (ComputationElementDTO) source;
+            
+            final ComputedValue[] serverResult = new ComputedValue[1];
+            final ComputedValue clientResult = ComputedValues.from(value.getSingleValue());
+            
+            final Computation computation = computationEntry.getValue();
+            computation.computeValueWithWrappersAndResolver(project.getId(), values, resolver, new SuccessCallback<String>() {
+                @Override
+                public void onSuccess(String result) {
+                    serverResult[0] = ComputedValues.from(result);
+                }
+            });
+            
+            if (!clientResult.equals(serverResult[0])) {
+                // Updating the value.
+                value.setSingleValue(serverResult[0].toString());
+            }
+            
+            final int comparison = serverResult[0].matchesConstraints(computationElement);
+            if (comparison != 0) {
+                final String greaterOrLess, breachedConstraint;
+                if (comparison < 0) {
+                    greaterOrLess = i18nServer.t(language, "flexibleElementComputationLess");
+                    breachedConstraint = computationElement.getMinimumValue();
+                } else {
+                    greaterOrLess = i18nServer.t(language, "flexibleElementComputationGreater");
+                    breachedConstraint = computationElement.getMaximumValue();
+                }
                 
-                final Computation computation = Computations.parse(computationElement.getRule(), ServerComputations.getAllElementsFromModel(project.getProjectModel()));
-                computation.computeValueWithWrappersAndResolver(project.getId(), values, valueResolver, new SuccessCallback<String>() {
+                final List<ValueEventWrapper> changes = computation.getRelatedChanges(values);
+                final String fieldList = org.sigmah.shared.util.Collections.join(changes, new org.sigmah.shared.util.Collections.Mapper<ValueEventWrapper, String>() {
+                    
                     @Override
-                    public void onSuccess(String result) {
-                        serverResult[0] = ComputedValues.from(result);
+                    public String forEntry(ValueEventWrapper entry) {
+                        return entry.getSourceElement().getFormattedLabel();
                     }
-                });
-                
-                if (!clientResult.equals(serverResult[0])) {
-                    // Updating the value.
-                    value.setSingleValue(serverResult[0].toString());
-                }
+                }, ", ");
                 
-                final int comparison = serverResult[0].matchesConstraints(computationElement);
-                if (comparison != 0) {
-                    final String greaterOrLess, breachedConstraint;
-                    if (comparison < 0) {
-                        greaterOrLess = i18nServer.t(language, "flexibleElementComputationLess");
-                        breachedConstraint = computationElement.getMinimumValue();
-                    } else {
-                        greaterOrLess = i18nServer.t(language, "flexibleElementComputationGreater");
-                        breachedConstraint = computationElement.getMaximumValue();
-                    }
-                    
-                    final List<ValueEventWrapper> changes = computation.getRelatedChanges(values);
-                    final String fieldList = org.sigmah.shared.util.Collections.join(changes, new org.sigmah.shared.util.Collections.Mapper<ValueEventWrapper, String>() {
-                        
-                        @Override
-                        public String forEntry(ValueEventWrapper entry) {
-                            return entry.getSourceElement().getFormattedLabel();
-                        }
-                    }, ", ");
-                    
-                    conflicts.add(i18nServer.t(language, "conflictComputationOutOfBound",
-                            fieldList, value.getSingleValue(), source.getFormattedLabel(), greaterOrLess, breachedConstraint) 
-                            + dependenciesLastValuesForComputation(computation, project.getId(), language));
-                }
+                conflicts.add(i18nServer.t(language, "conflictComputationOutOfBound",
+                        fieldList, value.getSingleValue(), source.getFormattedLabel(), greaterOrLess, breachedConstraint) 
+                        + dependenciesLastValuesForComputation(computation, project.getId(), language));
             }
         }
     }
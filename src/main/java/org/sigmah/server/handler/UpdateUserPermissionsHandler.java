@@ -37,6 +37,7 @@ import org.sigmah.server.domain.UserDatabase;
 import org.sigmah.server.domain.UserPermission;
 import org.sigmah.server.handler.base.AbstractCommandHandler;
 import org.sigmah.server.mail.MailService;
+import org.sigmah.server.security.PermissionSnapshotCache;
 import org.sigmah.shared.command.UpdateUserPermissions;
 import org.sigmah.shared.command.result.VoidResult;
 import org.sigmah.shared.dispatch.CommandException;
@@ -60,10 +61,13 @@ public class UpdateUserPermissionsHandler extends AbstractCommandHandler<UpdateU
 	private final PartnerDAO partnerDAO;
 	private final UserPermissionDAO permDAO;
 	private final MailService mailService;
+	private final PermissionSnapshotCache permissionSnapshots;
 
 	@Inject
-	public UpdateUserPermissionsHandler(UserDatabaseDAO databaseDAO, PartnerDAO partnerDAO, UserDAO userDAO, UserPermissionDAO permDAO, MailService mailService) {
+	public UpdateUserPermissionsHandler(UserDatabaseDAO databaseDAO, PartnerDAO partnerDAO, UserDAO userDAO, UserPermissionDAO permDAO, MailService mailService,
+			PermissionSnapshotCache permissionSnapshots) {
 		this.userDAO = userDAO;
+		this.permissionSnapshots = permissionSnapshots;
 		this.partnerDAO = partnerDAO;
 		this.permDAO = permDAO;
 		this.mailService = mailService;
@@ -112,6 +116,8 @@ public class UpdateUserPermissionsHandler extends AbstractCommandHandler<UpdateU
 			doUpdate(perm, dto, isOwner, database.getPermissionByUser(executingUser));
 		}
 
+		permissionSnapshots.invalidateUser(em(), user.getId());
+
 		return null;
 	}
 
@@ -27,10 +27,12 @@ import com.google.inject.Singleton;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import org.sigmah.server.dispatch.impl.UserDispatch;
 import org.sigmah.server.domain.value.FileVersion;
 import org.sigmah.server.file.FileStorageProvider;
+import org.sigmah.server.file.util.ReceivedSlices;
 import org.sigmah.server.handler.base.AbstractCommandHandler;
 import org.sigmah.server.mail.ModelMailService;
 import org.sigmah.shared.command.UploadSlice;
@@ -45,12 +47,39 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Writes each uploaded slice directly at its offset in a partial file, next to the target file.
+ * <p>
+ * The byte ranges received so far are kept in a sidecar file (see {@link ReceivedSlices}) so slices may arrive out of
+ * order or be sent again. The upload is complete when every byte of the file has been received: the partial file is
+ * then renamed to the target file, so an incomplete file is never exposed.
+ * </p>
  *
  * @author Raphaël Calabro (rcalabro@ideia.fr)
  */
 @Singleton
 public class UploadSliceHandler extends AbstractCommandHandler<UploadSlice, VoidResult> {
 	private static final Logger LOGGER = LoggerFactory.getLogger(PrepareFileUploadHandler.class);
+	
+	/**
+	 * Extension of the sidecar files listing the received slices.
+	 */
+	private static final String RECEIVED_SLICES_EXTENSION = ".slices";
+	
+	/**
+	 * Extension of the partial files receiving the slices.
+	 */
+	private static final String PARTIAL_FILE_EXTENSION = ".part";
+	
+	/**
+	 * Locks serializing the slices of a same file.
+	 */
+	private static final Object[] LOCKS = new Object[64];
+	
+	static {
+		for (int index = 0; index < LOCKS.length; index++) {
+			LOCKS[index] = new Object();
+		}
+	}
 
 	@Inject
 	private FileStorageProvider fileStorageProvider;
@@ -72,49 +101,18 @@ public class UploadSliceHandler extends AbstractCommandHandler<UploadSlice, Void
 			path = generateNameForNullPathFile(command, context);
 		}
 		
-		final String sliceName = path + '.' + command.getOffset();
-		
-		try(final OutputStream outputStream = fileStorageProvider.create(sliceName)) {
-			outputStream.write(command.getData());
-			
-		} catch (IOException ex) {
-			LOGGER.error("An error occured while creating the file slice '" + sliceName + "'.", ex);
-		}
+		boolean complete = false;
 		
-		if(command.isLast()) {
-			// Patch everything together.
-			final byte[] bytes = new byte[1024];
-			
-			try(final OutputStream outputStream = fileStorageProvider.create(path)) {
-				for(int offset = 0; offset < fileVersionDTO.getSize();) {
-					final String slice = path + '.' + offset;
-					
-					// Read the content of the slice.
-					try(final InputStream inputStream = fileStorageProvider.open(slice)) {
-						int read = inputStream.read(bytes);
-						while(read != -1) {
-							offset += read;
-							outputStream.write(bytes, 0, read);
-							read = inputStream.read(bytes);
-						}
-						
-					} catch(IOException ex) {
-						LOGGER.error("An error occured while reading the slice '" + slice + "'.", ex);
-					}
-					
-					// Remove the slice.
-					try {
-						fileStorageProvider.delete(slice);
-
-					} catch(IOException ex) {
-						LOGGER.error("An error occured while removing the slice '" + slice + "'.", ex);
-					}
-				}
+		synchronized (LOCKS[(path.hashCode() & Integer.MAX_VALUE) % LOCKS.length]) {
+			try {
+				complete = writeSlice(path, command, fileVersionDTO.getSize());
 				
 			} catch (IOException ex) {
-				LOGGER.error("An error occured while patching the file slice together into file '" + fileVersionDTO.getPath() + "'.", ex);
+				LOGGER.error("An error occured while writing the file slice at offset " + command.getOffset() + " of file '" + path + "'.", ex);
 			}
-			
+		}
+		
+		if(complete) {
 			if(fileVersion == null) {
 				try {
 					try {
@@ -131,6 +129,57 @@ public class UploadSliceHandler extends AbstractCommandHandler<UploadSlice, Void
 		return null;
 	}
 	
+	/**
+	 * Writes the given slice in the partial file and records it in the sidecar file.<br>
+	 * The partial file replaces the target file once complete.
+	 * 
+	 * @param path
+	 *          Storage id of the target file.
+	 * @param command
+	 *          The slice.
+	 * @param size
+	 *          Size of the complete file.
+	 * @return {@code true} if this slice completed the file.
+	 * @throws IOException
+	 *           If the target or the sidecar file cannot be accessed.
+	 */
+	private boolean writeSlice(final String path, final UploadSlice command, final long size) throws IOException {
+		final String receivedSlicesName = path + RECEIVED_SLICES_EXTENSION;
+		final String partialFileName = path + PARTIAL_FILE_EXTENSION;
+		
+		final ReceivedSlices receivedSlices;
+		if(fileStorageProvider.exists(receivedSlicesName)) {
+			try(final InputStream inputStream = fileStorageProvider.open(receivedSlicesName)) {
+				receivedSlices = ReceivedSlices.read(inputStream);
+			}
+			
+		} else if(fileStorageProvider.exists(path)) {
+			// The file has already been completed, this slice has been sent again.
+			return false;
+			
+		} else {
+			// First slice of this upload.
+			fileStorageProvider.allocate(partialFileName, size);
+			receivedSlices = new ReceivedSlices();
+		}
+		
+		final byte[] data = command.getData();
+		fileStorageProvider.write(partialFileName, command.getOffset(), ByteBuffer.wrap(data));
+		receivedSlices.add(command.getOffset(), (long) command.getOffset() + data.length);
+		
+		if(receivedSlices.isComplete(size)) {
+			// The sidecar is removed first: if the rename fails, the upload restarts instead of completing twice.
+			fileStorageProvider.delete(receivedSlicesName);
+			fileStorageProvider.move(partialFileName, path);
+			return true;
+		}
+		
+		try(final OutputStream outputStream = fileStorageProvider.create(receivedSlicesName)) {
+			receivedSlices.write(outputStream);
+		}
+		return false;
+	}
+	
 	private String generateNameForNullPathFile(UploadSlice command, UserDispatch.UserExecutionContext context) {
 		final String fileName = ValueResultUtils.normalizeFileName(command.getFileVersionDTO().getName());
 		return context.getUser().getEmail() + '_' + command.getFileVersionDTO().getId() + '_' + fileName;
@@ -0,0 +1,427 @@
+package org.sigmah.server.handler.util;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.sigmah.server.dao.util.InClauses;
+import org.sigmah.server.domain.Project;
+import org.sigmah.server.domain.element.BudgetDistributionElement;
+import org.sigmah.server.domain.element.BudgetElement;
+import org.sigmah.server.domain.element.DefaultFlexibleElement;
+import org.sigmah.server.domain.element.FilesListElement;
+import org.sigmah.server.domain.element.FlexibleElement;
+import org.sigmah.server.domain.element.IndicatorsListElement;
+import org.sigmah.server.domain.element.MessageElement;
+import org.sigmah.server.domain.element.QuestionElement;
+import org.sigmah.server.domain.element.ReportListElement;
+import org.sigmah.server.domain.element.TripletsListElement;
+import org.sigmah.server.domain.report.ProjectReport;
+import org.sigmah.server.domain.value.BudgetPartsListValue;
+import org.sigmah.server.domain.value.File;
+import org.sigmah.server.domain.value.IndicatorsListValue;
+import org.sigmah.server.domain.value.TripletValue;
+import org.sigmah.server.file.FileStorageProvider;
+import org.sigmah.server.handler.GetValueHandler;
+import org.sigmah.server.mapper.Mapper;
+import org.sigmah.shared.command.result.ValueResult;
+import org.sigmah.shared.dto.report.ReportReference;
+import org.sigmah.shared.dto.value.BudgetPartsListValueDTO;
+import org.sigmah.shared.dto.value.FileDTO;
+import org.sigmah.shared.dto.value.FileVersionDTO;
+import org.sigmah.shared.dto.value.IndicatorsListValueDTO;
+import org.sigmah.shared.dto.value.ListableValue;
+import org.sigmah.shared.dto.value.TripletValueDTO;
+import org.sigmah.shared.util.ValueResultUtils;
+
+/**
+ * <p>
+ * Loads the values of many flexible elements for many containers with a few set-based queries.
+ * </p>
+ * <p>
+ * Produces the same {@link ValueResult} objects as {@link GetValueHandler} (without amendment support) but with one
+ * query for the raw {@code Value} rows and one query per kind of listable value (triplets, budget parts, indicators,
+ * files and reports) instead of several queries per (container, element) pair.
+ * </p>
+ * <p>
+ * The given {@link EntityManager} is used as-is, so this class can be used outside of a request scope (for example
+ * by scheduled jobs).
+ * </p>
+ */
+public class BulkValueLoader {
+
+	private final EntityManager em;
+	private final Mapper mapper;
+	private final FileStorageProvider fileStorageProvider;
+
+	/**
+	 * Creates a new loader.
+	 * 
+	 * @param em
+	 *          The entity manager used to run the queries.
+	 * @param mapper
+	 *          The mapper used to create the listable values DTO.
+	 * @param fileStorageProvider
+	 *          The file storage provider used to flag available file versions, may be {@code null} to skip this check.
+	 */
+	public BulkValueLoader(final EntityManager em, final Mapper mapper, final FileStorageProvider fileStorageProvider) {
+		this.em = em;
+		this.mapper = mapper;
+		this.fileStorageProvider = fileStorageProvider;
+	}
+
+	/**
+	 * Loads the values of the given {@code elements} for every given container.
+	 * 
+	 * @param containerIds
+	 *          Ids of the containers (projects or org units).
+	 * @param elements
+	 *          Flexible elements to load.
+	 * @return A map: container id → element id → value. Every requested pair is present in the map ; the
+	 *         {@link ValueResult} is empty when no value is defined.
+	 */
+	public Map<Integer, Map<Integer, ValueResult>> load(final Collection<Integer> containerIds, final Collection<? extends FlexibleElement> elements) {
+		return load(containerIds, null, elements, null);
+	}
+
+	/**
+	 * Loads the values of the given {@code elements} for a single container, as they were saved in an amendment.
+	 * 
+	 * @param containerId
+	 *          Id of the container (project or org unit).
+	 * @param elements
+	 *          Flexible elements to load.
+	 * @param amendmentValues
+	 *          Values of the amendment by element id, they replace the current values (may be {@code null}).
+	 * @return A map: element id → value. Every requested element is present in the map ; the {@link ValueResult} is
+	 *         empty when no value is defined and flagged as amendment when its value comes from
+	 *         {@code amendmentValues}.
+	 */
+	public Map<Integer, ValueResult> loadForContainer(final Integer containerId, final Collection<? extends FlexibleElement> elements,
+			final Map<Integer, String> amendmentValues) {
+
+		final Map<Integer, ValueResult> results = load(Collections.singleton(containerId), null, elements, amendmentValues).get(containerId);
+		return results != null ? results : new HashMap<Integer, ValueResult>();
+	}
+
+	/**
+	 * Loads the values of the given {@code elements} for every given project.
+	 * 
+	 * @param projects
+	 *          The projects, their properties are used for the {@link DefaultFlexibleElement} values.
+	 * @param elements
+	 *          Flexible elements to load.
+	 * @return A map: project id → element id → value. Every requested pair is present in the map ; the
+	 *         {@link ValueResult} is empty when no value is defined.
+	 */
+	public Map<Integer, Map<Integer, ValueResult>> loadForProjects(final Collection<Project> projects, final Collection<? extends FlexibleElement> elements) {
+
+		final Map<Integer, Project> projectsById = new LinkedHashMap<Integer, Project>();
+		for (final Project project : projects) {
+			projectsById.put(project.getId(), project);
+		}
+
+		return load(projectsById.keySet(), projectsById, elements, null);
+	}
+
+	private Map<Integer, Map<Integer, ValueResult>> load(final Collection<Integer> containerIds, final Map<Integer, Project> projectsById,
+			final Collection<? extends FlexibleElement> elements, final Map<Integer, String> amendmentValues) {
+
+		final Map<Integer, Map<Integer, ValueResult>> results = new HashMap<Integer, Map<Integer, ValueResult>>();
+
+		if (CollectionUtils.isEmpty(containerIds) || CollectionUtils.isEmpty(elements)) {
+			return results;
+		}
+
+		// --------------------------------------------------------------------
+		// STEP 1 : raw string values.
+		// --------------------------------------------------------------------
+
+		final Map<Integer, FlexibleElement> elementsById = new HashMap<Integer, FlexibleElement>();
+		final List<Integer> storedElementIds = new ArrayList<Integer>();
+		final List<DefaultFlexibleElement> defaultElements = new ArrayList<DefaultFlexibleElement>();
+
+		for (final FlexibleElement element : elements) {
+			elementsById.put(element.getId(), element);
+
+			if (element instanceof DefaultFlexibleElement && !(element instanceof BudgetElement)) {
+				defaultElements.add((DefaultFlexibleElement) element);
+			} else if (!(element instanceof MessageElement)) {
+				storedElementIds.add(element.getId());
+			}
+		}
+
+		final Map<Integer, Map<Integer, String>> rawValues = loadRawValues(containerIds, storedElementIds);
+
+		if (!defaultElements.isEmpty()) {
+			for (final Integer containerId : containerIds) {
+				final Project project = projectsById != null ? projectsById.get(containerId) : em.find(Project.class, containerId);
+				for (final DefaultFlexibleElement element : defaultElements) {
+					put(rawValues, containerId, element.getId(), element.getValue(project));
+				}
+			}
+		}
+
+		final Set<Integer> amendedElementIds = new HashSet<Integer>();
+
+		if (amendmentValues != null) {
+			for (final Integer containerId : containerIds) {
+				for (final FlexibleElement element : elements) {
+					final String value = amendmentValues.get(element.getId());
+					if (value == null) {
+						continue;
+					}
+
+					// Values of an amendment are kept even when blank, like in GetValueHandler.
+					Map<Integer, String> containerValues = rawValues.get(containerId);
+					if (containerValues == null) {
+						containerValues = new HashMap<Integer, String>();
+						rawValues.put(containerId, containerValues);
+					}
+					containerValues.put(element.getId(), value);
+					amendedElementIds.add(element.getId());
+				}
+			}
+		}
+
+		// --------------------------------------------------------------------
+		// STEP 2 : collects the ids of the listable values.
+		// --------------------------------------------------------------------
+
+		final Set<Integer> tripletIds = new HashSet<Integer>();
+		final Set<Integer> indicatorListIds = new HashSet<Integer>();
+		final Set<Integer> budgetPartsListIds = new HashSet<Integer>();
+		final Set<Integer> fileIds = new HashSet<Integer>();
+		final Set<Integer> reportIds = new HashSet<Integer>();
+
+		for (final Map<Integer, String> containerValues : rawValues.values()) {
+			for (final Map.Entry<Integer, String> entry : containerValues.entrySet()) {
+				final FlexibleElement element = elementsById.get(entry.getKey());
+				final String value = entry.getValue();
+
+				if (element instanceof TripletsListElement) {
+					tripletIds.addAll(ValueResultUtils.splitValuesAsInteger(value));
+				} else if (element instanceof IndicatorsListElement) {
+					indicatorListIds.addAll(ValueResultUtils.splitValuesAsInteger(value));
+				} else if (element instanceof BudgetDistributionElement) {
+					budgetPartsListIds.addAll(ValueResultUtils.splitValuesAsInteger(value));
+				} else if (element instanceof FilesListElement) {
+					fileIds.addAll(ValueResultUtils.splitValuesAsInteger(value));
+				} else if (element instanceof ReportListElement) {
+					reportIds.addAll(ValueResultUtils.splitValuesAsInteger(value));
+				}
+			}
+		}
+
+		// --------------------------------------------------------------------
+		// STEP 3 : loads the listable values (one query per kind).
+		// --------------------------------------------------------------------
+
+		final Map<Integer, ListableValue> triplets = new HashMap<Integer, ListableValue>();
+		for (final TripletValue tripletValue : findByIds("SELECT tv FROM TripletValue tv WHERE tv.id IN (:ids)", TripletValue.class, tripletIds)) {
+			triplets.put(tripletValue.getId(), mapper.map(tripletValue, new TripletValueDTO()));
+		}
+
+		final Map<Integer, List<ListableValue>> indicators = new HashMap<Integer, List<ListableValue>>();
+		for (final IndicatorsListValue indicatorsListValue : findByIds("SELECT ilv FROM IndicatorsListValue ilv WHERE ilv.id.idList IN (:ids)",
+			IndicatorsListValue.class, indicatorListIds)) {
+			final Integer listId = indicatorsListValue.getId().getIdList();
+			List<ListableValue> list = indicators.get(listId);
+			if (list == null) {
+				list = new ArrayList<ListableValue>();
+				indicators.put(listId, list);
+			}
+			list.add(mapper.map(indicatorsListValue, new IndicatorsListValueDTO()));
+		}
+
+		final Map<Integer, ListableValue> budgetParts = new HashMap<Integer, ListableValue>();
+		for (final BudgetPartsListValue budgetPartsListValue : findByIds("SELECT bplv FROM BudgetPartsListValue bplv WHERE bplv.id IN (:ids)",
+			BudgetPartsListValue.class, budgetPartsListIds)) {
+			budgetParts.put(budgetPartsListValue.getId(), mapper.map(budgetPartsListValue, new BudgetPartsListValueDTO()));
+		}
+
+		final Map<Integer, ListableValue> files = new HashMap<Integer, ListableValue>();
+		for (final File file : findByIds("SELECT f FROM File f WHERE f.id IN (:ids)", File.class, fileIds)) {
+			final FileDTO fileDTO = mapper.map(file, new FileDTO());
+			if (fileStorageProvider != null && fileDTO.getVersions() != null) {
+				for (final FileVersionDTO version : fileDTO.getVersions()) {
+					version.setAvailable(fileStorageProvider.exists(version.getPath()));
+				}
+			}
+			files.put(file.getId(), fileDTO);
+		}
+
+		final Map<Integer, ListableValue> reports = new HashMap<Integer, ListableValue>();
+		for (final ProjectReport report : findByIds("SELECT r FROM ProjectReport r WHERE r.id IN (:ids)", ProjectReport.class, reportIds)) {
+			reports.put(report.getId(), mapper.map(report, new ReportReference()));
+		}
+
+		// --------------------------------------------------------------------
+		// STEP 4 : builds the results.
+		// --------------------------------------------------------------------
+
+		for (final Integer containerId : containerIds) {
+			final Map<Integer, String> containerValues = rawValues.get(containerId);
+			final Map<Integer, ValueResult> containerResults = new HashMap<Integer, ValueResult>();
+			results.put(containerId, containerResults);
+
+			for (final FlexibleElement element : elements) {
+				final ValueResult valueResult = new ValueResult();
+				valueResult.setAmendment(amendedElementIds.contains(element.getId()));
+				containerResults.put(element.getId(), valueResult);
+
+				final String value = containerValues != null ? containerValues.get(element.getId()) : null;
+				if (value == null || element instanceof MessageElement) {
+					continue;
+				}
+
+				if (element instanceof TripletsListElement) {
+					valueResult.setValuesObject(pick(triplets, ValueResultUtils.splitValuesAsInteger(value)));
+				} else if (element instanceof IndicatorsListElement) {
+					final List<ListableValue> list = new ArrayList<ListableValue>();
+					for (final Integer listId : ValueResultUtils.splitValuesAsInteger(value)) {
+						final List<ListableValue> listValues = indicators.get(listId);
+						if (listValues != null) {
+							list.addAll(listValues);
+						}
+					}
+					valueResult.setValuesObject(list);
+				} else if (element instanceof BudgetDistributionElement) {
+					valueResult.setValuesObject(pick(budgetParts, ValueResultUtils.splitValuesAsInteger(value)));
+				} else if (element instanceof FilesListElement) {
+					valueResult.setValuesObject(pick(files, ValueResultUtils.splitValuesAsInteger(value)));
+				} else if (element instanceof ReportListElement) {
+					valueResult.setValuesObject(pick(reports, ValueResultUtils.splitValuesAsInteger(value)));
+				} else {
+					// A single value is always interpreted as a string.
+					valueResult.setValueObject(value);
+				}
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Loads the raw string values stored in the {@code Value} table.
+	 * 
+	 * @param containerIds
+	 *          Ids of the containers.
+	 * @param elementIds
+	 *          Ids of the flexible elements.
+	 * @return A map: container id → element id → value. Blank values are ignored.
+	 */
+	public Map<Integer, Map<Integer, String>> loadRawValues(final Collection<Integer> containerIds, final Collection<Integer> elementIds) {
+
+		final Map<Integer, Map<Integer, String>> values = new HashMap<Integer, Map<Integer, String>>();
+
+		if (CollectionUtils.isEmpty(containerIds) || CollectionUtils.isEmpty(elementIds)) {
+			return values;
+		}
+
+		final List<Integer> elementIdList = new ArrayList<Integer>(new LinkedHashSet<Integer>(elementIds));
+
+		final TypedQuery<Object[]> query =
+				em.createQuery("SELECT v.containerId, v.element.id, v.value FROM Value v WHERE v.containerId IN (:containerIds) AND v.element.id IN (:elementIds)",
+					Object[].class);
+
+		for (final List<Integer> containerIdsPart : InClauses.partition(new LinkedHashSet<Integer>(containerIds))) {
+			query.setParameter("containerIds", containerIdsPart);
+
+			for (final Object[] row : InClauses.getResultList(query, "elementIds", elementIdList)) {
+				put(values, (Integer) row[0], (Integer) row[1], (String) row[2]);
+			}
+		}
+
+		return values;
+	}
+
+	/**
+	 * Initializes the choices collection of every given question element with a single query.
+	 * 
+	 * @param elements
+	 *          Flexible elements, only {@link QuestionElement} instances are considered.
+	 */
+	public void prefetchChoices(final Collection<? extends FlexibleElement> elements) {
+
+		final List<Integer> questionIds = new ArrayList<Integer>();
+		for (final FlexibleElement element : elements) {
+			if (element instanceof QuestionElement) {
+				questionIds.add(element.getId());
+			}
+		}
+
+		findByIds("SELECT DISTINCT q FROM QuestionElement q LEFT JOIN FETCH q.choices WHERE q.id IN (:ids)", QuestionElement.class, questionIds);
+	}
+
+	/**
+	 * Executes the given query for every part of the given ids.
+	 */
+	private <T> List<T> findByIds(final String jpql, final Class<T> clazz, final Collection<Integer> ids) {
+
+		if (ids.isEmpty()) {
+			return new ArrayList<T>();
+		}
+
+		return InClauses.getResultList(em.createQuery(jpql, clazz), "ids", ids);
+	}
+
+	private static List<ListableValue> pick(final Map<Integer, ListableValue> values, final List<Integer> ids) {
+		final List<ListableValue> list = new ArrayList<ListableValue>();
+		for (final Integer id : ids) {
+			final ListableValue value = values.get(id);
+			if (value != null) {
+				list.add(value);
+			}
+		}
+		return list;
+	}
+
+	private static void put(final Map<Integer, Map<Integer, String>> values, final Integer containerId, final Integer elementId, final String value) {
+		if (StringUtils.isBlank(value)) {
+			return;
+		}
+
+		Map<Integer, String> containerValues = values.get(containerId);
+		if (containerValues == null) {
+			containerValues = new HashMap<Integer, String>();
+			values.put(containerId, containerValues);
+		}
+		containerValues.put(elementId, value);
+	}
+
+}
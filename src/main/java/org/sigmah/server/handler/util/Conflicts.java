@@ -24,12 +24,16 @@ package org.sigmah.server.handler.util;
 
 import com.google.inject.Inject;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
 import org.sigmah.client.util.ClientUtils;
 import org.sigmah.server.dao.base.EntityManagerProvider;
+import org.sigmah.server.dao.util.InClauses;
 import org.sigmah.server.domain.Phase;
 import org.sigmah.server.domain.Project;
 import org.sigmah.server.domain.User;
@@ -85,6 +89,35 @@ public class Conflicts extends EntityManagerProvider {
 		return !query.getResultList().isEmpty();
 	}
 	
+	/**
+	 * Finds, among the given elements, the ones whose parent phase is closed, in a single query per
+	 * {@link InClauses#MAX_PARAMETERS} elements.
+	 * @param elementIds Identifiers of flexible elements.
+	 * @param projectId Identifier of the project.
+	 * @return Identifiers of the elements contained in a closed phase.
+	 * @see #isParentPhaseClosed(int, int)
+	 */
+	public Set<Integer> findElementsInClosedPhases(Collection<Integer> elementIds, int projectId) {
+		final HashSet<Integer> closed = new HashSet<>();
+		
+		if (elementIds == null || elementIds.isEmpty()) {
+			return closed;
+		}
+		
+		final TypedQuery<Integer> query = em().createQuery("SELECT lc.element.id FROM "
+			+ "Phase p "
+			+ "JOIN p.phaseModel.layout.groups as lg "
+			+ "JOIN lg.constraints as lc "
+			+ "WHERE p.endDate is not null "
+			+ "AND :projectId = p.parentProject.id "
+			+ "AND lc.element.id IN (:elementIds)", Integer.class);
+		
+		query.setParameter("projectId", projectId);
+		closed.addAll(InClauses.getResultList(query, "elementIds", new HashSet<>(elementIds)));
+		
+		return closed;
+	}
+	
 	// File conflicts
 	
 	/**
@@ -24,20 +24,21 @@ package org.sigmah.server.handler.util;
 
 
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 
 import org.apache.commons.lang3.BooleanUtils;
 import org.sigmah.server.dao.base.EntityManagerProvider;
+import org.sigmah.server.dao.util.InClauses;
 import org.sigmah.server.domain.OrgUnit;
-import org.sigmah.server.domain.Phase;
 import org.sigmah.server.domain.Project;
 import org.sigmah.server.domain.ProjectFunding;
 import org.sigmah.server.domain.ProjectModelVisibility;
@@ -47,7 +48,6 @@ import org.sigmah.server.domain.category.CategoryType;
 import org.sigmah.server.domain.element.BudgetElement;
 import org.sigmah.server.domain.element.BudgetSubField;
 import org.sigmah.server.domain.element.QuestionChoiceElement;
-import org.sigmah.server.domain.value.Value;
 import org.sigmah.server.mapper.Mapper;
 import org.sigmah.shared.dto.ProjectDTO;
 import org.sigmah.shared.dto.ProjectModelVisibilityDTO;
@@ -120,11 +120,114 @@ public class ProjectMapper extends EntityManagerProvider {
 	 * @param mapChildren
 	 *          If the children projects must be retrieved.
 	 * @return The light DTO.
+	 * @see #mapAll(Collection, boolean)
 	 */
 	public ProjectDTO map(final Project project, final boolean mapChildren) {
+		return mapAll(Collections.singletonList(project), mapChildren).get(0);
+	}
+
+	/**
+	 * <p>
+	 * Map the given projects into project light DTOs (see {@link #map(Project, boolean)} for the populated fields).
+	 * </p>
+	 * <p>
+	 * The org units, categories, budgets, children and favorite users of the whole set are retrieved with a few keyed
+	 * queries before the DTOs are built, so the number of queries does not depend on the number of projects.
+	 * </p>
+	 * 
+	 * @param projects
+	 *          The projects.
+	 * @param mapChildren
+	 *          If the children projects must be retrieved.
+	 * @return The light DTOs, in the iteration order of {@code projects}.
+	 */
+	public List<ProjectDTO> mapAll(final Collection<Project> projects, final boolean mapChildren) {
+
+		final List<ProjectDTO> projectDTOs = new ArrayList<ProjectDTO>(projects.size());
+
+		if (projects.isEmpty()) {
+			return projectDTOs;
+		}
+
+		final long start = System.currentTimeMillis();
+
+		// Every project to map, including the children.
+		final Map<Integer, Project> allProjects = new LinkedHashMap<Integer, Project>();
+		for (final Project project : projects) {
+			allProjects.put(project.getId(), project);
+		}
+
+		final Map<Integer, List<Project>> children;
+		if (mapChildren) {
+			children = findChildren(allProjects.keySet());
+			for (final List<Project> projectChildren : children.values()) {
+				for (final Project child : projectChildren) {
+					if (!allProjects.containsKey(child.getId())) {
+						allProjects.put(child.getId(), child);
+					}
+				}
+			}
+		} else {
+			children = Collections.emptyMap();
+		}
+
+		final List<Integer> ids = new ArrayList<Integer>(allProjects.keySet());
+
+		final Map<Integer, String> phaseNames = findCurrentPhaseNames(ids);
+		final Map<Integer, String> orgUnitNames = findOrgUnitNames(ids);
+		final Map<Integer, Set<CategoryElementDTO>> categories = findCategoryElements(ids);
+		final Map<Integer, Object[]> budgets = findBudgetValues(ids);
+		final Map<Integer, Set<UserDTO>> favoriteUsers = findFavoriteUsers(ids);
+
+		final PreloadedData data = new PreloadedData(phaseNames, orgUnitNames, categories, budgets, favoriteUsers);
+
+		for (final Project project : projects) {
+
+			final ProjectDTO projectDTO = map(project, data);
+
+			final ArrayList<ProjectDTO> childrenDTOs = new ArrayList<ProjectDTO>();
+			final List<Project> projectChildren = children.get(project.getId());
+			if (projectChildren != null) {
+				for (final Project child : projectChildren) {
+					// Children are mapped without their own children.
+					final ProjectDTO childDTO = map(child, data);
+					childDTO.setChildrenProjects(new ArrayList<ProjectDTO>());
+					childrenDTOs.add(childDTO);
+				}
+			}
+			projectDTO.setChildrenProjects(childrenDTOs);
+
+			projectDTOs.add(projectDTO);
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("{} project(s) mapped ({} with children) in {}ms.", projects.size(), allProjects.size(), System.currentTimeMillis() - start);
+		}
+
+		return projectDTOs;
+	}
 
-		final StringBuilder sb = new StringBuilder();
-		sb.append("Project mapping:\n");
+	/**
+	 * Fills the budget fields of the given DTO.
+	 * 
+	 * @param project
+	 *          The project.
+	 * @param projectDTO
+	 *          The DTO to fill.
+	 * @throws NumberFormatException
+	 *           If a budget value is not a number.
+	 */
+	public void fillBudget(final Project project, final ProjectDTO projectDTO) throws NumberFormatException {
+		final Object[] budget = findBudgetValues(Collections.singletonList(project.getId())).get(project.getId());
+		if (budget != null) {
+			fillBudget(projectDTO, (String) budget[0], (BudgetElement) budget[1]);
+		}
+	}
+
+	/**
+	 * Builds the DTO of a single project from the preloaded data.
+	 */
+	private ProjectDTO map(final Project project, final PreloadedData data) {
 
 		final ProjectDTO projectDTO = new ProjectDTO();
 
@@ -132,8 +235,6 @@ public class ProjectMapper extends EntityManagerProvider {
 		// -- SIMPLE FIELDS
 		// ---------------
 
-		long start = new Date().getTime();
-
 		projectDTO.setId(project.getId());
 		projectDTO.setName(project.getName());
 		projectDTO.setFullName(project.getFullName());
@@ -143,31 +244,16 @@ public class ProjectMapper extends EntityManagerProvider {
 		projectDTO.setActivityAdvancement(project.getActivityAdvancement());
 		projectDTO.setCountry(mapper.map(project.getCountry(), new CountryDTO()));
 
-		sb.append("- SIMPLE FIELDS: ");
-		sb.append(new Date().getTime() - start);
-		sb.append("ms.\n");
-
 		// ---------------
 		// -- CURRENT PHASE
 		// ---------------
 
-		start = new Date().getTime();
-
-		final Phase currentPhase = project.getCurrentPhase();
-		if (currentPhase != null) {
-			projectDTO.setCurrentPhaseName(currentPhase.getPhaseModel().getName());
-		}
-
-		sb.append("- CURRENT PHASE: ");
-		sb.append(new Date().getTime() - start);
-		sb.append("ms.\n");
+		projectDTO.setCurrentPhaseName(data.phaseNames.get(project.getId()));
 
 		// ---------------
 		// -- VISIBILITIES
 		// ---------------
 
-		start = new Date().getTime();
-
 		final ArrayList<ProjectModelVisibilityDTO> visibilities = new ArrayList<ProjectModelVisibilityDTO>();
 		for (final ProjectModelVisibility v : project.getProjectModel().getVisibilities()) {
 			final ProjectModelVisibilityDTO vDTO = new ProjectModelVisibilityDTO();
@@ -178,213 +264,299 @@ public class ProjectMapper extends EntityManagerProvider {
 		}
 		projectDTO.setVisibilities(visibilities);
 
-		sb.append("- VISIBILITIES: ");
-		sb.append(new Date().getTime() - start);
-		sb.append("ms.\n");
-
 		// ---------------
 		// -- ORG UNIT
 		// ---------------
 
-		start = new Date().getTime();
+		projectDTO.setOrgUnitName(data.orgUnitNames.get(project.getId()));
 
-		// Fill the org unit.
-		final TypedQuery<OrgUnit> orgUnitQuery = em().createQuery("SELECT o FROM OrgUnit o WHERE :project MEMBER OF o.databases", OrgUnit.class);
-		orgUnitQuery.setParameter("project", project);
-
-		for (final OrgUnit orgUnit : orgUnitQuery.getResultList()) {
-			projectDTO.setOrgUnitName(orgUnit.getName() + " - " + orgUnit.getFullName());
-			break;
-		}
+		// ---------------
+		// -- CATEGORIES
+		// ---------------
 
-		sb.append("- ORG UNIT: ");
-		sb.append(new Date().getTime() - start);
-		sb.append("ms.\n");
+		final Set<CategoryElementDTO> elements = data.categories.get(project.getId());
+		projectDTO.setCategoryElements(elements != null ? elements : new HashSet<CategoryElementDTO>());
 
 		// ---------------
-		// -- CATEGORIES
+		// -- BUDGET
 		// ---------------
 
-		start = new Date().getTime();
+		final Object[] budget = data.budgets.get(project.getId());
+		if (budget != null) {
+			fillBudget(projectDTO, (String) budget[0], (BudgetElement) budget[1]);
+		}
 
-		final TypedQuery<Value> categoriesQuery =
-				em().createQuery(
-					"SELECT v FROM Value v JOIN v.element e WHERE v.containerId = :projectId AND "
-						+ "e.id IN (SELECT q.id FROM QuestionElement q WHERE q.categoryType IS NOT NULL)", Value.class);
-		categoriesQuery.setParameter("projectId", project.getId());
+		// ------------------
+		// -- FAVORITE USERS
+		// ------------------
 
-		final HashSet<CategoryElementDTO> elements = new HashSet<CategoryElementDTO>();
+		final Set<UserDTO> favoriteUsers = data.favoriteUsers.get(project.getId());
+		projectDTO.setFavoriteUsers(favoriteUsers != null ? favoriteUsers : new HashSet<UserDTO>());
 
-		for (final Value value : categoriesQuery.getResultList()) {
+		return projectDTO;
+	}
 
-			List<Integer> values = ValueResultUtils.splitValuesAsInteger(value.getValue());
-			if (!values.isEmpty()) {
+	/**
+	 * Finds the children (funding projects then funded projects) of the given projects.
+	 */
+	private Map<Integer, List<Project>> findChildren(final Collection<Integer> ids) {
 
-				final TypedQuery<QuestionChoiceElement> choicesQuery =
-						em().createQuery("SELECT c FROM QuestionChoiceElement c WHERE c.id IN (:ids)", QuestionChoiceElement.class);
-				choicesQuery.setParameter("ids", ValueResultUtils.splitValuesAsInteger(value.getValue()));
+		final Map<Integer, List<Project>> children = new HashMap<Integer, List<Project>>();
 
-				for (final QuestionChoiceElement choice : choicesQuery.getResultList()) {
+		final TypedQuery<ProjectFunding> fundingQuery =
+				em().createQuery("SELECT f FROM ProjectFunding f JOIN FETCH f.funding WHERE f.funded.id IN (:ids) ORDER BY f.id", ProjectFunding.class);
+		final TypedQuery<ProjectFunding> fundedQuery =
+				em().createQuery("SELECT f FROM ProjectFunding f JOIN FETCH f.funded WHERE f.funding.id IN (:ids) ORDER BY f.id", ProjectFunding.class);
 
-					final CategoryType parent = choice.getCategoryElement().getParentType();
-					final CategoryTypeDTO parentDTO = new CategoryTypeDTO();
-					parentDTO.setId(parent.getId());
-					parentDTO.setLabel(parent.getLabel());
-					parentDTO.setIcon(parent.getIcon());
+		for (final ProjectFunding funding : InClauses.getResultList(fundingQuery, "ids", ids)) {
+			childrenOf(children, funding.getFunded().getId()).add(funding.getFunding());
+		}
 
-					final CategoryElement element = choice.getCategoryElement();
-					final CategoryElementDTO elementDTO = new CategoryElementDTO();
-					elementDTO.setId(element.getId());
-					elementDTO.setLabel(element.getLabel());
-					elementDTO.setColor(element.getColor());
-					elementDTO.setParentCategoryDTO(parentDTO);
+		for (final ProjectFunding funded : InClauses.getResultList(fundedQuery, "ids", ids)) {
+			childrenOf(children, funded.getFunding().getId()).add(funded.getFunded());
+		}
 
-					elements.add(elementDTO);
-				}
-			}
+		return children;
+	}
+
+	private static List<Project> childrenOf(final Map<Integer, List<Project>> children, final Integer projectId) {
+		List<Project> projectChildren = children.get(projectId);
+		if (projectChildren == null) {
+			projectChildren = new ArrayList<Project>();
+			children.put(projectId, projectChildren);
 		}
-		projectDTO.setCategoryElements(elements);
+		return projectChildren;
+	}
 
-		fillBudget(project, projectDTO);
+	/**
+	 * Finds the current phase name of each project.
+	 */
+	private Map<Integer, String> findCurrentPhaseNames(final List<Integer> ids) {
 
-		sb.append("- CATEGORIES: ");
-		sb.append(new Date().getTime() - start);
-		sb.append("ms.\n");
+		final Map<Integer, String> names = new HashMap<Integer, String>();
 
-		// ---------------
-		// -- CHILDREN
-		// ---------------
+		final TypedQuery<Object[]> query =
+				em().createQuery("SELECT p.id, pm.name FROM Project p JOIN p.currentPhase ph JOIN ph.phaseModel pm WHERE p.id IN (:ids)", Object[].class);
 
-		start = new Date().getTime();
+		for (final Object[] row : InClauses.getResultList(query, "ids", ids)) {
+			names.put((Integer) row[0], (String) row[1]);
+		}
 
-		final ArrayList<ProjectDTO> children = new ArrayList<ProjectDTO>();
+		return names;
+	}
 
-		// Maps the funding projects.
-		if (mapChildren && project.getFunding() != null) {
-			for (final ProjectFunding funding : project.getFunding()) {
+	/**
+	 * Finds the name of the org unit of each project.
+	 */
+	private Map<Integer, String> findOrgUnitNames(final List<Integer> ids) {
 
-				final Project pFunding = funding.getFunding();
+		final Map<Integer, String> names = new HashMap<Integer, String>();
 
-				if (pFunding != null) {
-					// Recursive call to retrieve the child (without its children).
-					children.add(map(pFunding, false));
-				}
+		final TypedQuery<Object[]> query = em().createQuery("SELECT d.id, o FROM OrgUnit o JOIN o.databases d WHERE d.id IN (:ids)", Object[].class);
+
+		for (final Object[] row : InClauses.getResultList(query, "ids", ids)) {
+			final Integer projectId = (Integer) row[0];
+			if (!names.containsKey(projectId)) {
+				final OrgUnit orgUnit = (OrgUnit) row[1];
+				names.put(projectId, orgUnit.getName() + " - " + orgUnit.getFullName());
 			}
 		}
 
-		// Maps the funded projects.
-		if (mapChildren && project.getFunded() != null) {
-			for (final ProjectFunding funded : project.getFunded()) {
+		return names;
+	}
 
-				final Project pFunded = funded.getFunded();
+	/**
+	 * Finds the category elements selected in the category questions of each project.
+	 */
+	private Map<Integer, Set<CategoryElementDTO>> findCategoryElements(final List<Integer> ids) {
 
-				if (pFunded != null) {
-					// Recursive call to retrieve the child (without its children).
-					children.add(map(pFunded, false));
+		// Selected choices ids of each project.
+		final Map<Integer, List<Integer>> choiceIds = new HashMap<Integer, List<Integer>>();
+		final Set<Integer> allChoiceIds = new HashSet<Integer>();
+
+		final TypedQuery<Object[]> valuesQuery =
+				em().createQuery(
+					"SELECT v.containerId, v.value FROM Value v JOIN v.element e WHERE v.containerId IN (:ids) AND "
+						+ "e.id IN (SELECT q.id FROM QuestionElement q WHERE q.categoryType IS NOT NULL)", Object[].class);
+
+		for (final Object[] row : InClauses.getResultList(valuesQuery, "ids", ids)) {
+			final List<Integer> values = ValueResultUtils.splitValuesAsInteger((String) row[1]);
+			if (!values.isEmpty()) {
+				List<Integer> projectChoiceIds = choiceIds.get((Integer) row[0]);
+				if (projectChoiceIds == null) {
+					projectChoiceIds = new ArrayList<Integer>();
+					choiceIds.put((Integer) row[0], projectChoiceIds);
 				}
+				projectChoiceIds.addAll(values);
+				allChoiceIds.addAll(values);
 			}
 		}
 
-		projectDTO.setChildrenProjects(children);
+		// Category element of each selected choice.
+		final Map<Integer, CategoryElementDTO> elementsByChoice = new HashMap<Integer, CategoryElementDTO>();
 
-		// ------------------
-		// -- FAVORITE USERS
-		// ------------------
+		final TypedQuery<QuestionChoiceElement> choicesQuery =
+				em().createQuery(
+					"SELECT c FROM QuestionChoiceElement c JOIN FETCH c.categoryElement ce JOIN FETCH ce.parentType WHERE c.id IN (:ids)",
+					QuestionChoiceElement.class);
+
+		for (final QuestionChoiceElement choice : InClauses.getResultList(choicesQuery, "ids", allChoiceIds)) {
 
-		if (project.getFavoriteUsers() != null) {
+			final CategoryType parent = choice.getCategoryElement().getParentType();
+			final CategoryTypeDTO parentDTO = new CategoryTypeDTO();
+			parentDTO.setId(parent.getId());
+			parentDTO.setLabel(parent.getLabel());
+			parentDTO.setIcon(parent.getIcon());
 
-			final Set<UserDTO> favoriteUsesSet = new HashSet<UserDTO>();
+			final CategoryElement element = choice.getCategoryElement();
+			final CategoryElementDTO elementDTO = new CategoryElementDTO();
+			elementDTO.setId(element.getId());
+			elementDTO.setLabel(element.getLabel());
+			elementDTO.setColor(element.getColor());
+			elementDTO.setParentCategoryDTO(parentDTO);
 
-			for (final User u : project.getFavoriteUsers()) {
-				// favoriteUsesSet.add(dozermapper.map(u, new UserDTO()));
-				UserDTO uDTO = new UserDTO();
-				uDTO.setId(u.getId());
-				uDTO.setChangePasswordKey(u.getChangePasswordKey());
-				uDTO.setDateChangePasswordKeyIssued(u.getDateChangePasswordKeyIssued());
-				uDTO.setEmail(u.getEmail());
-				uDTO.setFirstName(u.getFirstName());
-				uDTO.setLocale(u.getLocale());
-				uDTO.setActive(BooleanUtils.isNotFalse(u.getActive()));
+			elementsByChoice.put(choice.getId(), elementDTO);
+		}
+
+		final Map<Integer, Set<CategoryElementDTO>> categories = new HashMap<Integer, Set<CategoryElementDTO>>();
 
-				favoriteUsesSet.add(uDTO);
+		for (final Map.Entry<Integer, List<Integer>> entry : choiceIds.entrySet()) {
+			final HashSet<CategoryElementDTO> elements = new HashSet<CategoryElementDTO>();
+			for (final Integer choiceId : entry.getValue()) {
+				final CategoryElementDTO elementDTO = elementsByChoice.get(choiceId);
+				if (elementDTO != null) {
+					elements.add(elementDTO);
+				}
 			}
+			categories.put(entry.getKey(), elements);
+		}
 
-			projectDTO.setFavoriteUsers(favoriteUsesSet);
+		return categories;
+	}
 
-		} else {
-			projectDTO.setFavoriteUsers(null);
+	/**
+	 * Finds the budget value of each project, as an array containing the raw value and the {@link BudgetElement}.
+	 */
+	private Map<Integer, Object[]> findBudgetValues(final List<Integer> ids) {
+
+		final Map<Integer, Object[]> budgets = new HashMap<Integer, Object[]>();
+
+		final TypedQuery<Object[]> query =
+				em().createQuery(
+					"SELECT v.containerId, v.value, e FROM Value v JOIN v.element e WHERE v.containerId IN (:ids) AND "
+						+ "e.id IN (SELECT b.id FROM BudgetElement b)", Object[].class);
+
+		for (final Object[] row : InClauses.getResultList(query, "ids", ids)) {
+			final Integer projectId = (Integer) row[0];
+			if (!budgets.containsKey(projectId)) {
+				budgets.put(projectId, new Object[] { row[1], row[2] });
+			}
 		}
 
-		// ---END----
+		return budgets;
+	}
 
-		sb.append("- CHILDREN: ");
-		sb.append(new Date().getTime() - start);
-		sb.append("ms.\n");
+	/**
+	 * Finds the users who marked each project as favorite.
+	 */
+	private Map<Integer, Set<UserDTO>> findFavoriteUsers(final List<Integer> ids) {
 
-		if (LOG.isDebugEnabled()) {
-			LOG.debug(sb.toString());
+		final Map<Integer, Set<UserDTO>> favoriteUsers = new HashMap<Integer, Set<UserDTO>>();
+
+		final TypedQuery<Object[]> query = em().createQuery("SELECT p.id, u FROM Project p JOIN p.favoriteUsers u WHERE p.id IN (:ids)", Object[].class);
+
+		for (final Object[] row : InClauses.getResultList(query, "ids", ids)) {
+
+			final User u = (User) row[1];
+			final UserDTO uDTO = new UserDTO();
+			uDTO.setId(u.getId());
+			uDTO.setChangePasswordKey(u.getChangePasswordKey());
+			uDTO.setDateChangePasswordKeyIssued(u.getDateChangePasswordKeyIssued());
+			uDTO.setEmail(u.getEmail());
+			uDTO.setFirstName(u.getFirstName());
+			uDTO.setLocale(u.getLocale());
+			uDTO.setActive(BooleanUtils.isNotFalse(u.getActive()));
+
+			Set<UserDTO> users = favoriteUsers.get((Integer) row[0]);
+			if (users == null) {
+				users = new HashSet<UserDTO>();
+				favoriteUsers.put((Integer) row[0], users);
+			}
+			users.add(uDTO);
 		}
 
-		return projectDTO;
+		return favoriteUsers;
 	}
 
-	public void fillBudget(final Project project, final ProjectDTO projectDTO) throws NumberFormatException {
-		final Query budgetValueQuery = em().createQuery("SELECT v, e FROM Value v JOIN v.element e WHERE v.containerId = :projectId AND e.id IN (:ids)");
-		budgetValueQuery.setParameter("projectId", project.getId());
-		budgetValueQuery.setParameter("ids", em().createQuery("SELECT b.id FROM BudgetElement b").getResultList());
-		
-		final Iterator<?> i = budgetValueQuery.getResultList().iterator();
-		
-		if (i.hasNext()) {
-			Object[] result = (Object[]) i.next();
-			Value budgetValue = (Value) result[0];
-			BudgetElement budgetElement = (BudgetElement) result[1];
-			final Map<Integer, String> values = ValueResultUtils.splitMapElements(budgetValue.getValue());
-			
-			if (budgetElement.getRatioDividend() != null) {
-				if (budgetElement.getRatioDividend().getType() != null) {
-					projectDTO.setRatioDividendType(budgetElement.getRatioDividend().getType());
-				} else {
-					projectDTO.setRatioDividendLabel(budgetElement.getRatioDividend().getLabel());
-				}
-				if (values.get(budgetElement.getRatioDividend().getId().intValue()) != null) {
-					projectDTO.setRatioDividendValue(Double.parseDouble(values.get(budgetElement.getRatioDividend().getId().intValue())));
-				}
+	private static void fillBudget(final ProjectDTO projectDTO, final String value, final BudgetElement budgetElement) throws NumberFormatException {
+
+		final Map<Integer, String> values = ValueResultUtils.splitMapElements(value);
+
+		if (budgetElement.getRatioDividend() != null) {
+			if (budgetElement.getRatioDividend().getType() != null) {
+				projectDTO.setRatioDividendType(budgetElement.getRatioDividend().getType());
+			} else {
+				projectDTO.setRatioDividendLabel(budgetElement.getRatioDividend().getLabel());
 			}
-			
-			if (budgetElement.getRatioDivisor() != null) {
-				if (budgetElement.getRatioDivisor().getType() != null) {
-					projectDTO.setRatioDivisorType(budgetElement.getRatioDivisor().getType());
-				} else {
-					projectDTO.setRatioDivisorLabel(budgetElement.getRatioDivisor().getLabel());
-				}
-				if (values.get(budgetElement.getRatioDivisor().getId().intValue()) != null) {
-					projectDTO.setRatioDivisorValue(Double.parseDouble(values.get(budgetElement.getRatioDivisor().getId().intValue())));
-				}
+			if (values.get(budgetElement.getRatioDividend().getId().intValue()) != null) {
+				projectDTO.setRatioDividendValue(Double.parseDouble(values.get(budgetElement.getRatioDividend().getId().intValue())));
 			}
-			
-			for (BudgetSubField budgetSubField : budgetElement.getBudgetSubFields()) {
-				if (budgetSubField.getType() != null) {
-					if (values.get(budgetSubField.getId().intValue()) != null) {
-						switch (budgetSubField.getType()) {
-							case PLANNED:
-								projectDTO.setPlannedBudget(Double.parseDouble(values.get(budgetSubField.getId().intValue())));
-								break;
-							case RECEIVED:
-								projectDTO.setReceivedBudget(Double.parseDouble(values.get(budgetSubField.getId().intValue())));
-								break;
-							case SPENT:
-								projectDTO.setSpendBudget(Double.parseDouble(values.get(budgetSubField.getId().intValue())));
-								break;
-							default:
-								break;
-								
-						}
+		}
+
+		if (budgetElement.getRatioDivisor() != null) {
+			if (budgetElement.getRatioDivisor().getType() != null) {
+				projectDTO.setRatioDivisorType(budgetElement.getRatioDivisor().getType());
+			} else {
+				projectDTO.setRatioDivisorLabel(budgetElement.getRatioDivisor().getLabel());
+			}
+			if (values.get(budgetElement.getRatioDivisor().getId().intValue()) != null) {
+				projectDTO.setRatioDivisorValue(Double.parseDouble(values.get(budgetElement.getRatioDivisor().getId().intValue())));
+			}
+		}
+
+		for (BudgetSubField budgetSubField : budgetElement.getBudgetSubFields()) {
+			if (budgetSubField.getType() != null) {
+				if (values.get(budgetSubField.getId().intValue()) != null) {
+					switch (budgetSubField.getType()) {
+						case PLANNED:
+							projectDTO.setPlannedBudget(Double.parseDouble(values.get(budgetSubField.getId().intValue())));
+							break;
+						case RECEIVED:
+							projectDTO.setReceivedBudget(Double.parseDouble(values.get(budgetSubField.getId().intValue())));
+							break;
+						case SPENT:
+							projectDTO.setSpendBudget(Double.parseDouble(values.get(budgetSubField.getId().intValue())));
+							break;
+						default:
+							break;
+
 					}
-					
 				}
+
 			}
 		}
 	}
 
+	/**
+	 * Data of a set of projects, retrieved before the mapping.
+	 */
+	private static final class PreloadedData {
+
+		private final Map<Integer, String> phaseNames;
+		private final Map<Integer, String> orgUnitNames;
+		private final Map<Integer, Set<CategoryElementDTO>> categories;
+		private final Map<Integer, Object[]> budgets;
+		private final Map<Integer, Set<UserDTO>> favoriteUsers;
+
+		private PreloadedData(final Map<Integer, String> phaseNames, final Map<Integer, String> orgUnitNames,
+				final Map<Integer, Set<CategoryElementDTO>> categories, final Map<Integer, Object[]> budgets, final Map<Integer, Set<UserDTO>> favoriteUsers) {
+			this.phaseNames = phaseNames;
+			this.orgUnitNames = orgUnitNames;
+			this.categories = categories;
+			this.budgets = budgets;
+			this.favoriteUsers = favoriteUsers;
+		}
+
+	}
+
 }
@@ -65,6 +65,7 @@ import org.sigmah.server.handler.GetIndicatorsHandler;
 import org.sigmah.server.handler.GetLinkedProjectsHandler;
 import org.sigmah.server.handler.GetMainSiteHandler;
 import org.sigmah.server.handler.GetMonitoredPointsHandler;
+import org.sigmah.server.handler.GetOfflineSnapshotHandler;
 import org.sigmah.server.handler.GetMonthlyReportsHandler;
 import org.sigmah.server.handler.GetOrgUnitHandler;
 import org.sigmah.server.handler.GetOrgUnitModelCopyHandler;
@@ -103,6 +104,7 @@ import org.sigmah.server.handler.GetUsersByOrganizationHandler;
 import org.sigmah.server.handler.GetUsersHandler;
 import org.sigmah.server.handler.GetUsersWithProfilesHandler;
 import org.sigmah.server.handler.GetValueHandler;
+import org.sigmah.server.handler.GetValuesHandler;
 import org.sigmah.server.handler.LoginCommandHandler;
 import org.sigmah.server.handler.MoveOrgUnitHandler;
 import org.sigmah.server.handler.PasswordManagementCommandHandler;
@@ -169,6 +171,7 @@ import org.sigmah.shared.command.GetIndicators;
 import org.sigmah.shared.command.GetLinkedProjects;
 import org.sigmah.shared.command.GetMainSite;
 import org.sigmah.shared.command.GetMonitoredPoints;
+import org.sigmah.shared.command.GetOfflineSnapshot;
 import org.sigmah.shared.command.GetMonthlyReports;
 import org.sigmah.shared.command.GetOrgUnit;
 import org.sigmah.shared.command.GetOrgUnitModel;
@@ -207,6 +210,7 @@ import org.sigmah.shared.command.GetUsers;
 import org.sigmah.shared.command.GetUsersByOrganization;
 import org.sigmah.shared.command.GetUsersWithProfiles;
 import org.sigmah.shared.command.GetValue;
+import org.sigmah.shared.command.GetValues;
 import org.sigmah.shared.command.LoginCommand;
 import org.sigmah.shared.command.MoveOrgUnit;
 import org.sigmah.shared.command.PasswordManagementCommand;
@@ -292,6 +296,7 @@ public class CommandHandlerModule extends AbstractCommandHandlerModule {
 		bindHandler(GetLinkedProjects.class, GetLinkedProjectsHandler.class);
 		bindHandler(GetMainSite.class, GetMainSiteHandler.class);
 		bindHandler(GetMonitoredPoints.class, GetMonitoredPointsHandler.class);
+		bindHandler(GetOfflineSnapshot.class, GetOfflineSnapshotHandler.class);
 		bindHandler(GetMonthlyReports.class, GetMonthlyReportsHandler.class);
 		bindHandler(GetOrganization.class, GetOrganizationHandler.class);
 		bindHandler(GetOrgUnit.class, GetOrgUnitHandler.class);
@@ -330,6 +335,7 @@ public class CommandHandlerModule extends AbstractCommandHandlerModule {
 		bindHandler(GetUsers.class, GetUsersHandler.class);
 		bindHandler(GetUsersWithProfiles.class, GetUsersWithProfilesHandler.class);
 		bindHandler(GetValue.class, GetValueHandler.class);
+		bindHandler(GetValues.class, GetValuesHandler.class);
 		bindHandler(LoginCommand.class, LoginCommandHandler.class);
 		bindHandler(MoveOrgUnit.class, MoveOrgUnitHandler.class);
 		bindHandler(PasswordManagementCommand.class, PasswordManagementCommandHandler.class);
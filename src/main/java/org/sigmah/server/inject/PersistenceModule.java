@@ -34,6 +34,7 @@ import org.sigmah.server.dao.CountryDAO;
 import org.sigmah.server.dao.FileDAO;
 import org.sigmah.server.dao.GlobalExportDAO;
 import org.sigmah.server.dao.GlobalExportSettingsDAO;
+import org.sigmah.server.dao.HistoryTokenDAO;
 import org.sigmah.server.dao.IndicatorDAO;
 import org.sigmah.server.dao.LocationDAO;
 import org.sigmah.server.dao.LocationTypeDAO;
@@ -73,6 +74,7 @@ import org.sigmah.server.dao.impl.CountryHibernateDAO;
 import org.sigmah.server.dao.impl.FileHibernateDAO;
 import org.sigmah.server.dao.impl.GlobalExportHibernateDAO;
 import org.sigmah.server.dao.impl.GlobalExportSettingsHibernateDAO;
+import org.sigmah.server.dao.impl.HistoryTokenHibernateDAO;
 import org.sigmah.server.dao.impl.IndicatorHibernateDAO;
 import org.sigmah.server.dao.impl.LocationHibernateDAO;
 import org.sigmah.server.dao.impl.LocationTypeHibernateDAO;
@@ -157,6 +159,7 @@ public class PersistenceModule extends AbstractModule {
 		bind(FileDAO.class).to(FileHibernateDAO.class).in(Singleton.class);
 		bind(GlobalExportDAO.class).to(GlobalExportHibernateDAO.class).in(Singleton.class);
 		bind(GlobalExportSettingsDAO.class).to(GlobalExportSettingsHibernateDAO.class).in(Singleton.class);
+		bind(HistoryTokenDAO.class).to(HistoryTokenHibernateDAO.class).in(Singleton.class);
 		bind(IndicatorDAO.class).to(IndicatorHibernateDAO.class).in(Singleton.class);
 		bind(LocationDAO.class).to(LocationHibernateDAO.class).in(Singleton.class);
 		bind(LocationTypeDAO.class).to(LocationTypeHibernateDAO.class).in(Singleton.class);
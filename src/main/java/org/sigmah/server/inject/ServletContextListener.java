@@ -30,6 +30,9 @@ import java.util.concurrent.TimeUnit;
 import javax.servlet.ServletContextEvent;
 
 import org.sigmah.server.autoExport.GlobalExportJobActivator;
+import org.sigmah.server.dispatch.impl.ParallelCommandExecutor;
+import org.sigmah.server.file.BackupArchiveManager;
+import org.sigmah.server.servlet.exporter.job.ExportJobManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -116,6 +119,15 @@ public class ServletContextListener extends GuiceServletContextListener {
 		if(injector != null) {
 			final QuartzScheduler scheduler = injector.getInstance(QuartzScheduler.class);
 			scheduler.shutdown();
+
+			LOGGER.info("Stopping command workers...");
+			injector.getInstance(ParallelCommandExecutor.class).shutdown();
+
+			LOGGER.info("Stopping backup workers...");
+			injector.getInstance(BackupArchiveManager.class).shutdown();
+
+			LOGGER.info("Stopping export workers...");
+			injector.getInstance(ExportJobManager.class).shutdown();
 		}
 		
 		super.contextDestroyed(servletContextEvent);
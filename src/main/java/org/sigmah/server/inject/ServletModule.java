@@ -29,6 +29,7 @@ import org.sigmah.server.servlet.FileServlet;
 import org.sigmah.server.servlet.HealthCheckServlet;
 import org.sigmah.server.servlet.ImportServlet;
 import org.sigmah.server.servlet.ManifestServlet;
+import org.sigmah.server.servlet.MetricsServlet;
 import org.sigmah.server.servlet.SigmahHostController;
 import org.sigmah.server.servlet.filter.CacheFilter;
 import org.sigmah.shared.servlet.ServletConstants.Servlet;
@@ -77,5 +78,6 @@ public class ServletModule extends com.google.inject.servlet.ServletModule {
 		serve(ENDPOINT + Servlet.MANIFEST.getPathName()).with(ManifestServlet.class);
 		serve(ENDPOINT + Servlet.EXPORT.getPathName()).with(ExportServlet.class);
 		serve(ENDPOINT + Servlet.IMPORT.getPathName()).with(ImportServlet.class);
+		serve(ENDPOINT + Servlet.METRICS.getPathName()).with(MetricsServlet.class);
 	}
 }
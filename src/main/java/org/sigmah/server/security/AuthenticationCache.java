@@ -0,0 +1,192 @@
+package org.sigmah.server.security;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.sigmah.server.domain.User;
+import org.sigmah.server.domain.profile.OrgUnitProfile;
+
+import com.google.inject.Singleton;
+
+/**
+ * Bounded cache associating authentication tokens to the state of their user needed by the session validation.
+ * <p>
+ * Entries expire {@link #TIME_TO_LIVE} milliseconds after being loaded from the database, so a token removed from
+ * the database is refused at most after this delay. Entries of a user must be evicted as soon as its credentials or
+ * its state change.
+ * </p>
+ */
+@Singleton
+public class AuthenticationCache {
+
+	/**
+	 * Maximum number of tokens kept in memory.
+	 */
+	static final int MAXIMUM_SIZE = 10000;
+
+	/**
+	 * Time to live of an entry (in milliseconds).
+	 */
+	static final long TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(5);
+
+	/**
+	 * Cached entries, from the least recently used to the most recently used.
+	 */
+	private final Map<String, CachedUser> entries = new LinkedHashMap<String, CachedUser>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, CachedUser> eldest) {
+			return size() > MAXIMUM_SIZE;
+		}
+	};
+
+	/**
+	 * Returns the cached state of the user authenticated by the given {@code token}.
+	 * 
+	 * @param token
+	 *          The authentication token.
+	 * @return The cached user, or {@code null} if the token is not cached or if its entry expired.
+	 */
+	public CachedUser get(final String token) {
+
+		final long now = currentTimeMillis();
+
+		synchronized (entries) {
+			final CachedUser entry = entries.get(token);
+
+			if (entry == null) {
+				return null;
+			}
+
+			if (now - entry.loadDate > TIME_TO_LIVE) {
+				entries.remove(token);
+				return null;
+			}
+
+			return entry;
+		}
+	}
+
+	/**
+	 * Caches the given {@code token} after it has been loaded from the database.
+	 * 
+	 * @param token
+	 *          The authentication token.
+	 * @param user
+	 *          The authenticated user.
+	 * @return The cached user.
+	 */
+	public CachedUser put(final String token, final User user) {
+
+		final CachedUser entry = new CachedUser(user, currentTimeMillis());
+
+		synchronized (entries) {
+			entries.put(token, entry);
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Evicts every token of the user with the given {@code userId}.
+	 * 
+	 * @param userId
+	 *          The user id.
+	 */
+	public void evictUser(final Integer userId) {
+		synchronized (entries) {
+			final Iterator<CachedUser> iterator = entries.values().iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().userId.equals(userId)) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of cached tokens.
+	 * 
+	 * @return The number of cached tokens, expired ones included.
+	 */
+	int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Returns the current time (in milliseconds), overridden by tests.
+	 * 
+	 * @return The current time.
+	 */
+	long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * State of an authenticated user, copied when its token is loaded from the database.
+	 */
+	public static final class CachedUser {
+
+		private final Integer userId;
+		private final Boolean active;
+		private final Integer organizationId;
+		private final Integer orgUnitProfileId;
+		private final long loadDate;
+
+		CachedUser(final User user, final long loadDate) {
+			this.userId = user.getId();
+			this.active = user.getActive();
+			this.organizationId = user.getOrganization() != null ? user.getOrganization().getId() : null;
+
+			final OrgUnitProfile orgUnitProfile = user.getOrgUnitWithProfiles();
+			this.orgUnitProfileId = orgUnitProfile != null ? orgUnitProfile.getId() : null;
+
+			this.loadDate = loadDate;
+		}
+
+		public Integer getUserId() {
+			return userId;
+		}
+
+		public Boolean getActive() {
+			return active;
+		}
+
+		public Integer getOrganizationId() {
+			return organizationId;
+		}
+
+		public Integer getOrgUnitProfileId() {
+			return orgUnitProfileId;
+		}
+	}
+
+}
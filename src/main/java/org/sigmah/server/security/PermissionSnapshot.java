@@ -0,0 +1,151 @@
+package org.sigmah.server.security;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.sigmah.server.domain.User;
+import org.sigmah.server.domain.profile.GlobalPermission;
+import org.sigmah.server.domain.profile.PrivacyGroupPermission;
+import org.sigmah.server.domain.profile.Profile;
+import org.sigmah.shared.dto.referential.GlobalPermissionEnum;
+import org.sigmah.shared.dto.referential.PrivacyGroupPermissionEnum;
+
+/**
+ * Immutable snapshot of the permissions aggregated from every profile of a user.
+ * <p>
+ * Privacy groups are identified by their id and stored in sorted arrays to avoid mapping them.
+ * </p>
+ * 
+ * @see org.sigmah.server.handler.util.Handlers#aggregateProfiles(User, org.sigmah.server.mapper.Mapper)
+ */
+public final class PermissionSnapshot {
+
+	/**
+	 * Snapshot of a user without any profile.
+	 */
+	public static final PermissionSnapshot EMPTY = new PermissionSnapshot(EnumSet.noneOf(GlobalPermissionEnum.class), new int[0],
+		new PrivacyGroupPermissionEnum[0]);
+
+	private final Set<GlobalPermissionEnum> globalPermissions;
+
+	private final int[] privacyGroupIds;
+
+	private final PrivacyGroupPermissionEnum[] privacyGroupPermissions;
+
+	private PermissionSnapshot(final EnumSet<GlobalPermissionEnum> globalPermissions, final int[] privacyGroupIds,
+			final PrivacyGroupPermissionEnum[] privacyGroupPermissions) {
+		this.globalPermissions = Collections.unmodifiableSet(globalPermissions);
+		this.privacyGroupIds = privacyGroupIds;
+		this.privacyGroupPermissions = privacyGroupPermissions;
+	}
+
+	/**
+	 * Aggregates the profiles of the given {@code user}.<br>
+	 * A {@link PrivacyGroupPermissionEnum#WRITE} permission always wins over any other permission given by another
+	 * profile for the same privacy group.
+	 * 
+	 * @param user
+	 *          The user, may be {@code null}.
+	 * @return The permission snapshot of the given {@code user}.
+	 */
+	public static PermissionSnapshot of(final User user) {
+
+		if (user == null || user.getOrgUnitWithProfiles() == null || user.getOrgUnitWithProfiles().getProfiles() == null) {
+			return EMPTY;
+		}
+
+		final EnumSet<GlobalPermissionEnum> globalPermissions = EnumSet.noneOf(GlobalPermissionEnum.class);
+		final Map<Integer, PrivacyGroupPermissionEnum> privacyGroups = new TreeMap<>();
+
+		for (final Profile profile : user.getOrgUnitWithProfiles().getProfiles()) {
+
+			if (profile.getGlobalPermissions() != null) {
+				for (final GlobalPermission permission : profile.getGlobalPermissions()) {
+					if (permission.getPermission() != null) {
+						globalPermissions.add(permission.getPermission());
+					}
+				}
+			}
+
+			if (profile.getPrivacyGroupPermissions() != null) {
+				for (final PrivacyGroupPermission permission : profile.getPrivacyGroupPermissions()) {
+					final Integer groupId = permission.getPrivacyGroup().getId();
+					if (privacyGroups.get(groupId) != PrivacyGroupPermissionEnum.WRITE) {
+						privacyGroups.put(groupId, permission.getPermission());
+					}
+				}
+			}
+		}
+
+		final int[] privacyGroupIds = new int[privacyGroups.size()];
+		final PrivacyGroupPermissionEnum[] privacyGroupPermissions = new PrivacyGroupPermissionEnum[privacyGroups.size()];
+
+		int index = 0;
+		for (final Map.Entry<Integer, PrivacyGroupPermissionEnum> entry : privacyGroups.entrySet()) {
+			privacyGroupIds[index] = entry.getKey();
+			privacyGroupPermissions[index] = entry.getValue();
+			index++;
+		}
+
+		return new PermissionSnapshot(globalPermissions, privacyGroupIds, privacyGroupPermissions);
+	}
+
+	/**
+	 * Returns the aggregated global permissions.
+	 * 
+	 * @return The aggregated global permissions (unmodifiable).
+	 */
+	public Set<GlobalPermissionEnum> getGlobalPermissions() {
+		return globalPermissions;
+	}
+
+	/**
+	 * Returns {@code true} if every given {@code permissions} is granted.
+	 * 
+	 * @param permissions
+	 *          The required permissions.
+	 * @return {@code true} if every given {@code permissions} is granted, {@code false} otherwise.
+	 */
+	public boolean hasAll(final Set<GlobalPermissionEnum> permissions) {
+		return globalPermissions.containsAll(permissions);
+	}
+
+	/**
+	 * Returns the permission on the privacy group with the given {@code privacyGroupId}.
+	 * 
+	 * @param privacyGroupId
+	 *          The privacy group id.
+	 * @return The permission, or {@code null} if the privacy group is not accessible.
+	 */
+	public PrivacyGroupPermissionEnum getPrivacyGroupPermission(final int privacyGroupId) {
+		final int index = Arrays.binarySearch(privacyGroupIds, privacyGroupId);
+		return index >= 0 ? privacyGroupPermissions[index] : null;
+	}
+
+}
@@ -0,0 +1,253 @@
+package org.sigmah.server.security;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Synchronization;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.sigmah.server.domain.User;
+import org.sigmah.server.domain.profile.OrgUnitProfile;
+
+import com.google.inject.Singleton;
+
+/**
+ * Bounded LRU cache of the {@link PermissionSnapshot} of each user.
+ * <p>
+ * Snapshots are identified by the user and its org unit profile set. They must be invalidated each time the profiles
+ * of a user or the permissions of a profile are modified.
+ * </p>
+ * <p>
+ * A snapshot computed while the modifying transaction is still running reads the old permissions. The
+ * {@link EntityManager} variants of the invalidation methods therefore invalidate again once the current transaction
+ * completes.
+ * </p>
+ */
+@Singleton
+public class PermissionSnapshotCache {
+
+	/**
+	 * Maximum number of snapshots kept in memory.
+	 */
+	private static final int MAXIMUM_SIZE = 2048;
+
+	/**
+	 * Cached snapshots, from the least recently used to the most recently used.
+	 */
+	private final Map<Key, PermissionSnapshot> snapshots = new LinkedHashMap<Key, PermissionSnapshot>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Key, PermissionSnapshot> eldest) {
+			return size() > MAXIMUM_SIZE;
+		}
+	};
+
+	/**
+	 * Incremented by each invalidation (guarded by {@link #snapshots}).
+	 */
+	private long generation;
+
+	/**
+	 * Returns the permission snapshot of the given {@code user}.<br>
+	 * The profiles of the user are read only if no snapshot is cached.
+	 * 
+	 * @param user
+	 *          The user, may be {@code null}.
+	 * @return The permission snapshot of the given {@code user}.
+	 */
+	public PermissionSnapshot get(final User user) {
+
+		if (user == null || user.getId() == null) {
+			return PermissionSnapshot.of(user);
+		}
+
+		final OrgUnitProfile orgUnitProfile = user.getOrgUnitWithProfiles();
+		return get(user, orgUnitProfile != null ? orgUnitProfile.getId() : null);
+	}
+
+	/**
+	 * Returns the permission snapshot of the given {@code user} having the given org unit profile.<br>
+	 * The {@code user} is only read if no snapshot is cached, so it may be a lazy reference.
+	 * 
+	 * @param user
+	 *          The user, must have an id.
+	 * @param orgUnitProfileId
+	 *          The id of the org unit profile of the user, may be {@code null}.
+	 * @return The permission snapshot of the given {@code user}.
+	 */
+	public PermissionSnapshot get(final User user, final Integer orgUnitProfileId) {
+
+		final Key key = new Key(user.getId(), orgUnitProfileId);
+
+		final long initialGeneration;
+		synchronized (snapshots) {
+			final PermissionSnapshot snapshot = snapshots.get(key);
+			if (snapshot != null) {
+				return snapshot;
+			}
+			initialGeneration = generation;
+		}
+
+		final PermissionSnapshot snapshot = PermissionSnapshot.of(user);
+
+		synchronized (snapshots) {
+			// Does not cache a snapshot computed while an invalidation happened.
+			if (initialGeneration == generation) {
+				snapshots.put(key, snapshot);
+			}
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * Removes the snapshots of the user with the given {@code userId}.
+	 * 
+	 * @param userId
+	 *          The user id.
+	 */
+	public void invalidateUser(final Integer userId) {
+		synchronized (snapshots) {
+			generation++;
+			final Iterator<Key> iterator = snapshots.keySet().iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().userId.equals(userId)) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the snapshots of the user with the given {@code userId}, now and when the current transaction of the given
+	 * entity manager completes.
+	 * 
+	 * @param em
+	 *          The entity manager modifying the permissions.
+	 * @param userId
+	 *          The user id.
+	 */
+	public void invalidateUser(final EntityManager em, final Integer userId) {
+		invalidateUser(userId);
+		afterTransaction(em, new Runnable() {
+
+			@Override
+			public void run() {
+				invalidateUser(userId);
+			}
+		});
+	}
+
+	/**
+	 * Removes every snapshot.<br>
+	 * To use when a profile is modified, since it may be shared by any number of users.
+	 */
+	public void invalidateAll() {
+		synchronized (snapshots) {
+			generation++;
+			snapshots.clear();
+		}
+	}
+
+	/**
+	 * Removes every snapshot, now and when the current transaction of the given entity manager completes.
+	 * 
+	 * @param em
+	 *          The entity manager modifying the permissions.
+	 * @see #invalidateAll()
+	 */
+	public void invalidateAll(final EntityManager em) {
+		invalidateAll();
+		afterTransaction(em, new Runnable() {
+
+			@Override
+			public void run() {
+				invalidateAll();
+			}
+		});
+	}
+
+	/**
+	 * Runs the given invalidation when the current transaction of the given entity manager completes, whether it is
+	 * committed or rolled back. Does nothing if no transaction is active.
+	 */
+	private static void afterTransaction(final EntityManager em, final Runnable invalidation) {
+
+		final Transaction transaction = em.unwrap(Session.class).getTransaction();
+		if (!transaction.isActive()) {
+			return;
+		}
+
+		transaction.registerSynchronization(new Synchronization() {
+
+			@Override
+			public void beforeCompletion() {
+				// Nothing to do.
+			}
+
+			@Override
+			public void afterCompletion(final int status) {
+				invalidation.run();
+			}
+		});
+	}
+
+	/**
+	 * Key of a snapshot: user id and org unit profile id.
+	 */
+	private static final class Key {
+
+		private final Integer userId;
+		private final Integer orgUnitProfileId;
+
+		Key(final Integer userId, final Integer orgUnitProfileId) {
+			this.userId = userId;
+			this.orgUnitProfileId = orgUnitProfileId;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * userId.hashCode() + (orgUnitProfileId != null ? orgUnitProfileId.hashCode() : 0);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return userId.equals(other.userId) && (orgUnitProfileId != null ? orgUnitProfileId.equals(other.orgUnitProfileId) : other.orgUnitProfileId == null);
+		}
+	}
+
+}
@@ -23,17 +23,16 @@ package org.sigmah.server.security.impl;
  */
 
 
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.sigmah.client.page.Page;
 import org.sigmah.server.domain.User;
-import org.sigmah.server.handler.util.Handlers;
-import org.sigmah.server.mapper.Mapper;
+import org.sigmah.server.security.PermissionSnapshotCache;
 import org.sigmah.server.servlet.base.ServletExecutionContext;
 import org.sigmah.shared.command.AddOrgUnit;
 import org.sigmah.shared.command.AddPartner;
@@ -70,6 +69,7 @@ import org.sigmah.shared.command.GetGlobalExports;
 import org.sigmah.shared.command.GetHistory;
 import org.sigmah.shared.command.GetLinkedProjects;
 import org.sigmah.shared.command.GetMonitoredPoints;
+import org.sigmah.shared.command.GetOfflineSnapshot;
 import org.sigmah.shared.command.GetOrgUnit;
 import org.sigmah.shared.command.GetOrgUnitModel;
 import org.sigmah.shared.command.GetOrganization;
@@ -87,13 +87,13 @@ import org.sigmah.shared.command.GetUsers;
 import org.sigmah.shared.command.GetUsersByOrganization;
 import org.sigmah.shared.command.GetUsersWithProfiles;
 import org.sigmah.shared.command.GetValue;
+import org.sigmah.shared.command.GetValues;
 import org.sigmah.shared.command.SecureNavigationCommand;
 import org.sigmah.shared.command.Synchronize;
 import org.sigmah.shared.command.UpdateProject;
 import org.sigmah.shared.command.UpdateProjectFavorite;
 import org.sigmah.shared.command.UploadSlice;
 import org.sigmah.shared.command.base.Command;
-import org.sigmah.shared.dto.profile.ProfileDTO;
 import org.sigmah.shared.dto.referential.GlobalPermissionEnum;
 import org.sigmah.shared.servlet.ServletConstants.Servlet;
 import org.sigmah.shared.servlet.ServletConstants.ServletMethod;
@@ -217,6 +217,7 @@ final class AccessRights {
 		// TODO: Add the missing commands
 		sperm(commandToken(GetLinkedProjects.class), GrantType.AUTHENTICATED_ONLY, GlobalPermissionEnum.VIEW_PROJECT);
 		sperm(commandToken(GetMonitoredPoints.class), GrantType.AUTHENTICATED_ONLY);
+		sperm(commandToken(GetOfflineSnapshot.class), GrantType.AUTHENTICATED_ONLY);
 		sperm(commandToken(GetOrganization.class), GrantType.AUTHENTICATED_ONLY);
 		sperm(commandToken(GetOrgUnit.class), GrantType.AUTHENTICATED_ONLY);
 		sperm(commandToken(GetOrgUnitModel.class), GrantType.AUTHENTICATED_ONLY);
@@ -234,6 +235,7 @@ final class AccessRights {
 		sperm(commandToken(GetUsers.class), GrantType.AUTHENTICATED_ONLY);
 		sperm(commandToken(GetUsersWithProfiles.class), GrantType.AUTHENTICATED_ONLY);
 		sperm(commandToken(GetValue.class), GrantType.AUTHENTICATED_ONLY);
+		sperm(commandToken(GetValues.class), GrantType.AUTHENTICATED_ONLY);
 		sperm(commandToken(Synchronize.class), GrantType.AUTHENTICATED_ONLY);
 		sperm(commandToken(UpdateProject.class), GrantType.AUTHENTICATED_ONLY);
 		sperm(commandToken(UpdateProjectFavorite.class), GrantType.AUTHENTICATED_ONLY);
@@ -243,6 +245,10 @@ final class AccessRights {
 		sperm(servletToken(Servlet.FILE, ServletMethod.DOWNLOAD_LOGO), GrantType.AUTHENTICATED_ONLY);
 		sperm(servletToken(Servlet.FILE, ServletMethod.DOWNLOAD_FILE), GrantType.AUTHENTICATED_ONLY);
 		sperm(servletToken(Servlet.FILE, ServletMethod.DOWNLOAD_ARCHIVE), GrantType.AUTHENTICATED_ONLY);
+		sperm(servletToken(Servlet.EXPORT, ServletMethod.EXPORT_STATUS), GrantType.AUTHENTICATED_ONLY);
+		sperm(servletToken(Servlet.EXPORT, ServletMethod.DOWNLOAD_EXPORT), GrantType.AUTHENTICATED_ONLY);
+		sperm(servletToken(Servlet.METRICS, ServletMethod.DISPATCH_METRICS), GrantType.AUTHENTICATED_ONLY, GlobalPermissionEnum.VIEW_ADMIN);
+		sperm(servletToken(Servlet.METRICS, ServletMethod.DISPATCH_METRICS_PROMETHEUS), GrantType.AUTHENTICATED_ONLY, GlobalPermissionEnum.VIEW_ADMIN);
 	}
 
 	/**
@@ -256,16 +262,19 @@ final class AccessRights {
 	 * Grants or refuse {@code user} access to the given {@code token}.
 	 * 
 	 * @param user
-	 *          The user (authenticated or anonymous).
+	 *          The user (authenticated or anonymous), only read if its permission snapshot is not cached.
+	 * @param orgUnitProfileId
+	 *          The id of the org unit profile of the user, may be {@code null}.
 	 * @param token
 	 *          The resource token (page, command, servlet method, etc.).
 	 * @param originPageToken
 	 *          The origin page token <em>(TODO Not used yet)</em>.
-	 * @param mapper
-	 *          The mapper service.
+	 * @param permissionSnapshots
+	 *          The cache of the users permissions.
 	 * @return {@code true} if the user is granted, {@code false} otherwise.
 	 */
-	static boolean isGranted(final User user, final String token, final String originPageToken, final Mapper mapper) {
+	static boolean isGranted(final User user, final Integer orgUnitProfileId, final String token, final String originPageToken,
+			final PermissionSnapshotCache permissionSnapshots) {
 
 		if (grantedTokens.contains(token)) {
 			// Granted tokens ; avoids profile aggregation if user is authenticated.
@@ -276,7 +285,7 @@ final class AccessRights {
 			if (LOG.isWarnEnabled()) {
 				LOG.warn("No security permission can be found for token '{}'. Did you forget to declare corresponding 'sperm'?", token);
 			}
-			return isGranted(user, MISSING_TOKEN, originPageToken, mapper);
+			return isGranted(user, orgUnitProfileId, MISSING_TOKEN, originPageToken, permissionSnapshots);
 		}
 
 		final Pair<GrantType, Set<GlobalPermissionEnum>> grantData = permissions.get(token);
@@ -284,7 +293,8 @@ final class AccessRights {
 
 		final boolean granted;
 
-		if (user == null || ServletExecutionContext.ANONYMOUS_USER.equals(user)) {
+		// The anonymous user has no id (its email is not compared since the user of a cached session is a lazy reference).
+		if (user == null || user.getId() == null) {
 			// Anonymous user.
 			granted = grantType != null && grantType != GrantType.AUTHENTICATED_ONLY;
 
@@ -294,8 +304,7 @@ final class AccessRights {
 				granted = false;
 
 			} else {
-				final ProfileDTO aggregatedProfile = Handlers.aggregateProfiles(user, mapper);
-				granted = CollectionUtils.containsAll(aggregatedProfile.getGlobalPermissions(), grantData.right);
+				granted = permissionSnapshots.get(user, orgUnitProfileId).hasAll(grantData.right);
 			}
 		}
 
@@ -408,7 +417,7 @@ final class AccessRights {
 	 */
 	private static Set<GlobalPermissionEnum> toSet(final GlobalPermissionEnum... gpes) {
 
-		final Set<GlobalPermissionEnum> set = new HashSet<GlobalPermissionEnum>();
+		final Set<GlobalPermissionEnum> set = EnumSet.noneOf(GlobalPermissionEnum.class);
 
 		if (ArrayUtils.isEmpty(gpes)) {
 			return set;
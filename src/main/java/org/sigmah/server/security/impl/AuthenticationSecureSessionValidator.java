@@ -27,9 +27,12 @@ import org.apache.commons.lang3.StringUtils;
 import org.sigmah.client.page.Page;
 import org.sigmah.client.security.SecureDispatchAsync.CommandExecution;
 import org.sigmah.server.dao.AuthenticationDAO;
+import org.sigmah.server.dao.UserDAO;
 import org.sigmah.server.domain.Authentication;
 import org.sigmah.server.domain.User;
-import org.sigmah.server.mapper.Mapper;
+import org.sigmah.server.security.AuthenticationCache;
+import org.sigmah.server.security.AuthenticationCache.CachedUser;
+import org.sigmah.server.security.PermissionSnapshotCache;
 import org.sigmah.server.security.SecureSessionValidator;
 import org.sigmah.shared.command.base.Command;
 import org.sigmah.shared.command.result.Result;
@@ -65,20 +68,39 @@ public class AuthenticationSecureSessionValidator implements SecureSessionValida
 	private final AuthenticationDAO authenticationDAO;
 
 	/**
-	 * The injected {@code Mapper}.
+	 * The injected {@code UserDAO}.
 	 */
-	private final Mapper mapper;
+	private final UserDAO userDAO;
+
+	/**
+	 * The injected {@code AuthenticationCache}.
+	 */
+	private final AuthenticationCache authenticationCache;
+
+	/**
+	 * The injected {@code PermissionSnapshotCache}.
+	 */
+	private final PermissionSnapshotCache permissionSnapshots;
 
 	/**
 	 * AuthenticationSecureSessionValidator initialization.
 	 * 
 	 * @param authenticationDAO
 	 *          Injected DAO.
+	 * @param userDAO
+	 *          Injected DAO.
+	 * @param authenticationCache
+	 *          Injected cache of the authentication tokens.
+	 * @param permissionSnapshots
+	 *          Injected cache of the users permissions.
 	 */
 	@Inject
-	public AuthenticationSecureSessionValidator(final AuthenticationDAO authenticationDAO, final Mapper mapper) {
+	public AuthenticationSecureSessionValidator(final AuthenticationDAO authenticationDAO, final UserDAO userDAO, final AuthenticationCache authenticationCache,
+			final PermissionSnapshotCache permissionSnapshots) {
 		this.authenticationDAO = authenticationDAO;
-		this.mapper = mapper;
+		this.userDAO = userDAO;
+		this.authenticationCache = authenticationCache;
+		this.permissionSnapshots = permissionSnapshots;
 	}
 
 	/**
@@ -102,7 +124,8 @@ public class AuthenticationSecureSessionValidator implements SecureSessionValida
 	 */
 	@Override
 	public boolean isUserGranted(final User user, final Page page) {
-		return isUserGranted(user, AccessRights.pageToken(page), null);
+		final Integer orgUnitProfileId = user != null && user.getOrgUnitWithProfiles() != null ? user.getOrgUnitWithProfiles().getId() : null;
+		return isUserGranted(user, user != null ? user.getActive() : null, orgUnitProfileId, AccessRights.pageToken(page), null);
 	}
 
 	/**
@@ -130,7 +153,7 @@ public class AuthenticationSecureSessionValidator implements SecureSessionValida
 					LOG.trace("No authentication token (anonymous user): '{}'.", authenticationToken);
 				}
 
-				final boolean commandAuthorizedForAnonymous = isUserGranted(null, resourceToken, originPageToken);
+				final boolean commandAuthorizedForAnonymous = isUserGranted(null, null, null, resourceToken, originPageToken);
 
 				if (commandAuthorizedForAnonymous) {
 					if (LOG.isTraceEnabled()) {
@@ -147,26 +170,20 @@ public class AuthenticationSecureSessionValidator implements SecureSessionValida
 			}
 
 			// Retrieves the authentication token corresponding user.
-			final Authentication authentication = authenticationDAO.findById(authenticationToken);
+			final CachedUser cachedUser = findUser(authenticationToken);
 
 			// Invalid token ?
-			if (authentication == null) {
+			if (cachedUser == null) {
 				if (LOG.isTraceEnabled()) {
-					LOG.trace("ACCESS UNAUTHORIZED - Invalid session, no Authentication found in database for token '{}'.", authenticationToken);
+					LOG.trace("ACCESS UNAUTHORIZED - Invalid session, no User found for Authentication token '{}'.", authenticationToken);
 				}
 				return new Access(AccessType.INVALID_SESSION, null);
 			}
 
-			if (authentication.getUser() == null) {
-				if (LOG.isTraceEnabled()) {
-					LOG.trace("ACCESS UNAUTHORIZED - Invalid session, no User for Authentification token '{}'.", authenticationToken);
-				}
-				return new Access(AccessType.INVALID_SESSION, null);
-			}
-
-			final User user = authentication.getUser(); // Cannot be null at this point.
+			// Lazy reference: the user is only loaded by the processes reading it.
+			final User user = userDAO.getReference(cachedUser.getUserId());
 
-			final boolean processAuthorizedForUser = isUserGranted(user, resourceToken, originPageToken);
+			final boolean processAuthorizedForUser = isUserGranted(user, cachedUser.getActive(), cachedUser.getOrgUnitProfileId(), resourceToken, originPageToken);
 
 			if (processAuthorizedForUser) {
 				if (LOG.isTraceEnabled()) {
@@ -192,27 +209,56 @@ public class AuthenticationSecureSessionValidator implements SecureSessionValida
 		}
 	}
 
+	/**
+	 * Retrieves the state of the user authenticated by the given {@code authenticationToken}.<br>
+	 * The {@link Authentication} is read from the database only if the token is not in the {@link AuthenticationCache}.
+	 * 
+	 * @param authenticationToken
+	 *          The authentication token.
+	 * @return The authenticated user state, or {@code null} if the token is invalid.
+	 */
+	private CachedUser findUser(final String authenticationToken) {
+
+		final CachedUser cachedUser = authenticationCache.get(authenticationToken);
+
+		if (cachedUser != null) {
+			return cachedUser;
+		}
+
+		final Authentication authentication = authenticationDAO.findById(authenticationToken);
+
+		if (authentication == null || authentication.getUser() == null) {
+			return null;
+		}
+
+		return authenticationCache.put(authenticationToken, authentication.getUser());
+	}
+
 	/**
 	 * Returns the grant access to the given {@code resourceToken} for the {@code user}.
 	 * 
 	 * @param user
 	 *          The user.
+	 * @param active
+	 *          The active flag of the user.
+	 * @param orgUnitProfileId
+	 *          The id of the org unit profile of the user, may be {@code null}.
 	 * @param resourceToken
 	 *          The resource token to secure.
 	 * @param originPageToken
 	 *          The origin page token, may be {@code null}.
 	 * @return {@code true} if the {@code user} is granted to access {@code resourceToken}, {@code false} otherwise.
 	 */
-	private boolean isUserGranted(final User user, final String resourceToken, final String originPageToken) {
+	private boolean isUserGranted(final User user, final Boolean active, final Integer orgUnitProfileId, final String resourceToken, final String originPageToken) {
 
-		if (user != null && BooleanUtils.isFalse(user.getActive())) {
+		if (user != null && BooleanUtils.isFalse(active)) {
 			if (LOG.isWarnEnabled()) {
-				LOG.warn("User '{}' cannot access resource '{}' because it is no longer active.", user, resourceToken);
+				LOG.warn("User #{} cannot access resource '{}' because it is no longer active.", user.getId(), resourceToken);
 			}
 			return false;
 		}
 
-		return AccessRights.isGranted(user, resourceToken, originPageToken, mapper);
+		return AccessRights.isGranted(user, orgUnitProfileId, resourceToken, originPageToken, permissionSnapshots);
 	}
 
 }
@@ -25,21 +25,21 @@ package org.sigmah.server.service;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-import javax.persistence.NoResultException;
-import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 
 import org.sigmah.server.dao.AmendmentDAO;
+import org.sigmah.server.dao.HistoryTokenDAO;
 import org.sigmah.server.dao.ProjectDAO;
 import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
 import org.sigmah.server.domain.Amendment;
 import org.sigmah.server.domain.HistoryToken;
 import org.sigmah.server.domain.PhaseModel;
 import org.sigmah.server.domain.Project;
-import org.sigmah.server.domain.element.FlexibleElement;
-import org.sigmah.server.domain.layout.LayoutConstraint;
-import org.sigmah.server.domain.layout.LayoutGroup;
+import org.sigmah.server.domain.ProjectModel;
 import org.sigmah.server.domain.logframe.LogFrameCopyContext;
 import org.sigmah.server.service.base.AbstractEntityService;
 import org.sigmah.server.service.util.PropertyMap;
@@ -69,6 +69,9 @@ public class AmendmentService extends AbstractEntityService<Amendment, Integer,
 	@Inject
 	private AmendmentDAO amendmentDAO;
 
+	@Inject
+	private HistoryTokenDAO historyTokenDAO;
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -126,48 +129,16 @@ public class AmendmentService extends AbstractEntityService<Amendment, Integer,
 
 		// Running through every flexible element attached to the project [...] and saving the last history token in the
 		// values property.
+		// Since the transformation of amendments into project core versions, every value has to be saved.
 		// @see GetHistoryHandler
-		final List<HistoryToken> historyTokens = new ArrayList<HistoryToken>();
-		
-		// Looking for all groups
-		final List<LayoutGroup> groups = new ArrayList<LayoutGroup>();
-		for (final PhaseModel phaseModel : project.getProjectModel().getPhaseModels()) {
-			groups.addAll(phaseModel.getLayout().getGroups());
-		}
-		groups.addAll(project.getProjectModel().getProjectDetails().getLayout().getGroups());
-
-		// Iterating on groups
-		for (final LayoutGroup group : groups) {
-			for (final LayoutConstraint constraint : group.getConstraints()) {
-				final FlexibleElement element = constraint.getElement();
-				
-				// Since the transformation of amendments into project core
-				// versions, every value has to be saved.
-				
-				// The value of the current flexible element must be saved.
-				final Query maxDateQuery = em().createQuery("SELECT MAX(h.date) FROM HistoryToken h WHERE h.elementId = :elementId AND h.projectId = :projectId");
-				maxDateQuery.setParameter("projectId", project.getId());
-				maxDateQuery.setParameter("elementId", element.getId());
-
-				try {
-					final Date maxDate = (Date) maxDateQuery.getSingleResult();
-
-					final Query query =
-							em().createQuery("SELECT h FROM HistoryToken h WHERE h.elementId = :elementId AND h.projectId = :projectId AND h.date = :maxDate");
-					query.setParameter("projectId", project.getId());
-					query.setParameter("elementId", element.getId());
-					query.setParameter("maxDate", maxDate);
-
-					final HistoryToken token = (HistoryToken) query.getSingleResult();
-					token.setCoreVersion(amendment);
-					em().merge(token);
-					
-					historyTokens.add(token);
-
-				} catch (NoResultException e) {
-					// There is no history token for the given element. No action.
-				}
-			}
+		final List<HistoryToken> historyTokens =
+				new ArrayList<HistoryToken>(historyTokenDAO.findLatestTokens(project.getId(), findElementIds(project.getProjectModel())).values());
+
+		// Core versions values are read as is.
+		historyTokenDAO.expand(historyTokens);
+
+		for (final HistoryToken token : historyTokens) {
+			token.setCoreVersion(amendment);
 		}
 
 		amendment.setValues(historyTokens);
@@ -176,4 +147,28 @@ public class AmendmentService extends AbstractEntityService<Amendment, Integer,
 		return amendment;
 	}
 
+	/**
+	 * Finds the ids of the flexible elements placed in the phases and in the details of the given project model.
+	 * 
+	 * @param projectModel
+	 *          The project model.
+	 * @return The element ids.
+	 */
+	private Set<Integer> findElementIds(final ProjectModel projectModel) {
+
+		final Set<Integer> layoutIds = new HashSet<Integer>();
+		for (final PhaseModel phaseModel : projectModel.getPhaseModels()) {
+			if (phaseModel.getLayout() != null) {
+				layoutIds.add(phaseModel.getLayout().getId());
+			}
+		}
+		layoutIds.add(projectModel.getProjectDetails().getLayout().getId());
+
+		final TypedQuery<Integer> query =
+				em().createQuery("SELECT c.element.id FROM LayoutConstraint c WHERE c.parentLayoutGroup.parentLayout.id IN (:layoutIds)", Integer.class);
+		query.setParameter("layoutIds", layoutIds);
+
+		return new HashSet<Integer>(query.getResultList());
+	}
+
 }
@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.sigmah.client.util.AdminUtil;
+import org.sigmah.server.computation.ComputationCache;
 import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
 import org.sigmah.server.domain.OrgUnitBanner;
 import org.sigmah.server.domain.OrgUnitDetails;
@@ -64,6 +65,9 @@ public class OrgUnitModelService extends AbstractEntityService<OrgUnitModel, Int
 	@Inject
 	private Mapper mapper;
 
+	@Inject
+	private ComputationCache computationCache;
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -206,6 +210,7 @@ public class OrgUnitModelService extends AbstractEntityService<OrgUnitModel, Int
 
 		if (changes.get(AdminUtil.PROP_FX_FLEXIBLE_ELEMENT) != null) {
 			ModelUtil.persistFlexibleElement(em(), mapper, changes, model);
+			computationCache.invalidate(model);
 			return em().find(OrgUnitModel.class, model.getId());
 		}
 		
@@ -33,6 +33,7 @@ import org.sigmah.server.domain.profile.GlobalPermission;
 import org.sigmah.server.domain.profile.PrivacyGroup;
 import org.sigmah.server.domain.profile.PrivacyGroupPermission;
 import org.sigmah.server.domain.profile.Profile;
+import org.sigmah.server.security.PermissionSnapshotCache;
 import org.sigmah.server.service.base.AbstractEntityService;
 import org.sigmah.server.service.util.PropertyMap;
 import org.sigmah.shared.dispatch.CommandException;
@@ -152,6 +153,9 @@ public class ProfileService extends AbstractEntityService<Profile, Integer, Prof
 
 		injector.getInstance(UserPermissionPolicy.class).updateUserPermissionByProfile(createdProfile.getId());
 
+		// The profile may be shared by any number of users.
+		injector.getInstance(PermissionSnapshotCache.class).invalidateAll(em());
+
 		return super.handleMapping(createdProfile);
 	}
 
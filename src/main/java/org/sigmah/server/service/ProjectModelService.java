@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.sigmah.client.util.AdminUtil;
+import org.sigmah.server.computation.ComputationCache;
 import org.sigmah.server.dao.ProjectModelDAO;
 import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
 import org.sigmah.server.domain.PhaseModel;
@@ -86,6 +87,12 @@ public class ProjectModelService extends AbstractEntityService<ProjectModel, Int
 	@Inject
 	private ProjectModelDAO projectModelDAO;
 
+	/**
+	 * Injected {@link ComputationCache}.
+	 */
+	@Inject
+	private ComputationCache computationCache;
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -364,6 +371,7 @@ public class ProjectModelService extends AbstractEntityService<ProjectModel, Int
 
 			ModelUtil.persistFlexibleElement(em(), mapper, changes, model);
 			model = projectModelDAO.findById(model.getId());
+			computationCache.invalidate(model);
 
 		}
 
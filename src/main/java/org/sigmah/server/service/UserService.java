@@ -42,6 +42,7 @@ import org.sigmah.server.domain.profile.Profile;
 import org.sigmah.server.mail.MailService;
 import org.sigmah.server.mapper.Mapper;
 import org.sigmah.server.security.Authenticator;
+import org.sigmah.server.security.PermissionSnapshotCache;
 import org.sigmah.server.service.base.AbstractEntityService;
 import org.sigmah.server.service.util.PropertyMap;
 import org.sigmah.shared.Language;
@@ -228,6 +229,7 @@ public class UserService extends AbstractEntityService<User, Integer, UserDTO> {
 		if (userPersisted != null) {
 			// [UserPermission trigger] Updates UserPermission table after user creation/modification.
 			injector.getInstance(UserPermissionPolicy.class).updateUserPermissionByUser(userPersisted.getIdd());
+			injector.getInstance(PermissionSnapshotCache.class).invalidateUser(em(), userPersisted.getIdd());
 		}
 
 		return userPersisted;
@@ -22,34 +22,37 @@ package org.sigmah.server.servlet;
  * #L%
  */
 
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.persistence.EntityManager;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.sigmah.client.page.RequestParameter;
+import org.sigmah.client.util.ClientUtils;
 import org.sigmah.server.servlet.base.AbstractServlet;
 import org.sigmah.server.servlet.base.ServletExecutionContext;
-import org.sigmah.server.servlet.exporter.GlobalExportExporter;
-import org.sigmah.server.servlet.exporter.LogFrameExporter;
-import org.sigmah.server.servlet.exporter.OrgUnitSynthesisExporter;
-import org.sigmah.server.servlet.exporter.ProjectReportExporter;
-import org.sigmah.server.servlet.exporter.ProjectSynthesisExporter;
-import org.sigmah.server.servlet.exporter.base.Exporter;
+import org.sigmah.server.servlet.base.StatusServletException;
+import org.sigmah.server.servlet.exporter.job.ExportJob;
+import org.sigmah.server.servlet.exporter.job.ExportJobManager;
+import org.sigmah.server.servlet.exporter.job.ExportJobType;
 import org.sigmah.server.servlet.exporter.models.CategoryTypeHandler;
 import org.sigmah.server.servlet.exporter.models.ModelHandler;
 import org.sigmah.server.servlet.exporter.models.OrgUnitModelHandler;
 import org.sigmah.server.servlet.exporter.models.ProjectModelHandler;
 import org.sigmah.server.servlet.exporter.models.ProjectReportModelHandler;
+import org.sigmah.shared.servlet.ServletConstants;
 import org.sigmah.shared.servlet.ServletConstants.ServletMethod;
+import org.sigmah.shared.util.ExportUtils.ExportJobStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.gwt.http.client.Response;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Singleton;
-import org.sigmah.server.servlet.exporter.IndicatorEntryExporter;
 
 /**
  * File upload and download servlet.
@@ -75,9 +78,15 @@ public class ExportServlet extends AbstractServlet {
 	 */
 	private final Injector injector;
 
+	/**
+	 * Injected export jobs manager.
+	 */
+	private final ExportJobManager exportJobManager;
+
 	@Inject
-	public ExportServlet(Injector injector) {
+	public ExportServlet(Injector injector, ExportJobManager exportJobManager) {
 		this.injector = injector;
+		this.exportJobManager = exportJobManager;
 	}
 
 	/**
@@ -93,7 +102,7 @@ public class ExportServlet extends AbstractServlet {
 	 */
 	protected void exportGlobal(final HttpServletRequest request, final HttpServletResponse response, final ServletExecutionContext context) throws Exception {
 
-		executeExport(new GlobalExportExporter(injector, request, context), request, response);
+		executeExport(ExportJobType.GLOBAL, request, response, context);
 
 	}
 
@@ -111,7 +120,7 @@ public class ExportServlet extends AbstractServlet {
 	 */
 	protected void exportOrgUnit(final HttpServletRequest request, final HttpServletResponse response, final ServletExecutionContext context) throws Exception {
 
-		executeExport(new OrgUnitSynthesisExporter(injector, request, context), request, response);
+		executeExport(ExportJobType.ORG_UNIT, request, response, context);
 
 	}
 
@@ -129,7 +138,7 @@ public class ExportServlet extends AbstractServlet {
 	 */
 	protected void exportProject(final HttpServletRequest request, final HttpServletResponse response, final ServletExecutionContext context) throws Exception {
 
-		executeExport(new ProjectSynthesisExporter(injector, request, context), request, response);
+		executeExport(ExportJobType.PROJECT, request, response, context);
 
 	}
 
@@ -148,7 +157,7 @@ public class ExportServlet extends AbstractServlet {
 	protected void exportProjectLogFrame(final HttpServletRequest request, final HttpServletResponse response, final ServletExecutionContext context)
 			throws Exception {
 
-		executeExport(new LogFrameExporter(injector, request, context), request, response);
+		executeExport(ExportJobType.PROJECT_LOGFRAME, request, response, context);
 
 	}
 	
@@ -167,7 +176,7 @@ public class ExportServlet extends AbstractServlet {
 	protected void exportProjectIndicators(final HttpServletRequest request, final HttpServletResponse response, final ServletExecutionContext context)
 			throws Exception {
 
-		executeExport(new IndicatorEntryExporter(injector, request, context), request, response);
+		executeExport(ExportJobType.PROJECT_INDICATORS, request, response, context);
 
 	}
 	
@@ -185,39 +194,150 @@ public class ExportServlet extends AbstractServlet {
 	 */
 	protected void exportReport(final HttpServletRequest request, final HttpServletResponse response, final ServletExecutionContext context) throws Exception {
 
-		executeExport(new ProjectReportExporter(injector, request, context), request, response);
+		executeExport(ExportJobType.REPORT, request, response, context);
+
+	}
+
+	/**
+	 * See {@link ServletMethod#EXPORT_STATUS} for JavaDoc.
+	 * 
+	 * @param request
+	 *          The HTTP request containing the job id parameter.
+	 * @param response
+	 *          The HTTP response on which the job status is written.
+	 * @param context
+	 *          The execution context.
+	 * @throws Exception
+	 *           If the job does not exist.
+	 */
+	protected void exportStatus(final HttpServletRequest request, final HttpServletResponse response, final ServletExecutionContext context) throws Exception {
+
+		final ExportJob job = getJob(request, context);
+
+		response.setContentType("text/plain");
+		response.getWriter().write(job.getStatus().name());
+	}
+
+	/**
+	 * See {@link ServletMethod#DOWNLOAD_EXPORT} for JavaDoc.
+	 * 
+	 * @param request
+	 *          The HTTP request containing the job id parameter.
+	 * @param response
+	 *          The HTTP response on which the document is written.
+	 * @param context
+	 *          The execution context.
+	 * @throws Exception
+	 *           If the job does not exist or is not done.
+	 */
+	protected void downloadExport(final HttpServletRequest request, final HttpServletResponse response, final ServletExecutionContext context) throws Exception {
+
+		final ExportJob job = getJob(request, context);
+
+		if (job.getStatus() != ExportJobStatus.DONE) {
+			throw new StatusServletException(Response.SC_NOT_FOUND, "Export job #" + job.getId() + " is " + job.getStatus() + '.');
+		}
 
+		writeDocument(job, request, response);
 	}
 
 	/**
-	 * Executes the given {@code exporter} corresponding export.
+	 * Submits the export job of the given {@code type}.
+	 * <p>
+	 * An ajax request receives the job id, the client then polls {@link ServletMethod#EXPORT_STATUS} and downloads the
+	 * document with {@link ServletMethod#DOWNLOAD_EXPORT}. Other requests wait for the job and receive the document.
+	 * </p>
 	 * 
-	 * @param exporter
-	 *          The exporter implementation.
+	 * @param type
+	 *          The export type.
 	 * @param request
 	 *          The HTTP request.
 	 * @param response
 	 *          The HTTP response.
+	 * @param context
+	 *          The execution context.
 	 * @throws Exception
 	 *           If the export fails.
 	 */
-	private static void executeExport(final Exporter exporter, final HttpServletRequest request, final HttpServletResponse response) throws Exception {
+	private void executeExport(final ExportJobType type, final HttpServletRequest request, final HttpServletResponse response,
+			final ServletExecutionContext context) throws Exception {
+
+		final ExportJob job;
+		try {
+			job = exportJobManager.submit(type, request.getParameterMap(), context.getUser(), context.getLanguage());
+
+		} catch (final RejectedExecutionException e) {
+			throw new StatusServletException(Response.SC_SERVICE_UNAVAILABLE, e);
+		}
+
+		if (ClientUtils.isTrue(request.getParameter(ServletConstants.AJAX))) {
+			response.setContentType("text/plain");
+			response.getWriter().write(job.getId());
+			return;
+		}
+
+		if (job.await() == ExportJobStatus.FAILED) {
+			throw new Exception("Export job #" + job.getId() + " failed.", job.getFailure());
+		}
+
+		writeDocument(job, request, response);
+	}
+
+	/**
+	 * Returns the export job referenced by the request id parameter.
+	 * 
+	 * @param request
+	 *          The HTTP request.
+	 * @param context
+	 *          The execution context.
+	 * @return The export job.
+	 * @throws StatusServletException
+	 *           If the job does not exist or belongs to another user.
+	 */
+	private ExportJob getJob(final HttpServletRequest request, final ServletExecutionContext context) throws StatusServletException {
+
+		final String jobId = request.getParameter(RequestParameter.getRequestName(RequestParameter.ID));
+		final ExportJob job = jobId != null ? exportJobManager.getJob(jobId, context.getUser()) : null;
+
+		if (job == null) {
+			throw new StatusServletException(Response.SC_NOT_FOUND, "Unknown export job #" + jobId + '.');
+		}
+
+		return job;
+	}
+
+	/**
+	 * Writes the document generated by the given {@code job}.
+	 * 
+	 * @param job
+	 *          The done export job.
+	 * @param request
+	 *          The HTTP request.
+	 * @param response
+	 *          The HTTP response.
+	 * @throws Exception
+	 *           If the document cannot be read.
+	 */
+	private void writeDocument(final ExportJob job, final HttpServletRequest request, final HttpServletResponse response) throws Exception {
 
 		// Configures response headers.
-		if (request.getHeader("User-Agent").indexOf("MSIE") != -1) {
-			response.addHeader("Content-Disposition", "attachment; filename=" + exporter.getFileName());
+		final String userAgent = request.getHeader("User-Agent");
+		if (userAgent != null && userAgent.indexOf("MSIE") != -1) {
+			response.addHeader("Content-Disposition", "attachment; filename=" + job.getFileName());
 
 		} else {
-			response.addHeader("Content-Disposition", "attachment; filename=" + (exporter.getFileName()).replace(" ", "_"));
+			response.addHeader("Content-Disposition", "attachment; filename=" + (job.getFileName()).replace(" ", "_"));
 		}
 
-		response.setContentType(exporter.getContentType());
-
-		try (final OutputStream outputStream = response.getOutputStream()) {
+		response.setContentType(job.getContentType());
 
-			// Exports.
-			exporter.export(outputStream);
+		try (final InputStream inputStream = exportJobManager.open(job); final OutputStream outputStream = response.getOutputStream()) {
 
+			final byte[] buffer = new byte[8192];
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				outputStream.write(buffer, 0, read);
+			}
 		}
 	}
 
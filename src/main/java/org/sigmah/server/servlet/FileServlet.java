@@ -24,6 +24,8 @@ package org.sigmah.server.servlet;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
@@ -58,6 +60,7 @@ import org.sigmah.server.file.util.MultipartRequestCallback;
 import org.sigmah.server.servlet.base.AbstractServlet;
 import org.sigmah.server.servlet.base.ServletExecutionContext;
 import org.sigmah.server.servlet.base.StatusServletException;
+import org.sigmah.server.servlet.util.ByteRange;
 import org.sigmah.server.servlet.util.ResponseHelper;
 import org.sigmah.shared.dto.reminder.MonitoredPointDTO;
 import org.sigmah.shared.dto.value.FileUploadUtils;
@@ -205,7 +208,7 @@ public class FileServlet extends AbstractServlet {
 			final String name = version.getName() + '.' + version.getExtension();
 			final String path = version.getPath();
 
-			download(path, name, fileStorageProvider.open(path), response);
+			downloadRange(path, name, request, response);
 
 		} catch (final NoSuchFileException e) {
 			LOG.info("No file found for version id '" + fileVersionId + "'.", e);
@@ -283,6 +286,51 @@ public class FileServlet extends AbstractServlet {
 
 	}
 	
+	/**
+	 * Downloads the given stored file on given {@code response} stream, or only the byte range asked by the HTTP
+	 * {@code Range} header of the {@code request}.<br>
+	 * The file content is transferred from the storage channel, without being read through intermediate streams.
+	 * 
+	 * @param path
+	 *          The file storage id.
+	 * @param fileName
+	 *          Name sent in the response header.
+	 * @param request
+	 *          The HTTP request, possibly containing a {@code Range} header.
+	 * @param response
+	 *          The HTTP response on which the file content is written.
+	 * @throws IOException
+	 *           If the file cannot be read or the response cannot be written.
+	 */
+	private void downloadRange(final String path, final String fileName, final HttpServletRequest request, final HttpServletResponse response)
+			throws IOException {
+
+		final long size = fileStorageProvider.size(path);
+		final ByteRange range = ByteRange.parse(request.getHeader(ByteRange.RANGE_HEADER), size);
+
+		response.setHeader("Accept-Ranges", "bytes");
+
+		if (range != null && !range.isSatisfiable()) {
+			response.setHeader("Content-Range", range.toContentRange());
+			response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+			return;
+		}
+
+		final long start = range != null ? range.getStart() : 0L;
+		final long length = range != null ? range.getLength() : size;
+
+		ResponseHelper.setResponseForDownload(response, fileName, fileTypeFromFileId(path), length, null);
+
+		if (range != null) {
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			response.setHeader("Content-Range", range.toContentRange());
+		}
+
+		try (final WritableByteChannel channel = Channels.newChannel(response.getOutputStream())) {
+			fileStorageProvider.transferTo(path, start, length, channel);
+		}
+	}
+
 	private static void downloadBase64(final String id, final InputStream in, final HttpServletResponse response) throws IOException {
 		final FileType fileType = fileTypeFromFileId(id);
 		ResponseHelper.executeDownload(response, in, fileType != null ? fileType.getContentType() : null, null, null, ResponseHelper.ContentDisposition.BASE64);
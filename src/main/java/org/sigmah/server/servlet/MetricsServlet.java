@@ -0,0 +1,255 @@
+package org.sigmah.server.servlet;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.sigmah.server.dao.cache.LocalRegion;
+import org.sigmah.server.dao.cache.LocalRegionFactory;
+import org.sigmah.server.dispatch.impl.DispatchMetrics;
+import org.sigmah.server.dispatch.impl.DispatchMetrics.Snapshot;
+import org.sigmah.server.servlet.base.AbstractServlet;
+import org.sigmah.server.servlet.base.ServletExecutionContext;
+import org.sigmah.shared.servlet.ServletConstants.ServletMethod;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Administration servlet exposing the execution metrics of the dispatched commands and the statistics of the
+ * second-level cache regions.<br>
+ * Access is restricted to the users having the {@code VIEW_ADMIN} permission.
+ */
+@Singleton
+public class MetricsServlet extends AbstractServlet {
+
+	/**
+	 * Serial version UID.
+	 */
+	private static final long serialVersionUID = -2385015927368141470L;
+
+	/**
+	 * Prometheus metrics prefix.
+	 */
+	private static final String PROMETHEUS_PREFIX = "sigmah_dispatch_command_";
+
+	/**
+	 * Prometheus second-level cache metrics prefix.
+	 */
+	private static final String PROMETHEUS_CACHE_PREFIX = "sigmah_cache_";
+
+	/**
+	 * Injected dispatch metrics.
+	 */
+	private final DispatchMetrics metrics;
+
+	@Inject
+	public MetricsServlet(final DispatchMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * See {@link ServletMethod#DISPATCH_METRICS} for JavaDoc.
+	 * 
+	 * @param request
+	 *          The HTTP request.
+	 * @param response
+	 *          The HTTP response on which the metrics are written.
+	 * @param context
+	 *          The execution context.
+	 * @throws IOException
+	 *           If the response cannot be written.
+	 */
+	protected void dispatchMetrics(final HttpServletRequest request, final HttpServletResponse response, final ServletExecutionContext context)
+			throws IOException {
+
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+
+		final PrintWriter writer = response.getWriter();
+		final List<Snapshot> snapshots = metrics.getSnapshots();
+
+		writer.print("{\"buckets\":[");
+		for (int index = 0; index < DispatchMetrics.BUCKET_COUNT - 1; index++) {
+			if (index > 0) {
+				writer.print(',');
+			}
+			writer.print(DispatchMetrics.bucketUpperBound(index));
+		}
+		writer.print("],\"commands\":[");
+
+		for (int i = 0; i < snapshots.size(); i++) {
+			final Snapshot snapshot = snapshots.get(i);
+
+			if (i > 0) {
+				writer.print(',');
+			}
+
+			writer.print("{\"command\":\"");
+			writer.print(snapshot.getCommand());
+			writer.print("\",\"count\":");
+			writer.print(snapshot.getCount());
+			writer.print(",\"errors\":");
+			writer.print(snapshot.getErrors());
+			writer.print(",\"totalMs\":");
+			writer.print(TimeUnit.NANOSECONDS.toMillis(snapshot.getTotalNanos()));
+			writer.print(",\"maxMs\":");
+			writer.print(TimeUnit.NANOSECONDS.toMillis(snapshot.getMaxNanos()));
+			writer.print(",\"sqlStatements\":");
+			writer.print(snapshot.getSqlStatements());
+			writer.print(",\"histogram\":[");
+
+			for (int index = 0; index < DispatchMetrics.BUCKET_COUNT; index++) {
+				if (index > 0) {
+					writer.print(',');
+				}
+				writer.print(snapshot.getBucket(index));
+			}
+
+			writer.print("]}");
+		}
+
+		writer.print("],\"caches\":[");
+
+		final List<LocalRegion> regions = LocalRegionFactory.getRegions();
+		for (int i = 0; i < regions.size(); i++) {
+			final LocalRegion region = regions.get(i);
+
+			if (i > 0) {
+				writer.print(',');
+			}
+
+			writer.print("{\"region\":\"");
+			writer.print(region.getName());
+			writer.print("\",\"hits\":");
+			writer.print(region.getHitCount());
+			writer.print(",\"misses\":");
+			writer.print(region.getMissCount());
+			writer.print(",\"puts\":");
+			writer.print(region.getPutCount());
+			writer.print(",\"evictions\":");
+			writer.print(region.getEvictionCount());
+			writer.print(",\"size\":");
+			writer.print(region.getElementCountInMemory());
+			writer.print('}');
+		}
+
+		writer.print("]}");
+		writer.flush();
+	}
+
+	/**
+	 * See {@link ServletMethod#DISPATCH_METRICS_PROMETHEUS} for JavaDoc.
+	 * 
+	 * @param request
+	 *          The HTTP request.
+	 * @param response
+	 *          The HTTP response on which the metrics are written.
+	 * @param context
+	 *          The execution context.
+	 * @throws IOException
+	 *           If the response cannot be written.
+	 */
+	protected void dispatchMetricsPrometheus(final HttpServletRequest request, final HttpServletResponse response, final ServletExecutionContext context)
+			throws IOException {
+
+		response.setContentType("text/plain; version=0.0.4");
+		response.setCharacterEncoding("UTF-8");
+
+		final PrintWriter writer = response.getWriter();
+		final List<Snapshot> snapshots = metrics.getSnapshots();
+
+		writer.print("# HELP " + PROMETHEUS_PREFIX + "duration_seconds Execution duration of the dispatched commands.\n");
+		writer.print("# TYPE " + PROMETHEUS_PREFIX + "duration_seconds histogram\n");
+
+		for (final Snapshot snapshot : snapshots) {
+			final String label = "command=\"" + snapshot.getCommand() + '"';
+
+			long cumulativeCount = 0L;
+			for (int index = 0; index < DispatchMetrics.BUCKET_COUNT; index++) {
+				cumulativeCount += snapshot.getBucket(index);
+
+				final double upperBound = DispatchMetrics.bucketUpperBound(index);
+				final String le = Double.isInfinite(upperBound) ? "+Inf" : String.valueOf(upperBound);
+
+				writer.print(PROMETHEUS_PREFIX + "duration_seconds_bucket{" + label + ",le=\"" + le + "\"} " + cumulativeCount + '\n');
+			}
+
+			writer.print(PROMETHEUS_PREFIX + "duration_seconds_sum{" + label + "} " + snapshot.getTotalNanos() / 1e9 + '\n');
+			writer.print(PROMETHEUS_PREFIX + "duration_seconds_count{" + label + "} " + snapshot.getCount() + '\n');
+		}
+
+		writer.print("# HELP " + PROMETHEUS_PREFIX + "errors_total Failed executions of the dispatched commands.\n");
+		writer.print("# TYPE " + PROMETHEUS_PREFIX + "errors_total counter\n");
+
+		for (final Snapshot snapshot : snapshots) {
+			writer.print(PROMETHEUS_PREFIX + "errors_total{command=\"" + snapshot.getCommand() + "\"} " + snapshot.getErrors() + '\n');
+		}
+
+		writer.print("# HELP " + PROMETHEUS_PREFIX + "sql_statements_total SQL statements prepared by the dispatched commands.\n");
+		writer.print("# TYPE " + PROMETHEUS_PREFIX + "sql_statements_total counter\n");
+
+		for (final Snapshot snapshot : snapshots) {
+			writer.print(PROMETHEUS_PREFIX + "sql_statements_total{command=\"" + snapshot.getCommand() + "\"} " + snapshot.getSqlStatements() + '\n');
+		}
+
+		final List<LocalRegion> regions = LocalRegionFactory.getRegions();
+
+		writer.print("# HELP " + PROMETHEUS_CACHE_PREFIX + "hits_total Second-level cache hits.\n");
+		writer.print("# TYPE " + PROMETHEUS_CACHE_PREFIX + "hits_total counter\n");
+
+		for (final LocalRegion region : regions) {
+			writer.print(PROMETHEUS_CACHE_PREFIX + "hits_total{region=\"" + region.getName() + "\"} " + region.getHitCount() + '\n');
+		}
+
+		writer.print("# HELP " + PROMETHEUS_CACHE_PREFIX + "misses_total Second-level cache misses.\n");
+		writer.print("# TYPE " + PROMETHEUS_CACHE_PREFIX + "misses_total counter\n");
+
+		for (final LocalRegion region : regions) {
+			writer.print(PROMETHEUS_CACHE_PREFIX + "misses_total{region=\"" + region.getName() + "\"} " + region.getMissCount() + '\n');
+		}
+
+		writer.print("# HELP " + PROMETHEUS_CACHE_PREFIX + "evictions_total Second-level cache items evicted to respect the region size.\n");
+		writer.print("# TYPE " + PROMETHEUS_CACHE_PREFIX + "evictions_total counter\n");
+
+		for (final LocalRegion region : regions) {
+			writer.print(PROMETHEUS_CACHE_PREFIX + "evictions_total{region=\"" + region.getName() + "\"} " + region.getEvictionCount() + '\n');
+		}
+
+		writer.print("# HELP " + PROMETHEUS_CACHE_PREFIX + "items Items currently held by the second-level cache.\n");
+		writer.print("# TYPE " + PROMETHEUS_CACHE_PREFIX + "items gauge\n");
+
+		for (final LocalRegion region : regions) {
+			writer.print(PROMETHEUS_CACHE_PREFIX + "items{region=\"" + region.getName() + "\"} " + region.getElementCountInMemory() + '\n');
+		}
+
+		writer.flush();
+	}
+
+}
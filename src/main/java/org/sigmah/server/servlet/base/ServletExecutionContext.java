@@ -80,10 +80,39 @@ public class ServletExecutionContext {
 	 *          See {@link #originPageToken}.
 	 */
 	protected ServletExecutionContext(final User user, final HttpServletRequest request, final String originPageToken) {
+		this(user, request, originPageToken, Languages.getLanguage(request));
+	}
+
+	/**
+	 * Initializes a new servlet execution context with the given language.
+	 * 
+	 * @param user
+	 *          See {@link #user}.
+	 * @param request
+	 *          See {@link #request}.
+	 * @param originPageToken
+	 *          See {@link #originPageToken}.
+	 * @param language
+	 *          See {@link #language}.
+	 */
+	protected ServletExecutionContext(final User user, final HttpServletRequest request, final String originPageToken, final Language language) {
 		this.user = user;
 		this.request = request;
 		this.originPageToken = originPageToken;
-		this.language = Languages.getLanguage(request);
+		this.language = language;
+	}
+
+	/**
+	 * Initializes a new execution context which is not bound to an HTTP request, for the processes executed outside of
+	 * the request thread.
+	 * 
+	 * @param user
+	 *          See {@link #user}.
+	 * @param language
+	 *          See {@link #language}.
+	 */
+	public ServletExecutionContext(final User user, final Language language) {
+		this(user, null, null, language);
 	}
 
 	/**
@@ -25,12 +25,10 @@ package org.sigmah.server.servlet.exporter;
 import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
 import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.servlet.ServletException;
-import javax.servlet.http.HttpServletRequest;
 
 import org.sigmah.client.page.RequestParameter;
 import org.sigmah.server.dao.impl.GlobalExportSettingsHibernateDAO;
@@ -42,6 +40,7 @@ import org.sigmah.server.servlet.exporter.data.GlobalExportDataProvider;
 import org.sigmah.server.servlet.exporter.template.ExportTemplate;
 import org.sigmah.server.servlet.exporter.template.GlobalExportCalcTemplate;
 import org.sigmah.server.servlet.exporter.template.GlobalExportExcelTemplate;
+import org.sigmah.server.servlet.exporter.utils.ExcelUtils;
 import org.sigmah.shared.util.ExportUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,8 +59,8 @@ public class GlobalExportExporter extends Exporter {
 	 */
 	private static final Logger LOG = LoggerFactory.getLogger(GlobalExportExporter.class);
 
-	public GlobalExportExporter(final Injector injector, final HttpServletRequest req, ServletExecutionContext context) throws Exception {
-		super(injector, req, context);
+	public GlobalExportExporter(final Injector injector, final Map<String, String[]> parameters, ServletExecutionContext context) throws Exception {
+		super(injector, parameters, context);
 	}
 
 	@Override
@@ -77,8 +76,9 @@ public class GlobalExportExporter extends Exporter {
 
 			ExportTemplate template = null;
 			switch (exportFormat) {
-				case XLS: {
-					template = new GlobalExportExcelTemplate(data);
+				case XLS:
+				case XLSX: {
+					template = new GlobalExportExcelTemplate(data, ExcelUtils.createWorkbook(exportFormat));
 				}
 					break;
 				case ODS: {
@@ -117,7 +117,7 @@ public class GlobalExportExporter extends Exporter {
 
 	private GlobalExportData prepareData() throws Exception {
 
-		Map<String, List<String[]>> exportData = null;
+		GlobalExportData exportData = null;
 		final GlobalExportDataProvider dataProvider = injector.getInstance(GlobalExportDataProvider.class);
 		final EntityManager em = injector.getInstance(EntityManager.class);
 
@@ -129,13 +129,8 @@ public class GlobalExportExporter extends Exporter {
 
 		switch (version) {
 			case LIVE_DATA: {
-				try {
-
-					exportData = dataProvider.generateGlobalExportData(organizationId, em, getI18ntranslator(), getLanguage(), getContext());
-				} catch (Exception e) {
-					LOG.error("[export] Failed to generate global export data.", e);
-					throw new Exception("Failed to generate global export data.");
-				}
+				// rows are generated while the template is written
+				exportData = dataProvider.getGlobalExportData(organizationId, em, getI18ntranslator(), getLanguage(), getContext());
 			}
 				break;
 
@@ -146,7 +141,7 @@ public class GlobalExportExporter extends Exporter {
 				break;
 		}
 
-		return new GlobalExportData(exportData);
+		return exportData;
 
 	}
 
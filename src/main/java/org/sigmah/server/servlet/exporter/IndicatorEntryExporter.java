@@ -25,9 +25,9 @@ package org.sigmah.server.servlet.exporter;
 import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
 
 import javax.servlet.ServletException;
-import javax.servlet.http.HttpServletRequest;
 
 import org.sigmah.client.page.RequestParameter;
 import org.sigmah.server.servlet.base.ServletExecutionContext;
@@ -37,6 +37,7 @@ import org.sigmah.server.servlet.exporter.data.SpreadsheetDataUtil;
 import org.sigmah.server.servlet.exporter.template.ExportTemplate;
 import org.sigmah.server.servlet.exporter.template.IndicatorEntryCalcTemplate;
 import org.sigmah.server.servlet.exporter.template.IndicatorEntryExcelTemplate;
+import org.sigmah.server.servlet.exporter.utils.ExcelUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,8 +55,8 @@ public class IndicatorEntryExporter extends Exporter {
 	 */
 	private static final Logger LOG = LoggerFactory.getLogger(IndicatorEntryExporter.class);
 
-	public IndicatorEntryExporter(final Injector injector, final HttpServletRequest req, ServletExecutionContext context) throws Exception {
-		super(injector, req, context);
+	public IndicatorEntryExporter(final Injector injector, final Map<String, String[]> parameters, ServletExecutionContext context) throws Exception {
+		super(injector, parameters, context);
 	}
 
 	@Override
@@ -82,7 +83,8 @@ public class IndicatorEntryExporter extends Exporter {
 			ExportTemplate template = null;
 			switch (exportFormat) {
 				case XLS:
-					template = new IndicatorEntryExcelTemplate(data);
+				case XLSX:
+					template = new IndicatorEntryExcelTemplate(data, ExcelUtils.createWorkbook(exportFormat));
 					break;
 				case ODS:
 					template = new IndicatorEntryCalcTemplate(data, null);
@@ -25,10 +25,10 @@ package org.sigmah.server.servlet.exporter;
 import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.servlet.ServletException;
-import javax.servlet.http.HttpServletRequest;
 
 import org.sigmah.client.page.RequestParameter;
 import org.sigmah.server.domain.Project;
@@ -39,6 +39,7 @@ import org.sigmah.server.servlet.exporter.data.SpreadsheetDataUtil;
 import org.sigmah.server.servlet.exporter.template.ExportTemplate;
 import org.sigmah.server.servlet.exporter.template.LogFrameCalcTemplate;
 import org.sigmah.server.servlet.exporter.template.LogFrameExcelTemplate;
+import org.sigmah.server.servlet.exporter.utils.ExcelUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,8 +57,8 @@ public class LogFrameExporter extends Exporter {
 	 */
 	private static final Logger LOG = LoggerFactory.getLogger(LogFrameExporter.class);
 
-	public LogFrameExporter(final Injector injector, final HttpServletRequest req, ServletExecutionContext context) throws Exception {
-		super(injector, req, context);
+	public LogFrameExporter(final Injector injector, final Map<String, String[]> parameters, ServletExecutionContext context) throws Exception {
+		super(injector, parameters, context);
 	}
 
 	@Override
@@ -91,7 +92,8 @@ public class LogFrameExporter extends Exporter {
 			ExportTemplate template = null;
 			switch (exportFormat) {
 				case XLS:
-					template = new LogFrameExcelTemplate(data);
+				case XLSX:
+					template = new LogFrameExcelTemplate(data, ExcelUtils.createWorkbook(exportFormat));
 					break;
 				case ODS:
 					template = new LogFrameCalcTemplate(data, null);
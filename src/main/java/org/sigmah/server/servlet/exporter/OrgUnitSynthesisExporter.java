@@ -25,12 +25,11 @@ package org.sigmah.server.servlet.exporter;
 import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
 
 import javax.servlet.ServletException;
-import javax.servlet.http.HttpServletRequest;
 
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
-import org.odftoolkit.simple.SpreadsheetDocument;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.sigmah.client.page.RequestParameter;
 import org.sigmah.server.servlet.base.ServletExecutionContext;
 import org.sigmah.server.servlet.exporter.base.Exporter;
@@ -38,6 +37,8 @@ import org.sigmah.server.servlet.exporter.data.OrgUnitSynthesisData;
 import org.sigmah.server.servlet.exporter.template.ExportTemplate;
 import org.sigmah.server.servlet.exporter.template.OrgUnitSynthesisCalcTemplate;
 import org.sigmah.server.servlet.exporter.template.OrgUnitSynthesisExcelTemplate;
+import org.sigmah.server.servlet.exporter.utils.ExcelUtils;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,8 +51,8 @@ public class OrgUnitSynthesisExporter extends Exporter {
 	 */
 	private static final Logger LOG = LoggerFactory.getLogger(OrgUnitSynthesisExporter.class);
 
-	public OrgUnitSynthesisExporter(final Injector injector, final HttpServletRequest req, ServletExecutionContext context) throws Exception {
-		super(injector, req, context);
+	public OrgUnitSynthesisExporter(final Injector injector, final Map<String, String[]> parameters, ServletExecutionContext context) throws Exception {
+		super(injector, parameters, context);
 	}
 
 	@Override
@@ -80,14 +81,15 @@ public class OrgUnitSynthesisExporter extends Exporter {
 
 			switch (exportFormat) {
 
-				case XLS: {
-					final HSSFWorkbook wb = new HSSFWorkbook();
+				case XLS:
+				case XLSX: {
+					final Workbook wb = ExcelUtils.createWorkbook(exportFormat);
 					template = new OrgUnitSynthesisExcelTemplate(synthesisData, wb, getContext(), getI18ntranslator(), getLanguage());
 				}
 					break;
 
 				case ODS: {
-					final SpreadsheetDocument doc = SpreadsheetDocument.newSpreadsheetDocument();
+					final OdsWriter doc = new OdsWriter();
 					template = new OrgUnitSynthesisCalcTemplate(synthesisData, doc, getContext(), getI18ntranslator(), getLanguage());
 				}
 					break;
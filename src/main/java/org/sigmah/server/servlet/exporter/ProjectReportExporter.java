@@ -28,9 +28,9 @@ import java.io.StringReader;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
-import javax.servlet.http.HttpServletRequest;
 
 import org.sigmah.client.page.RequestParameter;
 import org.sigmah.server.domain.report.ProjectReport;
@@ -74,8 +74,8 @@ public class ProjectReportExporter extends Exporter {
 
 	private ProjectReport report;
 
-	public ProjectReportExporter(final Injector injector, final HttpServletRequest req, ServletExecutionContext context) throws Exception {
-		super(injector, req, context);
+	public ProjectReportExporter(final Injector injector, final Map<String, String[]> parameters, ServletExecutionContext context) throws Exception {
+		super(injector, parameters, context);
 	}
 
 	@Override
@@ -26,13 +26,12 @@ package org.sigmah.server.servlet.exporter;
 import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.servlet.ServletException;
-import javax.servlet.http.HttpServletRequest;
 
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
-import org.odftoolkit.simple.SpreadsheetDocument;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.sigmah.client.page.RequestParameter;
 import org.sigmah.server.domain.Project;
 import org.sigmah.server.servlet.base.ServletExecutionContext;
@@ -48,6 +47,8 @@ import org.sigmah.server.servlet.exporter.template.LogFrameCalcTemplate;
 import org.sigmah.server.servlet.exporter.template.LogFrameExcelTemplate;
 import org.sigmah.server.servlet.exporter.template.ProjectSynthesisCalcTemplate;
 import org.sigmah.server.servlet.exporter.template.ProjectSynthesisExcelTemplate;
+import org.sigmah.server.servlet.exporter.utils.ExcelUtils;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter;
 import org.sigmah.shared.util.ExportUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,8 +62,8 @@ public class ProjectSynthesisExporter extends Exporter {
 	 */
 	private static final Logger LOG = LoggerFactory.getLogger(ProjectSynthesisExporter.class);
 
-	public ProjectSynthesisExporter(final Injector injector, final HttpServletRequest req, ServletExecutionContext context) throws Exception {
-		super(injector, req, context);
+	public ProjectSynthesisExporter(final Injector injector, final Map<String, String[]> parameters, ServletExecutionContext context) throws Exception {
+		super(injector, parameters, context);
 	}
 
 	@Override
@@ -128,8 +129,9 @@ public class ProjectSynthesisExporter extends Exporter {
 			ExportTemplate template = null;
 			switch (exportFormat) {
 
-				case XLS: {
-					final HSSFWorkbook wb = new HSSFWorkbook();
+				case XLS:
+				case XLSX: {
+					final Workbook wb = ExcelUtils.createWorkbook(exportFormat);
 					template = new ProjectSynthesisExcelTemplate(synthesisData, wb, getContext(), getI18ntranslator(), getLanguage());
 					if (logFrameData != null)
 						template = new LogFrameExcelTemplate(logFrameData, wb);
@@ -139,7 +141,7 @@ public class ProjectSynthesisExporter extends Exporter {
 					break;
 
 				case ODS: {
-					final SpreadsheetDocument doc = SpreadsheetDocument.newSpreadsheetDocument();
+					final OdsWriter doc = new OdsWriter();
 					template = new ProjectSynthesisCalcTemplate(synthesisData, doc, getContext(), getI18ntranslator(), getLanguage());
 					if (logFrameData != null)
 						template = new LogFrameCalcTemplate(logFrameData, doc);
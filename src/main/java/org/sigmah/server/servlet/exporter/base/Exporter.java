@@ -25,8 +25,6 @@ package org.sigmah.server.servlet.exporter.base;
 import java.io.OutputStream;
 import java.util.Map;
 
-import javax.servlet.http.HttpServletRequest;
-
 import org.sigmah.client.page.RequestParameter;
 import org.sigmah.server.dao.impl.GlobalExportSettingsHibernateDAO;
 import org.sigmah.server.domain.export.GlobalExportSettings;
@@ -89,15 +87,15 @@ public abstract class Exporter {
 	 * 
 	 * @param injector
 	 *          The application injector.
-	 * @param req
-	 *          The HTTP request.
+	 * @param parameters
+	 *          The export parameters (the parameters of the HTTP request).
 	 * @param context
 	 *          The execution context.
 	 */
-	public Exporter(final Injector injector, final HttpServletRequest req, ServletExecutionContext context) throws Exception {
+	public Exporter(final Injector injector, final Map<String, String[]> parameters, ServletExecutionContext context) throws Exception {
 		this.context = context;
 		this.injector = injector;
-		this.parametersMap = req.getParameterMap();
+		this.parametersMap = parameters;
 		this.dispatch = injector.getInstance(UserDispatch.class);
 
 		// set up user's Language
@@ -0,0 +1,138 @@
+package org.sigmah.server.servlet.exporter.data;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import javax.persistence.EntityManager;
+
+import org.sigmah.server.domain.export.GlobalExport;
+import org.sigmah.server.domain.export.GlobalExportContent;
+import org.sigmah.server.servlet.exporter.utils.CsvBuilder;
+
+/**
+ * Persists the rows of a global export as GZIP compressed CSV chunks.
+ * <p>
+ * Rows are buffered until {@link #CHUNK_SIZE} rows are available, then a {@link GlobalExportContent} is persisted
+ * and detached from the persistence context so that only one chunk is held in memory at a time.
+ * </p>
+ */
+public class GlobalExportContentWriter implements GlobalExportDataWriter {
+
+	/**
+	 * Number of rows stored in a single {@link GlobalExportContent}.
+	 */
+	public static final int CHUNK_SIZE = 500;
+
+	/**
+	 * Charset of the stored CSV content.
+	 */
+	public static final Charset CHARSET = Charset.forName("UTF-8");
+
+	private final GlobalExport globalExport;
+	private final EntityManager em;
+	private final CsvBuilder csvBuilder;
+	private final List<String[]> rows;
+
+	private String projectModelName;
+	private int chunkIndex;
+
+	public GlobalExportContentWriter(final GlobalExport globalExport, final EntityManager em) {
+		this.globalExport = globalExport;
+		this.em = em;
+		this.csvBuilder = new CsvBuilder();
+		this.rows = new ArrayList<String[]>(CHUNK_SIZE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void startSheet(final String projectModelName) throws Exception {
+		this.projectModelName = projectModelName;
+		this.chunkIndex = 0;
+		rows.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeRow(final String[] values) throws Exception {
+		rows.add(values);
+		if (rows.size() >= CHUNK_SIZE) {
+			flushChunk();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void endSheet() throws Exception {
+		if (!rows.isEmpty() || chunkIndex == 0) {
+			flushChunk();
+		}
+		projectModelName = null;
+	}
+
+	private void flushChunk() throws IOException {
+
+		final GlobalExportContent content = new GlobalExportContent();
+		content.setGlobalExport(globalExport);
+		content.setProjectModelName(projectModelName);
+		content.setChunkIndex(chunkIndex++);
+		content.setCompressedContent(compress(csvBuilder.buildCsv(rows)));
+
+		em.persist(content);
+		em.flush();
+		em.detach(content);
+
+		rows.clear();
+	}
+
+	/**
+	 * Compresses the given CSV content.
+	 * 
+	 * @param csv
+	 *          CSV content.
+	 * @return The GZIP compressed bytes.
+	 * @throws IOException
+	 *           If the compression fails.
+	 */
+	public static byte[] compress(final String csv) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), CHARSET)) {
+			writer.write(csv);
+		}
+		return bytes.toByteArray();
+	}
+
+}
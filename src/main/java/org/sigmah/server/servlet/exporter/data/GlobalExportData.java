@@ -22,24 +22,25 @@ package org.sigmah.server.servlet.exporter.data;
  * #L%
  */
 
-import java.util.List;
-import java.util.Map;
-
 /**
  * Shared global data for excel/calc
+ * <p>
+ * The rows are not held in memory: they are pushed to a {@link GlobalExportDataWriter} while they are produced (live
+ * data) or read back from the storage (backed up data).
+ * </p>
  * 
  * @author sherzod (v1.3)
  */
-public class GlobalExportData {
-
-	private final Map<String, List<String[]>> exportData;
-
-	public GlobalExportData(final Map<String, List<String[]>> exportData) {
-		this.exportData = exportData;
-	}
+public abstract class GlobalExportData {
 
-	public Map<String, List<String[]>> getExportData() {
-		return exportData;
-	}
+	/**
+	 * Writes every sheet of the export into the given {@code writer}.
+	 * 
+	 * @param writer
+	 *          The writer receiving the rows.
+	 * @throws Exception
+	 *           If the data cannot be produced or written.
+	 */
+	public abstract void write(GlobalExportDataWriter writer) throws Exception;
 
 }
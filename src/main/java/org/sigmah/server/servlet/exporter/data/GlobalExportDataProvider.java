@@ -23,19 +23,25 @@ package org.sigmah.server.servlet.exporter.data;
  */
 
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
 
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
 
 import org.sigmah.server.dao.GlobalExportDAO;
 import org.sigmah.server.dao.ProjectDAO;
 import org.sigmah.server.dao.impl.GlobalExportHibernateDAO;
-import org.sigmah.server.dispatch.CommandHandler;
+import org.sigmah.server.dao.util.InClauses;
 import org.sigmah.server.domain.Country;
 import org.sigmah.server.domain.OrgUnit;
 import org.sigmah.server.domain.Organization;
@@ -54,16 +60,15 @@ import org.sigmah.server.domain.export.GlobalExportContent;
 import org.sigmah.server.domain.layout.Layout;
 import org.sigmah.server.domain.layout.LayoutConstraint;
 import org.sigmah.server.domain.layout.LayoutGroup;
-import org.sigmah.server.handler.GetValueHandler;
+import org.sigmah.server.handler.util.BulkValueLoader;
 import org.sigmah.server.i18n.I18nServer;
+import org.sigmah.server.mapper.Mapper;
 import org.sigmah.server.servlet.base.ServletExecutionContext;
-import org.sigmah.server.servlet.exporter.utils.CsvBuilder;
 import org.sigmah.server.servlet.exporter.utils.CsvParser;
 import org.sigmah.server.servlet.exporter.utils.ExportConstants;
 import org.sigmah.server.servlet.exporter.utils.ExportConstants.MultiItemText;
 import org.sigmah.server.servlet.exporter.utils.ExporterUtil;
 import org.sigmah.shared.Language;
-import org.sigmah.shared.command.GetValue;
 import org.sigmah.shared.command.result.ValueResult;
 import org.sigmah.shared.dto.referential.ProjectModelStatus;
 import org.sigmah.shared.dto.value.ListableValue;
@@ -123,40 +128,126 @@ public class GlobalExportDataProvider {
 
 	}
 
+	/**
+	 * Number of projects whose values are loaded at once.
+	 */
+	public static final int PROJECT_BATCH_SIZE = 500;
+
 	private final Injector injector;
-	private final CsvBuilder csvBuilder;
-	private final CsvParser csvParser;
 
 	@Inject
 	public GlobalExportDataProvider(final Injector injector) {
 		this.injector = injector;
-		this.csvBuilder = new CsvBuilder();
-		this.csvParser = new CsvParser();
 	}
 
-	public void persistGlobalExportDataAsCsv(final GlobalExport globalExport, EntityManager em, Map<String, List<String[]>> exportData) throws Exception {
-		for (final String pModelName : exportData.keySet()) {
-			final GlobalExportContent content = new GlobalExportContent();
-			content.setGlobalExport(globalExport);
-			content.setProjectModelName(pModelName);
-			content.setCsvContent(csvBuilder.buildCsv(exportData.get(pModelName)));
-			em.persist(content);
+	/**
+	 * Creates a writer persisting the rows of the given export as compressed chunks.
+	 * 
+	 * @param globalExport
+	 *          The export owning the contents.
+	 * @param em
+	 *          The entity manager used to persist the contents.
+	 * @return A new writer.
+	 */
+	public GlobalExportDataWriter createContentWriter(final GlobalExport globalExport, final EntityManager em) {
+		return new GlobalExportContentWriter(globalExport, em);
+	}
+
+	/**
+	 * Returns the data of a previously persisted export.
+	 * 
+	 * @param em
+	 *          The entity manager.
+	 * @param gExportId
+	 *          Id of the {@link GlobalExport}.
+	 * @return The export data, read chunk by chunk when written.
+	 */
+	public GlobalExportData getBackedupGlobalExportData(final EntityManager em, final Integer gExportId) {
+		return new GlobalExportData() {
+
+			@Override
+			public void write(final GlobalExportDataWriter writer) throws Exception {
+				writeBackedupGlobalExportData(em, gExportId, writer);
+			}
+		};
+	}
+
+	/**
+	 * Returns the live data of the given organization.
+	 * 
+	 * @see #generateGlobalExportData(Integer, EntityManager, I18nServer, Language, ServletExecutionContext,
+	 *      GlobalExportDataWriter)
+	 */
+	public GlobalExportData getGlobalExportData(final Integer organizationId, final EntityManager entityManager, final I18nServer i18nTranslator,
+			final Language language, final ServletExecutionContext context) {
+		return new GlobalExportData() {
+
+			@Override
+			public void write(final GlobalExportDataWriter writer) throws Exception {
+				generateGlobalExportData(organizationId, entityManager, i18nTranslator, language, context, writer);
+			}
+		};
+	}
+
+	/**
+	 * Reads the contents of a persisted export one at a time and writes their rows into the given {@code writer}.
+	 */
+	private void writeBackedupGlobalExportData(final EntityManager em, final Integer gExportId, final GlobalExportDataWriter writer) throws Exception {
+
+		final TypedQuery<Integer> query =
+				em.createQuery("SELECT c.id FROM GlobalExportContent c WHERE c.globalExport.id = :exportId ORDER BY c.projectModelName, c.chunkIndex",
+					Integer.class);
+		query.setParameter("exportId", gExportId);
+
+		String currentSheet = null;
+		for (final Integer contentId : query.getResultList()) {
+			final GlobalExportContent content = em.find(GlobalExportContent.class, contentId);
+
+			if (!content.getProjectModelName().equals(currentSheet)) {
+				if (currentSheet != null) {
+					writer.endSheet();
+				}
+				currentSheet = content.getProjectModelName();
+				writer.startSheet(currentSheet);
+			}
+
+			final String csv = content.getCompressedContent() != null ? decompress(content.getCompressedContent()) : content.getCsvContent();
+			em.detach(content);
+
+			if (csv != null) {
+				for (final String[] row : new CsvParser().parseCsv(csv)) {
+					writer.writeRow(row);
+				}
+			}
+		}
+
+		if (currentSheet != null) {
+			writer.endSheet();
 		}
 	}
 
-	public Map<String, List<String[]>> getBackedupGlobalExportData(EntityManager em, Integer gExportId) {
-		final Map<String, List<String[]>> exportData = new TreeMap<String, List<String[]>>();
-		final GlobalExport export = em.find(GlobalExport.class, gExportId);
-		final List<GlobalExportContent> contents = export.getContents();
-		for (final GlobalExportContent content : contents) {
-			final List<String[]> csvData = csvParser.parseCsv(content.getCsvContent());
-			exportData.put(content.getProjectModelName(), csvData);
+	private static String decompress(final byte[] compressed) throws IOException {
+		final StringBuilder builder = new StringBuilder();
+		try (final Reader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(compressed)), GlobalExportContentWriter.CHARSET)) {
+			final char[] buffer = new char[8192];
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				builder.append(buffer, 0, read);
+			}
 		}
-		return exportData;
+		return builder.toString();
 	}
 
-	public Map<String, List<String[]>> generateGlobalExportData(final Integer organizationId, EntityManager entityManager, final I18nServer i18nTranslator,
-			final Language language, final ServletExecutionContext context) throws Exception {
+	/**
+	 * Generates the global export of the given organization and writes its rows into the given {@code writer}.
+	 * <p>
+	 * Project models are written in name order. Their projects are paged by batches of {@link #PROJECT_BATCH_SIZE} and
+	 * the persistence context is cleared after each batch, so that the memory used does not depend on the number of
+	 * projects.
+	 * </p>
+	 */
+	public void generateGlobalExportData(final Integer organizationId, EntityManager entityManager, final I18nServer i18nTranslator,
+			final Language language, final ServletExecutionContext context, final GlobalExportDataWriter writer) throws Exception {
 		if (entityManager == null) {
 			entityManager = injector.getInstance(EntityManager.class);
 		}
@@ -165,32 +256,22 @@ public class GlobalExportDataProvider {
 		final Organization organization = entityManager.find(Organization.class, organizationId);
 		final List<ProjectModel> pModels = exportDAO.getProjectModelsByOrganization(organization);
 
-		final ProjectDAO projectDao = injector.getInstance(ProjectDAO.class);
-		final List<Project> projects = projectDao.getProjects(pModels);
-
-		// project model and its projects
-		final Map<String, List<Project>> pModelProjectsMap = new HashMap<String, List<Project>>();
-		for (final Project project : projects) {
-			if (project.getDateDeleted() == null) {
-				final String pModelName = project.getProjectModel().getName();
-
-				List<Project> pModelProjects = pModelProjectsMap.get(pModelName);
-				if (pModelProjects == null) {
-					pModelProjects = new ArrayList<Project>();
-					pModelProjectsMap.put(pModelName, pModelProjects);
-				}
-				pModelProjects.add(project);
-			}
-		}
-
-		// project model and its globally exportable fields
-		final Map<String, List<FlexibleElement>> pModelElementsMap = new HashMap<String, List<FlexibleElement>>();
+		// project model ids and globally exportable field ids by project model name (sorted by project model name). Only
+		// ids are kept since the persistence context is cleared after each batch of projects.
+		final Map<String, List<Integer>> pModelIdsMap = new TreeMap<String, List<Integer>>();
+		final Map<String, List<Integer>> pModelElementsMap = new HashMap<String, List<Integer>>();
 		for (final ProjectModel projectModel : pModels) {
 			if (projectModel.getStatus() != ProjectModelStatus.DRAFT) {
 				final String pModelName = projectModel.getName();
 
+				List<Integer> pModelIds = pModelIdsMap.get(pModelName);
+				if (pModelIds == null) {
+					pModelIds = new ArrayList<Integer>();
+					pModelIdsMap.put(pModelName, pModelIds);
+				}
+				pModelIds.add(projectModel.getId());
+
 				final List<FlexibleElement> pModelElements = new ArrayList<FlexibleElement>();
-				pModelElementsMap.put(pModelName, pModelElements);
 
 				// detail elements
 				fillElementList(pModelElements, projectModel.getProjectDetails().getLayout());
@@ -199,116 +280,158 @@ public class GlobalExportDataProvider {
 				for (final PhaseModel phaseModel : projectModel.getPhaseModels()) {
 					fillElementList(pModelElements, phaseModel.getLayout());
 				}
+
+				final List<Integer> pModelElementIds = new ArrayList<Integer>();
+				for (final FlexibleElement element : pModelElements) {
+					pModelElementIds.add(element.getId());
+				}
+				pModelElementsMap.put(pModelName, pModelElementIds);
 			}
 		}
 
-		// final CommandHandler<GetValue, ValueResult> handler = new GetValueHandler();
-		final CommandHandler<GetValue, ValueResult> handler = injector.getInstance(GetValueHandler.class);
+		final ProjectDAO projectDao = injector.getInstance(ProjectDAO.class);
 
-		final Map<String, List<String[]>> pModelExportDataMap = new TreeMap<String, List<String[]>>();
+		// values are loaded per batch of projects with set-based queries
+		final BulkValueLoader valueLoader = new BulkValueLoader(entityManager, injector.getInstance(Mapper.class), null);
 
 		// collect export data
-		for (final String pModelName : pModelElementsMap.keySet()) {
-
-			// if no project for a given project model, skip even headers for
-			// flexible elements
-			if (pModelProjectsMap.get(pModelName) == null)
-				continue;
+		for (final Map.Entry<String, List<Integer>> pModelEntry : pModelIdsMap.entrySet()) {
 
-			final List<FlexibleElement> elements = pModelElementsMap.get(pModelName);
-			final List<String[]> exportData = new ArrayList<String[]>();
-			pModelExportDataMap.put(pModelName, exportData);
+			final String pModelName = pModelEntry.getKey();
+			final List<Integer> elementIds = pModelElementsMap.get(pModelName);
 
 			// field titles
-			final String[] titles = new String[elements.size()];
+			final String[] titles = new String[elementIds.size()];
 
 			boolean isFirstLine = true;
-			// projects
-			for (final Project project : pModelProjectsMap.get(pModelName)) {
+			// projects, paged by id. If no project for a given project model, skip even headers for flexible elements.
+			List<Integer> projectIds = projectDao.getProjectIds(pModelEntry.getValue(), 0, PROJECT_BATCH_SIZE);
+			while (!projectIds.isEmpty()) {
 
-				final String[] values = new String[elements.size()];
+				if (isFirstLine) {
+					writer.startSheet(pModelName);
+				}
 
-				int titleIndex = 0;
-				int valueIndex = 0;
+				final List<Project> projectBatch = projectDao.getProjectsWithDetails(projectIds);
 
-				// fields
-				for (final FlexibleElement element : elements) {
+				// elements are loaded again for each batch since the previous one has been cleared
+				final List<FlexibleElement> elements = findElements(entityManager, elementIds);
+				valueLoader.prefetchChoices(elements);
 
-					// command to get element value
-					final String elementName = "element." + element.getClass().getSimpleName();
-					final GetValue command = new GetValue(project.getId(), element.getId(), elementName, null);
+				// values of the batch, indexed by project id then by element id
+				final Map<Integer, Map<Integer, ValueResult>> batchValues = valueLoader.loadForProjects(projectBatch, elements);
 
-					try {
+				for (final Project project : projectBatch) {
 
-						final ValueResult valueResult = handler.execute(command, null);
+					final String[] values = new String[elements.size()];
+					final Map<Integer, ValueResult> projectValues = batchValues.get(project.getId());
 
-						// prepare value and label
-						ValueLabel pair = null;
-						/* DEF FLEXIBLE */
-						if (elementName.equals("element.DefaultFlexibleElement") || elementName.equals("element.BudgetElement")) {
-							pair = getDefElementPair(valueResult, element, project, entityManager, i18nTranslator, language);
+					int titleIndex = 0;
+					int valueIndex = 0;
 
-						} else /* CHECKBOX */if (elementName.equals("element.CheckboxElement")) {
-							pair = getCheckboxElementPair(valueResult, element, i18nTranslator, language);
-						} else /* TEXT AREA */if (elementName.equals("element.TextAreaElement")) {
-							pair = getTextAreaElementPair(valueResult, element);
+					// fields
+					for (final FlexibleElement element : elements) {
 
-						}/* TRIPLET */
-						if (elementName.equals("element.TripletsListElement")) {
-							pair = getTripletPair(element, valueResult);
+						final String elementName = "element." + element.getClass().getSimpleName();
 
-						}/* CHOICE */
-						if (elementName.equals("element.QuestionElement")) {
-							pair = getChoicePair(element, valueResult);
-						}
+						try {
 
-						// titles
+							final ValueResult valueResult = projectValues.get(element.getId());
 
-						if (isFirstLine) {
-							titles[titleIndex++] = pair != null ? pair.getFormattedLabel() : null;
-						}
+							// prepare value and label
+							ValueLabel pair = null;
+							/* DEF FLEXIBLE */
+							if (elementName.equals("element.DefaultFlexibleElement") || elementName.equals("element.BudgetElement")) {
+								pair = getDefElementPair(valueResult, element, project, entityManager, i18nTranslator, language);
+
+							} else /* CHECKBOX */if (elementName.equals("element.CheckboxElement")) {
+								pair = getCheckboxElementPair(valueResult, element, i18nTranslator, language);
+							} else /* TEXT AREA */if (elementName.equals("element.TextAreaElement")) {
+								pair = getTextAreaElementPair(valueResult, element);
+
+							}/* TRIPLET */
+							if (elementName.equals("element.TripletsListElement")) {
+								pair = getTripletPair(element, valueResult);
+
+							}/* CHOICE */
+							if (elementName.equals("element.QuestionElement")) {
+								pair = getChoicePair(element, valueResult);
+							}
+
+							// titles
+
+							if (isFirstLine) {
+								titles[titleIndex++] = pair != null ? pair.getFormattedLabel() : null;
+							}
 
-						// values
-						String valueStr = null;
-						if (pair != null) {
-							Object value = pair.getValue();
-							if (value == null) {
-								valueStr = null;
-							} else if (value instanceof String) {
-								valueStr = (String) value;
-							} else if (value instanceof Double) {
-								Double d = (Double) value;
-								valueStr = LogFrameExportData.AGGR_AVG_FORMATTER.format(d.doubleValue());
-							} else if (value instanceof Long) {
-								Long l = (Long) value;
-								valueStr = LogFrameExportData.AGGR_SUM_FORMATTER.format(l.longValue());
-							} else { // date
-								valueStr = ExportConstants.EXPORT_DATE_FORMAT.format((Date) value);
+							// values
+							String valueStr = null;
+							if (pair != null) {
+								Object value = pair.getValue();
+								if (value == null) {
+									valueStr = null;
+								} else if (value instanceof String) {
+									valueStr = (String) value;
+								} else if (value instanceof Double) {
+									Double d = (Double) value;
+									valueStr = LogFrameExportData.AGGR_AVG_FORMATTER.format(d.doubleValue());
+								} else if (value instanceof Long) {
+									Long l = (Long) value;
+									valueStr = LogFrameExportData.AGGR_SUM_FORMATTER.format(l.longValue());
+								} else { // date
+									valueStr = ExportConstants.EXPORT_DATE_FORMAT.format((Date) value);
+								}
 							}
+
+							values[valueIndex++] = valueStr;
+
+						} catch (Exception e) {
+							GWT.log("Failed to get element value" + e.getMessage());
 						}
 
-						values[valueIndex++] = valueStr;
+					}
 
-					} catch (Exception e) {
-						GWT.log("Failed to get element value" + e.getMessage());
+					// add titles
+					if (isFirstLine) {
+						writer.writeRow(titles);
+						isFirstLine = false;
 					}
 
-				}
+					// add values
+					writer.writeRow(values);
 
-				// add titles
-				if (isFirstLine) {
-					exportData.add(titles);
-					isFirstLine = false;
-				}
+				}// projects
+
+				// releases the projects, elements and values of the batch
+				entityManager.clear();
 
-				// add values
-				exportData.add(values);
+				projectIds = projectDao.getProjectIds(pModelEntry.getValue(), projectIds.get(projectIds.size() - 1), PROJECT_BATCH_SIZE);
 
-			}// projects
+			}// batches
 
+			if (!isFirstLine) {
+				writer.endSheet();
+			}
 		}
+	}
+
+	/**
+	 * Finds the given flexible elements, in the order of the given ids.
+	 */
+	private static List<FlexibleElement> findElements(final EntityManager em, final List<Integer> ids) {
+
+		final TypedQuery<FlexibleElement> query = em.createQuery("SELECT e FROM FlexibleElement e WHERE e.id IN (:ids)", FlexibleElement.class);
 
-		return pModelExportDataMap;
+		final Map<Integer, FlexibleElement> elementsById = new HashMap<Integer, FlexibleElement>();
+		for (final FlexibleElement element : InClauses.getResultList(query, "ids", ids)) {
+			elementsById.put(element.getId(), element);
+		}
+
+		final List<FlexibleElement> elements = new ArrayList<FlexibleElement>(ids.size());
+		for (final Integer id : ids) {
+			elements.add(elementsById.get(id));
+		}
+		return elements;
 	}
 
 	public MultiItemText formatMultipleChoices(List<QuestionChoiceElement> list, String values) {
@@ -0,0 +1,62 @@
+package org.sigmah.server.servlet.exporter.data;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+/**
+ * Receives the rows of a global export as they are produced.
+ * <p>
+ * Each project model is written as one sheet. The first row written in a sheet holds the field titles, the following
+ * rows hold the values of one project each.
+ * </p>
+ */
+public interface GlobalExportDataWriter {
+
+	/**
+	 * Starts a new sheet.
+	 * 
+	 * @param projectModelName
+	 *          Name of the project model.
+	 * @throws Exception
+	 *           If the sheet cannot be created.
+	 */
+	void startSheet(String projectModelName) throws Exception;
+
+	/**
+	 * Writes a row into the current sheet.
+	 * 
+	 * @param values
+	 *          Values of the row.
+	 * @throws Exception
+	 *           If the row cannot be written.
+	 */
+	void writeRow(String[] values) throws Exception;
+
+	/**
+	 * Ends the current sheet.
+	 * 
+	 * @throws Exception
+	 *           If the sheet cannot be completed.
+	 */
+	void endSheet() throws Exception;
+
+}
@@ -0,0 +1,153 @@
+package org.sigmah.server.servlet.exporter.job;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.concurrent.CountDownLatch;
+
+import org.sigmah.shared.util.ExportUtils.ExportJobStatus;
+
+/**
+ * An export document generated in background by the {@link ExportJobManager}.
+ * <p>
+ * A job is shared by every identical request (same type, parameters, user, language and data version) until it is
+ * evicted from the cache of the manager.
+ * </p>
+ */
+public final class ExportJob {
+
+	/**
+	 * Unique id given to the client.
+	 */
+	private final String id;
+
+	/**
+	 * Cache key of the job.
+	 */
+	private final String key;
+
+	/**
+	 * Id of the generated document in the files storage.
+	 */
+	private final String storageId;
+
+	/**
+	 * Id of the user who requested the export.
+	 */
+	private final Integer userId;
+
+	/**
+	 * Released when the job is over.
+	 */
+	private final CountDownLatch finished;
+
+	private volatile ExportJobStatus status;
+	private volatile String fileName;
+	private volatile String contentType;
+	private volatile Throwable failure;
+
+	ExportJob(final String id, final String key, final String storageId, final Integer userId) {
+		this.id = id;
+		this.key = key;
+		this.storageId = storageId;
+		this.userId = userId;
+		this.finished = new CountDownLatch(1);
+		this.status = ExportJobStatus.PENDING;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public String getStorageId() {
+		return storageId;
+	}
+
+	public Integer getUserId() {
+		return userId;
+	}
+
+	public ExportJobStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns the name of the generated document.
+	 * 
+	 * @return The file name, {@code null} until the job is running.
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * Returns the MIME type of the generated document.
+	 * 
+	 * @return The content type, {@code null} until the job is running.
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * Returns the error which made the job fail.
+	 * 
+	 * @return The error or {@code null}.
+	 */
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Waits until the job is over.
+	 * 
+	 * @return The final status of the job.
+	 * @throws InterruptedException
+	 *           If the current thread is interrupted while waiting.
+	 */
+	public ExportJobStatus await() throws InterruptedException {
+		finished.await();
+		return status;
+	}
+
+	void running(final String fileName, final String contentType) {
+		this.fileName = fileName;
+		this.contentType = contentType;
+		this.status = ExportJobStatus.RUNNING;
+	}
+
+	void done() {
+		this.status = ExportJobStatus.DONE;
+		finished.countDown();
+	}
+
+	void failed(final Throwable failure) {
+		this.failure = failure;
+		this.status = ExportJobStatus.FAILED;
+		finished.countDown();
+	}
+
+}
@@ -0,0 +1,422 @@
+package org.sigmah.server.servlet.exporter.job;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+
+import org.sigmah.server.conf.Properties;
+import org.sigmah.server.dao.util.StatementCountingInterceptor;
+import org.sigmah.server.domain.User;
+import org.sigmah.server.domain.util.DomainFilters;
+import org.sigmah.server.file.FileStorageProvider;
+import org.sigmah.server.servlet.base.ServletExecutionContext;
+import org.sigmah.server.servlet.exporter.base.Exporter;
+import org.sigmah.shared.Language;
+import org.sigmah.shared.conf.PropertyKey;
+import org.sigmah.shared.servlet.ServletConstants;
+import org.sigmah.shared.util.ExportUtils.ExportJobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.persist.UnitOfWork;
+
+/**
+ * Generates the export documents on a bounded pool of worker threads and keeps the generated documents in the files
+ * storage.
+ * <p>
+ * Jobs are identified by a key made of the export type, the export parameters, the user, the language and the data
+ * version (see {@link StatementCountingInterceptor#getDataVersion()}). An identical request made while a job is
+ * running or after it is done returns the same job, so an unchanged export is served from the stored document. The
+ * user is part of the key because the exported data depends on the user permissions.
+ * </p>
+ * <p>
+ * The last {@link PropertyKey#EXPORT_JOBS_CACHE_SIZE} jobs are kept, the documents of older finished jobs are deleted.
+ * The stored documents are deleted when the manager is shut down, and the documents left by a previous execution are
+ * deleted when it is created.
+ * </p>
+ */
+@Singleton
+public class ExportJobManager {
+
+	/**
+	 * Logger.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(ExportJobManager.class);
+
+	/**
+	 * Number of worker threads when the property is not set.
+	 */
+	private static final int DEFAULT_PARALLELISM = 2;
+
+	/**
+	 * Number of kept jobs when the property is not set.
+	 */
+	private static final int DEFAULT_CACHE_SIZE = 50;
+
+	/**
+	 * Maximum number of jobs waiting for a worker.
+	 */
+	private static final int MAX_PENDING_JOBS = 100;
+
+	/**
+	 * Prefix of the documents ids in the files storage.
+	 */
+	private static final String STORAGE_ID_PREFIX = "export-";
+
+	/**
+	 * Request parameters which do not change the generated document.
+	 */
+	private static final Set<String> IGNORED_PARAMETERS = new HashSet<>(Arrays.asList(ServletConstants.AUTHENTICATION_TOKEN,
+		ServletConstants.ORIGIN_PAGE_TOKEN, ServletConstants.SERVLET_METHOD, ServletConstants.RANDOM, ServletConstants.AJAX));
+
+	private final Injector injector;
+	private final FileStorageProvider fileStorageProvider;
+	private final UnitOfWork unitOfWork;
+	private final Provider<EntityManager> entityManagerProvider;
+
+	/**
+	 * Maximum number of kept jobs.
+	 */
+	private final int cacheSize;
+
+	/**
+	 * Worker threads.
+	 */
+	private final ThreadPoolExecutor executorService;
+
+	/**
+	 * Jobs by id.
+	 */
+	private final Map<String, ExportJob> jobsById;
+
+	/**
+	 * Jobs by key, least recently requested first.
+	 */
+	private final LinkedHashMap<String, ExportJob> jobsByKey;
+
+	@Inject
+	public ExportJobManager(final Injector injector, final Properties properties, final FileStorageProvider fileStorageProvider, final UnitOfWork unitOfWork,
+			final Provider<EntityManager> entityManagerProvider) {
+		this.injector = injector;
+		this.fileStorageProvider = fileStorageProvider;
+		this.unitOfWork = unitOfWork;
+		this.entityManagerProvider = entityManagerProvider;
+		this.cacheSize = Math.max(1, properties.getIntegerProperty(PropertyKey.EXPORT_JOBS_CACHE_SIZE, DEFAULT_CACHE_SIZE));
+		this.jobsById = new HashMap<>();
+		this.jobsByKey = new LinkedHashMap<>(16, 0.75f, true);
+
+		final int parallelism = Math.max(1, properties.getIntegerProperty(PropertyKey.EXPORT_JOBS_PARALLELISM, DEFAULT_PARALLELISM));
+		this.executorService = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(MAX_PENDING_JOBS),
+			new ThreadFactory() {
+
+				private final AtomicInteger counter = new AtomicInteger();
+
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "sigmah-export-worker-" + counter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+		deleteStoredDocuments();
+	}
+
+	/**
+	 * Returns the job generating the requested document, starting a new job if no identical job is running or done.
+	 * 
+	 * @param type
+	 *          The export type.
+	 * @param parameters
+	 *          The export parameters.
+	 * @param user
+	 *          The user requesting the export.
+	 * @param language
+	 *          The language of the document.
+	 * @return The job.
+	 * @throws RejectedExecutionException
+	 *           If too many jobs are waiting for a worker.
+	 */
+	public ExportJob submit(final ExportJobType type, final Map<String, String[]> parameters, final User user, final Language language) {
+
+		final Map<String, String[]> exportParameters = copyParameters(parameters);
+		final Integer userId = user != null ? user.getId() : null;
+		final String key = buildKey(type, exportParameters, userId, language, StatementCountingInterceptor.getDataVersion());
+
+		final ExportJob job;
+		synchronized (this) {
+			final ExportJob existing = jobsByKey.get(key);
+			if (existing != null && existing.getStatus() != ExportJobStatus.FAILED) {
+				LOG.debug("Reusing export job #{} ({}).", existing.getId(), existing.getStatus());
+				return existing;
+			}
+
+			job = new ExportJob(UUID.randomUUID().toString(), key, STORAGE_ID_PREFIX + UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)), userId);
+			jobsByKey.put(key, job);
+			jobsById.put(job.getId(), job);
+		}
+
+		try {
+			executorService.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					generate(job, type, exportParameters, language);
+				}
+			});
+
+		} catch (final RejectedExecutionException e) {
+			synchronized (this) {
+				jobsByKey.remove(key);
+				jobsById.remove(job.getId());
+			}
+			throw e;
+		}
+
+		evictFinishedJobs();
+		return job;
+	}
+
+	/**
+	 * Returns the job of the given id if it belongs to the given user.
+	 * 
+	 * @param jobId
+	 *          The job id.
+	 * @param user
+	 *          The user.
+	 * @return The job or {@code null} if it does not exist (anymore) or belongs to another user.
+	 */
+	public synchronized ExportJob getJob(final String jobId, final User user) {
+		final ExportJob job = jobsById.get(jobId);
+		if (job == null || user == null || job.getUserId() == null || !job.getUserId().equals(user.getId())) {
+			return null;
+		}
+		return job;
+	}
+
+	/**
+	 * Opens the document generated by the given job.
+	 * 
+	 * @param job
+	 *          A {@link ExportJobStatus#DONE} job.
+	 * @return The document content.
+	 * @throws IOException
+	 *           If the document has been deleted or cannot be read.
+	 */
+	public InputStream open(final ExportJob job) throws IOException {
+		return fileStorageProvider.open(job.getStorageId());
+	}
+
+	/**
+	 * Stops the worker threads and deletes the stored documents. Running jobs are interrupted.
+	 */
+	public void shutdown() {
+		executorService.shutdownNow();
+
+		final List<ExportJob> jobs;
+		synchronized (this) {
+			jobs = new ArrayList<>(jobsById.values());
+			jobsById.clear();
+			jobsByKey.clear();
+		}
+
+		for (final ExportJob job : jobs) {
+			deleteDocument(job);
+		}
+	}
+
+	/**
+	 * Generates the document of the given job in a new unit of work.
+	 * 
+	 * @param job
+	 *          The job.
+	 * @param type
+	 *          The export type.
+	 * @param parameters
+	 *          The export parameters.
+	 * @param language
+	 *          The language of the document.
+	 */
+	private void generate(final ExportJob job, final ExportJobType type, final Map<String, String[]> parameters, final Language language) {
+
+		final long start = System.nanoTime();
+
+		unitOfWork.begin();
+		try {
+			final EntityManager em = entityManagerProvider.get();
+
+			// The user is reloaded in the persistence context of the worker.
+			final User user = job.getUserId() != null ? em.find(User.class, job.getUserId()) : null;
+			final ServletExecutionContext context = new ServletExecutionContext(user, language);
+			DomainFilters.applyUserFilter(context.getUser(), em);
+
+			final Exporter exporter = type.newExporter(injector, parameters, context);
+			job.running(exporter.getFileName(), exporter.getContentType());
+
+			try (final OutputStream output = fileStorageProvider.create(job.getStorageId())) {
+				exporter.export(output);
+			}
+
+			job.done();
+
+			LOG.info("Export job #{} ({}) done in {} ms.", job.getId(), type, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+		} catch (final Throwable t) {
+			LOG.error("Export job #" + job.getId() + " (" + type + ") failed.", t);
+			deleteDocument(job);
+			job.failed(t);
+
+		} finally {
+			unitOfWork.end();
+		}
+	}
+
+	/**
+	 * Forgets the least recently requested finished jobs exceeding the cache size and deletes their documents.
+	 */
+	private void evictFinishedJobs() {
+
+		final List<ExportJob> evicted = new ArrayList<>();
+
+		synchronized (this) {
+			final Iterator<ExportJob> iterator = jobsByKey.values().iterator();
+			int excess = jobsByKey.size() - cacheSize;
+
+			while (excess > 0 && iterator.hasNext()) {
+				final ExportJob job = iterator.next();
+				if (job.getStatus().isFinished()) {
+					iterator.remove();
+					jobsById.remove(job.getId());
+					evicted.add(job);
+					excess--;
+				}
+			}
+		}
+
+		for (final ExportJob job : evicted) {
+			if (job.getStatus() == ExportJobStatus.DONE) {
+				deleteDocument(job);
+			}
+		}
+	}
+
+	/**
+	 * Deletes the document of the given job, if any.
+	 * 
+	 * @param job
+	 *          The job.
+	 */
+	private void deleteDocument(final ExportJob job) {
+		try {
+			fileStorageProvider.delete(job.getStorageId());
+		} catch (final IOException e) {
+			LOG.warn("Unable to delete the document of export job #" + job.getId() + ".", e);
+		}
+	}
+
+	/**
+	 * Deletes every export document found in the files storage.<br>
+	 * The documents left by a previous execution are not referenced by any job and would never be deleted otherwise.
+	 */
+	private void deleteStoredDocuments() {
+		try {
+			for (final String storageId : fileStorageProvider.list(STORAGE_ID_PREFIX)) {
+				fileStorageProvider.delete(storageId);
+			}
+		} catch (final IOException e) {
+			LOG.warn("Unable to delete the export documents of a previous execution.", e);
+		}
+	}
+
+	/**
+	 * Copies the given request parameters, without the parameters which do not change the generated document.
+	 * 
+	 * @param parameters
+	 *          The request parameters.
+	 * @return The export parameters, sorted by name.
+	 */
+	static Map<String, String[]> copyParameters(final Map<String, String[]> parameters) {
+		final TreeMap<String, String[]> copy = new TreeMap<>();
+		for (final Map.Entry<String, String[]> entry : parameters.entrySet()) {
+			if (!IGNORED_PARAMETERS.contains(entry.getKey())) {
+				copy.put(entry.getKey(), entry.getValue().clone());
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Builds the cache key of an export.
+	 * 
+	 * @param type
+	 *          The export type.
+	 * @param parameters
+	 *          The export parameters, sorted by name.
+	 * @param userId
+	 *          The id of the user.
+	 * @param language
+	 *          The language of the document.
+	 * @param dataVersion
+	 *          The data version.
+	 * @return The key.
+	 */
+	static String buildKey(final ExportJobType type, final Map<String, String[]> parameters, final Integer userId, final Language language,
+			final long dataVersion) {
+
+		final StringBuilder builder = new StringBuilder();
+		builder.append(type.name());
+
+		for (final Map.Entry<String, String[]> entry : parameters.entrySet()) {
+			builder.append('&').append(entry.getKey()).append('=').append(Arrays.toString(entry.getValue()));
+		}
+
+		return builder.append('|').append(userId).append('|').append(language).append('|').append(dataVersion).toString();
+	}
+
+}
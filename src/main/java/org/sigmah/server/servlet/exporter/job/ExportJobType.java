@@ -0,0 +1,106 @@
+package org.sigmah.server.servlet.exporter.job;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.Map;
+
+import org.sigmah.server.servlet.base.ServletExecutionContext;
+import org.sigmah.server.servlet.exporter.GlobalExportExporter;
+import org.sigmah.server.servlet.exporter.IndicatorEntryExporter;
+import org.sigmah.server.servlet.exporter.LogFrameExporter;
+import org.sigmah.server.servlet.exporter.OrgUnitSynthesisExporter;
+import org.sigmah.server.servlet.exporter.ProjectReportExporter;
+import org.sigmah.server.servlet.exporter.ProjectSynthesisExporter;
+import org.sigmah.server.servlet.exporter.base.Exporter;
+
+import com.google.inject.Injector;
+
+/**
+ * Types of the documents generated by export jobs.
+ */
+public enum ExportJobType {
+
+	GLOBAL {
+
+		@Override
+		public Exporter newExporter(final Injector injector, final Map<String, String[]> parameters, final ServletExecutionContext context) throws Exception {
+			return new GlobalExportExporter(injector, parameters, context);
+		}
+	},
+
+	ORG_UNIT {
+
+		@Override
+		public Exporter newExporter(final Injector injector, final Map<String, String[]> parameters, final ServletExecutionContext context) throws Exception {
+			return new OrgUnitSynthesisExporter(injector, parameters, context);
+		}
+	},
+
+	PROJECT {
+
+		@Override
+		public Exporter newExporter(final Injector injector, final Map<String, String[]> parameters, final ServletExecutionContext context) throws Exception {
+			return new ProjectSynthesisExporter(injector, parameters, context);
+		}
+	},
+
+	PROJECT_LOGFRAME {
+
+		@Override
+		public Exporter newExporter(final Injector injector, final Map<String, String[]> parameters, final ServletExecutionContext context) throws Exception {
+			return new LogFrameExporter(injector, parameters, context);
+		}
+	},
+
+	PROJECT_INDICATORS {
+
+		@Override
+		public Exporter newExporter(final Injector injector, final Map<String, String[]> parameters, final ServletExecutionContext context) throws Exception {
+			return new IndicatorEntryExporter(injector, parameters, context);
+		}
+	},
+
+	REPORT {
+
+		@Override
+		public Exporter newExporter(final Injector injector, final Map<String, String[]> parameters, final ServletExecutionContext context) throws Exception {
+			return new ProjectReportExporter(injector, parameters, context);
+		}
+	};
+
+	/**
+	 * Creates the exporter generating this type of document.
+	 * 
+	 * @param injector
+	 *          The application injector.
+	 * @param parameters
+	 *          The export parameters.
+	 * @param context
+	 *          The execution context of the export.
+	 * @return A new exporter.
+	 * @throws Exception
+	 *           If the exporter cannot be initialized.
+	 */
+	public abstract Exporter newExporter(Injector injector, Map<String, String[]> parameters, ServletExecutionContext context) throws Exception;
+
+}
@@ -24,9 +24,6 @@ package org.sigmah.server.servlet.exporter.template;
 
 import java.io.OutputStream;
 
-import org.odftoolkit.simple.SpreadsheetDocument;
-import org.odftoolkit.simple.table.Row;
-import org.odftoolkit.simple.table.Table;
 import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
 import org.sigmah.server.domain.OrgUnit;
 import org.sigmah.server.domain.PhaseModel;
@@ -41,6 +38,11 @@ import org.sigmah.server.servlet.exporter.data.BaseSynthesisData;
 import org.sigmah.server.servlet.exporter.data.GlobalExportDataProvider;
 import org.sigmah.server.servlet.exporter.data.GlobalExportDataProvider.ValueLabel;
 import org.sigmah.server.servlet.exporter.utils.CalcUtils;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.Cell;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.CellStyle;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.Row;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.Table;
 import org.sigmah.shared.Language;
 import org.sigmah.shared.command.GetValue;
 import org.sigmah.shared.command.result.ValueResult;
@@ -52,8 +54,10 @@ import org.sigmah.shared.command.result.ValueResult;
  */
 public class BaseSynthesisCalcTemplate implements ExportTemplate {
 
+	private static final CellStyle MESSAGE_STYLE = CalcUtils.BASIC_STYLE.withFont(CalcUtils.FONT_NAME, 11, false, true);
+
 	private final Table table;
-	private final SpreadsheetDocument doc;
+	private final OdsWriter doc;
 	private final BaseSynthesisData data;
 	private final Class<?> clazz;
 
@@ -61,18 +65,17 @@ public class BaseSynthesisCalcTemplate implements ExportTemplate {
 
 	private final ServletExecutionContext context;
 
-	public BaseSynthesisCalcTemplate(final BaseSynthesisData data, final SpreadsheetDocument doc, final Class<?> clazz, final ServletExecutionContext context, final I18nServer i18nTranslator, final Language language) throws Throwable {
+	public BaseSynthesisCalcTemplate(final BaseSynthesisData data, final OdsWriter doc, final Class<?> clazz, final ServletExecutionContext context, final I18nServer i18nTranslator, final Language language) throws Throwable {
 		this.context = context;
 		this.data = data;
 		this.doc = doc;
-		table = doc.getSheetByIndex(0);
 		this.clazz = clazz;
 
 		String title = data.getLocalizedVersion("projectSynthesis");
 		if (clazz.equals(OrgUnit.class))
 			title = data.getLocalizedVersion("orgUnitSynthesis");
 
-		table.setTableName(title.replace(" ", "_"));
+		table = doc.newTable(title.replace(" ", "_"));
 		int rowIndex = -1;
 
 		// skip row
@@ -85,20 +88,16 @@ public class BaseSynthesisCalcTemplate implements ExportTemplate {
 		CalcUtils.putEmptyRow(table, ++rowIndex);
 
 		// column headers
-		row = table.getRowByIndex(++rowIndex);
+		row = table.getRow(++rowIndex);
 		CalcUtils.putHeader(row, 2, data.getLocalizedVersion("adminFlexibleName"));
 		CalcUtils.putHeader(row, 3, data.getLocalizedVersion("value"));
-		row.setHeight(5, false);
+		row.setHeight(5);
 
 		// empty row
-		row = table.getRowByIndex(++rowIndex);
-		row.setHeight(3.8, false);
-		row.getCellByIndex(1).setCellStyleName(null);
-		row.getCellByIndex(2).setCellStyleName(null);
-		row.getCellByIndex(3).setCellStyleName(null);
+		CalcUtils.putEmptyRow(table, ++rowIndex);
 
 		// details
-		row = table.getRowByIndex(++rowIndex);
+		row = table.getRow(++rowIndex);
 		CalcUtils.putHeader(row, 1, data.getLocalizedVersion("projectDetails"));
 
 		// Project synthesis
@@ -106,17 +105,13 @@ public class BaseSynthesisCalcTemplate implements ExportTemplate {
 			rowIndex = putLayout(table, data.getProject().getProjectModel().getProjectDetails().getLayout(), rowIndex, i18nTranslator, language);
 
 			// empty row
-			row = table.getRowByIndex(++rowIndex);
-			row.setHeight(3.8, false);
-			row.getCellByIndex(1).setCellStyleName(null);
-			row.getCellByIndex(2).setCellStyleName(null);
-			row.getCellByIndex(3).setCellStyleName(null);
+			CalcUtils.putEmptyRow(table, ++rowIndex);
 
 			// run through project phases to get synthesis data
 			for (final PhaseModel phaseModel : data.getProject().getProjectModel().getPhaseModels()) {
 
 				// phase name
-				row = table.getRowByIndex(++rowIndex);
+				row = table.getRow(++rowIndex);
 				CalcUtils.putHeader(row, 1, phaseModel.getName());
 				rowIndex = putLayout(table, phaseModel.getLayout(), rowIndex, i18nTranslator, language);
 
@@ -126,10 +121,10 @@ public class BaseSynthesisCalcTemplate implements ExportTemplate {
 			rowIndex = putLayout(table, data.getOrgUnit().getOrgUnitModel().getDetails().getLayout(), rowIndex, i18nTranslator, language);
 		}
 
-		table.getColumnByIndex(0).setWidth(3.8);
-		table.getColumnByIndex(1).setWidth(49);
-		table.getColumnByIndex(2).setWidth(115);
-		table.getColumnByIndex(3).setWidth(115);
+		table.setColumnWidth(0, 3.8);
+		table.setColumnWidth(1, 49);
+		table.setColumnWidth(2, 115);
+		table.setColumnWidth(3, 115);
 	}
 
 	private int putLayout(final Table table, final Layout layout, int rowIndex, final I18nServer i18nTranslator, final Language language) throws Throwable {
@@ -141,7 +136,7 @@ public class BaseSynthesisCalcTemplate implements ExportTemplate {
 
 			// layout group cell
 			if (!firstGroup) {
-				row = table.getRowByIndex(++rowIndex);
+				++rowIndex;
 			}
 			firstGroup = false;
 			CalcUtils.putGroupCell(table, 2, rowIndex, layoutGroup.getTitle());
@@ -193,23 +188,26 @@ public class BaseSynthesisCalcTemplate implements ExportTemplate {
 		}
 		CalcUtils.mergeCell(table, 1, typeStartRow, 1, rowIndex);
 
+		// The layout rows are complete, only the following ones may still be merged.
+		table.flushRows();
+
 		return rowIndex;
 
 	}
 
 	private void putElement(Table table, int rowIndex, ValueLabel pair, boolean isMessage) {
-		row = table.getRowByIndex(rowIndex);
-		row.getCellByIndex(2).setCellStyleName(null);
-		row.getCellByIndex(3).setCellStyleName(null);
 		CalcUtils.createBasicCell(table, 2, rowIndex, pair.getFormattedLabel());
-		CalcUtils.createBasicCell(table, 3, rowIndex, pair.getValue());
+		final Cell cell = CalcUtils.createBasicCell(table, 3, rowIndex, pair.getValue());
 		if (isMessage)
-			row.getCellByIndex(3).setFont(CalcUtils.getFont(11, false, true));
+			cell.setStyle(MESSAGE_STYLE);
 	}
 
 	@Override
 	public void write(OutputStream output) throws Throwable {
-		doc.save(output);
-		doc.close();
+		try {
+			doc.write(output);
+		} finally {
+			doc.close();
+		}
 	}
 }
@@ -24,10 +24,10 @@ package org.sigmah.server.servlet.exporter.template;
 
 import java.io.OutputStream;
 
-import org.apache.poi.hssf.usermodel.HSSFCell;
-import org.apache.poi.hssf.usermodel.HSSFRow;
-import org.apache.poi.hssf.usermodel.HSSFSheet;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
 import org.sigmah.server.domain.OrgUnit;
@@ -56,9 +56,9 @@ import org.sigmah.shared.command.result.ValueResult;
 public abstract class BaseSynthesisExcelTemplate implements ExportTemplate {
 
 	private final BaseSynthesisData data;
-	private final HSSFWorkbook wb;
-	private HSSFRow row = null;
-	private HSSFCell cell = null;
+	private final Workbook wb;
+	private Row row = null;
+	private Cell cell = null;
 	private final ExcelUtils utils;
 	private CellRangeAddress region;
 	private final float defHeight = ExportConstants.TITLE_ROW_HEIGHT;
@@ -68,7 +68,7 @@ public abstract class BaseSynthesisExcelTemplate implements ExportTemplate {
 
 	private final ServletExecutionContext context;
 
-	public BaseSynthesisExcelTemplate(final BaseSynthesisData data, final HSSFWorkbook wb, final Class<?> clazz, final ServletExecutionContext context, final I18nServer i18nTranslator, final Language language) throws Throwable {
+	public BaseSynthesisExcelTemplate(final BaseSynthesisData data, final Workbook wb, final Class<?> clazz, final ServletExecutionContext context, final I18nServer i18nTranslator, final Language language) throws Throwable {
 
 		this.context = context;
 		this.wb = wb;
@@ -79,8 +79,8 @@ public abstract class BaseSynthesisExcelTemplate implements ExportTemplate {
 		if (clazz.equals(OrgUnit.class))
 			title = data.getLocalizedVersion("orgUnitSynthesis");
 
-		final HSSFSheet sheet = wb.createSheet(title);
 		utils = new ExcelUtils(wb);
+		final Sheet sheet = utils.createManuallyFlushedSheet(title);
 		int rowIndex = -1;
 
 		// empty row
@@ -110,6 +110,7 @@ public abstract class BaseSynthesisExcelTemplate implements ExportTemplate {
 		// Project synthesis
 		if (clazz.equals(Project.class)) {
 			rowIndex = putLayout(sheet, data.getProject().getProjectModel().getProjectDetails().getLayout(), rowIndex, i18nTranslator, language);
+			utils.flushRows(sheet);
 
 			// empty row
 			utils.putEmptyRow(sheet, ++rowIndex, ExportConstants.EMPTY_ROW_HEIGHT);
@@ -121,6 +122,7 @@ public abstract class BaseSynthesisExcelTemplate implements ExportTemplate {
 				row = sheet.createRow(++rowIndex);
 				utils.putHeader(row, 1, phaseModel.getName());
 				rowIndex = putLayout(sheet, phaseModel.getLayout(), rowIndex, i18nTranslator, language);
+				utils.flushRows(sheet);
 
 			}
 		} else {
@@ -134,7 +136,7 @@ public abstract class BaseSynthesisExcelTemplate implements ExportTemplate {
 		sheet.setColumnWidth(3, 256 * valueColWidth);
 	}
 
-	private int putLayout(final HSSFSheet sheet, final Layout layout, int rowIndex, final I18nServer i18nTranslator, final Language language) throws Throwable {
+	private int putLayout(final Sheet sheet, final Layout layout, int rowIndex, final I18nServer i18nTranslator, final Language language) throws Throwable {
 
 		int typeStartRow = rowIndex;
 		boolean firstGroup = true;
@@ -148,9 +150,9 @@ public abstract class BaseSynthesisExcelTemplate implements ExportTemplate {
 			firstGroup = false;
 			row.setHeightInPoints(ExportConstants.TITLE_ROW_HEIGHT);
 			CellRangeAddress region = new CellRangeAddress(rowIndex, rowIndex, 2, data.getNumbOfCols());
-			sheet.addMergedRegion(utils.getBorderedRegion(region, sheet, wb));
+			sheet.addMergedRegion(utils.getBorderedRegion(region, sheet));
 			cell = sheet.getRow(rowIndex).createCell(2);
-			cell.setCellStyle(utils.getGroupStyle(wb));
+			cell.setCellStyle(utils.getGroupStyle());
 			cell.setCellValue(layoutGroup.getTitle());
 
 			// elements for each layout group
@@ -205,18 +207,18 @@ public abstract class BaseSynthesisExcelTemplate implements ExportTemplate {
 		}
 
 		region = new CellRangeAddress(typeStartRow, rowIndex, 1, 1);
-		sheet.addMergedRegion(utils.getBorderedRegion(region, sheet, wb));
+		sheet.addMergedRegion(utils.getBorderedRegion(region, sheet));
 
 		return rowIndex;
 	}
 
-	private void putElement(HSSFSheet sheet, int rowIndex, ValueLabel pair, boolean isMessage) {
+	private void putElement(Sheet sheet, int rowIndex, ValueLabel pair, boolean isMessage) {
 		row = sheet.createRow(rowIndex);
 		utils.putBorderedBasicCell(sheet, rowIndex, 2, pair.getFormattedLabel());
 		utils.putBorderedBasicCell(sheet, rowIndex, 3, pair.getValue());
 
 		if (isMessage) {
-			row.getCell(3).getCellStyle().setFont(utils.getItalicFont(wb, (short) 11));
+			row.getCell(3).setCellStyle(utils.getBorderedItalicStyle());
 		}
 
 		int lineCount = Math.max(pair.getLines(), utils.calculateLineCount(pair.getFormattedLabel(), labelColWidth));
@@ -24,77 +24,98 @@ package org.sigmah.server.servlet.exporter.template;
 
 import java.io.OutputStream;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
-import org.odftoolkit.simple.SpreadsheetDocument;
-import org.odftoolkit.simple.table.Row;
-import org.odftoolkit.simple.table.Table;
 import org.sigmah.server.servlet.exporter.data.GlobalExportData;
+import org.sigmah.server.servlet.exporter.data.GlobalExportDataWriter;
 import org.sigmah.server.servlet.exporter.utils.CalcUtils;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.Row;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.Table;
 
 public class GlobalExportCalcTemplate implements ExportTemplate {
 
-	private final SpreadsheetDocument doc;
+	private final OdsWriter doc;
 
 	public GlobalExportCalcTemplate(final GlobalExportData data) throws Throwable {
 
-		doc = SpreadsheetDocument.newSpreadsheetDocument();
-		CalcUtils.prepareCoreStyle(doc);
-		Row row;
-		Table table = doc.getSheetByIndex(0);
-		int rowIndex = -1;
-		boolean first = true;
-		final Map<Integer, Integer> headerWidthMap = new HashMap<Integer, Integer>();
-		final Map<Integer, Integer> contentWidthMap = new HashMap<Integer, Integer>();
-
-		for (final String pModelName : data.getExportData().keySet()) {
-			final List<String[]> dataList = data.getExportData().get(pModelName);
-			if (first) {
-				table.setTableName(pModelName);
-			} else {
-				table = doc.appendSheet(pModelName);
-			}
+		doc = new OdsWriter();
+		data.write(new SheetWriter());
+	}
+
+	@Override
+	public void write(OutputStream output) throws Throwable {
+		try {
+			doc.write(output);
+		} finally {
+			doc.close();
+		}
+	}
+
+	/**
+	 * Writes the rows of each project model into its own table as they are received.
+	 */
+	private class SheetWriter implements GlobalExportDataWriter {
+
+		private final Map<Integer, Integer> headerWidthMap = new HashMap<Integer, Integer>();
+		private final Map<Integer, Integer> contentWidthMap = new HashMap<Integer, Integer>();
+		private final int defaultWidth = 30;
 
-			first = false;
+		private Table table;
+		private String[] header;
+		private int rowIndex;
+
+		@Override
+		public void startSheet(final String pModelName) throws Exception {
+			table = doc.newTable(pModelName);
+			header = null;
 			rowIndex = -1;
 			headerWidthMap.clear();
 			contentWidthMap.clear();
-			int defaultWidth = 30;
+		}
+
+		@Override
+		public void writeRow(final String[] values) throws Exception {
+			final Row row = table.getRow(++rowIndex);
 
 			// titles
-			final String[] header = dataList.get(0);
-			row = table.getRowByIndex(++rowIndex);
-			for (int i = 0; i < header.length; i++) {
-				CalcUtils.putGlobalExportHeader(row, i, header[i]);
-				if (header[i] != null) {
-					headerWidthMap.put(i, header[i].length() / 2);
+			if (header == null) {
+				header = values;
+				for (int i = 0; i < header.length; i++) {
+					CalcUtils.putGlobalExportHeader(row, i, header[i]);
+					if (header[i] != null) {
+						headerWidthMap.put(i, header[i].length() / 2);
+					}
 				}
+				table.flushRows();
+				return;
 			}
 
 			// values
-			for (int j = 1; j < dataList.size(); j++) {
-				row = table.getRowByIndex(++rowIndex);
-				final String[] values = dataList.get(j);
-				int devider = 2;
-				for (int i = 0; i < header.length; i++) {
-					CalcUtils.createBasicCell(table, i, rowIndex, values[i]);
-					if (values[i] != null) {
-						String parts[] = values[i].split("\n");
-						if (parts.length > devider) {
-							devider = parts.length;
-						}
-
-						int currentWidth = values[i].length() / devider;
-						Integer activeWidth = contentWidthMap.get(i);
-						if (activeWidth != null) {
-							currentWidth = Math.max(activeWidth, currentWidth);
-						}
-						contentWidthMap.put(i, currentWidth);
+			int devider = 2;
+			for (int i = 0; i < header.length; i++) {
+				CalcUtils.createBasicCell(table, i, rowIndex, values[i]);
+				if (values[i] != null) {
+					String parts[] = values[i].split("\n");
+					if (parts.length > devider) {
+						devider = parts.length;
+					}
+
+					int currentWidth = values[i].length() / devider;
+					Integer activeWidth = contentWidthMap.get(i);
+					if (activeWidth != null) {
+						currentWidth = Math.max(activeWidth, currentWidth);
 					}
+					contentWidthMap.put(i, currentWidth);
 				}
 			}
 
+			// Rows are never merged, no need to keep them in memory.
+			table.flushRows();
+		}
+
+		@Override
+		public void endSheet() {
 			for (Integer i : headerWidthMap.keySet()) {
 				Integer width = defaultWidth;
 				if (headerWidthMap.get(i) != null) {
@@ -103,15 +124,10 @@ public class GlobalExportCalcTemplate implements ExportTemplate {
 				if (contentWidthMap.get(i) != null) {
 					width = Math.max(contentWidthMap.get(i), width);
 				}
-				table.getColumnByIndex(i).setWidth(width + 38);
+				table.setColumnWidth(i, width + 38);
 			}
 		}
-	}
 
-	@Override
-	public void write(OutputStream output) throws Throwable {
-		doc.save(output);
-		doc.close();
 	}
 
 }
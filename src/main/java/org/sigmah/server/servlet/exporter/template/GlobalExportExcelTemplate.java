@@ -24,13 +24,13 @@ package org.sigmah.server.servlet.exporter.template;
 
 import java.io.OutputStream;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
-import org.apache.poi.hssf.usermodel.HSSFRow;
-import org.apache.poi.hssf.usermodel.HSSFSheet;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.sigmah.server.servlet.exporter.data.GlobalExportData;
+import org.sigmah.server.servlet.exporter.data.GlobalExportDataWriter;
 import org.sigmah.server.servlet.exporter.utils.ExcelUtils;
 import org.sigmah.server.servlet.exporter.utils.ExportConstants;
 
@@ -41,65 +41,89 @@ import org.sigmah.server.servlet.exporter.utils.ExportConstants;
  */
 public class GlobalExportExcelTemplate implements ExportTemplate {
 
-	private final HSSFWorkbook wb;
+	private final Workbook wb;
 
-	public GlobalExportExcelTemplate(final GlobalExportData data) {
-		this.wb = new HSSFWorkbook();
-		final ExcelUtils utils = new ExcelUtils(wb);
-		final float defHeight = ExportConstants.TITLE_ROW_HEIGHT;
-		int rowIndex = -1;
-		HSSFSheet sheet;
-		HSSFRow row;
-		int defaultWidth = 20;
+	public GlobalExportExcelTemplate(final GlobalExportData data, final Workbook wb) throws Exception {
+		this.wb = wb;
+		data.write(new SheetWriter(new ExcelUtils(wb)));
+	}
+
+	@Override
+	public void write(OutputStream output) throws Throwable {
+		wb.write(output);
+	}
+
+	/**
+	 * Writes the rows of each project model into its own sheet as they are received.
+	 */
+	private class SheetWriter implements GlobalExportDataWriter {
 
-		final Map<Integer, Integer> headerWidthMap = new HashMap<Integer, Integer>();
-		final Map<Integer, Integer> contentWidthMap = new HashMap<Integer, Integer>();
+		private final ExcelUtils utils;
+		private final float defHeight = ExportConstants.TITLE_ROW_HEIGHT;
+		private final int defaultWidth = 20;
 
-		for (final String pModelName : data.getExportData().keySet()) {
-			List<String[]> dataList = data.getExportData().get(pModelName);
+		private final Map<Integer, Integer> headerWidthMap = new HashMap<Integer, Integer>();
+		private final Map<Integer, Integer> contentWidthMap = new HashMap<Integer, Integer>();
+
+		private Sheet sheet;
+		private String[] header;
+		private int rowIndex;
+
+		public SheetWriter(final ExcelUtils utils) {
+			this.utils = utils;
+		}
+
+		@Override
+		public void startSheet(final String pModelName) {
 			sheet = wb.createSheet(pModelName);
+			header = null;
 			rowIndex = -1;
 
 			headerWidthMap.clear();
 			contentWidthMap.clear();
+		}
+
+		@Override
+		public void writeRow(final String[] values) {
+			final Row row = sheet.createRow(++rowIndex);
 
 			// titles
-			final String[] header = dataList.get(0);
-			row = sheet.createRow(++rowIndex);
-			for (int i = 0; i < header.length; i++) {
-				utils.putGlobalExportHeader(row, i, header[i]);
-				if (header[i] != null) {
-					headerWidthMap.put(i, header[i].length() / 2);
+			if (header == null) {
+				header = values;
+				for (int i = 0; i < header.length; i++) {
+					utils.putGlobalExportHeader(row, i, header[i]);
+					if (header[i] != null) {
+						headerWidthMap.put(i, header[i].length() / 2);
+					}
 				}
-
+				row.setHeightInPoints(2 * defHeight);
+				return;
 			}
-			row.setHeightInPoints(2 * defHeight);
 
 			// values
-			for (int j = 1; j < dataList.size(); j++) {
-				row = sheet.createRow(++rowIndex);
-				final String[] values = dataList.get(j);
-				int devider = 2;
-				for (int i = 0; i < header.length; i++) {
-					utils.putBorderedBasicCell(sheet, rowIndex, i, values[i]);
-
-					if (values[i] != null) {
-						String parts[] = values[i].split("\n");
-						if (parts.length > devider) {
-							devider = parts.length;
-						}
-
-						int currentWidth = values[i].length() / devider;
-						Integer oldWidth = contentWidthMap.get(i);
-						if (oldWidth != null) {
-							currentWidth = Math.max(oldWidth, currentWidth);
-						}
-						contentWidthMap.put(i, currentWidth);
+			int devider = 2;
+			for (int i = 0; i < header.length; i++) {
+				utils.putBorderedBasicCell(sheet, rowIndex, i, values[i]);
+
+				if (values[i] != null) {
+					String parts[] = values[i].split("\n");
+					if (parts.length > devider) {
+						devider = parts.length;
+					}
+
+					int currentWidth = values[i].length() / devider;
+					Integer oldWidth = contentWidthMap.get(i);
+					if (oldWidth != null) {
+						currentWidth = Math.max(oldWidth, currentWidth);
 					}
+					contentWidthMap.put(i, currentWidth);
 				}
-				row.setHeightInPoints(devider * defHeight);
 			}
+			row.setHeightInPoints(devider * defHeight);
+		}
 
+		@Override
+		public void endSheet() {
 			// set width
 			for (Integer i : headerWidthMap.keySet()) {
 				Integer width = defaultWidth;
@@ -115,9 +139,4 @@ public class GlobalExportExcelTemplate implements ExportTemplate {
 
 	}
 
-	@Override
-	public void write(OutputStream output) throws Throwable {
-		wb.write(output);
-	}
-
 }
@@ -21,21 +21,20 @@ package org.sigmah.server.servlet.exporter.template;
  * <http://www.gnu.org/licenses/gpl-3.0.html>.
  * #L%
  */
-
 import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.odftoolkit.simple.SpreadsheetDocument;
-import org.odftoolkit.simple.table.Cell;
-import org.odftoolkit.simple.table.Row;
-import org.odftoolkit.simple.table.Table;
 import org.sigmah.shared.dto.pivot.content.PivotTableData;
 import org.sigmah.server.servlet.exporter.data.IndicatorEntryData;
 import org.sigmah.server.servlet.exporter.utils.CalcUtils;
 import org.sigmah.server.servlet.exporter.utils.ExportConstants;
 import org.sigmah.server.servlet.exporter.utils.ExportConstants.MultiItemText;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.Cell;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.Row;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.Table;
 import org.sigmah.shared.dto.IndicatorDTO;
 import org.sigmah.shared.dto.IndicatorGroup;
 
@@ -44,25 +43,22 @@ import org.sigmah.shared.dto.IndicatorGroup;
  */
 public class IndicatorEntryCalcTemplate implements ExportTemplate {
 
-	private final SpreadsheetDocument doc;
+	private final OdsWriter doc;
 	private final IndicatorEntryData data;
 
 	private Row row;
 	private Cell cell;
 
-	public IndicatorEntryCalcTemplate(final IndicatorEntryData data, final SpreadsheetDocument exDoc) throws Throwable {
+	public IndicatorEntryCalcTemplate(final IndicatorEntryData data, final OdsWriter exDoc) throws Throwable {
 		this.data = data;
 
-		Table table = null;
 		String tableName = data.getLocalizedVersion("flexibleElementIndicatorsList").replace(" ", "_");
 		if (exDoc == null) {
-			doc = SpreadsheetDocument.newSpreadsheetDocument();
-			table = doc.getSheetByIndex(0);
-			table.setTableName(tableName);
+			doc = new OdsWriter();
 		} else {
 			doc = exDoc;
-			table = doc.appendSheet(tableName);
 		}
+		final Table table = doc.newTable(tableName);
 
 		int rowIndex = -1;
 		int cellIndex = 0;
@@ -77,30 +73,22 @@ public class IndicatorEntryCalcTemplate implements ExportTemplate {
 		CalcUtils.putEmptyRow(table, ++rowIndex);
 
 		// column headers
-		row = table.getRowByIndex(++rowIndex);
+		row = table.getRow(++rowIndex);
 		cellIndex = 0;
 		CalcUtils.putHeader(row, ++cellIndex, data.getLocalizedVersion("name"));
 		CalcUtils.putHeader(row, ++cellIndex, data.getLocalizedVersion("code"));
 		CalcUtils.putHeader(row, ++cellIndex, data.getLocalizedVersion("targetValue"));
 		CalcUtils.putHeader(row, ++cellIndex, data.getLocalizedVersion("value"));
-		row.setHeight(5, false);
+		row.setHeight(5);
 
 		// empty row
-		row = table.getRowByIndex(++rowIndex);
-		row.setHeight(3.8, false);
-		row.getCellByIndex(1).setCellStyleName(null);
-		row.getCellByIndex(2).setCellStyleName(null);
-		row.getCellByIndex(3).setCellStyleName(null);
-		row.getCellByIndex(4).setCellStyleName(null);
+		CalcUtils.putEmptyRow(table, ++rowIndex);
 
 		for (final IndicatorGroup group : data.getIndicators().getGroups()) {
-			row = table.getRowByIndex(++rowIndex);
-			CalcUtils.putGroupCell(table, 1, rowIndex, group.getName());
+			CalcUtils.putGroupCell(table, 1, ++rowIndex, group.getName());
 			CalcUtils.mergeCell(table, 1, rowIndex, data.getNumbOfCols(), rowIndex);
 			for (final IndicatorDTO indicator : group.getIndicators()) {
-				// indicator's detail sheet
-				createDetailSheet(indicator);
-				row = table.getRowByIndex(++rowIndex);
+				++rowIndex;
 				// ind name
 				cell = CalcUtils.createBasicCell(table, 1, rowIndex, null);
 				CalcUtils.applyLink(cell, indicator.getName(), ExportConstants.INDICATOR_SHEET_PREFIX + indicator.getName());
@@ -111,20 +99,26 @@ public class IndicatorEntryCalcTemplate implements ExportTemplate {
 				// current value
 				putValueCell(table, rowIndex, 4, data.getFormattedValue(indicator), true);
 			}
-
+			table.flushRows();
 		}
 
-		table.getColumnByIndex(0).setWidth(3.8);
-		table.getColumnByIndex(1).setWidth(83);
-		table.getColumnByIndex(2).setWidth(55);
-		table.getColumnByIndex(3).setWidth(55);
-		table.getColumnByIndex(4).setWidth(55);
+		table.setColumnWidth(0, 3.8);
+		table.setColumnWidth(1, 83);
+		table.setColumnWidth(2, 55);
+		table.setColumnWidth(3, 55);
+		table.setColumnWidth(4, 55);
 
+		// indicators' detail sheets, written once the list is complete since tables are streamed one after the other
+		for (final IndicatorGroup group : data.getIndicators().getGroups()) {
+			for (final IndicatorDTO indicator : group.getIndicators()) {
+				createDetailSheet(indicator);
+			}
+		}
 	}
 
 	private void createDetailSheet(final IndicatorDTO indicator) throws Throwable {
 		final boolean isQualitative = indicator.getAggregation() == IndicatorDTO.AGGREGATE_MULTINOMIAL;
-		final Table tableEx = doc.appendSheet(CalcUtils.normalizeAsLink(ExportConstants.INDICATOR_SHEET_PREFIX + indicator.getName()));
+		final Table tableEx = doc.newTable(CalcUtils.normalizeAsLink(ExportConstants.INDICATOR_SHEET_PREFIX + indicator.getName()));
 		int rowIndex = -1;
 
 		List<PivotTableData.Axis> leaves = data.getEntryMap().get(indicator.getId()).getRootColumn().getLeaves();
@@ -132,8 +126,7 @@ public class IndicatorEntryCalcTemplate implements ExportTemplate {
 		int numbOfCols = 4;
 
 		// back to list link
-		row = tableEx.getRowByIndex(++rowIndex);
-		cell = tableEx.getCellByPosition(1, rowIndex);
+		cell = tableEx.getCell(1, ++rowIndex);
 		CalcUtils.applyLink(cell, data.getLocalizedVersion("goToIndicatorsList"), data.getLocalizedVersion("flexibleElementIndicatorsList"));
 		CalcUtils.mergeCell(tableEx, 1, rowIndex, data.getNumbOfCols(), rowIndex);
 
@@ -165,11 +158,11 @@ public class IndicatorEntryCalcTemplate implements ExportTemplate {
 			// qualitative
 
 			// possible values
-			row = tableEx.getRowByIndex(++rowIndex);
+			row = tableEx.getRow(++rowIndex);
 
 			// key
 			cell = CalcUtils.putHeader(row, 1, data.getLocalizedVersion("possibleValues"));
-			cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_RIGHT);
+			cell.setStyle(CalcUtils.HEADER_RIGHT_STYLE);
 
 			// value
 			final MultiItemText itemText = data.formatPossibleValues(indicator.getLabels());
@@ -204,15 +197,12 @@ public class IndicatorEntryCalcTemplate implements ExportTemplate {
 		// empty row
 		CalcUtils.putEmptyRow(tableEx, ++rowIndex);
 
-		row = tableEx.getRowByIndex(rowIndex);
-		row.getCellByIndex(1).setCellStyleName(null);
-		row.getCellByIndex(2).setCellStyleName(null);
-		row.getCellByIndex(3).setCellStyleName(null);
-		row.getCellByIndex(4).setCellStyleName(null);
+		// the data entry rows are never merged
+		tableEx.flushRows();
 
 		// data entry
 		// header
-		row = tableEx.getRowByIndex(++rowIndex);
+		row = tableEx.getRow(++rowIndex);
 		int cellIndex = 0;
 		CalcUtils.putHeader(row, ++cellIndex, data.getLocalizedVersion("sideAndMonth"));
 		Map<String, Integer> columnIndexMap = new HashMap<String, Integer>();
@@ -220,10 +210,11 @@ public class IndicatorEntryCalcTemplate implements ExportTemplate {
 			CalcUtils.putHeader(row, ++cellIndex, axis.getLabel());
 			columnIndexMap.put(axis.getLabel(), cellIndex);
 		}
+		tableEx.flushRows();
 
 		// rows
 		for (PivotTableData.Axis axis : data.getEntryMap().get(indicator.getId()).getRootRow().getChildren()) {
-			row = tableEx.getRowByIndex(++rowIndex);
+			row = tableEx.getRow(++rowIndex);
 			CalcUtils.putHeader(row, 1, axis.getLabel());
 			// populate empty cells
 			for (int i = 0; i < numbOfLeaves; i++) {
@@ -243,27 +234,26 @@ public class IndicatorEntryCalcTemplate implements ExportTemplate {
 				}
 				putValueCell(tableEx, rowIndex, cellIndex, value, rightAligned);
 			}
+			tableEx.flushRows();
 		}
 		// col width
-		tableEx.getColumnByIndex(0).setWidth(3.8);
-		tableEx.getColumnByIndex(1).setWidth(60);
+		tableEx.setColumnWidth(0, 3.8);
+		tableEx.setColumnWidth(1, 60);
 		for (int i = 2; i < 2 + numbOfLeaves; i++) {
-			tableEx.getColumnByIndex(i).setWidth(30);
+			tableEx.setColumnWidth(i, 30);
 		}
 	}
 
 	private void putValueCell(Table table, int rowIndex, int cellIndex, Object value, boolean rightAligned) {
 		cell = CalcUtils.createBasicCell(table, cellIndex, rowIndex, value);
 		if (rightAligned)
-			cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_RIGHT);
+			cell.setStyle(CalcUtils.BASIC_RIGHT_STYLE);
 	}
 
 	private void putBasicInfo(Table table, int rowIndex, String key, Object value, int numbOfCols) {
-		row = table.getRowByIndex(rowIndex);
-		row.getCellByIndex(1).setCellStyleName(null);
-		row.getCellByIndex(2).setCellStyleName(null);
+		row = table.getRow(rowIndex);
 		cell = CalcUtils.putHeader(row, 1, key);
-		cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_RIGHT);
+		cell.setStyle(CalcUtils.HEADER_RIGHT_STYLE);
 
 		cell = CalcUtils.createBasicCell(table, 2, rowIndex, value);
 		CalcUtils.mergeCell(table, 2, rowIndex, numbOfCols, rowIndex);
@@ -272,8 +262,11 @@ public class IndicatorEntryCalcTemplate implements ExportTemplate {
 
 	@Override
 	public void write(OutputStream output) throws Throwable {
-		doc.save(output);
-		doc.close();
+		try {
+			doc.write(output);
+		} finally {
+			doc.close();
+		}
 	}
 
 }
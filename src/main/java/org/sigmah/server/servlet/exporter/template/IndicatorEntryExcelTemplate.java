@@ -27,11 +27,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.poi.hssf.usermodel.HSSFCell;
-import org.apache.poi.hssf.usermodel.HSSFRow;
-import org.apache.poi.hssf.usermodel.HSSFSheet;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.sigmah.shared.dto.pivot.content.PivotTableData;
 import org.sigmah.server.servlet.exporter.data.IndicatorEntryData;
@@ -47,23 +47,19 @@ import org.sigmah.shared.dto.IndicatorGroup;
 public class IndicatorEntryExcelTemplate implements ExportTemplate {
 
 	private final IndicatorEntryData data;
-	private final HSSFWorkbook wb;
-	private HSSFRow row = null;
-	private HSSFCell cell = null;
+	private final Workbook wb;
+	private Row row = null;
+	private Cell cell = null;
 
 	private final ExcelUtils utils;
 	private CellRangeAddress region;
 	private final float defHeight = ExportConstants.TITLE_ROW_HEIGHT;
 
-	public IndicatorEntryExcelTemplate(final IndicatorEntryData data) {
-		this(data, new HSSFWorkbook());
-	}
-
-	public IndicatorEntryExcelTemplate(final IndicatorEntryData data, final HSSFWorkbook wb) {
+	public IndicatorEntryExcelTemplate(final IndicatorEntryData data, final Workbook wb) {
 		this.data = data;
 		this.wb = wb;
-		final HSSFSheet sheet = wb.createSheet(data.getLocalizedVersion("flexibleElementIndicatorsList"));
 		utils = new ExcelUtils(wb);
+		final Sheet sheet = wb.createSheet(data.getLocalizedVersion("flexibleElementIndicatorsList"));
 		int rowIndex = -1;
 		int cellIndex = 0;
 
@@ -122,7 +118,7 @@ public class IndicatorEntryExcelTemplate implements ExportTemplate {
 
 	private void createDetailSheet(final IndicatorDTO indicator) {
 		final boolean isQualitative = indicator.getAggregation() == IndicatorDTO.AGGREGATE_MULTINOMIAL;
-		final HSSFSheet sheetEx = wb.createSheet(utils.normalizeAsLink(ExportConstants.INDICATOR_SHEET_PREFIX + indicator.getName()));
+		final Sheet sheetEx = wb.createSheet(utils.normalizeAsLink(ExportConstants.INDICATOR_SHEET_PREFIX + indicator.getName()));
 		int rowIndex = -1;
 
 		final List<PivotTableData.Axis> leaves = data.getEntryMap().get(indicator.getId()).getRootColumn().getLeaves();
@@ -166,15 +162,14 @@ public class IndicatorEntryExcelTemplate implements ExportTemplate {
 			row = sheetEx.createRow(++rowIndex);
 
 			// key
-			cell = utils.putHeader(row, 1, data.getLocalizedVersion("possibleValues"));
-			cell.getCellStyle().setAlignment(CellStyle.ALIGN_RIGHT);
+			utils.putHeader(row, 1, data.getLocalizedVersion("possibleValues"), CellStyle.ALIGN_RIGHT);
 
 			// value
 			final MultiItemText itemText = data.formatPossibleValues(indicator.getLabels());
 			utils.putBorderedBasicCell(sheetEx, rowIndex, 2, itemText.text);
 			row.setHeightInPoints(itemText.lineCount * defHeight);
 			region = new CellRangeAddress(rowIndex, rowIndex, 2, numbOfCols);
-			sheetEx.addMergedRegion(utils.getBorderedRegion(region, sheetEx, wb));
+			sheetEx.addMergedRegion(utils.getBorderedRegion(region, sheetEx));
 		} else {
 			// quantitative
 
@@ -212,6 +207,7 @@ public class IndicatorEntryExcelTemplate implements ExportTemplate {
 		row.setHeightInPoints(defHeight);
 		int cellIndex = 0;
 		utils.putHeader(row, ++cellIndex, data.getLocalizedVersion("sideAndMonth"));
+		int sideAndMonthWidth = data.getLocalizedVersion("sideAndMonth").length();
 		Map<String, Integer> columnIndexMap = new HashMap<String, Integer>();
 		for (PivotTableData.Axis axis : leaves) {
 			utils.putHeader(row, ++cellIndex, axis.getLabel());
@@ -223,6 +219,9 @@ public class IndicatorEntryExcelTemplate implements ExportTemplate {
 			row = sheetEx.createRow(++rowIndex);
 			row.setHeightInPoints(defHeight);
 			utils.putHeader(row, 1, axis.getLabel());
+			if (axis.getLabel() != null) {
+				sideAndMonthWidth = Math.max(sideAndMonthWidth, axis.getLabel().length());
+			}
 
 			// populate empty cells
 			for (int i = 0; i < numbOfLeaves; i++) {
@@ -243,45 +242,41 @@ public class IndicatorEntryExcelTemplate implements ExportTemplate {
 				putValueCell(sheetEx, rowIndex, cellIndex, value, rightAligned);
 			}
 		}
-		// col width
+		// col width (the side and month column is sized from its longest label, cells are not scanned)
 		sheetEx.setColumnWidth(0, 256 * 2);
-		sheetEx.autoSizeColumn(1);
+		sheetEx.setColumnWidth(1, 256 * Math.min(sideAndMonthWidth + 2, 255));
 		for (int i = 2; i < 2 + numbOfLeaves; i++) {
 			sheetEx.setColumnWidth(i, 256 * 16);
 		}
 	}
 
-	private void putBasicInfo(HSSFSheet sheet, int rowIndex, String key, Object value, int numbOfCols) {
+	private void putBasicInfo(Sheet sheet, int rowIndex, String key, Object value, int numbOfCols) {
 		row = sheet.createRow(rowIndex);
 		row.setHeightInPoints(defHeight);
 
 		// key
-		cell = utils.putHeader(row, 1, key);
-		cell.getCellStyle().setAlignment(CellStyle.ALIGN_RIGHT);
+		utils.putHeader(row, 1, key, CellStyle.ALIGN_RIGHT);
 
 		// value
 		utils.putBorderedBasicCell(sheet, rowIndex, 2, value);
 		region = new CellRangeAddress(rowIndex, rowIndex, 2, numbOfCols);
-		sheet.addMergedRegion(utils.getBorderedRegion(region, sheet, wb));
+		sheet.addMergedRegion(utils.getBorderedRegion(region, sheet));
 	}
 
-	private void putRightAlignedCell(HSSFSheet sheet, int rowIndex, int cellIndex, Object value) {
-		cell = utils.putBorderedBasicCell(sheet, rowIndex, cellIndex, value);
-		cell.getCellStyle().setAlignment(CellStyle.ALIGN_RIGHT);
+	private void putRightAlignedCell(Sheet sheet, int rowIndex, int cellIndex, Object value) {
+		cell = utils.putBorderedBasicCell(sheet, rowIndex, cellIndex, value, CellStyle.ALIGN_RIGHT);
 	}
 
-	private void putValueCell(HSSFSheet sheet, int rowIndex, int cellIndex, Object value, boolean rightAligned) {
-		cell = utils.putBorderedBasicCell(sheet, rowIndex, cellIndex, value);
-		if (rightAligned)
-			cell.getCellStyle().setAlignment(CellStyle.ALIGN_RIGHT);
+	private void putValueCell(Sheet sheet, int rowIndex, int cellIndex, Object value, boolean rightAligned) {
+		cell = utils.putBorderedBasicCell(sheet, rowIndex, cellIndex, value, rightAligned ? CellStyle.ALIGN_RIGHT : CellStyle.ALIGN_LEFT);
 	}
 
-	private void putGroupCell(HSSFSheet sheet, int rowIndex, String name) {
+	private void putGroupCell(Sheet sheet, int rowIndex, String name) {
 		cell = sheet.getRow(rowIndex).createCell(1);
 		cell.setCellValue(name);
 		CellRangeAddress region = new CellRangeAddress(rowIndex, rowIndex, 1, data.getNumbOfCols());
-		sheet.addMergedRegion(utils.getBorderedRegion(region, sheet, wb));
-		cell.setCellStyle(utils.getGroupStyle(wb));
+		sheet.addMergedRegion(utils.getBorderedRegion(region, sheet));
+		cell.setCellStyle(utils.getGroupStyle());
 	}
 
 	@Override
@@ -26,23 +26,6 @@ import java.io.OutputStream;
 import java.util.List;
 import java.util.Set;
 
-import org.odftoolkit.odfdom.dom.style.OdfStyleFamily;
-import org.odftoolkit.odfdom.dom.style.props.OdfParagraphProperties;
-import org.odftoolkit.odfdom.dom.style.props.OdfTableCellProperties;
-import org.odftoolkit.odfdom.dom.style.props.OdfTextProperties;
-import org.odftoolkit.odfdom.incubator.doc.office.OdfOfficeAutomaticStyles;
-import org.odftoolkit.odfdom.incubator.doc.style.OdfStyle;
-import org.odftoolkit.odfdom.type.Color;
-import org.odftoolkit.simple.SpreadsheetDocument;
-import org.odftoolkit.simple.style.Border;
-import org.odftoolkit.simple.style.Font;
-import org.odftoolkit.simple.style.StyleTypeDefinitions;
-import org.odftoolkit.simple.style.StyleTypeDefinitions.CellBordersType;
-import org.odftoolkit.simple.style.StyleTypeDefinitions.FontStyle;
-import org.odftoolkit.simple.table.Cell;
-import org.odftoolkit.simple.table.CellRange;
-import org.odftoolkit.simple.table.Row;
-import org.odftoolkit.simple.table.Table;
 import org.sigmah.server.domain.Indicator;
 import org.sigmah.server.domain.logframe.ExpectedResult;
 import org.sigmah.server.domain.logframe.LogFrameActivity;
@@ -52,6 +35,11 @@ import org.sigmah.server.domain.logframe.SpecificObjective;
 import org.sigmah.server.servlet.exporter.data.LogFrameExportData;
 import org.sigmah.server.servlet.exporter.utils.CalcUtils;
 import org.sigmah.server.servlet.exporter.utils.ExportConstants;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.Cell;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.CellStyle;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.Row;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.Table;
 
 /**
  * Open document spreadsheet template for log logframe
@@ -60,31 +48,41 @@ import org.sigmah.server.servlet.exporter.utils.ExportConstants;
  */
 public class LogFrameCalcTemplate implements ExportTemplate {
 
+	private static final CellStyle CORE_STYLE = new CellStyle().withBorder("0.035cm solid #000000").withWrappedText()
+		.withBackgroundColor(ExportConstants.WHITE_HEX).withVerticalAlignment(ExportConstants.ALIGN_VER_MIDDLE).withHorizontalAlignment(ExportConstants.ALIGH_HOR_LEFT)
+		.withParagraphProperty("fo:margin-bottom", "0.2cm").withParagraphProperty("fo:margin-top", "0.2cm").withCellProperty("fo:padding-top", "0.2cm")
+		.withCellProperty("fo:padding-bottom", "0.2cm").withCellProperty("fo:padding-left", "0.2cm").withTextProperty("fo:font-weight", "normal")
+		.withTextProperty("fo:font-size", "10pt");
+
+	private static final CellStyle CENTER_STYLE = CORE_STYLE.withHorizontalAlignment(ExportConstants.ALIGH_HOR_CENTER);
+
+	private static final CellStyle TYPE_STYLE = CENTER_STYLE.withBackgroundColor(ExportConstants.GRAY_10_HEX).withFont(CalcUtils.FONT_NAME, 10, true, false);
+
+	private static final CellStyle GROUP_STYLE = CORE_STYLE.withBackgroundColor(ExportConstants.LIGHTORANGE_HEX).withFont(CalcUtils.FONT_NAME, 10, false, true);
+
+	private static final CellStyle INFO_KEY_STYLE = new CellStyle().withFont(CalcUtils.FONT_NAME, 11, true, false).withWrappedText()
+		.withVerticalAlignment(ExportConstants.ALIGN_VER_MIDDLE).withHorizontalAlignment(ExportConstants.ALIGH_HOR_LEFT);
+
+	private static final CellStyle INFO_VALUE_STYLE = new CellStyle().withFont(CalcUtils.FONT_NAME, 11, false, false)
+		.withVerticalAlignment(ExportConstants.ALIGN_VER_MIDDLE).withHorizontalAlignment(ExportConstants.ALIGH_HOR_LEFT);
+
 	private final LogFrameExportData data;
 
 	private Row row;
 	private Cell cell;
-	private CellRange cellRange;
 	private final Table table;
-	private final SpreadsheetDocument doc;
+	private final OdsWriter doc;
 
 	private StringBuilder builder;
-	private final Color gray = Color.valueOf(ExportConstants.GRAY_10_HEX);
-	private final Color lightOrange = Color.valueOf(ExportConstants.LIGHTORANGE_HEX);
-	private String coreCellStyle;
 
-	public LogFrameCalcTemplate(final LogFrameExportData data, final SpreadsheetDocument exDoc) throws Throwable {
+	public LogFrameCalcTemplate(final LogFrameExportData data, final OdsWriter exDoc) throws Throwable {
 		this.data = data;
 		if (exDoc == null) {
-			doc = SpreadsheetDocument.newSpreadsheetDocument();
-			table = doc.getSheetByIndex(0);
-			table.setTableName(data.getLocalizedVersion("logFrame").replace(" ", "_"));
+			doc = new OdsWriter();
 		} else {
 			doc = exDoc;
-			table = doc.appendSheet(data.getLocalizedVersion("logFrame").replace(" ", "_"));
 		}
-
-		setUpCoreStyle();
+		table = doc.newTable(data.getLocalizedVersion("logFrame").replace(" ", "_"));
 
 		int rowIndex = -1;
 		int cellIndex = 0;
@@ -93,16 +91,7 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 		++rowIndex;
 
 		// title
-		row = table.getRowByIndex(++rowIndex);
-		cell = row.getCellByIndex(1);
-		cell.setStringValue(data.getLocalizedVersion("logFrame").toUpperCase());
-		cell.setTextWrapped(true);
-		cell.setFont(getBoldFont(14));
-		cell.setVerticalAlignment(ExportConstants.ALIGN_VER_MIDDLE);
-		cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_CENTER);
-		cellRange = table.getCellRangeByPosition(1, rowIndex, data.getNumbOfCols(), rowIndex);
-		cellRange.merge();
-		row.setHeight(7, false);
+		CalcUtils.putMainTitle(table, ++rowIndex, data.getNumbOfCols(), data.getLocalizedVersion("logFrame").toUpperCase());
 
 		putEmptyRow(++rowIndex);
 
@@ -113,21 +102,17 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 		putEmptyRow(++rowIndex);
 
 		// column headers
-		row = table.getRowByIndex(++rowIndex);
+		row = table.getRow(++rowIndex);
 		cellIndex = 3;
-		putHeader(++cellIndex, data.getLocalizedVersion("logFrameInterventionLogic"));
-		putHeader(++cellIndex, data.getLocalizedVersion("indicators"));
-		putHeader(++cellIndex, data.getLocalizedVersion("logFrameMeansOfVerification"));
-		putHeader(++cellIndex, data.getLocalizedVersion("logFrameRisksAndAssumptions"));
-		row.setHeight(6, false);
+		CalcUtils.putHeader(row, ++cellIndex, data.getLocalizedVersion("logFrameInterventionLogic"));
+		CalcUtils.putHeader(row, ++cellIndex, data.getLocalizedVersion("indicators"));
+		CalcUtils.putHeader(row, ++cellIndex, data.getLocalizedVersion("logFrameMeansOfVerification"));
+		CalcUtils.putHeader(row, ++cellIndex, data.getLocalizedVersion("logFrameRisksAndAssumptions"));
+		row.setHeight(6);
 
 		// empty row
-		row = table.getRowByIndex(++rowIndex);
-		row.setHeight(3.8, false);
-		row.getCellByIndex(4).setCellStyleName(null);
-		row.getCellByIndex(5).setCellStyleName(null);
-		row.getCellByIndex(6).setCellStyleName(null);
-		row.getCellByIndex(7).setCellStyleName(null);
+		putEmptyRow(++rowIndex);
+		table.flushRows();
 
 		// TODO consider to implement freeze pane
 
@@ -168,6 +153,8 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 			}
 		}
 
+		table.flushRows();
+
 		// ER
 		if (data.getEnableExpectedResultsGroups()) {
 			hasElement = data.getErMap().keySet().size() > 0;
@@ -204,6 +191,8 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 			}
 		}
 
+		table.flushRows();
+
 		// Activities
 		if (data.getEnableActivitiesGroups()) {
 			hasElement = data.getAcMap().keySet().size() > 0;
@@ -240,6 +229,8 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 			}
 		}
 
+		table.flushRows();
+
 		// Prerequisites
 		if (data.getEnablePrerequisitesGroups()) {
 			hasElement = data.getPrMap().keySet().size() > 0;
@@ -276,14 +267,16 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 			}
 		}
 
-		table.getColumnByIndex(0).setWidth(3.8);
-		table.getColumnByIndex(1).setWidth(37.3);
-		table.getColumnByIndex(2).setWidth(24);
-		table.getColumnByIndex(3).setWidth(24);
-		table.getColumnByIndex(4).setWidth(68);
-		table.getColumnByIndex(5).setWidth(49);
-		table.getColumnByIndex(6).setWidth(49);
-		table.getColumnByIndex(7).setWidth(68);
+		table.flushRows();
+
+		table.setColumnWidth(0, 3.8);
+		table.setColumnWidth(1, 37.3);
+		table.setColumnWidth(2, 24);
+		table.setColumnWidth(3, 24);
+		table.setColumnWidth(4, 68);
+		table.setColumnWidth(5, 49);
+		table.setColumnWidth(6, 49);
+		table.setColumnWidth(7, 68);
 	}
 
 	private int putPrItems(int rowIndex, boolean skipFirst, List<Prerequisite> prList) {
@@ -297,12 +290,11 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 			builder.append(p.getCode());
 			builder.append(".");
 			cell = createBasicCell(2, rowIndex, builder.toString());
-			cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_CENTER);
+			cell.setStyle(CENTER_STYLE);
 
 			cell = createBasicCell(3, rowIndex, p.getContent());
 
-			cellRange = table.getCellRangeByPosition(3, rowIndex, data.getNumbOfCols(), rowIndex);
-			cellRange.merge();
+			mergeCell(3, rowIndex, data.getNumbOfCols(), rowIndex);
 		}
 		return rowIndex;
 	}
@@ -322,7 +314,7 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 			builder.append(".");
 			builder.append(")");
 			cell = createBasicCell(2, rowIndex, builder.toString());
-			cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_CENTER);
+			cell.setStyle(CENTER_STYLE);
 
 			builder = new StringBuilder(data.getLocalizedVersion("logFrameActivitiesCode"));
 			builder.append(" ");
@@ -332,7 +324,7 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 			builder.append(a.getCode());
 			builder.append(".");
 			cell = createBasicCell(3, rowIndex, builder.toString());
-			cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_CENTER);
+			cell.setStyle(CENTER_STYLE);
 
 			createBasicCell(4, rowIndex, a.getTitle());
 			createBasicCell(7, rowIndex, "");
@@ -357,7 +349,7 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 			builder.append(data.getFormattedCode(er.getParentSpecificObjective().getCode()));
 			builder.append(")");
 			cell = createBasicCell(2, rowIndex, builder.toString());
-			cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_CENTER);
+			cell.setStyle(CENTER_STYLE);
 
 			builder = new StringBuilder(data.getLocalizedVersion("logFrameExceptedResultsCode"));
 			builder.append(" ");
@@ -365,7 +357,7 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 			builder.append(er.getCode());
 			builder.append(".");
 			cell = createBasicCell(3, rowIndex, builder.toString());
-			cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_CENTER);
+			cell.setStyle(CENTER_STYLE);
 
 			createBasicCell(4, rowIndex, er.getInterventionLogic());
 			createBasicCell(7, rowIndex, er.getRisksAndAssumptions());
@@ -388,7 +380,7 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 			builder.append(data.getFormattedCode(so.getCode()));
 
 			cell = createBasicCell(2, rowIndex, builder.toString());
-			cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_CENTER);
+			cell.setStyle(CENTER_STYLE);
 			createBasicCell(4, rowIndex, so.getInterventionLogic());
 			createBasicCell(7, rowIndex, so.getRisksAndAssumptions());
 
@@ -399,29 +391,7 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 	}
 
 	private void mergeCell(int startCol, int startRow, int endCol, int endRow) {
-		cellRange = table.getCellRangeByPosition(startCol, startRow, endCol, endRow);
-		cellRange.merge();
-	}
-
-	private void setUpCoreStyle() throws Throwable {
-
-		OdfOfficeAutomaticStyles styles = doc.getContentDom().getOrCreateAutomaticStyles();
-		OdfStyle style = styles.newStyle(OdfStyleFamily.TableCell);
-
-		style.setProperty(OdfTableCellProperties.Border, "0.035cm solid #000000");
-		style.setProperty(OdfTableCellProperties.WrapOption, "wrap");
-		style.setProperty(OdfTableCellProperties.BackgroundColor, "#ffffff");
-		style.setProperty(OdfTableCellProperties.VerticalAlign, "middle");
-		style.setProperty(OdfParagraphProperties.TextAlign, "left");
-		style.setProperty(OdfParagraphProperties.MarginBottom, "0.2cm");
-		style.setProperty(OdfParagraphProperties.MarginTop, "0.2cm");
-		style.setProperty(OdfTableCellProperties.PaddingTop, "0.2cm");
-		style.setProperty(OdfTableCellProperties.PaddingBottom, "0.2cm");
-		style.setProperty(OdfTableCellProperties.PaddingLeft, "0.2cm");
-		style.setProperty(OdfTextProperties.FontWeight, "Regular");
-		style.setProperty(OdfTextProperties.FontSize, "10pt");
-
-		coreCellStyle = style.getStyleNameAttribute();
+		table.merge(startCol, startRow, endCol, endRow);
 	}
 
 	private int putIndicators(final Set<Indicator> indicators, int rowIndex, boolean mergeCodeCells) throws Throwable {
@@ -439,36 +409,23 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 			}
 			rowIndex--;
 
-			for (int i = startIndex; i <= rowIndex; i++) {
-				cell = cellRange.getCellByPosition(7, i);
-				cell.setBorders(CellBordersType.RIGHT, getBorder());
-			}
-
 			if (mergeCodeCells) {
-				cellRange = table.getCellRangeByPosition(2, startIndex, 3, rowIndex);
-				cellRange.merge();
+				mergeCell(2, startIndex, 3, rowIndex);
 			} else {
-				cellRange = table.getCellRangeByPosition(2, startIndex, 2, rowIndex);
-				cellRange.merge();
-				cellRange = table.getCellRangeByPosition(3, startIndex, 3, rowIndex);
-				cellRange.merge();
+				mergeCell(2, startIndex, 2, rowIndex);
+				mergeCell(3, startIndex, 3, rowIndex);
 			}
-			cellRange = table.getCellRangeByPosition(4, startIndex, 4, rowIndex);
-			cellRange.merge();
-			cellRange = table.getCellRangeByPosition(7, startIndex, 7, rowIndex);
-			cellRange.merge();
+			mergeCell(4, startIndex, 4, rowIndex);
+			mergeCell(7, startIndex, 7, rowIndex);
 
 		} else {
 			cell = createBasicCell(5, rowIndex, null);
 			cell = createBasicCell(6, rowIndex, null);
 			if (mergeCodeCells) {
-				cellRange = table.getCellRangeByPosition(2, rowIndex, 3, rowIndex);
-				cellRange.merge();
+				mergeCell(2, rowIndex, 3, rowIndex);
 			} else {
-				cellRange = table.getCellRangeByPosition(2, rowIndex, 2, rowIndex);
-				cellRange.merge();
-				cellRange = table.getCellRangeByPosition(3, rowIndex, 3, rowIndex);
-				cellRange.merge();
+				mergeCell(2, rowIndex, 2, rowIndex);
+				mergeCell(3, rowIndex, 3, rowIndex);
 			}
 
 		}
@@ -483,9 +440,7 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 		builder.append(")");
 
 		cell = createBasicCell(1, rowIndex, builder.toString());
-		cell.setCellBackgroundColor(gray);
-		cell.setFont(getBoldFont(10));
-		cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_CENTER);
+		cell.setStyle(TYPE_STYLE);
 	}
 
 	private void putGroupCell(int rowIndex, String groupType, String code, String groupLabel) {
@@ -496,83 +451,43 @@ public class LogFrameCalcTemplate implements ExportTemplate {
 		builder.append(groupLabel);
 
 		cell = createBasicCell(2, rowIndex, builder.toString());
-		cell.setCellBackgroundColor(lightOrange);
-		cell.setFont(getFont(10, false, true));
-		cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_LEFT);
-		cellRange = table.getCellRangeByPosition(2, rowIndex, data.getNumbOfCols(), rowIndex);
-		cellRange.merge();
+		cell.setStyle(GROUP_STYLE);
+		mergeCell(2, rowIndex, data.getNumbOfCols(), rowIndex);
 	}
 
 	private Cell createBasicCell(int colIndex, int rowIndex, String value) {
-		cell = table.getCellByPosition(colIndex, rowIndex);
+		cell = table.getCell(colIndex, rowIndex);
 		cell.setStringValue(value);
-		cell.setCellStyleName(coreCellStyle);
+		cell.setStyle(CORE_STYLE);
 		return cell;
 	}
 
-	private void putHeader(int cellIndex, String header) {
-
-		cell = row.getCellByIndex(cellIndex);
-		cell.setStringValue(header);
-		cell.setBorders(CellBordersType.ALL_FOUR, getBorder());
-		cell.setCellBackgroundColor(gray);
-		cell.setFont(getBoldFont(10));
-		cell.setVerticalAlignment(ExportConstants.ALIGN_VER_MIDDLE);
-		cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_CENTER);
-		cell.setTextWrapped(true);
-	}
-
-	private Border getBorder() {
-		return new Border(Color.BLACK, 1, StyleTypeDefinitions.SupportedLinearMeasure.PT);
-	}
-
 	private void putEmptyRow(int rowIndex) {
-		row = table.getRowByIndex(rowIndex);
-		row.setHeight(3.8, false);
+		table.getRow(rowIndex).setHeight(3.8);
 	}
 
 	private void putInfoRow(int rowIndex, String key, String value) {
 		String space = " ";
-		row = table.getRowByIndex(rowIndex);
-		cell = row.getCellByIndex(1);
+		row = table.getRow(rowIndex);
+		cell = row.getCell(1);
 		cell.setStringValue(space + key);
-		cell.setFont(getBoldFont(11));
-		cell.setTextWrapped(true);
-		cell.setVerticalAlignment(ExportConstants.ALIGN_VER_MIDDLE);
-		cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_LEFT);
+		cell.setStyle(INFO_KEY_STYLE);
 
-		cell = row.getCellByIndex(2);
+		cell = row.getCell(2);
 		if (value != null)
 			cell.setStringValue(space + value);
-		cell.setFont(getRegFont(11));
-		cell.setVerticalAlignment(ExportConstants.ALIGN_VER_MIDDLE);
-		cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_LEFT);
-		cellRange = table.getCellRangeByPosition(2, rowIndex, data.getNumbOfCols(), rowIndex);
-		cellRange.merge();
-		row.setHeight(6, false);
-	}
-
-	private Font getFont(int size, boolean bold, boolean italic) {
-		FontStyle style = StyleTypeDefinitions.FontStyle.REGULAR;
-		if (bold)
-			style = StyleTypeDefinitions.FontStyle.BOLD;
-		if (italic)
-			style = StyleTypeDefinitions.FontStyle.ITALIC;
-		return new Font("Arial", style, size, Color.BLACK);
-	}
-
-	private Font getBoldFont(int size) {
-		return getFont(size, true, false);
-	}
-
-	private Font getRegFont(int size) {
-		return getFont(size, false, false);
+		cell.setStyle(INFO_VALUE_STYLE);
+		mergeCell(2, rowIndex, data.getNumbOfCols(), rowIndex);
+		row.setHeight(6);
 	}
 
 	@Override
 	public void write(OutputStream output) throws Throwable {
-		doc.save(output);
-		doc.close();
+		try {
+			doc.write(output);
+		} finally {
+			doc.close();
+		}
 	}
 
 }
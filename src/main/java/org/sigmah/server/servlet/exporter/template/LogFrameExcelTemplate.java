@@ -26,11 +26,11 @@ import java.io.OutputStream;
 import java.util.List;
 import java.util.Set;
 
-import org.apache.poi.hssf.usermodel.HSSFCell;
-import org.apache.poi.hssf.usermodel.HSSFRow;
-import org.apache.poi.hssf.usermodel.HSSFSheet;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.sigmah.server.domain.Indicator;
 import org.sigmah.server.domain.logframe.ExpectedResult;
@@ -50,10 +50,10 @@ import org.sigmah.server.servlet.exporter.utils.ExportConstants;
 public class LogFrameExcelTemplate implements ExportTemplate {
 
 	private final LogFrameExportData data;
-	private final HSSFWorkbook wb;
-	private HSSFRow row = null;
-	private HSSFCell cell = null;
-	private final HSSFSheet sheet;
+	private final Workbook wb;
+	private Row row = null;
+	private Cell cell = null;
+	private final Sheet sheet;
 	private final ExcelUtils utils;
 	private CellRangeAddress region;
 	private final float defHeight = ExportConstants.TITLE_ROW_HEIGHT;
@@ -61,15 +61,11 @@ public class LogFrameExcelTemplate implements ExportTemplate {
 	private final int colWidthIndicator = 25;
 	private StringBuilder builder;
 
-	public LogFrameExcelTemplate(final LogFrameExportData data) throws Throwable {
-		this(data, new HSSFWorkbook());
-	}
-
-	public LogFrameExcelTemplate(final LogFrameExportData data, final HSSFWorkbook wb) throws Throwable {
+	public LogFrameExcelTemplate(final LogFrameExportData data, final Workbook wb) throws Throwable {
 		this.wb = wb;
 		this.data = data;
-		sheet = wb.createSheet(data.getLocalizedVersion("logFrame"));
 		utils = new ExcelUtils(wb);
+		sheet = utils.createManuallyFlushedSheet(data.getLocalizedVersion("logFrame"));
 		int rowIndex = -1;
 		int cellIndex = 0;
 
@@ -142,6 +138,8 @@ public class LogFrameExcelTemplate implements ExportTemplate {
 			}
 		}
 
+		utils.flushRows(sheet);
+
 		// ER
 		if (data.getEnableExpectedResultsGroups()) {
 			hasElement = data.getErMap().keySet().size() > 0;
@@ -180,6 +178,8 @@ public class LogFrameExcelTemplate implements ExportTemplate {
 			}
 		}
 
+		utils.flushRows(sheet);
+
 		// Activities
 		if (data.getEnableActivitiesGroups()) {
 			hasElement = data.getAcMap().keySet().size() > 0;
@@ -218,6 +218,8 @@ public class LogFrameExcelTemplate implements ExportTemplate {
 			}
 		}
 
+		utils.flushRows(sheet);
+
 		// Prerequisites
 		if (data.getEnablePrerequisitesGroups()) {
 			hasElement = data.getPrMap().keySet().size() > 0;
@@ -269,7 +271,7 @@ public class LogFrameExcelTemplate implements ExportTemplate {
 
 	private void mergeCell(int startRow, int endRow, int startCol, int endCol) {
 		region = new CellRangeAddress(startRow, endRow, startCol, endCol);
-		sheet.addMergedRegion(utils.getBorderedRegion(region, sheet, wb));
+		sheet.addMergedRegion(utils.getBorderedRegion(region, sheet));
 	}
 
 	private int putPrItems(int rowIndex, boolean skipFirst, List<Prerequisite> prList) {
@@ -441,33 +443,33 @@ public class LogFrameExcelTemplate implements ExportTemplate {
 
 			if (mergeCodeCells) {
 				region = new CellRangeAddress(startIndex, rowIndex, 2, 3);
-				sheet.addMergedRegion(utils.getBorderedRegion(region, sheet, wb));
+				sheet.addMergedRegion(utils.getBorderedRegion(region, sheet));
 			} else {
 				region = new CellRangeAddress(startIndex, rowIndex, 2, 2);
-				sheet.addMergedRegion(utils.getBorderedRegion(region, sheet, wb));
+				sheet.addMergedRegion(utils.getBorderedRegion(region, sheet));
 
 				region = new CellRangeAddress(startIndex, rowIndex, 3, 3);
-				sheet.addMergedRegion(utils.getBorderedRegion(region, sheet, wb));
+				sheet.addMergedRegion(utils.getBorderedRegion(region, sheet));
 			}
 
 			region = new CellRangeAddress(startIndex, rowIndex, 4, 4);
-			sheet.addMergedRegion(utils.getBorderedRegion(region, sheet, wb));
+			sheet.addMergedRegion(utils.getBorderedRegion(region, sheet));
 
 			region = new CellRangeAddress(startIndex, rowIndex, 7, 7);
-			sheet.addMergedRegion(utils.getBorderedRegion(region, sheet, wb));
+			sheet.addMergedRegion(utils.getBorderedRegion(region, sheet));
 
 		} else {
 			utils.putBorderedBasicCell(sheet, rowIndex, 5, "");
 			utils.putBorderedBasicCell(sheet, rowIndex, 6, "");
 			if (mergeCodeCells) {
 				region = new CellRangeAddress(rowIndex, rowIndex, 2, 3);
-				sheet.addMergedRegion(utils.getBorderedRegion(region, sheet, wb));
+				sheet.addMergedRegion(utils.getBorderedRegion(region, sheet));
 			} else {
 				region = new CellRangeAddress(rowIndex, rowIndex, 2, 2);
-				sheet.addMergedRegion(utils.getBorderedRegion(region, sheet, wb));
+				sheet.addMergedRegion(utils.getBorderedRegion(region, sheet));
 
 				region = new CellRangeAddress(rowIndex, rowIndex, 3, 3);
-				sheet.addMergedRegion(utils.getBorderedRegion(region, sheet, wb));
+				sheet.addMergedRegion(utils.getBorderedRegion(region, sheet));
 			}
 
 		}
@@ -492,13 +494,12 @@ public class LogFrameExcelTemplate implements ExportTemplate {
 		builder.append(groupLabel);
 		cell.setCellValue(builder.toString());
 		CellRangeAddress region = new CellRangeAddress(rowIndex, rowIndex, 2, data.getNumbOfCols());
-		sheet.addMergedRegion(utils.getBorderedRegion(region, sheet, wb));
-		cell.setCellStyle(utils.getGroupStyle(wb));
+		sheet.addMergedRegion(utils.getBorderedRegion(region, sheet));
+		cell.setCellStyle(utils.getGroupStyle());
 	}
 
 	private void putCenteredBasicCell(int rowIndex, int cellIndex, String text) {
-		cell = utils.putBorderedBasicCell(sheet, rowIndex, cellIndex, text);
-		cell.getCellStyle().setAlignment(CellStyle.ALIGN_CENTER);
+		cell = utils.putBorderedBasicCell(sheet, rowIndex, cellIndex, text, CellStyle.ALIGN_CENTER);
 	}
 
 	@Override
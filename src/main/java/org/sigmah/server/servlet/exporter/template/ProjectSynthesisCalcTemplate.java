@@ -22,11 +22,11 @@ package org.sigmah.server.servlet.exporter.template;
  * #L%
  */
 
-import org.odftoolkit.simple.SpreadsheetDocument;
 import org.sigmah.server.domain.Project;
 import org.sigmah.server.i18n.I18nServer;
 import org.sigmah.server.servlet.base.ServletExecutionContext;
 import org.sigmah.server.servlet.exporter.data.ProjectSynthesisData;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter;
 import org.sigmah.shared.Language;
 
 /**
@@ -34,7 +34,7 @@ import org.sigmah.shared.Language;
  */
 public class ProjectSynthesisCalcTemplate extends BaseSynthesisCalcTemplate {
 
-	public ProjectSynthesisCalcTemplate(final ProjectSynthesisData data, final SpreadsheetDocument doc, final ServletExecutionContext context, final I18nServer i18nTranslator, final Language language) throws Throwable {
+	public ProjectSynthesisCalcTemplate(final ProjectSynthesisData data, final OdsWriter doc, final ServletExecutionContext context, final I18nServer i18nTranslator, final Language language) throws Throwable {
 		super(data, doc, Project.class, context, i18nTranslator, language);
 	}
 
@@ -22,7 +22,7 @@ package org.sigmah.server.servlet.exporter.template;
  * #L%
  */
 
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.sigmah.server.domain.Project;
 import org.sigmah.server.i18n.I18nServer;
 import org.sigmah.server.servlet.base.ServletExecutionContext;
@@ -34,7 +34,7 @@ import org.sigmah.shared.Language;
  */
 public class ProjectSynthesisExcelTemplate extends BaseSynthesisExcelTemplate {
 
-	public ProjectSynthesisExcelTemplate(final ProjectSynthesisData data, final HSSFWorkbook wb, final ServletExecutionContext context, final I18nServer i18nTranslator, final Language language) throws Throwable {
+	public ProjectSynthesisExcelTemplate(final ProjectSynthesisData data, final Workbook wb, final ServletExecutionContext context, final I18nServer i18nTranslator, final Language language) throws Throwable {
 		super(data, wb, Project.class, context, i18nTranslator, language);
 	}
 }
@@ -21,33 +21,22 @@ package org.sigmah.server.servlet.exporter.utils;
  * <http://www.gnu.org/licenses/gpl-3.0.html>.
  * #L%
  */
-
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 
+import org.apache.commons.httpclient.URIException;
 import org.apache.commons.httpclient.util.URIUtil;
-import org.odftoolkit.odfdom.dom.style.OdfStyleFamily;
-import org.odftoolkit.odfdom.dom.style.props.OdfParagraphProperties;
-import org.odftoolkit.odfdom.dom.style.props.OdfStyleProperty;
-import org.odftoolkit.odfdom.dom.style.props.OdfTableCellProperties;
-import org.odftoolkit.odfdom.dom.style.props.OdfTextProperties;
-import org.odftoolkit.odfdom.incubator.doc.office.OdfOfficeAutomaticStyles;
-import org.odftoolkit.odfdom.incubator.doc.style.OdfStyle;
-import org.odftoolkit.odfdom.type.Color;
-import org.odftoolkit.simple.SpreadsheetDocument;
-import org.odftoolkit.simple.style.Border;
-import org.odftoolkit.simple.style.Font;
-import org.odftoolkit.simple.style.StyleTypeDefinitions;
-import org.odftoolkit.simple.style.StyleTypeDefinitions.CellBordersType;
-import org.odftoolkit.simple.style.StyleTypeDefinitions.FontStyle;
-import org.odftoolkit.simple.table.Cell;
-import org.odftoolkit.simple.table.CellRange;
-import org.odftoolkit.simple.table.Row;
-import org.odftoolkit.simple.table.Table;
 import org.sigmah.server.servlet.exporter.data.LogFrameExportData;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.Cell;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.CellStyle;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.Row;
+import org.sigmah.server.servlet.exporter.utils.OdsWriter.Table;
 
 /**
+ * Open document spreadsheet specific common functions.
+ * <p>
+ * Cell styles are shared constants: callers must never build a style per cell when one of these fits.
+ * </p>
+ * 
  * @author sherzod (v1.3)
  */
 public final class CalcUtils {
@@ -56,77 +45,62 @@ public final class CalcUtils {
 		// Only provides static methods.
 	}
 
-	private static String coreStyleName = null;
-
-	private static Map<OdfStyleProperty, String> styleMap;
-
-	static {
-		styleMap = new HashMap<OdfStyleProperty, String>();
-
-		styleMap.put(OdfTableCellProperties.Border, "0.035cm solid #000000");
-		styleMap.put(OdfTableCellProperties.WrapOption, "wrap");
-		styleMap.put(OdfTableCellProperties.BackgroundColor, "#ffffff");
-		styleMap.put(OdfTableCellProperties.VerticalAlign, "middle");
-		styleMap.put(OdfParagraphProperties.TextAlign, "left");
-		styleMap.put(OdfParagraphProperties.MarginBottom, "0.15cm");
-		styleMap.put(OdfParagraphProperties.MarginTop, "0.15cm");
-		styleMap.put(OdfTableCellProperties.PaddingTop, "0.15cm");
-		styleMap.put(OdfTableCellProperties.PaddingBottom, "0.15cm");
-		styleMap.put(OdfTableCellProperties.PaddingLeft, "0.25cm");
-		styleMap.put(OdfTableCellProperties.PaddingRight, "0.25cm");
-		styleMap.put(OdfTextProperties.FontWeight, "Regular");
-		styleMap.put(OdfTextProperties.FontSize, "10pt");
-	}
+	public static final String FONT_NAME = "Arial";
 
-	public static String prepareCoreStyle(final SpreadsheetDocument doc) throws Throwable {
-		OdfOfficeAutomaticStyles styles = doc.getContentDom().getOrCreateAutomaticStyles();
-		OdfStyle style = styles.newStyle(OdfStyleFamily.TableCell);
+	/**
+	 * Border of the header cells.
+	 */
+	public static final String BLACK_BORDER = "1pt solid #000000";
 
-		for (OdfStyleProperty property : styleMap.keySet()) {
-			style.setProperty(property, styleMap.get(property));
-		}
-		coreStyleName = style.getStyleNameAttribute();
-		return coreStyleName;
-	}
+	/**
+	 * Bordered and wrapped cell, used for values.
+	 */
+	public static final CellStyle BASIC_STYLE = new CellStyle().withBorder("0.035cm solid #000000").withWrappedText()
+		.withBackgroundColor(ExportConstants.WHITE_HEX).withVerticalAlignment(ExportConstants.ALIGN_VER_MIDDLE).withHorizontalAlignment(ExportConstants.ALIGH_HOR_LEFT)
+		.withParagraphProperty("fo:margin-bottom", "0.15cm").withParagraphProperty("fo:margin-top", "0.15cm").withCellProperty("fo:padding-top", "0.15cm")
+		.withCellProperty("fo:padding-bottom", "0.15cm").withCellProperty("fo:padding-left", "0.25cm").withCellProperty("fo:padding-right", "0.25cm")
+		.withTextProperty("fo:font-weight", "normal").withTextProperty("fo:font-size", "10pt");
 
-	public static Cell putHeader(final Row row, int cellIndex, String header) {
+	public static final CellStyle BASIC_RIGHT_STYLE = BASIC_STYLE.withHorizontalAlignment(ExportConstants.ALIGH_HOR_RIGHT);
+
+	public static final CellStyle HEADER_STYLE = new CellStyle().withBorder(BLACK_BORDER).withBackgroundColor(ExportConstants.GRAY_10_HEX)
+		.withFont(FONT_NAME, 10, true, false).withVerticalAlignment(ExportConstants.ALIGN_VER_MIDDLE).withHorizontalAlignment(ExportConstants.ALIGH_HOR_CENTER).withWrappedText();
+
+	public static final CellStyle HEADER_RIGHT_STYLE = HEADER_STYLE.withHorizontalAlignment(ExportConstants.ALIGH_HOR_RIGHT);
+
+	public static final CellStyle GLOBAL_EXPORT_HEADER_STYLE = BASIC_STYLE.withBackgroundColor(ExportConstants.GRAY_5_HEX).withFont(FONT_NAME, 10, false, true);
+
+	public static final CellStyle GROUP_STYLE = BASIC_STYLE.withBackgroundColor(ExportConstants.LIGHTORANGE_HEX).withFont(FONT_NAME, 10, false, true)
+		.withHorizontalAlignment(ExportConstants.ALIGH_HOR_LEFT);
 
-		Cell cell = row.getCellByIndex(cellIndex);
+	public static final CellStyle TITLE_STYLE = new CellStyle().withWrappedText().withFont(FONT_NAME, 14, true, false).withVerticalAlignment(ExportConstants.ALIGN_VER_MIDDLE)
+		.withHorizontalAlignment(ExportConstants.ALIGH_HOR_CENTER);
+
+	public static Cell putHeader(final Row row, int cellIndex, String header) {
+		final Cell cell = row.getCell(cellIndex);
 		cell.setStringValue(header);
-		cell.setBorders(CellBordersType.ALL_FOUR, getBlackBorder());
-		cell.setCellBackgroundColor(ExportConstants.CALC_COL_GRAY10);
-		cell.setFont(getBoldFont(10));
-		cell.setVerticalAlignment(ExportConstants.ALIGN_VER_MIDDLE);
-		cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_CENTER);
-		cell.setTextWrapped(true);
+		cell.setStyle(HEADER_STYLE);
 		return cell;
 	}
 
 	public static Cell putGlobalExportHeader(final Row row, int cellIndex, String header) {
-
-		Cell cell = row.getCellByIndex(cellIndex);
+		final Cell cell = row.getCell(cellIndex);
 		cell.setStringValue(header);
-		cell.setCellStyleName(coreStyleName);
-		cell.setCellBackgroundColor(ExportConstants.CALC_COL_GRAY5);
-		cell.setFont(getFont(10, false, true));
+		cell.setStyle(GLOBAL_EXPORT_HEADER_STYLE);
 		return cell;
 	}
 
-	public static CellRange mergeCell(final Table table, int startCol, int startRow, int endCol, int endRow) {
-		CellRange cellRange = table.getCellRangeByPosition(startCol, startRow, endCol, endRow);
-		cellRange.merge();
-		return cellRange;
+	public static void mergeCell(final Table table, int startCol, int startRow, int endCol, int endRow) {
+		table.merge(startCol, startRow, endCol, endRow);
 	}
 
 	public static void putGroupCell(final Table table, int colIndex, int rowIndex, String value) {
 		final Cell cell = createBasicCell(table, colIndex, rowIndex, value);
-		cell.setCellBackgroundColor(ExportConstants.CALC_COL_ORANGE);
-		cell.setFont(getFont(10, false, true));
-		cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_LEFT);
+		cell.setStyle(GROUP_STYLE);
 	}
 
 	public static Cell createBasicCell(final Table table, int colIndex, int rowIndex, Object value) {
-		final Cell cell = table.getCellByPosition(colIndex, rowIndex);
+		final Cell cell = table.getCell(colIndex, rowIndex);
 		String strValue;
 		if (value == null) {
 			strValue = "";
@@ -143,36 +117,16 @@ public final class CalcUtils {
 		}
 
 		cell.setStringValue(strValue);
-		cell.setCellStyleName(coreStyleName);
+		cell.setStyle(BASIC_STYLE);
 		return cell;
 	}
 
-	public static Border getBlackBorder() {
-		return new Border(Color.BLACK, 1, StyleTypeDefinitions.SupportedLinearMeasure.PT);
-	}
-
-	public static Font getBoldFont(int size) {
-		return getFont(size, true, false);
-	}
-
-	public static Font getFont(int size, boolean bold, boolean italic) {
-
-		FontStyle style = StyleTypeDefinitions.FontStyle.REGULAR;
-		if (bold)
-			style = StyleTypeDefinitions.FontStyle.BOLD;
-		if (italic)
-			style = StyleTypeDefinitions.FontStyle.ITALIC;
-		return new Font("Arial", style, size, Color.BLACK);
-	}
-
 	public static void putEmptyRow(final Table table, int rowIndex) {
-		Row row = table.getRowByIndex(rowIndex);
-		row.setHeight(3.8, false);
+		table.getRow(rowIndex).setHeight(3.8);
 	}
 
-	public static void applyLink(final Cell cell, String linkName, String target) throws Throwable {
-		java.net.URI uri = new java.net.URI(URIUtil.encodeQuery("#" + normalizeAsLink(target)));
-		cell.addParagraph(linkName).applyHyperlink(uri);
+	public static void applyLink(final Cell cell, String linkName, String target) throws URIException {
+		cell.setLink(linkName, URIUtil.encodeQuery("#" + normalizeAsLink(target)));
 	}
 
 	public static String normalizeAsLink(String linkName) {
@@ -184,15 +138,11 @@ public final class CalcUtils {
 	}
 
 	public static void putMainTitle(final Table table, int rowIndex, int maxCols, String title) {
-		Row row = table.getRowByIndex(rowIndex);
-		Cell cell = row.getCellByIndex(1);
+		final Row row = table.getRow(rowIndex);
+		final Cell cell = row.getCell(1);
 		cell.setStringValue(title);
-		cell.setTextWrapped(true);
-		cell.setFont(CalcUtils.getBoldFont(14));
-		cell.setVerticalAlignment(ExportConstants.ALIGN_VER_MIDDLE);
-		cell.setHorizontalAlignment(ExportConstants.ALIGH_HOR_CENTER);
-		CellRange cellRange = table.getCellRangeByPosition(1, rowIndex, maxCols, rowIndex);
-		cellRange.merge();
-		row.setHeight(7, false);
+		cell.setStyle(TITLE_STYLE);
+		table.merge(1, rowIndex, maxCols, rowIndex);
+		row.setHeight(7);
 	}
 }
@@ -21,44 +21,114 @@ package org.sigmah.server.servlet.exporter.utils;
  * <http://www.gnu.org/licenses/gpl-3.0.html>.
  * #L%
  */
-
+import java.io.IOException;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
-import org.apache.poi.hssf.usermodel.HSSFCell;
-import org.apache.poi.hssf.usermodel.HSSFHyperlink;
 import org.apache.poi.hssf.usermodel.HSSFPalette;
-import org.apache.poi.hssf.usermodel.HSSFRow;
-import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.hssf.util.HSSFColor;
-import org.apache.poi.hssf.util.HSSFRegionUtil;
+import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.CreationHelper;
 import org.apache.poi.ss.usermodel.DataFormat;
 import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Hyperlink;
 import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.sigmah.shared.util.ExportUtils.ExportFormat;
 
 /**
- * MS Excel specific common functions
+ * MS Excel specific common functions.
+ * <p>
+ * Works on both {@code .xls} ({@link HSSFWorkbook}) and streamed {@code .xlsx} ({@link SXSSFWorkbook}) workbooks. Cell
+ * styles and fonts are created once per workbook and shared by all the cells: callers must never modify the style of a
+ * cell returned by this class.
+ * </p>
  * 
  * @author sherzod (v1.3)
  */
 public class ExcelUtils {
 
-	private final HSSFWorkbook wb;
-	private HSSFRow row = null;
-	private HSSFCell cell = null;
-	private final CreationHelper createHelper;
+	/**
+	 * Number of rows kept in memory by the streamed workbooks, older rows are flushed to a temporary file.
+	 */
+	public static final int ROW_ACCESS_WINDOW = 100;
+
+	private final Workbook wb;
+	private Row row = null;
+	private Cell cell = null;
 	private final DataFormat numberFormat;
 
-	public ExcelUtils(final HSSFWorkbook wb) {
+	/**
+	 * Shared cell styles, by usage.
+	 */
+	private final Map<String, CellStyle> styles = new HashMap<String, CellStyle>();
+
+	public ExcelUtils(final Workbook wb) {
 		this.wb = wb;
-		createHelper = wb.getCreationHelper();
 		numberFormat = wb.createDataFormat();
 	}
 
+	/**
+	 * Creates an empty workbook for the given format.
+	 * 
+	 * @param format
+	 *          {@link ExportFormat#XLS} or {@link ExportFormat#XLSX}.
+	 * @return A {@link HSSFWorkbook} for {@link ExportFormat#XLS}, a {@link SXSSFWorkbook} keeping
+	 *         {@link #ROW_ACCESS_WINDOW} rows in memory for {@link ExportFormat#XLSX}.
+	 */
+	public static Workbook createWorkbook(final ExportFormat format) {
+		switch (format) {
+			case XLS:
+				return new HSSFWorkbook();
+			case XLSX:
+				final SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+				workbook.setCompressTempFiles(true);
+				return workbook;
+			default:
+				throw new IllegalArgumentException("The export format '" + format + "' is not an Excel format.");
+		}
+	}
+
+	/**
+	 * Creates a sheet whose rows stay in memory until {@link #flushRows(Sheet)} is called. To be used by templates which
+	 * go back to previous rows (merged and bordered regions).
+	 * 
+	 * @param name
+	 *          The sheet name.
+	 * @return The created sheet.
+	 */
+	public Sheet createManuallyFlushedSheet(final String name) {
+		final Sheet sheet = wb.createSheet(name);
+		if (sheet instanceof SXSSFSheet) {
+			((SXSSFSheet) sheet).setRandomAccessWindowSize(-1);
+		}
+		return sheet;
+	}
+
+	/**
+	 * Flushes the rows of a streamed sheet to its temporary file. Flushed rows cannot be accessed anymore. Does nothing
+	 * for {@code .xls} sheets.
+	 * 
+	 * @param sheet
+	 *          The sheet.
+	 * @throws IOException
+	 *           If the rows cannot be written.
+	 */
+	public void flushRows(final Sheet sheet) throws IOException {
+		if (sheet instanceof SXSSFSheet) {
+			((SXSSFSheet) sheet).flushRows();
+		}
+	}
+
 	public int calculateLineCount(String text, int cellLength) {
 		if (text == null)
 			return 1;
@@ -66,120 +136,133 @@ public class ExcelUtils {
 		return ++lineCount;
 	}
 
-	public HSSFCell putBorderedBasicCell(HSSFSheet sheet, int rowIndex, int cellIndex, Object value) {
+	public Cell putBorderedBasicCell(Sheet sheet, int rowIndex, int cellIndex, Object value) {
+		return putBorderedBasicCell(sheet, rowIndex, cellIndex, value, CellStyle.ALIGN_LEFT);
+	}
+
+	public Cell putBorderedBasicCell(Sheet sheet, int rowIndex, int cellIndex, Object value, short alignment) {
 		cell = sheet.getRow(rowIndex).createCell(cellIndex);
-		cell.setCellStyle(getBoderedBasicStyle(wb));
 
+		final String format;
 		if (value == null) {
 			cell.setCellValue("");
+			format = null;
 		} else if (value instanceof String) {
 			cell.setCellValue((String) value);
+			format = null;
 		} else if (value instanceof Double) {
 			Double d = (Double) value;
 			cell.setCellValue(d.doubleValue());
-			cell.getCellStyle().setDataFormat(numberFormat.getFormat("0.00"));
+			format = "0.00";
 		} else if (value instanceof Long) {
 			Long l = (Long) value;
 			cell.setCellValue(l.doubleValue());
-
-			cell.getCellStyle().setDataFormat(numberFormat.getFormat("#"));
+			format = "#";
 		} else { // date
 			cell.setCellValue((Date) value);
-			cell.getCellStyle().setDataFormat(createHelper.createDataFormat().getFormat(ExportConstants.DATE_FORMAT_PATTERN));
+			format = ExportConstants.DATE_FORMAT_PATTERN;
 		}
-		cell.getCellStyle().setAlignment(CellStyle.ALIGN_LEFT);
+		cell.setCellStyle(getBoderedBasicStyle(format, alignment));
 		return cell;
 	}
 
-	public HSSFCell putHeader(HSSFRow row, int cellIndex, String header) {
+	public Cell putHeader(Row row, int cellIndex, String header) {
+		return putHeader(row, cellIndex, header, CellStyle.ALIGN_CENTER);
+	}
+
+	public Cell putHeader(Row row, int cellIndex, String header, short alignment) {
 		cell = row.createCell(cellIndex);
 		cell.setCellValue(header);
-		cell.setCellStyle(getHeaderStyle(wb));
+		cell.setCellStyle(getHeaderStyle(alignment));
 		return cell;
 	}
 
-	public HSSFCell putGlobalExportHeader(HSSFRow row, int cellIndex, String header) {
+	public Cell putGlobalExportHeader(Row row, int cellIndex, String header) {
 		cell = row.createCell(cellIndex);
 		cell.setCellValue(header);
-		cell.setCellStyle(getGlobalExportHeaderStyle(wb));
+		cell.setCellStyle(getGlobalExportHeaderStyle());
 		return cell;
 	}
 
-	public CellStyle getGlobalExportHeaderStyle(HSSFWorkbook wb) {
-		CellStyle style = createBorderedStyle(wb);
-		style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
-
-		HSSFPalette palette = wb.getCustomPalette();
-		palette.setColorAtIndex(HSSFColor.GREY_25_PERCENT.index, ExportConstants.GRAY_5_RGB[0], ExportConstants.GRAY_5_RGB[1], ExportConstants.GRAY_5_RGB[2]);
-		style.setFillForegroundColor(HSSFColor.GREY_25_PERCENT.index);
-		style.setFillPattern(CellStyle.SOLID_FOREGROUND);
-		style.setFont(getItalicFont(wb, (short) 10));
-		style.setWrapText(true);
-		style.setIndention((short) 1);
+	public CellStyle getGlobalExportHeaderStyle() {
+		CellStyle style = styles.get("globalExportHeader");
+		if (style == null) {
+			style = createBorderedStyle(wb);
+			style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
+			setFillColor(style, HSSFColor.GREY_25_PERCENT.index, ExportConstants.GRAY_5_RGB);
+			style.setFont(getItalicFont(wb, (short) 10));
+			style.setWrapText(true);
+			style.setIndention((short) 1);
+			styles.put("globalExportHeader", style);
+		}
 		return style;
 	}
 
-	public void putMainTitle(final HSSFSheet sheet, int rowIndex, String text, int maxCols) {
+	public void putMainTitle(final Sheet sheet, int rowIndex, String text, int maxCols) {
 		// title
 		row = sheet.createRow(rowIndex);
 		row.setHeightInPoints(ExportConstants.HEADER_ROW_HEIGHT);
 		cell = row.createCell(1);
 		cell.setCellValue(text);
-		cell.setCellStyle(getTopicStyle(wb));
+		cell.setCellStyle(getTopicStyle());
 		sheet.addMergedRegion(new CellRangeAddress(rowIndex, rowIndex, 1, maxCols));
 	}
 
-	public void putInfoRow(final HSSFSheet sheet, int rowIndex, String key, String value, int maxCols) {
+	public void putInfoRow(final Sheet sheet, int rowIndex, String key, String value, int maxCols) {
 		int cellIndex = 0;
 		row = sheet.createRow(rowIndex);
 		row.setHeightInPoints(ExportConstants.TITLE_ROW_HEIGHT);
 		cell = row.createCell(++cellIndex);
 		cell.setCellValue(key);
-		cell.setCellStyle(getInfoStyle(wb, true));
+		cell.setCellStyle(getInfoStyle(true));
 
 		cell = row.createCell(++cellIndex);
 		cell.setCellValue(value);
-		cell.setCellStyle(getInfoStyle(wb, false));
+		cell.setCellStyle(getInfoStyle(false));
 		sheet.addMergedRegion(new CellRangeAddress(rowIndex, rowIndex, cellIndex, maxCols));
 	}
 
-	public void putEmptyRow(HSSFSheet sheet, int index, float height) {
+	public void putEmptyRow(Sheet sheet, int index, float height) {
 		sheet.createRow(index).setHeightInPoints(height);
 	}
 
-	public CellStyle getTopicStyle(HSSFWorkbook wb) {
-		CellStyle style = wb.createCellStyle();
-		style.setAlignment(CellStyle.ALIGN_CENTER);
-		style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
-		style.setFont(getBoldFont(wb, (short) 14));
+	public CellStyle getTopicStyle() {
+		CellStyle style = styles.get("topic");
+		if (style == null) {
+			style = wb.createCellStyle();
+			style.setAlignment(CellStyle.ALIGN_CENTER);
+			style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
+			style.setFont(getBoldFont(wb, (short) 14));
+			styles.put("topic", style);
+		}
 		return style;
 	}
 
-	public CellStyle getHeaderStyle(HSSFWorkbook wb) {
-		CellStyle style = createBorderedStyle(wb);
-		style.setAlignment(CellStyle.ALIGN_CENTER);
-		style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
-
-		HSSFPalette palette = wb.getCustomPalette();
-		palette.setColorAtIndex(HSSFColor.GREY_25_PERCENT.index, ExportConstants.GRAY_10_RGB[0], ExportConstants.GRAY_10_RGB[1], ExportConstants.GRAY_10_RGB[2]);
-		style.setFillForegroundColor(HSSFColor.GREY_25_PERCENT.index);
-		style.setFillPattern(CellStyle.SOLID_FOREGROUND);
-		style.setFont(getBoldFont(wb, (short) 10));
-		style.setWrapText(true);
+	public CellStyle getHeaderStyle(short alignment) {
+		final String key = "header." + alignment;
+		CellStyle style = styles.get(key);
+		if (style == null) {
+			style = createBorderedStyle(wb);
+			style.setAlignment(alignment);
+			style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
+			setFillColor(style, HSSFColor.GREY_25_PERCENT.index, ExportConstants.GRAY_10_RGB);
+			style.setFont(getBoldFont(wb, (short) 10));
+			style.setWrapText(true);
+			styles.put(key, style);
+		}
 		return style;
 	}
 
-	public CellStyle getGroupStyle(HSSFWorkbook wb) {
-		CellStyle style = createBorderedStyle(wb);
-		style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
-
-		HSSFPalette palette = wb.getCustomPalette();
-		palette.setColorAtIndex(HSSFColor.BROWN.index, ExportConstants.LIGHTORANGE_RGB[0], ExportConstants.LIGHTORANGE_RGB[1], ExportConstants.LIGHTORANGE_RGB[2]);
-
-		style.setFillForegroundColor(HSSFColor.BROWN.index);
-		style.setFillPattern(CellStyle.SOLID_FOREGROUND);
-		style.setFont(getItalicFont(wb, (short) 10));
-		style.setWrapText(true);
+	public CellStyle getGroupStyle() {
+		CellStyle style = styles.get("group");
+		if (style == null) {
+			style = createBorderedStyle(wb);
+			style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
+			setFillColor(style, HSSFColor.BROWN.index, ExportConstants.LIGHTORANGE_RGB);
+			style.setFont(getItalicFont(wb, (short) 10));
+			style.setWrapText(true);
+			styles.put("group", style);
+		}
 		return style;
 	}
 
@@ -197,41 +280,90 @@ public class ExcelUtils {
 		return font;
 	}
 
-	public CellStyle getInfoStyle(Workbook wb, boolean bold) {
-		Font font = getBoldFont(wb, (short) 11);
-		if (!bold)
-			font.setBoldweight(Font.BOLDWEIGHT_NORMAL);
-		CellStyle style = wb.createCellStyle();
-		style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
-		style.setFont(font);
-		style.setIndention((short) 1);
-		style.setWrapText(true);
+	public CellStyle getInfoStyle(boolean bold) {
+		final String key = "info." + bold;
+		CellStyle style = styles.get(key);
+		if (style == null) {
+			Font font = getBoldFont(wb, (short) 11);
+			if (!bold)
+				font.setBoldweight(Font.BOLDWEIGHT_NORMAL);
+			style = wb.createCellStyle();
+			style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
+			style.setFont(font);
+			style.setIndention((short) 1);
+			style.setWrapText(true);
+			styles.put(key, style);
+		}
 		return style;
 	}
 
-	public CellStyle getBoderedBasicStyle(Workbook wb) {
-		CellStyle style = createBorderedStyle(wb);
-		style.setIndention((short) 1);
-		style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
-		style.setWrapText(true);
+	public CellStyle getBoderedBasicStyle() {
+		return getBoderedBasicStyle(null, CellStyle.ALIGN_LEFT);
+	}
+
+	/**
+	 * Returns the shared bordered style for the given data format and alignment.
+	 * 
+	 * @param format
+	 *          The data format, {@code null} for the default format.
+	 * @param alignment
+	 *          The horizontal alignment.
+	 * @return The cell style.
+	 */
+	public CellStyle getBoderedBasicStyle(String format, short alignment) {
+		final String key = "basic." + format + '.' + alignment;
+		CellStyle style = styles.get(key);
+		if (style == null) {
+			style = createBorderedStyle(wb);
+			style.setIndention((short) 1);
+			style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
+			style.setWrapText(true);
+			style.setAlignment(alignment);
+			if (format != null) {
+				style.setDataFormat(numberFormat.getFormat(format));
+			}
+			styles.put(key, style);
+		}
 		return style;
 	}
 
-	public void createLinkCell(HSSFCell cell, String value, String target, boolean bordered) {
+	/**
+	 * Returns the shared bordered style with an italic font, used for messages.
+	 * 
+	 * @return The cell style.
+	 */
+	public CellStyle getBorderedItalicStyle() {
+		CellStyle style = styles.get("italic");
+		if (style == null) {
+			style = createBorderedStyle(wb);
+			style.setIndention((short) 1);
+			style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
+			style.setWrapText(true);
+			style.setAlignment(CellStyle.ALIGN_LEFT);
+			style.setFont(getItalicFont(wb, (short) 11));
+			styles.put("italic", style);
+		}
+		return style;
+	}
+
+	public void createLinkCell(Cell cell, String value, String target, boolean bordered) {
 		cell.setCellValue(value);
 
-		CellStyle style = wb.createCellStyle();
-		if (bordered)
-			style = createBorderedStyle(wb);
-		Font hlink_font = wb.createFont();
-		hlink_font.setUnderline(Font.U_SINGLE);
-		hlink_font.setColor(IndexedColors.BLUE.getIndex());
-		style.setFont(hlink_font);
-		style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
-		style.setIndention((short) 1);
-		style.setWrapText(true);
-
-		HSSFHyperlink link = new HSSFHyperlink(HSSFHyperlink.LINK_DOCUMENT);
+		final String key = "link." + bordered;
+		CellStyle style = styles.get(key);
+		if (style == null) {
+			style = bordered ? createBorderedStyle(wb) : wb.createCellStyle();
+			Font hlink_font = wb.createFont();
+			hlink_font.setUnderline(Font.U_SINGLE);
+			hlink_font.setColor(IndexedColors.BLUE.getIndex());
+			style.setFont(hlink_font);
+			style.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
+			style.setIndention((short) 1);
+			style.setWrapText(true);
+			styles.put(key, style);
+		}
+
+		Hyperlink link = wb.getCreationHelper().createHyperlink(Hyperlink.LINK_DOCUMENT);
 		link.setAddress("'" + normalizeAsLink(target) + "'!A1");
 		cell.setHyperlink(link);
 		cell.setCellStyle(style);
@@ -248,19 +380,48 @@ public class ExcelUtils {
 		return linkName;
 	}
 
-	public CellRangeAddress getBorderedRegion(CellRangeAddress region, HSSFSheet sheet, HSSFWorkbook wb) {
-		final short solid = CellStyle.BORDER_THIN;
-		HSSFRegionUtil.setBorderBottom(solid, region, sheet, wb);
-		HSSFRegionUtil.setBorderTop(solid, region, sheet, wb);
-		HSSFRegionUtil.setBorderLeft(solid, region, sheet, wb);
-		HSSFRegionUtil.setBorderRight(solid, region, sheet, wb);
-		HSSFRegionUtil.setBottomBorderColor(IndexedColors.BLACK.getIndex(), region, sheet, wb);
-		HSSFRegionUtil.setTopBorderColor(IndexedColors.BLACK.getIndex(), region, sheet, wb);
-		HSSFRegionUtil.setLeftBorderColor(IndexedColors.BLACK.getIndex(), region, sheet, wb);
-		HSSFRegionUtil.setRightBorderColor(IndexedColors.BLACK.getIndex(), region, sheet, wb);
+	/**
+	 * Draws the borders of the given region: every cell of the region, created if missing, gets the bordered basic style
+	 * unless its style is already bordered (headers, groups). The rows of the region must not have been flushed yet when the sheet is streamed (see
+	 * {@link #createManuallyFlushedSheet(String)}).
+	 * 
+	 * @param region
+	 *          The region.
+	 * @param sheet
+	 *          The sheet.
+	 * @return The region.
+	 */
+	public CellRangeAddress getBorderedRegion(CellRangeAddress region, Sheet sheet) {
+		final CellStyle style = getBoderedBasicStyle();
+		for (int rowIndex = region.getFirstRow(); rowIndex <= region.getLastRow(); rowIndex++) {
+			Row regionRow = sheet.getRow(rowIndex);
+			if (regionRow == null) {
+				if (sheet instanceof SXSSFSheet) {
+					// Recreating a flushed row would corrupt the written sheet.
+					throw new IllegalStateException("Row " + rowIndex + " of the bordered region has already been flushed.");
+				}
+				regionRow = sheet.createRow(rowIndex);
+			}
+			for (int cellIndex = region.getFirstColumn(); cellIndex <= region.getLastColumn(); cellIndex++) {
+				Cell cell = regionRow.getCell(cellIndex);
+				if (cell == null) {
+					cell = regionRow.createCell(cellIndex);
+				}
+				if (!isBordered(cell.getCellStyle())) {
+					cell.setCellStyle(style);
+				}
+			}
+		}
 		return region;
 	}
 
+	private static boolean isBordered(final CellStyle style) {
+		return style.getBorderTop() != CellStyle.BORDER_NONE
+			&& style.getBorderBottom() != CellStyle.BORDER_NONE
+			&& style.getBorderLeft() != CellStyle.BORDER_NONE
+			&& style.getBorderRight() != CellStyle.BORDER_NONE;
+	}
+
 	public CellStyle createBorderedStyle(Workbook wb) {
 		CellStyle style = wb.createCellStyle();
 		style.setBorderRight(CellStyle.BORDER_THIN);
@@ -274,4 +435,26 @@ public class ExcelUtils {
 		return style;
 	}
 
+	/**
+	 * Sets a solid fill color to the given style. The {@code .xls} palette has no free slot, so the color replaces the
+	 * given palette index.
+	 * 
+	 * @param style
+	 *          The cell style.
+	 * @param index
+	 *          The replaced palette index ({@code .xls} only).
+	 * @param rgb
+	 *          The color.
+	 */
+	private void setFillColor(CellStyle style, short index, byte[] rgb) {
+		if (style instanceof XSSFCellStyle) {
+			((XSSFCellStyle) style).setFillForegroundColor(new XSSFColor(rgb));
+		} else {
+			HSSFPalette palette = ((HSSFWorkbook) wb).getCustomPalette();
+			palette.setColorAtIndex(index, rgb[0], rgb[1], rgb[2]);
+			style.setFillForegroundColor(index);
+		}
+		style.setFillPattern(CellStyle.SOLID_FOREGROUND);
+	}
+
 }
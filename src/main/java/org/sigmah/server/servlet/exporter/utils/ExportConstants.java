@@ -25,10 +25,6 @@ package org.sigmah.server.servlet.exporter.utils;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 
-import org.odftoolkit.odfdom.type.Color;
-import org.odftoolkit.simple.style.StyleTypeDefinitions.HorizontalAlignmentType;
-import org.odftoolkit.simple.style.StyleTypeDefinitions.VerticalAlignmentType;
-
 /**
  * Constants used only in exporting classes
  * 
@@ -91,14 +87,10 @@ public final class ExportConstants {
 	public final static String WHITE_HEX = "#FFFFFF";
 
 	// Calc
-	public static final VerticalAlignmentType ALIGN_VER_MIDDLE = VerticalAlignmentType.MIDDLE;
-	public static final HorizontalAlignmentType ALIGH_HOR_CENTER = HorizontalAlignmentType.CENTER;
-	public static final HorizontalAlignmentType ALIGH_HOR_LEFT = HorizontalAlignmentType.LEFT;
-	public static final HorizontalAlignmentType ALIGH_HOR_RIGHT = HorizontalAlignmentType.RIGHT;
-
-	public static final Color CALC_COL_GRAY5 = Color.valueOf(ExportConstants.GRAY_5_HEX);
-	public static final Color CALC_COL_GRAY10 = Color.valueOf(ExportConstants.GRAY_10_HEX);
-	public static final Color CALC_COL_ORANGE = Color.valueOf(ExportConstants.LIGHTORANGE_HEX);
+	public static final String ALIGN_VER_MIDDLE = "middle";
+	public static final String ALIGH_HOR_CENTER = "center";
+	public static final String ALIGH_HOR_LEFT = "left";
+	public static final String ALIGH_HOR_RIGHT = "right";
 
 	/*
 	 * Mix
@@ -0,0 +1,875 @@
+package org.sigmah.server.servlet.exporter.utils;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Streaming writer of OpenDocument spreadsheets ({@code .ods}).
+ * <p>
+ * Rows are serialized with a StAX {@link XMLStreamWriter} into a temporary file as soon as they are flushed, the
+ * document is never held in memory as a DOM. The archive ({@code mimetype}, manifest, styles and {@code content.xml})
+ * is assembled by {@link #write(OutputStream)}.
+ * </p>
+ * <p>
+ * The rows of the current table stay in memory until {@link Table#flushRows()} is called (or another table is started)
+ * so templates can still merge cells over several rows. Flushed rows cannot be accessed anymore. Cell styles are
+ * immutable {@link CellStyle} values shared by all the cells, each distinct style is declared once in the document.
+ * </p>
+ */
+public class OdsWriter implements Closeable {
+
+	private static final String MIMETYPE = "application/vnd.oasis.opendocument.spreadsheet";
+	private static final String VERSION = "1.2";
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final Map<String, String> NAMESPACES = new LinkedHashMap<String, String>();
+
+	static {
+		NAMESPACES.put("office", "urn:oasis:names:tc:opendocument:xmlns:office:1.0");
+		NAMESPACES.put("style", "urn:oasis:names:tc:opendocument:xmlns:style:1.0");
+		NAMESPACES.put("text", "urn:oasis:names:tc:opendocument:xmlns:text:1.0");
+		NAMESPACES.put("table", "urn:oasis:names:tc:opendocument:xmlns:table:1.0");
+		NAMESPACES.put("fo", "urn:oasis:names:tc:opendocument:xmlns:xsl-fo-compatible:1.0");
+		NAMESPACES.put("svg", "urn:oasis:names:tc:opendocument:xmlns:svg-compatible:1.0");
+		NAMESPACES.put("xlink", "http://www.w3.org/1999/xlink");
+	}
+
+	private static final String MANIFEST_NAMESPACE = "urn:oasis:names:tc:opendocument:xmlns:manifest:1.0";
+
+	private final XMLOutputFactory factory = XMLOutputFactory.newInstance();
+
+	/**
+	 * Temporary file receiving the serialized rows of every table, one after the other.
+	 */
+	private final File rowsFile;
+	private final FileOutputStream rowsFileStream;
+	private final OutputStream rowsStream;
+	private final XMLStreamWriter rows;
+
+	private final List<Table> tables = new ArrayList<Table>();
+	private Table currentTable;
+
+	private final Map<CellStyle, String> cellStyles = new LinkedHashMap<CellStyle, String>();
+	private final Map<String, String> rowStyles = new LinkedHashMap<String, String>();
+	private final Map<String, String> columnStyles = new LinkedHashMap<String, String>();
+
+	private boolean written;
+
+	public OdsWriter() throws IOException, XMLStreamException {
+		rowsFile = File.createTempFile("sigmah-ods-", ".xml");
+		rowsFileStream = new FileOutputStream(rowsFile);
+		rowsStream = new BufferedOutputStream(rowsFileStream);
+		rows = factory.createXMLStreamWriter(rowsStream, "UTF-8");
+
+		// The rows are wrapped into a single root so that the temporary file stays a well formed document.
+		startElement(rows, "office:spreadsheet");
+		for (final Map.Entry<String, String> namespace : NAMESPACES.entrySet()) {
+			rows.writeNamespace(namespace.getKey(), namespace.getValue());
+		}
+		rows.writeCharacters("");
+	}
+
+	/**
+	 * Starts a new table (sheet). The rows of the previous table are flushed.
+	 * 
+	 * @param name
+	 *          The table name.
+	 * @return The new table.
+	 * @throws IOException
+	 *           If the rows of the previous table cannot be written.
+	 * @throws XMLStreamException
+	 *           If the rows of the previous table cannot be written.
+	 */
+	public Table newTable(final String name) throws IOException, XMLStreamException {
+		endCurrentTable();
+		currentTable = new Table(name, position());
+		tables.add(currentTable);
+		return currentTable;
+	}
+
+	/**
+	 * Writes the document into the given stream. The writer cannot be used anymore afterwards.
+	 * 
+	 * @param output
+	 *          The output stream, it is not closed.
+	 * @throws IOException
+	 *           If the document cannot be written.
+	 * @throws XMLStreamException
+	 *           If the document cannot be written.
+	 */
+	public void write(final OutputStream output) throws IOException, XMLStreamException {
+		if (written) {
+			throw new IllegalStateException("The document has already been written.");
+		}
+		written = true;
+
+		if (tables.isEmpty()) {
+			newTable("Sheet1");
+		}
+		endCurrentTable();
+		rows.writeEndElement();
+		rows.writeEndDocument();
+		rows.close();
+		rowsStream.close();
+
+		final ZipOutputStream zip = new ZipOutputStream(output);
+
+		// The mimetype must be the first entry, stored without compression.
+		final byte[] mimetype = MIMETYPE.getBytes(UTF_8);
+		final CRC32 crc = new CRC32();
+		crc.update(mimetype);
+		final ZipEntry mimetypeEntry = new ZipEntry("mimetype");
+		mimetypeEntry.setMethod(ZipEntry.STORED);
+		mimetypeEntry.setSize(mimetype.length);
+		mimetypeEntry.setCompressedSize(mimetype.length);
+		mimetypeEntry.setCrc(crc.getValue());
+		zip.putNextEntry(mimetypeEntry);
+		zip.write(mimetype);
+		zip.closeEntry();
+
+		zip.putNextEntry(new ZipEntry("META-INF/manifest.xml"));
+		writeManifest(zip);
+		zip.closeEntry();
+
+		zip.putNextEntry(new ZipEntry("styles.xml"));
+		writeStyles(zip);
+		zip.closeEntry();
+
+		zip.putNextEntry(new ZipEntry("content.xml"));
+		writeContent(zip);
+		zip.closeEntry();
+
+		zip.finish();
+	}
+
+	/**
+	 * Deletes the temporary file.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			rowsStream.close();
+		} finally {
+			if (rowsFile.exists() && !rowsFile.delete()) {
+				rowsFile.deleteOnExit();
+			}
+		}
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	//
+	// Internal.
+	//
+	// ---------------------------------------------------------------------------------------------
+
+	private void endCurrentTable() throws IOException, XMLStreamException {
+		if (currentTable != null) {
+			currentTable.flushRows();
+			currentTable.end = position();
+			currentTable = null;
+		}
+	}
+
+	/**
+	 * @return The number of bytes written into the temporary file.
+	 */
+	private long position() throws IOException, XMLStreamException {
+		rows.flush();
+		rowsStream.flush();
+		return rowsFileStream.getChannel().position();
+	}
+
+	private String getCellStyleName(final CellStyle style) {
+		String name = cellStyles.get(style);
+		if (name == null) {
+			name = "ce" + (cellStyles.size() + 1);
+			cellStyles.put(style, name);
+		}
+		return name;
+	}
+
+	private String getRowStyleName(final String height) {
+		String name = rowStyles.get(height);
+		if (name == null) {
+			name = "ro" + (rowStyles.size() + 1);
+			rowStyles.put(height, name);
+		}
+		return name;
+	}
+
+	private String getColumnStyleName(final String width) {
+		String name = columnStyles.get(width);
+		if (name == null) {
+			name = "co" + (columnStyles.size() + 1);
+			columnStyles.put(width, name);
+		}
+		return name;
+	}
+
+	private void writeManifest(final OutputStream output) throws XMLStreamException {
+		final XMLStreamWriter xml = factory.createXMLStreamWriter(output, "UTF-8");
+		xml.writeStartDocument("UTF-8", "1.0");
+		xml.writeStartElement("manifest", "manifest", MANIFEST_NAMESPACE);
+		xml.writeNamespace("manifest", MANIFEST_NAMESPACE);
+		xml.writeAttribute("manifest", MANIFEST_NAMESPACE, "version", VERSION);
+		writeManifestEntry(xml, "/", MIMETYPE);
+		writeManifestEntry(xml, "content.xml", "text/xml");
+		writeManifestEntry(xml, "styles.xml", "text/xml");
+		xml.writeEndElement();
+		xml.writeEndDocument();
+		xml.flush();
+	}
+
+	private static void writeManifestEntry(final XMLStreamWriter xml, final String path, final String mediaType) throws XMLStreamException {
+		xml.writeEmptyElement("manifest", "file-entry", MANIFEST_NAMESPACE);
+		xml.writeAttribute("manifest", MANIFEST_NAMESPACE, "full-path", path);
+		xml.writeAttribute("manifest", MANIFEST_NAMESPACE, "media-type", mediaType);
+	}
+
+	private void writeStyles(final OutputStream output) throws XMLStreamException {
+		final XMLStreamWriter xml = factory.createXMLStreamWriter(output, "UTF-8");
+		xml.writeStartDocument("UTF-8", "1.0");
+		startDocumentElement(xml, "office:document-styles");
+		emptyElement(xml, "office:styles");
+		xml.writeEndElement();
+		xml.writeEndDocument();
+		xml.flush();
+	}
+
+	private void writeContent(final OutputStream output) throws IOException, XMLStreamException {
+		final XMLStreamWriter xml = factory.createXMLStreamWriter(output, "UTF-8");
+		xml.writeStartDocument("UTF-8", "1.0");
+		startDocumentElement(xml, "office:document-content");
+
+		// Fonts.
+		final Set<String> fonts = new LinkedHashSet<String>();
+		for (final CellStyle style : cellStyles.keySet()) {
+			final String font = style.textProperties.get("style:font-name");
+			if (font != null) {
+				fonts.add(font);
+			}
+		}
+		startElement(xml, "office:font-face-decls");
+		for (final String font : fonts) {
+			emptyElement(xml, "style:font-face");
+			attribute(xml, "style:name", font);
+			attribute(xml, "svg:font-family", font);
+		}
+		xml.writeEndElement();
+
+		// Styles.
+		startElement(xml, "office:automatic-styles");
+		for (final Map.Entry<String, String> style : columnStyles.entrySet()) {
+			startStyle(xml, style.getValue(), "table-column");
+			emptyElement(xml, "style:table-column-properties");
+			attribute(xml, "fo:break-before", "auto");
+			attribute(xml, "style:column-width", style.getKey());
+			xml.writeEndElement();
+		}
+		for (final Map.Entry<String, String> style : rowStyles.entrySet()) {
+			startStyle(xml, style.getValue(), "table-row");
+			emptyElement(xml, "style:table-row-properties");
+			attribute(xml, "style:row-height", style.getKey());
+			attribute(xml, "fo:break-before", "auto");
+			attribute(xml, "style:use-optimal-row-height", "false");
+			xml.writeEndElement();
+		}
+		for (final Map.Entry<CellStyle, String> style : cellStyles.entrySet()) {
+			startStyle(xml, style.getValue(), "table-cell");
+			writeProperties(xml, "style:table-cell-properties", style.getKey().cellProperties);
+			writeProperties(xml, "style:paragraph-properties", style.getKey().paragraphProperties);
+			writeProperties(xml, "style:text-properties", style.getKey().textProperties);
+			xml.writeEndElement();
+		}
+		xml.writeEndElement();
+
+		// Tables.
+		startElement(xml, "office:body");
+		startElement(xml, "office:spreadsheet");
+
+		final InputStream input = new FileInputStream(rowsFile);
+		try {
+			long position = 0;
+			final byte[] buffer = new byte[8192];
+
+			for (final Table table : tables) {
+				startElement(xml, "table:table");
+				attribute(xml, "table:name", table.name);
+				table.writeColumns(xml);
+
+				// Closes the pending start tag before copying the serialized rows as is.
+				xml.writeCharacters("");
+				xml.flush();
+
+				position += skip(input, table.start - position);
+				long remaining = table.end - table.start;
+				while (remaining > 0) {
+					final int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+					if (read < 0) {
+						throw new IOException("Unexpected end of the rows of table '" + table.name + "'.");
+					}
+					output.write(buffer, 0, read);
+					remaining -= read;
+					position += read;
+				}
+
+				xml.writeEndElement();
+			}
+		} finally {
+			input.close();
+		}
+
+		xml.writeEndElement();
+		xml.writeEndElement();
+		xml.writeEndElement();
+		xml.writeEndDocument();
+		xml.flush();
+	}
+
+	private static long skip(final InputStream input, final long count) throws IOException {
+		long skipped = 0;
+		while (skipped < count) {
+			final long n = input.skip(count - skipped);
+			if (n <= 0) {
+				throw new IOException("Unable to skip " + count + " bytes of the rows file.");
+			}
+			skipped += n;
+		}
+		return skipped;
+	}
+
+	private static void startDocumentElement(final XMLStreamWriter xml, final String name) throws XMLStreamException {
+		startElement(xml, name);
+		for (final Map.Entry<String, String> namespace : NAMESPACES.entrySet()) {
+			xml.writeNamespace(namespace.getKey(), namespace.getValue());
+		}
+		attribute(xml, "office:version", VERSION);
+	}
+
+	private static void startStyle(final XMLStreamWriter xml, final String name, final String family) throws XMLStreamException {
+		startElement(xml, "style:style");
+		attribute(xml, "style:name", name);
+		attribute(xml, "style:family", family);
+	}
+
+	private static void writeProperties(final XMLStreamWriter xml, final String element, final Map<String, String> properties) throws XMLStreamException {
+		if (properties.isEmpty()) {
+			return;
+		}
+		emptyElement(xml, element);
+		for (final Map.Entry<String, String> property : properties.entrySet()) {
+			attribute(xml, property.getKey(), property.getValue());
+		}
+	}
+
+	private static void startElement(final XMLStreamWriter xml, final String qualifiedName) throws XMLStreamException {
+		final int colon = qualifiedName.indexOf(':');
+		final String prefix = qualifiedName.substring(0, colon);
+		xml.writeStartElement(prefix, qualifiedName.substring(colon + 1), NAMESPACES.get(prefix));
+	}
+
+	private static void emptyElement(final XMLStreamWriter xml, final String qualifiedName) throws XMLStreamException {
+		final int colon = qualifiedName.indexOf(':');
+		final String prefix = qualifiedName.substring(0, colon);
+		xml.writeEmptyElement(prefix, qualifiedName.substring(colon + 1), NAMESPACES.get(prefix));
+	}
+
+	private static void attribute(final XMLStreamWriter xml, final String qualifiedName, final String value) throws XMLStreamException {
+		final int colon = qualifiedName.indexOf(':');
+		final String prefix = qualifiedName.substring(0, colon);
+		xml.writeAttribute(prefix, NAMESPACES.get(prefix), qualifiedName.substring(colon + 1), value);
+	}
+
+	/**
+	 * Writes a text as a paragraph, keeping the line breaks, spaces and tabulations which would be collapsed otherwise.
+	 */
+	private static void writeText(final XMLStreamWriter xml, final String text, final String href) throws XMLStreamException {
+		startElement(xml, "text:p");
+		if (href != null) {
+			startElement(xml, "text:a");
+			attribute(xml, "xlink:type", "simple");
+			attribute(xml, "xlink:href", href);
+		}
+
+		boolean firstLine = true;
+		for (final String line : text.split("\n", -1)) {
+			if (!firstLine) {
+				emptyElement(xml, "text:line-break");
+			}
+			firstLine = false;
+
+			final StringBuilder run = new StringBuilder();
+			int index = 0;
+			while (index < line.length()) {
+				final char c = line.charAt(index);
+				if (c == ' ') {
+					int end = index;
+					while (end < line.length() && line.charAt(end) == ' ') {
+						end++;
+					}
+					int spaces = end - index;
+					if (index > 0) {
+						run.append(' ');
+						spaces--;
+					}
+					if (spaces > 0) {
+						writeRun(xml, run);
+						emptyElement(xml, "text:s");
+						if (spaces > 1) {
+							attribute(xml, "text:c", String.valueOf(spaces));
+						}
+					}
+					index = end;
+				} else if (c == '\t') {
+					writeRun(xml, run);
+					emptyElement(xml, "text:tab");
+					index++;
+				} else {
+					if (c != '\r') {
+						run.append(c);
+					}
+					index++;
+				}
+			}
+			writeRun(xml, run);
+		}
+
+		if (href != null) {
+			xml.writeEndElement();
+		}
+		xml.writeEndElement();
+	}
+
+	private static void writeRun(final XMLStreamWriter xml, final StringBuilder run) throws XMLStreamException {
+		if (run.length() > 0) {
+			xml.writeCharacters(run.toString());
+			run.setLength(0);
+		}
+	}
+
+	private static String toMillimeters(final double value) {
+		return String.valueOf(Math.round(value * 1000) / 1000d) + "mm";
+	}
+
+	// ---------------------------------------------------------------------------------------------
+	//
+	// Document model.
+	//
+	// ---------------------------------------------------------------------------------------------
+
+	/**
+	 * A table (sheet) of the document. Only the rows which have not been flushed yet are kept in memory.
+	 */
+	public final class Table {
+
+		private final String name;
+		private final TreeMap<Integer, Row> bufferedRows = new TreeMap<Integer, Row>();
+		private final Map<Integer, String> columnWidths = new HashMap<Integer, String>();
+
+		/**
+		 * Index of the first row which has not been flushed.
+		 */
+		private int firstBufferedRow;
+		private int columnCount = 1;
+
+		private final long start;
+		private long end;
+
+		private Table(final String name, final long start) {
+			this.name = name;
+			this.start = start;
+		}
+
+		/**
+		 * Returns the row at the given index, creating it if needed.
+		 * 
+		 * @param index
+		 *          The row index.
+		 * @return The row.
+		 * @throws IllegalStateException
+		 *           If the row has already been flushed.
+		 */
+		public Row getRow(final int index) {
+			if (index < firstBufferedRow || end > 0) {
+				throw new IllegalStateException("The row " + index + " of table '" + name + "' has already been flushed.");
+			}
+			Row row = bufferedRows.get(index);
+			if (row == null) {
+				row = new Row(this);
+				bufferedRows.put(index, row);
+			}
+			return row;
+		}
+
+		/**
+		 * Returns the cell at the given position, creating it if needed.
+		 * 
+		 * @param colIndex
+		 *          The column index.
+		 * @param rowIndex
+		 *          The row index.
+		 * @return The cell.
+		 */
+		public Cell getCell(final int colIndex, final int rowIndex) {
+			return getRow(rowIndex).getCell(colIndex);
+		}
+
+		/**
+		 * Merges the given region, the content of the region is the content of its top left cell.
+		 */
+		public void merge(final int startCol, final int startRow, final int endCol, final int endRow) {
+			final Cell first = getCell(startCol, startRow);
+			first.columnsSpanned = endCol - startCol + 1;
+			first.rowsSpanned = endRow - startRow + 1;
+
+			for (int rowIndex = startRow; rowIndex <= endRow; rowIndex++) {
+				for (int colIndex = startCol; colIndex <= endCol; colIndex++) {
+					if (rowIndex != startRow || colIndex != startCol) {
+						getCell(colIndex, rowIndex).covered = true;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Sets the width of a column.
+		 * 
+		 * @param colIndex
+		 *          The column index.
+		 * @param width
+		 *          The width in millimeters.
+		 */
+		public void setColumnWidth(final int colIndex, final double width) {
+			columnWidths.put(colIndex, getColumnStyleName(toMillimeters(width)));
+			columnCount = Math.max(columnCount, colIndex + 1);
+		}
+
+		/**
+		 * Writes the buffered rows into the temporary file and releases them.
+		 * 
+		 * @throws XMLStreamException
+		 *           If the rows cannot be written.
+		 */
+		public void flushRows() throws XMLStreamException {
+			for (final Map.Entry<Integer, Row> entry : bufferedRows.entrySet()) {
+				final int index = entry.getKey();
+				if (index > firstBufferedRow) {
+					writeEmptyRows(index - firstBufferedRow);
+				}
+				entry.getValue().write();
+				firstBufferedRow = index + 1;
+			}
+			bufferedRows.clear();
+		}
+
+		private void writeEmptyRows(final int count) throws XMLStreamException {
+			startElement(rows, "table:table-row");
+			if (count > 1) {
+				attribute(rows, "table:number-rows-repeated", String.valueOf(count));
+			}
+			emptyElement(rows, "table:table-cell");
+			rows.writeEndElement();
+		}
+
+		private void writeColumns(final XMLStreamWriter xml) throws XMLStreamException {
+			int index = 0;
+			while (index < columnCount) {
+				final String style = columnWidths.get(index);
+				int repeated = 1;
+				while (index + repeated < columnCount && equal(style, columnWidths.get(index + repeated))) {
+					repeated++;
+				}
+
+				emptyElement(xml, "table:table-column");
+				if (style != null) {
+					attribute(xml, "table:style-name", style);
+				}
+				if (repeated > 1) {
+					attribute(xml, "table:number-columns-repeated", String.valueOf(repeated));
+				}
+				index += repeated;
+			}
+		}
+
+		private boolean equal(final String a, final String b) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+
+	/**
+	 * A buffered row.
+	 */
+	public final class Row {
+
+		private final Table table;
+		private final TreeMap<Integer, Cell> cells = new TreeMap<Integer, Cell>();
+		private String height;
+
+		private Row(final Table table) {
+			this.table = table;
+		}
+
+		/**
+		 * Returns the cell at the given index, creating it if needed.
+		 * 
+		 * @param index
+		 *          The column index.
+		 * @return The cell.
+		 */
+		public Cell getCell(final int index) {
+			Cell cell = cells.get(index);
+			if (cell == null) {
+				cell = new Cell();
+				cells.put(index, cell);
+				table.columnCount = Math.max(table.columnCount, index + 1);
+			}
+			return cell;
+		}
+
+		/**
+		 * Sets a fixed height to this row.
+		 * 
+		 * @param height
+		 *          The height in millimeters.
+		 */
+		public void setHeight(final double height) {
+			this.height = toMillimeters(height);
+		}
+
+		private void write() throws XMLStreamException {
+			startElement(rows, "table:table-row");
+			if (height != null) {
+				attribute(rows, "table:style-name", getRowStyleName(height));
+			}
+
+			int next = 0;
+			for (final Map.Entry<Integer, Cell> entry : cells.entrySet()) {
+				final int index = entry.getKey();
+				if (index > next) {
+					emptyElement(rows, "table:table-cell");
+					if (index - next > 1) {
+						attribute(rows, "table:number-columns-repeated", String.valueOf(index - next));
+					}
+				}
+				entry.getValue().write();
+				next = index + 1;
+			}
+			if (cells.isEmpty()) {
+				emptyElement(rows, "table:table-cell");
+			}
+
+			rows.writeEndElement();
+		}
+	}
+
+	/**
+	 * A buffered cell. Its content is always written as a string.
+	 */
+	public final class Cell {
+
+		private String value;
+		private String href;
+		private CellStyle style;
+		private int columnsSpanned = 1;
+		private int rowsSpanned = 1;
+		private boolean covered;
+
+		private Cell() {
+		}
+
+		public void setStringValue(final String value) {
+			this.value = value;
+			this.href = null;
+		}
+
+		/**
+		 * Sets the content of this cell as a hyperlink.
+		 * 
+		 * @param text
+		 *          The displayed text.
+		 * @param href
+		 *          The link target, {@code #<table name>} for a link to another table of the document.
+		 */
+		public void setLink(final String text, final String href) {
+			this.value = text;
+			this.href = href;
+		}
+
+		public String getStringValue() {
+			return value;
+		}
+
+		public void setStyle(final CellStyle style) {
+			this.style = style;
+		}
+
+		public CellStyle getStyle() {
+			return style;
+		}
+
+		private void write() throws XMLStreamException {
+			final boolean empty = value == null || value.isEmpty();
+			final String element = covered ? "table:covered-table-cell" : "table:table-cell";
+			if (empty) {
+				emptyElement(rows, element);
+			} else {
+				startElement(rows, element);
+			}
+
+			if (style != null) {
+				attribute(rows, "table:style-name", getCellStyleName(style));
+			}
+			if (!covered && columnsSpanned > 1) {
+				attribute(rows, "table:number-columns-spanned", String.valueOf(columnsSpanned));
+			}
+			if (!covered && rowsSpanned > 1) {
+				attribute(rows, "table:number-rows-spanned", String.valueOf(rowsSpanned));
+			}
+			if (value != null) {
+				attribute(rows, "office:value-type", "string");
+			}
+
+			if (!empty) {
+				writeText(rows, value, href);
+				rows.writeEndElement();
+			}
+		}
+	}
+
+	/**
+	 * Immutable formatting properties of cells. Properties use the qualified names of the OpenDocument attributes, for
+	 * example {@code fo:background-color}.
+	 */
+	public static final class CellStyle {
+
+		private final Map<String, String> cellProperties;
+		private final Map<String, String> paragraphProperties;
+		private final Map<String, String> textProperties;
+
+		public CellStyle() {
+			cellProperties = new TreeMap<String, String>();
+			paragraphProperties = new TreeMap<String, String>();
+			textProperties = new TreeMap<String, String>();
+		}
+
+		private CellStyle(final CellStyle base) {
+			cellProperties = new TreeMap<String, String>(base.cellProperties);
+			paragraphProperties = new TreeMap<String, String>(base.paragraphProperties);
+			textProperties = new TreeMap<String, String>(base.textProperties);
+		}
+
+		public CellStyle withCellProperty(final String name, final String value) {
+			final CellStyle style = new CellStyle(this);
+			style.cellProperties.put(name, value);
+			return style;
+		}
+
+		public CellStyle withParagraphProperty(final String name, final String value) {
+			final CellStyle style = new CellStyle(this);
+			style.paragraphProperties.put(name, value);
+			return style;
+		}
+
+		public CellStyle withTextProperty(final String name, final String value) {
+			final CellStyle style = new CellStyle(this);
+			style.textProperties.put(name, value);
+			return style;
+		}
+
+		public CellStyle withBackgroundColor(final String color) {
+			return withCellProperty("fo:background-color", color);
+		}
+
+		public CellStyle withBorder(final String border) {
+			return withCellProperty("fo:border", border);
+		}
+
+		public CellStyle withVerticalAlignment(final String alignment) {
+			return withCellProperty("style:vertical-align", alignment);
+		}
+
+		public CellStyle withWrappedText() {
+			return withCellProperty("fo:wrap-option", "wrap");
+		}
+
+		/**
+		 * @param alignment
+		 *          {@code left}, {@code center} or {@code right}.
+		 */
+		public CellStyle withHorizontalAlignment(final String alignment) {
+			return withCellProperty("style:text-align-source", "fix").withParagraphProperty("fo:text-align", alignment);
+		}
+
+		public CellStyle withFont(final String name, final int size, final boolean bold, final boolean italic) {
+			return withTextProperty("style:font-name", name).withTextProperty("fo:font-size", size + "pt")
+				.withTextProperty("fo:font-weight", bold ? "bold" : "normal").withTextProperty("fo:font-style", italic ? "italic" : "normal")
+				.withTextProperty("fo:color", "#000000");
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = cellProperties.hashCode();
+			hash = 31 * hash + paragraphProperties.hashCode();
+			hash = 31 * hash + textProperties.hashCode();
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof CellStyle)) {
+				return false;
+			}
+			final CellStyle other = (CellStyle) obj;
+			return cellProperties.equals(other.cellProperties) && paragraphProperties.equals(other.paragraphProperties)
+				&& textProperties.equals(other.textProperties);
+		}
+	}
+
+}
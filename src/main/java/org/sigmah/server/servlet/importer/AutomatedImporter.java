@@ -313,6 +313,9 @@ public class AutomatedImporter {
 		} catch (CommandException ex) {
 			LOGGER.error("An error occured while importing values for the project #" + container.getId() + ".", ex);
 		}
+		
+		// The key value of the container may have changed.
+		importer.onContainerUpdated(container.getId());
 	}
 	
 	// --
@@ -23,14 +23,18 @@ package org.sigmah.server.servlet.importer;
  */
 
 
+import static java.util.Collections.singleton;
+
 import java.io.Serializable;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -71,6 +75,7 @@ import org.sigmah.server.domain.importation.Variable;
 import org.sigmah.server.domain.importation.VariableBudgetElement;
 import org.sigmah.server.domain.importation.VariableBudgetSubField;
 import org.sigmah.server.domain.importation.VariableFlexibleElement;
+import org.sigmah.server.handler.util.BulkValueLoader;
 import org.sigmah.server.i18n.I18nServer;
 import org.sigmah.server.mapper.Mapper;
 import org.sigmah.server.servlet.exporter.utils.ExporterUtil;
@@ -124,6 +129,24 @@ public abstract class Importer implements Iterator<ImportDetails> {
 	private Mapper mapper;
 	private Language language;
 	private I18nServer translator;
+	private GlobalExportDataProvider dataProvider;
+	
+	/**
+	 * Key variable of each scheme model, by scheme model id.
+	 */
+	private final Map<Integer, VariableFlexibleElement> keyVariables = new HashMap<>();
+	
+	/**
+	 * Containers indexed by their key value, by scheme model id.
+	 */
+	private final Map<Integer, KeyIndex> keyIndexes = new HashMap<>();
+	
+	/**
+	 * Ids of the org units, countries and users found by name during this import.
+	 */
+	private final Map<String, Integer> orgUnitIdsByName = new HashMap<>();
+	private final Map<String, Integer> countryIdsByName = new HashMap<>();
+	private final Map<String, Integer> userIdsByName = new HashMap<>();
 	
 	/**
 	 * Sets the stream that will be parsed by this importer.
@@ -177,6 +200,7 @@ public abstract class Importer implements Iterator<ImportDetails> {
 		this.language = executionContext.getLanguage();
 		this.mapper = injector.getInstance(Mapper.class);
 		this.translator = injector.getInstance(I18nServer.class);
+		this.dataProvider = new GlobalExportDataProvider(injector);
 		this.schemeModels = em().createQuery("SELECT ism FROM ImportationSchemeModel AS ism WHERE ism.importationScheme.id = :schemeId", ImportationSchemeModel.class)
 				.setParameter("schemeId", scheme.getId())
 				.getResultList()
@@ -204,6 +228,19 @@ public abstract class Importer implements Iterator<ImportDetails> {
 		return correspondances;
 	}
 
+	/**
+	 * Notifies this importer that the given container has been created or updated. Its key value will be read again
+	 * before the next line is matched.
+	 * 
+	 * @param containerId
+	 *          Id of the project or org unit.
+	 */
+	void onContainerUpdated(Integer containerId) {
+		for (final KeyIndex keyIndex : keyIndexes.values()) {
+			keyIndex.invalidate(containerId);
+		}
+	}
+
 	/**
 	 * Sets the instance of the Guice injecto.
 	 * 
@@ -380,7 +417,23 @@ public abstract class Importer implements Iterator<ImportDetails> {
 			return null;
 		}
 
-		GlobalExportDataProvider gdp = new GlobalExportDataProvider(injector);
+		return toValueObject(flexibleElement, valueResult, entity);
+	}
+	
+	/**
+	 * Converts the given value to the object compared and displayed by the importer.
+	 * 
+	 * @param flexibleElement
+	 *          Flexible element.
+	 * @param valueResult
+	 *          Value of the element.
+	 * @param entity
+	 *          Container of the value.
+	 * @return The value object or <code>null</code> if the type of the element is not supported.
+	 */
+	private Serializable toValueObject(FlexibleElement flexibleElement, ValueResult valueResult, EntityId<Integer> entity) {
+		
+		final GlobalExportDataProvider gdp = dataProvider;
 
 		final FlexibleElement element;
 		final Serializable valueObject;
@@ -485,25 +538,16 @@ public abstract class Importer implements Iterator<ImportDetails> {
 			importEntity.setModelName(orgUnitModel.getName());
 			importEntity.setModelStatus(orgUnitModel.getStatus());
 
-			// Get all the orgUnits from an orgUnit model
-			final List<OrgUnit> orgUnits = em().createQuery("SELECT ou FROM OrgUnit as ou WHERE ou.orgUnitModel = :orgUnitModel", OrgUnit.class)
-					.setParameter("orgUnitModel", orgUnitModel)
-					.getResultList();
-			
-			// For each project get the value of the corresponding
-			// identification key
-			for (OrgUnit orgUnit : orgUnits) {
-				final String valueString = (String) getFlexibleElementValue(flexibleElement, orgUnit);
+			// Get the orgUnits of the orgUnit model whose identification key matches.
+			for (final EntityId<Integer> container : getKeyIndex(flexibleElement).find(keyValue)) {
+				final OrgUnit orgUnit = (OrgUnit) container;
 				
-				if (valueString != null && valueString.equals(keyValue)) {
-				
-					final List<ElementExtractedValue> correspondances = getCorrespondancesVariableFlexibleElement(
-									schemeModel.getVariableFlexibleElements(), orgUnit, lineNumber,
-									sheetName);
+				final List<ElementExtractedValue> correspondances = getCorrespondancesVariableFlexibleElement(
+								schemeModel.getVariableFlexibleElements(), orgUnit, lineNumber,
+								sheetName);
 
-					final OrgUnitDTO orgUnitDTO = mapper.map(orgUnit, new OrgUnitDTO());
-					entityCorrespondances.put(orgUnitDTO, correspondances);
-				}
+				final OrgUnitDTO orgUnitDTO = mapper.map(orgUnit, new OrgUnitDTO());
+				entityCorrespondances.put(orgUnitDTO, correspondances);
 			}
 
 			// Initializes the importEntity according to the number of
@@ -533,31 +577,22 @@ public abstract class Importer implements Iterator<ImportDetails> {
 			importEntity.setModelName(projectModel.getName());
 			importEntity.setModelStatus(projectModel.getStatus());
 
-			// Get all the projects of a project model
-			final List<Project> projects = em().createQuery("SELECT p FROM Project as p WHERE p.projectModel = :projectModel", Project.class)
-					.setParameter("projectModel", projectModel)
-					.getResultList();
-			
-			// For each project get the value of the corresponding
-			// identification key
-			for (Project project : projects) {
-				final String valueString = (String) getFlexibleElementValue(flexibleElement, project);
-				
-				if (valueString != null && valueString.equals(keyValue)) {
+			// Get the projects of the project model whose identification key matches.
+			for (final EntityId<Integer> container : getKeyIndex(flexibleElement).find(keyValue)) {
+				final Project project = (Project) container;
 				
-					final List<ElementExtractedValue> correspondances = getCorrespondancesVariableFlexibleElement(
-							schemeModel.getVariableFlexibleElements(), project, lineNumber,
-							sheetName);
-				
-					final ProjectDTO projectDTO = mapper.map(project, new ProjectDTO());
+				final List<ElementExtractedValue> correspondances = getCorrespondancesVariableFlexibleElement(
+						schemeModel.getVariableFlexibleElements(), project, lineNumber,
+						sheetName);
+			
+				final ProjectDTO projectDTO = mapper.map(project, new ProjectDTO());
 
-					if (project.getAmendmentState() != null && project.getAmendmentState() == AmendmentState.LOCKED) {
-						if (lockedEntityCorrespondances.isEmpty()) {
-							lockedEntityCorrespondances.put(projectDTO, correspondances);
-						}
-					} else {
-						entityCorrespondances.put(projectDTO, correspondances);
+				if (project.getAmendmentState() != null && project.getAmendmentState() == AmendmentState.LOCKED) {
+					if (lockedEntityCorrespondances.isEmpty()) {
+						lockedEntityCorrespondances.put(projectDTO, correspondances);
 					}
+				} else {
+					entityCorrespondances.put(projectDTO, correspondances);
 				}
 			}
 
@@ -678,14 +713,10 @@ public abstract class Importer implements Iterator<ImportDetails> {
 								}
 								
 								// Searching by code and by name.
-								final TypedQuery<OrgUnit> query = em().createQuery("SELECT o FROM OrgUnit o WHERE LOWER(o.name) = :value OR LOWER(o.fullName) = :value", OrgUnit.class);
-								query.setParameter("value", stringValue.toLowerCase());
-								
-								final List<OrgUnit> results = query.getResultList();
+								final Integer orgUnitId = findIdByName(orgUnitIdsByName, "SELECT o.id FROM OrgUnit o WHERE LOWER(o.name) = :value OR LOWER(o.fullName) = :value", stringValue);
 
-								if (!results.isEmpty()) {
-									// Selecting the first result.
-									formattedValue = results.get(0).getId();
+								if (orgUnitId != null) {
+									formattedValue = orgUnitId;
 									statusCode = ElementExtractedValueStatus.VALID_VALUE;
 								}
 							}
@@ -714,14 +745,10 @@ public abstract class Importer implements Iterator<ImportDetails> {
 								}
 								
 								// Searching by code ISO and by name.
-								final TypedQuery<Country> query = em().createQuery("SELECT c FROM Country c WHERE LOWER(c.codeISO) = :value OR LOWER(c.name) = :value", Country.class);
-								query.setParameter("value", stringValue.toLowerCase());
-								
-								final List<Country> results = query.getResultList();
+								final Integer countryId = findIdByName(countryIdsByName, "SELECT c.id FROM Country c WHERE LOWER(c.codeISO) = :value OR LOWER(c.name) = :value", stringValue);
 
-								if (!results.isEmpty()) {
-									// Selecting the first result.
-									formattedValue = results.get(0).getId();
+								if (countryId != null) {
+									formattedValue = countryId;
 									statusCode = ElementExtractedValueStatus.VALID_VALUE;
 								}
 							}
@@ -750,14 +777,10 @@ public abstract class Importer implements Iterator<ImportDetails> {
 								}
 								
 								// Searching by e-mail address and by last name.
-								final TypedQuery<User> query = em().createQuery("SELECT o FROM User o WHERE LOWER(o.email) = :value OR LOWER(o.name) = :value", User.class);
-								query.setParameter("value", stringValue.toLowerCase());
-								
-								final List<User> results = query.getResultList();
+								final Integer userId = findIdByName(userIdsByName, "SELECT o.id FROM User o WHERE LOWER(o.email) = :value OR LOWER(o.name) = :value", stringValue);
 
-								if (!results.isEmpty()) {
-									// Selecting the first result.
-									formattedValue = results.get(0).getId();
+								if (userId != null) {
+									formattedValue = userId;
 									statusCode = ElementExtractedValueStatus.VALID_VALUE;
 								}
 							}
@@ -1037,14 +1060,53 @@ public abstract class Importer implements Iterator<ImportDetails> {
 	
 	private VariableFlexibleElement getKeyOfCurrentSchemeModel() {
 		
+		if (keyVariables.containsKey(schemeModel.getId())) {
+			return keyVariables.get(schemeModel.getId());
+		}
+		
+		VariableFlexibleElement keyVariable;
 		try {
-			return em().createQuery("SELECT vfe FROM VariableFlexibleElement AS vfe WHERE vfe.isKey = true AND vfe.importationSchemeModel = :schemeModel", VariableFlexibleElement.class)
+			keyVariable = em().createQuery("SELECT vfe FROM VariableFlexibleElement AS vfe WHERE vfe.isKey = true AND vfe.importationSchemeModel = :schemeModel", VariableFlexibleElement.class)
 					.setParameter("schemeModel", schemeModel)
 					.getSingleResult();
 		} catch (NoResultException e) {
 			LOGGER.trace("No key was found in the scheme model " + schemeModel, e);
-			return null;
+			keyVariable = null;
+		}
+		
+		keyVariables.put(schemeModel.getId(), keyVariable);
+		return keyVariable;
+	}
+	
+	private KeyIndex getKeyIndex(FlexibleElement keyElement) {
+		
+		KeyIndex keyIndex = keyIndexes.get(schemeModel.getId());
+		if (keyIndex == null) {
+			keyIndex = new KeyIndex(schemeModel, keyElement);
+			keyIndexes.put(schemeModel.getId(), keyIndex);
+		}
+		return keyIndex;
+	}
+	
+	/**
+	 * Finds the id of the first entity matching the given name with the given query. Results are kept in the given cache
+	 * for the whole import, including misses.
+	 */
+	private Integer findIdByName(Map<String, Integer> cache, String query, String name) {
+		
+		final String value = name.toLowerCase();
+		if (cache.containsKey(value)) {
+			return cache.get(value);
 		}
+		
+		final List<Integer> ids = em().createQuery(query, Integer.class)
+				.setParameter("value", value)
+				.setMaxResults(1)
+				.getResultList();
+		
+		final Integer id = ids.isEmpty() ? null : ids.get(0);
+		cache.put(value, id);
+		return id;
 	}
 	
 	private FlexibleElementDTO toDTO(FlexibleElement element) {
@@ -1101,4 +1163,126 @@ public abstract class Importer implements Iterator<ImportDetails> {
 		return mapper.map(element, dto);
 	}
 	
+	/**
+	 * Containers of a scheme model indexed by the value of their key element.
+	 * <p>
+	 * Key values are loaded with a few set-based queries the first time a line is matched, instead of reading the key
+	 * value of every container for every line. Containers updated by the import are read again on the next lookup.
+	 */
+	private class KeyIndex {
+		
+		private final ImportationSchemeModel model;
+		private final FlexibleElement keyElement;
+		
+		private final Map<String, List<EntityId<Integer>>> containersByKey = new HashMap<>();
+		private final Map<Integer, String> keysByContainer = new HashMap<>();
+		private final Set<Integer> staleIds = new HashSet<>();
+		private boolean loaded;
+
+		public KeyIndex(ImportationSchemeModel model, FlexibleElement keyElement) {
+			this.model = model;
+			this.keyElement = keyElement;
+		}
+		
+		/**
+		 * Finds the containers whose key value is the given one.
+		 * 
+		 * @param keyValue
+		 *          Key value read from the imported file.
+		 * @return The matching containers, never <code>null</code>.
+		 */
+		public List<EntityId<Integer>> find(String keyValue) {
+			
+			if (!loaded) {
+				index(findContainers(null));
+				loaded = true;
+				staleIds.clear();
+			} else if (!staleIds.isEmpty()) {
+				for (final Integer containerId : staleIds) {
+					remove(containerId);
+				}
+				index(findContainers(staleIds));
+				staleIds.clear();
+			}
+			
+			final List<EntityId<Integer>> containers = containersByKey.get(keyValue);
+			return containers != null ? new ArrayList<>(containers) : new ArrayList<EntityId<Integer>>();
+		}
+		
+		public void invalidate(Integer containerId) {
+			staleIds.add(containerId);
+		}
+		
+		private List<? extends EntityId<Integer>> findContainers(Set<Integer> ids) {
+			
+			final String condition = ids != null ? " AND c.id IN (:ids)" : "";
+			
+			final TypedQuery<? extends EntityId<Integer>> query;
+			if (model.getOrgUnitModel() != null) {
+				query = em().createQuery("SELECT c FROM OrgUnit AS c WHERE c.orgUnitModel = :model" + condition, OrgUnit.class)
+						.setParameter("model", model.getOrgUnitModel());
+			} else {
+				query = em().createQuery("SELECT c FROM Project AS c WHERE c.projectModel = :model" + condition, Project.class)
+						.setParameter("model", model.getProjectModel());
+			}
+			if (ids != null) {
+				query.setParameter("ids", ids);
+			}
+			return query.getResultList();
+		}
+		
+		private void index(List<? extends EntityId<Integer>> containers) {
+			
+			if (containers.isEmpty()) {
+				return;
+			}
+			
+			final Map<Integer, EntityId<Integer>> containersById = new HashMap<>();
+			final List<Project> projects = new ArrayList<>();
+			for (final EntityId<Integer> container : containers) {
+				containersById.put(container.getId(), container);
+				if (container instanceof Project) {
+					projects.add((Project) container);
+				}
+			}
+			
+			final BulkValueLoader loader = new BulkValueLoader(em(), mapper, null);
+			final Map<Integer, Map<Integer, ValueResult>> values = projects.isEmpty()
+					? loader.load(containersById.keySet(), singleton(keyElement))
+					: loader.loadForProjects(projects, singleton(keyElement));
+			
+			for (final Map.Entry<Integer, EntityId<Integer>> entry : containersById.entrySet()) {
+				final Map<Integer, ValueResult> containerValues = values.get(entry.getKey());
+				final ValueResult valueResult = containerValues != null ? containerValues.get(keyElement.getId()) : null;
+				final Serializable value = toValueObject(keyElement, valueResult != null ? valueResult : new ValueResult(), entry.getValue());
+				
+				if (value instanceof String) {
+					List<EntityId<Integer>> list = containersByKey.get(value);
+					if (list == null) {
+						list = new ArrayList<>();
+						containersByKey.put((String) value, list);
+					}
+					list.add(entry.getValue());
+					keysByContainer.put(entry.getKey(), (String) value);
+				}
+			}
+		}
+		
+		private void remove(Integer containerId) {
+			
+			final String key = keysByContainer.remove(containerId);
+			final List<EntityId<Integer>> list = key != null ? containersByKey.get(key) : null;
+			if (list == null) {
+				return;
+			}
+			
+			final Iterator<EntityId<Integer>> iterator = list.iterator();
+			while (iterator.hasNext()) {
+				if (containerId.equals(iterator.next().getId())) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+	
 }
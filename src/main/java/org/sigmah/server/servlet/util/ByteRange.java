@@ -0,0 +1,153 @@
+package org.sigmah.server.servlet.util;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Single byte range of an HTTP {@code Range} request header (RFC 7233).
+ */
+public final class ByteRange {
+
+	/**
+	 * Name of the HTTP request header.
+	 */
+	public static final String RANGE_HEADER = "Range";
+
+	/**
+	 * Unit prefix of the supported ranges.
+	 */
+	private static final String BYTES_UNIT = "bytes=";
+
+	/**
+	 * First byte of the range (inclusive).
+	 */
+	private final long start;
+
+	/**
+	 * Last byte of the range (inclusive).
+	 */
+	private final long end;
+
+	/**
+	 * Size of the whole content.
+	 */
+	private final long size;
+
+	private ByteRange(final long start, final long end, final long size) {
+		this.start = start;
+		this.end = end;
+		this.size = size;
+	}
+
+	/**
+	 * Parses the given {@code Range} header value.<br>
+	 * Only single {@code bytes} ranges are supported: an absent, malformed or multiple range header is ignored and
+	 * the whole content should be sent.
+	 * 
+	 * @param header
+	 *          The {@code Range} header value (may be {@code null}).
+	 * @param size
+	 *          The size of the whole content.
+	 * @return The requested range, or {@code null} if the whole content should be sent.
+	 */
+	public static ByteRange parse(final String header, final long size) {
+
+		if (StringUtils.isBlank(header) || !header.startsWith(BYTES_UNIT)) {
+			return null;
+		}
+
+		final String value = header.substring(BYTES_UNIT.length()).trim();
+		final int dash = value.indexOf('-');
+
+		if (dash < 0 || value.indexOf(',') >= 0) {
+			return null;
+		}
+
+		try {
+			final String first = value.substring(0, dash).trim();
+			final String last = value.substring(dash + 1).trim();
+
+			if (first.isEmpty()) {
+				// Suffix range: the last N bytes.
+				final long suffix = Long.parseLong(last);
+				if (suffix <= 0L) {
+					return new ByteRange(size, size - 1, size);
+				}
+				return new ByteRange(Math.max(size - suffix, 0L), size - 1, size);
+			}
+
+			final long start = Long.parseLong(first);
+			final long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+
+			if (start < 0L || (!last.isEmpty() && Long.parseLong(last) < start)) {
+				return null;
+			}
+
+			return new ByteRange(start, end, size);
+
+		} catch (final NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns if the range overlaps the content.<br>
+	 * An unsatisfiable range must be answered by a {@code 416} status.
+	 * 
+	 * @return {@code true} if at least one byte of the content is in the range.
+	 */
+	public boolean isSatisfiable() {
+		return start < size && start <= end;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long getEnd() {
+		return end;
+	}
+
+	/**
+	 * Returns the number of bytes of the range.
+	 * 
+	 * @return The range length.
+	 */
+	public long getLength() {
+		return end - start + 1;
+	}
+
+	/**
+	 * Returns the value of the {@code Content-Range} response header of this range.
+	 * 
+	 * @return The {@code Content-Range} header value.
+	 */
+	public String toContentRange() {
+		if (!isSatisfiable()) {
+			return "bytes */" + size;
+		}
+		return "bytes " + start + '-' + end + '/' + size;
+	}
+
+}
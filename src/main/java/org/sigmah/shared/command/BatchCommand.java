@@ -43,6 +43,10 @@ import org.sigmah.shared.command.result.Result;
  * a single transaction. If one command fails, all commands will be rolled back and the
  * BatchCommand will fail.
  *
+ * A batch marked as read-only may have its commands executed concurrently, each
+ * in its own transaction, if the server knows every one of them to be read-only.
+ * Results are still returned in the order of the commands.
+ *
  * Returns {@link org.sigmah.shared.command.result.ListResult<Result>}
  *
  * @author Alexander Bertram (akbertram@gmail.com)
@@ -51,6 +55,8 @@ public class BatchCommand implements Command<ListResult<Result>> {
 
     private List<Command> commands = new ArrayList<Command>();
 
+    private boolean readOnly;
+
     public BatchCommand() {
     }
 
@@ -80,4 +86,23 @@ public class BatchCommand implements Command<ListResult<Result>> {
 	public void addAll(BatchCommand batchCommand) {
 		commands.addAll(batchCommand.getCommands());
 	}
+
+    /**
+     * Returns <code>true</code> if every command of this batch only reads data.
+     *
+     * @return <code>true</code> if this batch is read-only.
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Marks this batch as read-only. Commands of a read-only batch must be
+     * independent from each other and must not modify any data.
+     *
+     * @param readOnly <code>true</code> if every command of this batch only reads data.
+     */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
 }
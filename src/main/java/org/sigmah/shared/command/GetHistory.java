@@ -30,12 +30,22 @@ import org.sigmah.shared.dto.history.HistoryTokenListDTO;
 
 /**
  * Command to retrieves all the history tokens of an element.
+ * <p>
+ * The history may be retrieved page by page, most recent first: each page starts after the date and the id of the last
+ * token of the previous page (see {@link #after(Date, Integer)}). As tokens are grouped by date, the first group of a
+ * page may continue the last group of the previous page.
+ * </p>
  * 
  * @author tmi (v1.3)
  * @author Denis Colliot (dcolliot@ideia.fr) (v2.0)
  */
 public class GetHistory extends AbstractCommand<ListResult<HistoryTokenListDTO>> {
 
+	/**
+	 * Number of tokens of a page of the history window.
+	 */
+	public static final int PAGE_SIZE = 50;
+
 	/**
 	 * The element id.
 	 */
@@ -51,6 +61,21 @@ public class GetHistory extends AbstractCommand<ListResult<HistoryTokenListDTO>>
 	 */
 	private Date maxDate;
 
+	/**
+	 * Maximum number of tokens to retrieve. Set to <code>null</code> to retrieves every token.
+	 */
+	private Integer pageSize;
+
+	/**
+	 * Date of the last token of the previous page.
+	 */
+	private Date beforeDate;
+
+	/**
+	 * Id of the last token of the previous page.
+	 */
+	private Integer beforeId;
+
 	protected GetHistory() {
 		// Serialization.
 	}
@@ -78,4 +103,52 @@ public class GetHistory extends AbstractCommand<ListResult<HistoryTokenListDTO>>
 		return projectId;
 	}
 
+	/**
+	 * Limits the number of retrieved tokens.
+	 * 
+	 * @param pageSize
+	 *          Maximum number of tokens.
+	 * @return This command.
+	 */
+	public GetHistory limit(Integer pageSize) {
+		this.pageSize = pageSize;
+		return this;
+	}
+
+	/**
+	 * Retrieves the tokens following the given one.
+	 * 
+	 * @param date
+	 *          Date of the last token of the previous page.
+	 * @param id
+	 *          Id of the last token of the previous page.
+	 * @return This command.
+	 */
+	public GetHistory after(Date date, Integer id) {
+		this.beforeDate = date;
+		this.beforeId = id;
+		return this;
+	}
+
+	public Integer getPageSize() {
+		return pageSize;
+	}
+
+	public Date getBeforeDate() {
+		return beforeDate;
+	}
+
+	public Integer getBeforeId() {
+		return beforeId;
+	}
+
+	/**
+	 * Returns if this command retrieves a part of the history only.
+	 * 
+	 * @return <code>true</code> if a page size or a previous token is set.
+	 */
+	public boolean isPaged() {
+		return pageSize != null || beforeId != null;
+	}
+
 }
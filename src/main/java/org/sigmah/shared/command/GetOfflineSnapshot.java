@@ -0,0 +1,170 @@
+package org.sigmah.shared.command;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sigmah.client.util.ToStringBuilder;
+import org.sigmah.shared.command.base.AbstractCommand;
+import org.sigmah.shared.command.result.OfflineSnapshotResult;
+
+/**
+ * Retrieves in a single call everything the offline mode needs about a list of projects and org units: values,
+ * history, calendars and reports.<br>
+ * The server executes the same commands as the ones the synchronizer used to send one by one and returns them with
+ * their results (see {@link OfflineSnapshotResult}).
+ * <p>
+ * When a {@code since} date is given, the values and the history of the {@code known} containers are only returned for
+ * the elements modified after this date, as well as the reports edited after it.
+ * </p>
+ */
+public class GetOfflineSnapshot extends AbstractCommand<OfflineSnapshotResult> {
+
+	/**
+	 * Values to retrieve, one command per container with every element of the container.
+	 */
+	private List<GetValues> containers = new ArrayList<GetValues>();
+
+	/**
+	 * Personal calendar ids, by container id.
+	 */
+	private Map<Integer, Integer> calendarIds = new HashMap<Integer, Integer>();
+
+	private boolean withHistory;
+
+	/**
+	 * Server date of the previous snapshot (may be {@code null}).
+	 */
+	private Date since;
+
+	/**
+	 * Containers included in the previous snapshot.
+	 */
+	private List<Integer> knownContainerIds = new ArrayList<Integer>();
+
+	public GetOfflineSnapshot() {
+		// Serialization.
+	}
+
+	public GetOfflineSnapshot(boolean withHistory) {
+		this.withHistory = withHistory;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void appendToString(final ToStringBuilder builder) {
+		builder.append("containers", containers.size());
+		builder.append("withHistory", withHistory);
+		builder.append("since", since);
+	}
+
+	/**
+	 * Adds a container to the snapshot.
+	 * 
+	 * @param values
+	 *          Values of every element of the container.
+	 * @param calendarId
+	 *          Id of the personal calendar of the container (may be {@code null}).
+	 */
+	public void add(GetValues values, Integer calendarId) {
+		containers.add(values);
+		if (calendarId != null) {
+			calendarIds.put(values.getContainerId(), calendarId);
+		}
+	}
+
+	/**
+	 * Returns the ids of the containers of this snapshot.
+	 * 
+	 * @return The container ids.
+	 */
+	public List<Integer> getContainerIds() {
+		final List<Integer> containerIds = new ArrayList<Integer>();
+		for (final GetValues values : containers) {
+			containerIds.add(values.getContainerId());
+		}
+		return containerIds;
+	}
+
+	/**
+	 * Returns if the given container may be synchronized incrementally.
+	 * 
+	 * @param containerId
+	 *          The container id.
+	 * @return {@code true} if a previous snapshot date exists and included this container.
+	 */
+	public boolean isKnown(Integer containerId) {
+		return since != null && knownContainerIds.contains(containerId);
+	}
+
+	public List<GetValues> getContainers() {
+		return containers;
+	}
+
+	public void setContainers(List<GetValues> containers) {
+		this.containers = containers;
+	}
+
+	public Integer getCalendarId(Integer containerId) {
+		return calendarIds.get(containerId);
+	}
+
+	public Map<Integer, Integer> getCalendarIds() {
+		return calendarIds;
+	}
+
+	public void setCalendarIds(Map<Integer, Integer> calendarIds) {
+		this.calendarIds = calendarIds;
+	}
+
+	public boolean isWithHistory() {
+		return withHistory;
+	}
+
+	public void setWithHistory(boolean withHistory) {
+		this.withHistory = withHistory;
+	}
+
+	public Date getSince() {
+		return since;
+	}
+
+	public void setSince(Date since) {
+		this.since = since;
+	}
+
+	public List<Integer> getKnownContainerIds() {
+		return knownContainerIds;
+	}
+
+	public void setKnownContainerIds(List<Integer> knownContainerIds) {
+		this.knownContainerIds = knownContainerIds;
+	}
+
+}
@@ -22,6 +22,8 @@ package org.sigmah.shared.command;
  * #L%
  */
 
+import java.util.Date;
+
 import org.sigmah.shared.command.base.AbstractCommand;
 import org.sigmah.shared.command.result.ListResult;
 import org.sigmah.shared.dto.reminder.ReminderDTO;
@@ -37,6 +39,21 @@ public class GetReminders extends AbstractCommand<ListResult<ReminderDTO>> {
 	private Integer projectId;
 	private ReminderDTO.Mode mappingMode;
 
+	/**
+	 * Only the reminders expected from this date (inclusive) are retrieved, if set.
+	 */
+	private Date fromDate;
+
+	/**
+	 * Only the reminders expected before this date (exclusive) are retrieved, if set.
+	 */
+	private Date toDate;
+
+	/**
+	 * Maximum number of reminders to retrieve, the first expected first, if set.
+	 */
+	private Integer limit;
+
 	protected GetReminders() {
 		// Serialization.
 	}
@@ -58,4 +75,56 @@ public class GetReminders extends AbstractCommand<ListResult<ReminderDTO>> {
 		return mappingMode;
 	}
 
+
+	/**
+	 * Restricts the reminders to the ones expected in the given window.
+	 * 
+	 * @param fromDate
+	 *          Start of the window (inclusive), may be {@code null}.
+	 * @param toDate
+	 *          End of the window (exclusive), may be {@code null}.
+	 * @return This command.
+	 */
+	public GetReminders between(final Date fromDate, final Date toDate) {
+		this.fromDate = fromDate;
+		this.toDate = toDate;
+		return this;
+	}
+
+	/**
+	 * Limits the number of retrieved reminders.
+	 * 
+	 * @param limit
+	 *          Maximum number of reminders, may be {@code null}.
+	 * @return This command.
+	 */
+	public GetReminders limit(final Integer limit) {
+		this.limit = limit;
+		return this;
+	}
+
+	public Date getFromDate() {
+		return fromDate;
+	}
+
+	public Date getToDate() {
+		return toDate;
+	}
+
+	public Integer getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Returns if the given expected date is in the window of this command.
+	 * 
+	 * @param expectedDate
+	 *          The expected date.
+	 * @return {@code true} if no window is set or if the date is in the window.
+	 */
+	public boolean isInWindow(final Date expectedDate) {
+		return (fromDate == null || (expectedDate != null && !expectedDate.before(fromDate)))
+			&& (toDate == null || (expectedDate != null && expectedDate.before(toDate)));
+	}
+
 }
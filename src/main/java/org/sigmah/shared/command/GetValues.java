@@ -0,0 +1,128 @@
+package org.sigmah.shared.command;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sigmah.client.util.ToStringBuilder;
+import org.sigmah.shared.command.base.AbstractCommand;
+import org.sigmah.shared.command.result.ListResult;
+import org.sigmah.shared.command.result.ValueResult;
+
+/**
+ * Retrieves the values of many flexible elements referenced in a given container, in a single call.<br>
+ * Results are returned in the order of the elements and are the same as the ones returned by {@link GetValue}.
+ */
+public class GetValues extends AbstractCommand<ListResult<ValueResult>> {
+
+	private Integer containerId;
+	private Integer amendmentId;
+
+	private List<Integer> elementIds = new ArrayList<Integer>();
+
+	/**
+	 * Entity names of the elements, see {@link GetValue#getElementEntityName()}.
+	 */
+	private List<String> elementEntityNames = new ArrayList<String>();
+
+	public GetValues() {
+		// Serialization.
+	}
+
+	public GetValues(Integer containerId, Integer amendmentId) {
+		this.containerId = containerId;
+		this.amendmentId = amendmentId;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void appendToString(final ToStringBuilder builder) {
+		builder.append("containerId", containerId);
+		builder.append("amendmentId", amendmentId);
+		builder.append("elementIds", elementIds);
+	}
+
+	/**
+	 * Adds an element to retrieve.
+	 * 
+	 * @param elementId
+	 *          The element id.
+	 * @param elementEntityName
+	 *          The element entity name.
+	 */
+	public void add(Integer elementId, String elementEntityName) {
+		elementIds.add(elementId);
+		elementEntityNames.add(elementEntityName);
+	}
+
+	/**
+	 * Returns the {@link GetValue} command equivalent to the retrieval of the element at the given index.
+	 * 
+	 * @param index
+	 *          Index of the element.
+	 * @return A new {@link GetValue} command.
+	 */
+	public GetValue toGetValue(int index) {
+		return new GetValue(containerId, elementIds.get(index), elementEntityNames.get(index), amendmentId);
+	}
+
+	public int size() {
+		return elementIds.size();
+	}
+
+	public Integer getContainerId() {
+		return containerId;
+	}
+
+	public void setContainerId(Integer containerId) {
+		this.containerId = containerId;
+	}
+
+	public Integer getAmendmentId() {
+		return amendmentId;
+	}
+
+	public void setAmendmentId(Integer amendmentId) {
+		this.amendmentId = amendmentId;
+	}
+
+	public List<Integer> getElementIds() {
+		return elementIds;
+	}
+
+	public void setElementIds(List<Integer> elementIds) {
+		this.elementIds = elementIds;
+	}
+
+	public List<String> getElementEntityNames() {
+		return elementEntityNames;
+	}
+
+	public void setElementEntityNames(List<String> elementEntityNames) {
+		this.elementEntityNames = elementEntityNames;
+	}
+
+}
@@ -0,0 +1,73 @@
+package org.sigmah.shared.command.result;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.sigmah.shared.command.base.Command;
+
+/**
+ * Result of {@link org.sigmah.shared.command.GetOfflineSnapshot}: the commands executed by the server with their
+ * results, in the same order.<br>
+ * Once received, each pair is given to the dispatch listeners as if the command had been dispatched by the client,
+ * so the offline stores are filled by the usual handlers.
+ */
+public class OfflineSnapshotResult implements Result {
+
+	private List<Command> commands = new ArrayList<Command>();
+	private List<Result> results = new ArrayList<Result>();
+
+	/**
+	 * Server date at the start of the snapshot, to give as {@code since} date to the next snapshot.
+	 */
+	private Date date;
+
+	public OfflineSnapshotResult() {
+		// Serialization.
+	}
+
+	public OfflineSnapshotResult(List<Command> commands, List<Result> results, Date date) {
+		this.commands = commands;
+		this.results = results;
+		this.date = date;
+	}
+
+	public int size() {
+		return commands.size();
+	}
+
+	public List<Command> getCommands() {
+		return commands;
+	}
+
+	public List<Result> getResults() {
+		return results;
+	}
+
+	public Date getDate() {
+		return date;
+	}
+
+}
@@ -0,0 +1,341 @@
+package org.sigmah.shared.computation;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.Map;
+import org.sigmah.shared.computation.instruction.Add;
+import org.sigmah.shared.computation.instruction.BadVariable;
+import org.sigmah.shared.computation.instruction.Constant;
+import org.sigmah.shared.computation.instruction.Divide;
+import org.sigmah.shared.computation.instruction.Instruction;
+import org.sigmah.shared.computation.instruction.Minus;
+import org.sigmah.shared.computation.instruction.Multiply;
+import org.sigmah.shared.computation.instruction.Substract;
+import org.sigmah.shared.computation.instruction.Variable;
+import org.sigmah.shared.computation.value.ComputationError;
+import org.sigmah.shared.computation.value.ComputedValue;
+import org.sigmah.shared.computation.value.DoubleValue;
+
+/**
+ * Instructions of a <code>Computation</code> compiled to a flat stack machine
+ * working on primitive doubles.
+ * <p>
+ * Errors are carried in a parallel stack and follow the same precedence rules
+ * as {@link ComputedValue}: the right operand error wins over the left one and
+ * a division by zero is only reported when both operands are valid.
+ * </p>
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ * </p>
+ *
+ * @since 2.2
+ */
+public final class CompiledComputation {
+
+    private static final byte OPCODE_CONSTANT = 0;
+    private static final byte OPCODE_VARIABLE = 1;
+    private static final byte OPCODE_ADD = 2;
+    private static final byte OPCODE_SUBSTRACT = 3;
+    private static final byte OPCODE_MULTIPLY = 4;
+    private static final byte OPCODE_DIVIDE = 5;
+    private static final byte OPCODE_MINUS = 6;
+
+    /**
+     * Operation of each instruction.
+     */
+    private final byte[] opcodes;
+
+    /**
+     * Index of the constant or of the variable slot used by each instruction.
+     */
+    private final int[] operands;
+
+    /**
+     * Values of the constants.
+     */
+    private final double[] constants;
+
+    /**
+     * Errors of the constants (<code>null</code> when the constant is a valid number).
+     */
+    private final ComputedValue[] constantErrors;
+
+    /**
+     * Identifier of the flexible element bound to each variable slot.
+     */
+    private final int[] variableIds;
+
+    /**
+     * Maximum depth reached by the stack during the evaluation.
+     */
+    private final int maximumStackSize;
+
+    /**
+     * Creates a new compiled computation.
+     */
+    private CompiledComputation(final byte[] opcodes, final int[] operands, final double[] constants, final ComputedValue[] constantErrors,
+            final int[] variableIds, final int maximumStackSize) {
+        this.opcodes = opcodes;
+        this.operands = operands;
+        this.constants = constants;
+        this.constantErrors = constantErrors;
+        this.variableIds = variableIds;
+        this.maximumStackSize = maximumStackSize;
+    }
+
+    /**
+     * Compiles the given instructions.
+     *
+     * @param instructions
+     *          Instructions to compile.
+     * @return A new compiled computation or <code>null</code> if the given
+     * instructions contain an unsupported instruction or are not a valid
+     * postfix program.
+     */
+    public static CompiledComputation compile(final List<Instruction> instructions) {
+        final int size = instructions.size();
+
+        final byte[] opcodes = new byte[size];
+        final int[] operands = new int[size];
+        final double[] constants = new double[size];
+        final ComputedValue[] constantErrors = new ComputedValue[size];
+        final int[] variableIds = new int[size];
+
+        int constantCount = 0;
+        int variableCount = 0;
+        int stackSize = 0;
+        int maximumStackSize = 0;
+
+        for (int index = 0; index < size; index++) {
+            final Instruction instruction = instructions.get(index);
+
+            if (instruction instanceof Constant || instruction instanceof BadVariable) {
+                final ComputedValue value = instruction instanceof Constant ? ((Constant) instruction).getValue() : ComputationError.BAD_REFERENCE;
+                final Double number = value.get();
+
+                opcodes[index] = OPCODE_CONSTANT;
+                operands[index] = constantCount;
+                if (number != null) {
+                    constants[constantCount] = number;
+                } else {
+                    constantErrors[constantCount] = value;
+                }
+                constantCount++;
+                stackSize++;
+
+            } else if (instruction instanceof Variable) {
+                final int id = ((Variable) instruction).getFlexibleElement().getId();
+
+                int slot = 0;
+                while (slot < variableCount && variableIds[slot] != id) {
+                    slot++;
+                }
+                if (slot == variableCount) {
+                    variableIds[variableCount++] = id;
+                }
+
+                opcodes[index] = OPCODE_VARIABLE;
+                operands[index] = slot;
+                stackSize++;
+
+            } else if (instruction instanceof Minus) {
+                if (stackSize < 1) {
+                    return null;
+                }
+                opcodes[index] = OPCODE_MINUS;
+
+            } else {
+                final byte opcode = binaryOpcodeOf(instruction);
+                if (opcode < 0 || stackSize < 2) {
+                    return null;
+                }
+                opcodes[index] = opcode;
+                stackSize--;
+            }
+
+            maximumStackSize = Math.max(maximumStackSize, stackSize);
+        }
+
+        if (stackSize < 1) {
+            return null;
+        }
+
+        return new CompiledComputation(opcodes, operands, copyOf(constants, constantCount), copyOf(constantErrors, constantCount),
+                copyOf(variableIds, variableCount), maximumStackSize);
+    }
+
+    /**
+     * Evaluates this computation with the given variables.
+     * <p>
+     * A variable missing from the given map is considered as
+     * {@link ComputationError#NO_VALUE}.
+     * </p>
+     *
+     * @param variables
+     *          Values of the variables (may be <code>null</code> if this
+     *          computation does not have any variable).
+     * @return Result of the computation.
+     */
+    public ComputedValue evaluate(final Map<Integer, ComputedValue> variables) {
+        final double[] variableValues = new double[variableIds.length];
+        final ComputedValue[] variableErrors = new ComputedValue[variableIds.length];
+
+        for (int slot = 0; slot < variableIds.length; slot++) {
+            final ComputedValue value = variables != null ? variables.get(variableIds[slot]) : null;
+            final Double number = value != null ? value.get() : null;
+
+            if (number != null) {
+                variableValues[slot] = number;
+            } else if (value != null) {
+                variableErrors[slot] = value;
+            } else {
+                variableErrors[slot] = ComputationError.NO_VALUE;
+            }
+        }
+
+        return evaluate(variableValues, variableErrors);
+    }
+
+    /**
+     * Evaluates this computation with the given variable slots.
+     *
+     * @param variableValues
+     *          Value of each variable slot.
+     * @param variableErrors
+     *          Error of each variable slot (<code>null</code> for valid numbers).
+     * @return Result of the computation.
+     */
+    private ComputedValue evaluate(final double[] variableValues, final ComputedValue[] variableErrors) {
+        final double[] stack = new double[maximumStackSize];
+        final ComputedValue[] errors = new ComputedValue[maximumStackSize];
+        int top = -1;
+
+        for (int index = 0; index < opcodes.length; index++) {
+            final int operand = operands[index];
+
+            switch (opcodes[index]) {
+                case OPCODE_CONSTANT:
+                    top++;
+                    stack[top] = constants[operand];
+                    errors[top] = constantErrors[operand];
+                    break;
+
+                case OPCODE_VARIABLE:
+                    top++;
+                    stack[top] = variableValues[operand];
+                    errors[top] = variableErrors[operand];
+                    break;
+
+                case OPCODE_MINUS:
+                    if (errors[top] == null) {
+                        stack[top] = stack[top] * -1.0;
+                    }
+                    break;
+
+                default:
+                    final int right = top--;
+                    if (errors[right] != null) {
+                        errors[top] = errors[right];
+                    } else if (errors[top] == null) {
+                        applyBinaryOperator(opcodes[index], stack, errors, top, stack[right]);
+                    }
+                    break;
+            }
+        }
+
+        if (errors[top] != null) {
+            return errors[top];
+        }
+        return new DoubleValue(stack[top]);
+    }
+
+    /**
+     * Applies the given binary operator on the left operand at the given
+     * position and the given right operand. Both operands must be valid.
+     */
+    private static void applyBinaryOperator(final byte opcode, final double[] stack, final ComputedValue[] errors, final int left, final double right) {
+        switch (opcode) {
+            case OPCODE_ADD:
+                stack[left] = right + stack[left];
+                break;
+            case OPCODE_SUBSTRACT:
+                stack[left] = stack[left] - right;
+                break;
+            case OPCODE_MULTIPLY:
+                stack[left] = right * stack[left];
+                break;
+            case OPCODE_DIVIDE:
+                if (right == 0) {
+                    errors[left] = ComputationError.DIVISON_BY_ZERO;
+                } else {
+                    stack[left] = stack[left] / right;
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown opcode: " + opcode);
+        }
+    }
+
+    /**
+     * Returns the opcode of the given binary operator.
+     *
+     * @param instruction
+     *          Instruction.
+     * @return The opcode or <code>-1</code> if the given instruction is not a supported binary operator.
+     */
+    private static byte binaryOpcodeOf(final Instruction instruction) {
+        if (instruction instanceof Add) {
+            return OPCODE_ADD;
+        } else if (instruction instanceof Substract) {
+            return OPCODE_SUBSTRACT;
+        } else if (instruction instanceof Multiply) {
+            return OPCODE_MULTIPLY;
+        } else if (instruction instanceof Divide) {
+            return OPCODE_DIVIDE;
+        } else {
+            return -1;
+        }
+    }
+
+    // Arrays.copyOf is not emulated by GWT 2.4.
+
+    private static double[] copyOf(final double[] array, final int length) {
+        final double[] copy = new double[length];
+        System.arraycopy(array, 0, copy, 0, length);
+        return copy;
+    }
+
+    private static int[] copyOf(final int[] array, final int length) {
+        final int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, length);
+        return copy;
+    }
+
+    private static ComputedValue[] copyOf(final ComputedValue[] array, final int length) {
+        final ComputedValue[] copy = new ComputedValue[length];
+        System.arraycopy(array, 0, copy, 0, length);
+        return copy;
+    }
+
+}
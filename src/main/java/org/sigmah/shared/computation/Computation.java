@@ -56,6 +56,8 @@ public class Computation {
 
     private final List<Instruction> instructions;
     private Set<FlexibleElementDTO> dependencies;
+    private CompiledComputation compiledComputation;
+    private boolean compiled;
 
     /**
      * Creates a new computation with the given instructions.
@@ -195,6 +197,23 @@ public class Computation {
      * @return Result of the computation.
      */
     ComputedValue computeValue(Map<Integer, ComputedValue> variables) {
+        final CompiledComputation compiledComputation = compile();
+        if (compiledComputation != null) {
+            return compiledComputation.evaluate(variables);
+        }
+        return interpretValue(variables);
+    }
+
+    /**
+     * Compute the value with the given variables by interpreting each
+     * instruction on a stack of <code>ComputedValue</code>s.
+     *
+     * @param variables
+     *          Values of the variables.
+     *
+     * @return Result of the computation.
+     */
+    ComputedValue interpretValue(Map<Integer, ComputedValue> variables) {
         final Stack<ComputedValue> stack = new Stack<ComputedValue>();
 
         for (final Instruction instruction : instructions) {
@@ -204,6 +223,24 @@ public class Computation {
         return stack.peek();
     }
 
+    /**
+     * Compiles the instructions of this computation to a stack machine over
+     * primitive doubles.
+     * <p>
+     * Compilation is done only once, the result is kept by this computation.
+     * </p>
+     *
+     * @return The compiled computation or <code>null</code> if the instructions
+     * cannot be compiled (the computation will then be interpreted).
+     */
+    public CompiledComputation compile() {
+        if (!compiled) {
+            compiledComputation = CompiledComputation.compile(instructions);
+            compiled = true;
+        }
+        return compiledComputation;
+    }
+
     /**
      * Retrieves the required dependencies.
      *
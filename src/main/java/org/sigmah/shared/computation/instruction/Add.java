@@ -32,7 +32,7 @@ import org.sigmah.shared.computation.value.ComputedValue;
  * @author Raphaël Calabro (raphael.calabro@netapsys.fr)
  * @since 2.1
  */
-class Add implements Operator {
+public class Add implements Operator {
 
 	/**
 	 * {@inheritDoc}
@@ -33,7 +33,7 @@ import org.sigmah.shared.computation.value.ComputedValues;
  * @author Raphaël Calabro (raphael.calabro@netapsys.fr)
  * @since 2.1
  */
-class Constant implements Instruction {
+public class Constant implements Instruction {
 	
 	private final ComputedValue value;
 
@@ -45,6 +45,15 @@ class Constant implements Instruction {
 		this.value = value;
 	}
 
+	/**
+	 * Retrieves the value of this constant.
+	 * 
+	 * @return Value of this constant.
+	 */
+	public ComputedValue getValue() {
+		return value;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
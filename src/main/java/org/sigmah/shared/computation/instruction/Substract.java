@@ -32,7 +32,7 @@ import org.sigmah.shared.computation.value.ComputedValue;
  * @author Raphaël Calabro (raphael.calabro@netapsys.fr)
  * @since 2.1
  */
-class Substract implements Operator {
+public class Substract implements Operator {
 	
 	/**
 	 * {@inheritDoc}
@@ -81,6 +81,24 @@ public enum PropertyKey implements IsSerializable {
 	FILE_UPLOAD_MAX_SIZE(PropertyName.n("files", "upload", "maxSize")),
 	ARCHIVE_REPOSITORY_NAME(PropertyName.n("archives", "repository", "name")),
 
+	// --------------------------------------------------------------------------------
+	//
+	// History properties.
+	//
+	// --------------------------------------------------------------------------------
+
+	HISTORY_COMPACT(PropertyName.n("history", "compact")),
+
+	// --------------------------------------------------------------------------------
+	//
+	// Global export properties.
+	//
+	// --------------------------------------------------------------------------------
+
+	EXPORT_AUTO_PARALLELISM(PropertyName.n("export", "auto", "parallelism")),
+	EXPORT_JOBS_PARALLELISM(PropertyName.n("export", "jobs", "parallelism")),
+	EXPORT_JOBS_CACHE_SIZE(PropertyName.n("export", "jobs", "cache", "size")),
+
 	;
 
 	private final String key;
@@ -45,6 +45,8 @@ public class BackupDTO implements DTO {
 	private String orgUnitName;
 	private Date creationDate;
 	private boolean running;
+	private Integer processedFiles;
+	private Integer totalFiles;
 
 	public BackupDTO() {
 		// Serialization.
@@ -64,6 +66,8 @@ public class BackupDTO implements DTO {
 		builder.append("archiveFileName", archiveFileName);
 		builder.append("creationDate", creationDate);
 		builder.append("running", running);
+		builder.append("processedFiles", processedFiles);
+		builder.append("totalFiles", totalFiles);
 
 		return builder.toString();
 	}
@@ -124,4 +128,30 @@ public class BackupDTO implements DTO {
 		this.running = running;
 	}
 
+	/**
+	 * Returns the number of files already added to the archive of a running process.
+	 * 
+	 * @return The number of processed files, or {@code null} if unknown.
+	 */
+	public Integer getProcessedFiles() {
+		return processedFiles;
+	}
+
+	public void setProcessedFiles(Integer processedFiles) {
+		this.processedFiles = processedFiles;
+	}
+
+	/**
+	 * Returns the number of files to add to the archive of a running process.
+	 * 
+	 * @return The total number of files, or {@code null} if unknown.
+	 */
+	public Integer getTotalFiles() {
+		return totalFiles;
+	}
+
+	public void setTotalFiles(Integer totalFiles) {
+		this.totalFiles = totalFiles;
+	}
+
 }
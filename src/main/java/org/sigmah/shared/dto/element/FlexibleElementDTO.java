@@ -44,6 +44,7 @@ import org.sigmah.shared.dto.element.event.RequiredValueEvent;
 import org.sigmah.shared.dto.element.event.RequiredValueHandler;
 import org.sigmah.shared.dto.element.event.ValueEvent;
 import org.sigmah.shared.dto.element.event.ValueHandler;
+import org.sigmah.shared.dto.history.HistoryTokenDTO;
 import org.sigmah.shared.dto.history.HistoryTokenListDTO;
 import org.sigmah.shared.dto.history.HistoryTokenManager;
 import org.sigmah.shared.dto.layout.LayoutConstraintDTO;
@@ -67,6 +68,7 @@ import com.extjs.gxt.ui.client.widget.menu.Menu;
 import com.extjs.gxt.ui.client.widget.menu.MenuItem;
 import com.google.gwt.event.shared.HandlerManager;
 import java.util.Date;
+import java.util.List;
 import org.sigmah.client.ui.widget.Loadable;
 import org.sigmah.shared.dto.referential.GlobalPermissionEnum;
 import org.sigmah.shared.dto.referential.ValueEventChangeType;
@@ -310,13 +312,34 @@ public abstract class FlexibleElementDTO extends AbstractModelDataEntityDTO<Inte
 	}
 	
 	/**
-	 * Send a GetHistory command to retrieve the history of the current element
-	 * and displays it in a popup.
+	 * Send a GetHistory command to retrieve the most recent page of the history
+	 * of the current element and displays it in a popup.
 	 * 
 	 * @param loadables Element to mask during the load of the history.
 	 */
 	protected void loadAndShowHistory(Loadable... loadables) {
-		dispatch.execute(new GetHistory(getId(), currentContainerDTO.getId()), new CommandResultHandler<ListResult<HistoryTokenListDTO>>() {
+		loadHistoryPage(null, loadables);
+	}
+	
+	/**
+	 * Send a GetHistory command to retrieve a page of the history of the
+	 * current element and displays it in the history popup.
+	 * <br>
+	 * Offline, the first page contains the complete history.
+	 * 
+	 * @param lastTokens Oldest tokens of the previous page, <code>null</code> 
+	 * to open the popup with the first page.
+	 * @param loadables Element to mask during the load of the history.
+	 */
+	private void loadHistoryPage(final HistoryTokenListDTO lastTokens, Loadable... loadables) {
+		final GetHistory getHistory = new GetHistory(getId(), currentContainerDTO.getId()).limit(GetHistory.PAGE_SIZE);
+		
+		if (lastTokens != null) {
+			final List<HistoryTokenDTO> tokens = lastTokens.getTokens();
+			getHistory.after(lastTokens.getDate(), tokens.get(tokens.size() - 1).getId());
+		}
+		
+		dispatch.execute(getHistory, new CommandResultHandler<ListResult<HistoryTokenListDTO>>() {
 
 			@Override
 			public void onCommandFailure(final Throwable e) {
@@ -324,14 +347,41 @@ public abstract class FlexibleElementDTO extends AbstractModelDataEntityDTO<Inte
 					Log.error("[execute] The history cannot be fetched.", e);
 				}
 				N10N.warn(I18N.CONSTANTS.historyError(), I18N.CONSTANTS.historyErrorDetails());
+				
+				if (lastTokens != null) {
+					// Allows another attempt.
+					HistoryWindow.append(null, new HistoryNextPageLoader());
+				}
 			}
 
 			@Override
 			public void onCommandSuccess(final ListResult<HistoryTokenListDTO> result) {
-				HistoryWindow.show(result.getList(), FlexibleElementDTO.this);
+				int count = 0;
+				for (final HistoryTokenListDTO list : result.getList()) {
+					count += list.getTokens().size();
+				}
+				
+				final HistoryWindow.NextPageLoader nextPageLoader = count >= GetHistory.PAGE_SIZE ? new HistoryNextPageLoader() : null;
+				
+				if (lastTokens == null) {
+					HistoryWindow.show(result.getList(), FlexibleElementDTO.this, nextPageLoader);
+				} else {
+					HistoryWindow.append(result.getList(), nextPageLoader);
+				}
 			}
 		}, loadables);
 	}
+	
+	/**
+	 * Loads the next page of the history of this element.
+	 */
+	private final class HistoryNextPageLoader implements HistoryWindow.NextPageLoader {
+		
+		@Override
+		public void loadNextPage(HistoryTokenListDTO lastTokens) {
+			loadHistoryPage(lastTokens);
+		}
+	}
 
 	/**
 	 * Gets the widget of a flexible element with its value to be displayed in the banner. The default implementation uses
@@ -34,6 +34,7 @@ public class HistoryTokenDTO implements Serializable {
 	 */
 	private static final long serialVersionUID = -2644629638564832900L;
 
+	private Integer id;
 	private String value;
 	private ValueEventChangeType type;
 	private String comment;
@@ -49,6 +50,14 @@ public class HistoryTokenDTO implements Serializable {
 		this.coreVersionName = coreVersionName;
 	}
 
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
 	public String getValue() {
 		return value;
 	}
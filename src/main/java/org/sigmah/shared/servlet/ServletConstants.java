@@ -78,6 +78,11 @@ public final class ServletConstants {
 		 * Import Servlet
 		 */
 		IMPORT,
+
+		/**
+		 * Administration servlet exposing the dispatch metrics.
+		 */
+		METRICS,
 		// Add other servlets here.
 		;
 
@@ -288,6 +293,36 @@ public final class ServletConstants {
 		 */
 		EXPORT_GLOBAL("exportGlobal"),
 
+		/**
+		 * <p>
+		 * Returns the {@link org.sigmah.shared.util.ExportUtils.ExportJobStatus} of an export job.
+		 * </p>
+		 * <p>
+		 * Export methods called with the {@link ServletConstants#AJAX} parameter return the id of their job instead of
+		 * the document.
+		 * </p>
+		 * <p>
+		 * Expected request parameter(s):
+		 * <ul>
+		 * <li>{@link RequestParameter#ID} : Export job id.</li>
+		 * </ul>
+		 * </p>
+		 */
+		EXPORT_STATUS("exportStatus"),
+
+		/**
+		 * <p>
+		 * Downloads the document generated by a finished export job.
+		 * </p>
+		 * <p>
+		 * Expected request parameter(s):
+		 * <ul>
+		 * <li>{@link RequestParameter#ID} : Export job id.</li>
+		 * </ul>
+		 * </p>
+		 */
+		DOWNLOAD_EXPORT("downloadExport"),
+
 		/**
 		 * <p> Model Gategory Export.</p>
 		 * <p>
@@ -385,7 +420,33 @@ public final class ServletConstants {
 		 * <li>{@link org.sigmah.shared.dto.value.FileUploadUtils#DOCUMENT_CONTENT}: Content of the file to store.</li>
 		 * </ul>
 		 */
-		IMPORT_STORE_FILE("storeFile")
+		IMPORT_STORE_FILE("storeFile"),
+
+		// --
+		// Metrics Servlet.
+		// --
+
+		/**
+		 * <p>
+		 * Returns the execution metrics of every dispatched command and the second-level cache statistics in
+		 * {@code JSON} format.
+		 * </p>
+		 * <p>
+		 * No expected request parameter.
+		 * </p>
+		 */
+		DISPATCH_METRICS("dispatchMetrics"),
+
+		/**
+		 * <p>
+		 * Returns the execution metrics of every dispatched command and the second-level cache statistics in Prometheus
+		 * text format.
+		 * </p>
+		 * <p>
+		 * No expected request parameter.
+		 * </p>
+		 */
+		DISPATCH_METRICS_PROMETHEUS("dispatchMetricsPrometheus")
 
 		// Add other servlets methods here.
 
@@ -517,7 +578,7 @@ public final class ServletConstants {
 	 * Servlet parameter key referencing random value.
 	 * Avoids cache related issues.
 	 */
-	static final String RANDOM = "_s_ra";
+	public static final String RANDOM = "_s_ra";
 
 	/**
 	 * Servlet parameter key referencing ajax request flag.
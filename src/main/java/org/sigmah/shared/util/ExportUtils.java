@@ -119,6 +119,11 @@ public final class ExportUtils {
 		 */
 		XLS(FileType.XLS),
 
+		/**
+		 * MS Excel 2007 and later, written as a stream (no rows limit).
+		 */
+		XLSX(FileType.XLSX),
+
 		/**
 		 * Open document spreadsheet.
 		 */
@@ -210,6 +215,58 @@ public final class ExportUtils {
 		}
 	}
 
+	/**
+	 * Defines the states of an export job executed in background.
+	 */
+	public static enum ExportJobStatus {
+
+		/**
+		 * Waiting for a worker.
+		 */
+		PENDING,
+
+		/**
+		 * Document being generated.
+		 */
+		RUNNING,
+
+		/**
+		 * Document ready to be downloaded.
+		 */
+		DONE,
+
+		/**
+		 * Generation failed.
+		 */
+		FAILED;
+
+		/**
+		 * Returns the given {@code name} corresponding {@link ExportJobStatus}.
+		 * 
+		 * @param name
+		 *          The status name (case insensitive).
+		 * @return The {@link ExportJobStatus} instance, or {@code null}.
+		 */
+		public static ExportJobStatus valueOfOrNull(final String name) {
+			try {
+
+				return ExportJobStatus.valueOf(name.trim().toUpperCase());
+
+			} catch (final Exception e) {
+				return null;
+			}
+		}
+
+		/**
+		 * Returns if the job is over.
+		 * 
+		 * @return {@code true} if the job is {@link #DONE} or {@link #FAILED}.
+		 */
+		public boolean isFinished() {
+			return this == DONE || this == FAILED;
+		}
+	}
+
 	/*
 	 * Maps to specify document type and extension
 	 */
@@ -218,10 +275,12 @@ public final class ExportUtils {
 
 	static {
 		contentTypeMap.put(ExportFormat.XLS, "application/vnd.ms-excel");
+		contentTypeMap.put(ExportFormat.XLSX, "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
 		contentTypeMap.put(ExportFormat.ODS, "application/vnd.oasis.opendocument.spreadsheet");
 		contentTypeMap.put(ExportFormat.MS_WORD, "application/msword");
 
 		extensionMap.put(ExportFormat.XLS, ".xls");
+		extensionMap.put(ExportFormat.XLSX, ".xlsx");
 		extensionMap.put(ExportFormat.ODS, ".ods");
 		extensionMap.put(ExportFormat.MS_WORD, ".rtf");
 	}
@@ -0,0 +1,8 @@
+--
+-- Database update for the chunked and compressed storage of global exports.
+--
+
+ALTER TABLE global_export_content ADD compressed_content BYTEA;
+ALTER TABLE global_export_content ADD chunk_index INTEGER;
+
+CREATE INDEX global_export_content_export_idx ON global_export_content (global_export_id, project_model_name, chunk_index);
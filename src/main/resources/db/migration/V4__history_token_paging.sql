@@ -0,0 +1,8 @@
+--
+-- Database update for the paged and compact history.
+--
+
+ALTER TABLE history_token ADD id_base_token INTEGER;
+ALTER TABLE history_token ADD delta_depth INTEGER;
+
+CREATE INDEX history_token_element_date_idx ON history_token (id_project, id_element, history_date, id_history_token);
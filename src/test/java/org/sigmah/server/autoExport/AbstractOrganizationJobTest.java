@@ -0,0 +1,116 @@
+package org.sigmah.server.autoExport;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import javax.persistence.TypedQuery;
+
+import org.junit.Test;
+import org.sigmah.server.conf.Properties;
+import org.sigmah.server.domain.Organization;
+import org.sigmah.server.domain.export.GlobalExportSettings;
+import org.sigmah.shared.conf.PropertyKey;
+
+import com.google.inject.Provider;
+import com.google.inject.persist.UnitOfWork;
+
+/**
+ * Unit tests of {@link AbstractOrganizationJob}.
+ */
+public class AbstractOrganizationJobTest {
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testFailingOrganizationDoesNotRollBackTheOthers() throws Exception {
+
+		final UnitOfWork unitOfWork = mock(UnitOfWork.class);
+		final EntityManager em = mock(EntityManager.class);
+		final EntityTransaction tx = mock(EntityTransaction.class);
+		final TypedQuery<Integer> query = mock(TypedQuery.class);
+		final Properties properties = mock(Properties.class);
+
+		when(properties.getIntegerProperty(eq(PropertyKey.EXPORT_AUTO_PARALLELISM), eq(2))).thenReturn(2);
+		when(em.createQuery(anyString(), eq(Integer.class))).thenReturn(query);
+		when(query.getResultList()).thenReturn(Arrays.asList(1, 2, 3));
+		when(em.getTransaction()).thenReturn(tx);
+		when(tx.isActive()).thenReturn(true);
+		for (int id = 1; id <= 3; id++) {
+			when(em.find(GlobalExportSettings.class, id)).thenReturn(settings(id));
+		}
+
+		final Set<Integer> processed = Collections.synchronizedSet(new HashSet<Integer>());
+
+		final AbstractOrganizationJob job = new AbstractOrganizationJob(unitOfWork, new Provider<EntityManager>() {
+
+			@Override
+			public EntityManager get() {
+				return em;
+			}
+		}, properties) {
+
+			@Override
+			protected boolean execute(final GlobalExportSettings settings, final EntityManager em) throws Exception {
+				processed.add(settings.getOrganization().getId());
+				if (settings.getOrganization().getId() == 2) {
+					throw new IllegalStateException("Export failure.");
+				}
+				return true;
+			}
+		};
+
+		job.execute(null);
+
+		assertEquals(new HashSet<Integer>(Arrays.asList(1, 2, 3)), processed);
+		verify(tx, times(3)).begin();
+		verify(tx, times(2)).commit();
+		verify(tx, times(1)).rollback();
+		// One unit of work to list the settings, then one per organization.
+		verify(unitOfWork, times(4)).begin();
+		verify(unitOfWork, times(4)).end();
+	}
+
+	private static GlobalExportSettings settings(final int id) {
+		final Organization organization = new Organization();
+		organization.setId(id);
+
+		final GlobalExportSettings settings = new GlobalExportSettings();
+		settings.setId(id);
+		settings.setOrganization(organization);
+		return settings;
+	}
+
+}
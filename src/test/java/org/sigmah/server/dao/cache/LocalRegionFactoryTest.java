@@ -0,0 +1,241 @@
+package org.sigmah.server.dao.cache;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cache.spi.access.CollectionRegionAccessStrategy;
+import org.hibernate.cache.spi.access.EntityRegionAccessStrategy;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link LocalRegionFactory} and its regions.
+ */
+public class LocalRegionFactoryTest {
+
+	private LocalRegionFactory factory;
+	private EntityRegionAccessStrategy entities;
+	private CollectionRegionAccessStrategy collections;
+
+	@Before
+	public void setUp() {
+		final Properties properties = new Properties();
+		properties.setProperty(LocalRegionFactory.MAX_ENTRIES_PROPERTY, "2");
+
+		factory = new LocalRegionFactory();
+		factory.start(null, properties);
+
+		entities = factory.buildEntityRegion("entity", properties, null).buildAccessStrategy(AccessType.READ_WRITE);
+		collections = factory.buildCollectionRegion("entity.children", properties, null).buildAccessStrategy(AccessType.READ_WRITE);
+	}
+
+	@After
+	public void tearDown() {
+		factory.stop();
+	}
+
+	@Test
+	public void testLoadedValueIsCached() {
+		assertNull(entities.get(1, factory.nextTimestamp()));
+		assertTrue(entities.putFromLoad(1, "one", factory.nextTimestamp(), null));
+		assertEquals("one", entities.get(1, factory.nextTimestamp()));
+
+		final LocalRegion region = LocalRegionFactory.getRegions().get(0);
+		assertEquals("entity", region.getName());
+		assertEquals(1L, region.getHitCount());
+		assertEquals(1L, region.getMissCount());
+		assertEquals(1L, region.getPutCount());
+	}
+
+	@Test
+	public void testUpdateInvalidatesItem() {
+		final long before = factory.nextTimestamp();
+		entities.putFromLoad(1, "one", before, null);
+
+		final SoftLock lock = entities.lockItem(1, null);
+		assertNull(entities.get(1, factory.nextTimestamp()));
+		assertFalse(entities.putFromLoad(1, "stale", factory.nextTimestamp(), null));
+
+		entities.afterUpdate(1, "updated", null, null, lock);
+
+		// Loaded by a transaction started before the update completed.
+		assertFalse(entities.putFromLoad(1, "stale", before, null));
+		assertTrue(entities.putFromLoad(1, "updated", factory.nextTimestamp(), null));
+		assertEquals("updated", entities.get(1, factory.nextTimestamp()));
+	}
+
+	@Test
+	public void testEntityInsertInvalidatesCollections() {
+		assertTrue(collections.putFromLoad(1, "children", factory.nextTimestamp(), null));
+
+		entities.insert(2, "child", null);
+		assertNull(collections.get(1, factory.nextTimestamp()));
+
+		final long during = factory.nextTimestamp();
+		entities.afterInsert(2, "child", null);
+		assertFalse(collections.putFromLoad(1, "children", during, null));
+		assertTrue(collections.putFromLoad(1, "children + child", factory.nextTimestamp(), null));
+	}
+
+	@Test
+	public void testItemStaysLockedUntilLastWriterUnlocks() {
+		final SoftLock first = entities.lockItem(1, null);
+		final SoftLock second = entities.lockItem(1, null);
+
+		entities.unlockItem(1, first);
+		assertFalse(entities.putFromLoad(1, "stale", factory.nextTimestamp(), null));
+
+		entities.unlockItem(1, second);
+		assertTrue(entities.putFromLoad(1, "fresh", factory.nextTimestamp(), null));
+	}
+
+	@Test
+	public void testSlowLoadStartedBeforeUpdateIsRejected() {
+		final long slow = factory.nextTimestamp();
+
+		final SoftLock lock = entities.lockItem(1, null);
+		entities.afterUpdate(1, "updated", null, null, lock);
+
+		// A faster transaction caches the new value first.
+		assertTrue(entities.putFromLoad(1, "updated", factory.nextTimestamp(), null));
+
+		// Without minimal puts, the cached value would be replaced.
+		assertFalse(entities.putFromLoad(1, "stale", slow, null, false));
+		assertEquals("updated", entities.get(1, factory.nextTimestamp()));
+	}
+
+	@Test
+	public void testRegionLockRejectsLoads() {
+		entities.putFromLoad(1, "one", factory.nextTimestamp(), null);
+		final long before = factory.nextTimestamp();
+
+		final SoftLock lock = entities.lockRegion();
+		assertNull(entities.get(1, factory.nextTimestamp()));
+		assertFalse(entities.putFromLoad(2, "two", factory.nextTimestamp(), null));
+
+		entities.unlockRegion(lock);
+		assertFalse(entities.putFromLoad(2, "two", before, null));
+		assertTrue(entities.putFromLoad(2, "two", factory.nextTimestamp(), null));
+	}
+
+	@Test
+	public void testConcurrentLoadsNeverCacheStaleValue() throws Exception {
+		final AtomicInteger database = new AtomicInteger();
+		final AtomicBoolean failed = new AtomicBoolean();
+		final CountDownLatch start = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newFixedThreadPool(6);
+
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+
+			for (int index = 0; index < 2; index++) {
+				futures.add(executor.submit(new Runnable() {
+
+					@Override
+					public void run() {
+						await(start);
+						for (int iteration = 0; iteration < 5000; iteration++) {
+							final SoftLock lock = entities.lockItem(1, null);
+							final int value = database.incrementAndGet();
+							entities.afterUpdate(1, value, null, null, lock);
+						}
+					}
+				}));
+			}
+
+			for (int index = 0; index < 4; index++) {
+				futures.add(executor.submit(new Runnable() {
+
+					@Override
+					public void run() {
+						await(start);
+						for (int iteration = 0; iteration < 5000; iteration++) {
+							final long txTimestamp = factory.nextTimestamp();
+							final int loaded = database.get();
+							entities.putFromLoad(1, loaded, txTimestamp, null, false);
+
+							// Any write removes the item: a cached value is never older than a value committed before the read.
+							final int committed = database.get();
+							final Object cached = entities.get(1, factory.nextTimestamp());
+							if (cached != null && (Integer) cached < committed) {
+								failed.set(true);
+							}
+						}
+					}
+				}));
+			}
+
+			start.countDown();
+			for (final Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertFalse(failed.get());
+
+		final Object cached = entities.get(1, factory.nextTimestamp());
+		assertTrue(cached == null || cached.equals(database.get()));
+	}
+
+	private static void await(final CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	public void testRegionSizeIsBounded() {
+		for (int id = 1; id <= 3; id++) {
+			entities.putFromLoad(id, "value", factory.nextTimestamp(), null);
+		}
+
+		final LocalRegion region = LocalRegionFactory.getRegions().get(0);
+		assertEquals(2L, region.getElementCountInMemory());
+		assertEquals(1L, region.getEvictionCount());
+		assertNull(entities.get(1, factory.nextTimestamp()));
+	}
+
+}
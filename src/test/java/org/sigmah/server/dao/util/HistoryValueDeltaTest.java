@@ -0,0 +1,85 @@
+package org.sigmah.server.dao.util;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link HistoryValueDelta}.
+ */
+public class HistoryValueDeltaTest {
+
+	@Test
+	public void testRoundTrip() {
+		assertRoundTrip("", "");
+		assertRoundTrip("", "value");
+		assertRoundTrip("value", "");
+		assertRoundTrip("same value", "same value");
+		assertRoundTrip("The quick brown fox jumps over the lazy dog.", "The quick red fox jumps over the lazy dog.");
+		assertRoundTrip("aaaa", "aaaaaa");
+	}
+
+	@Test
+	public void testListAppend() {
+		final String base = "12~15~18~21";
+		final String value = base + "~42";
+
+		final String delta = HistoryValueDelta.encode(base, value);
+
+		assertEquals("11:0:~42", delta);
+		assertEquals(value, HistoryValueDelta.decode(base, delta));
+	}
+
+	@Test
+	public void testLongTextEditIsSmall() {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			builder.append("Line ").append(i).append('\n');
+		}
+		final String base = builder.toString();
+		final String value = base.replace("Line 50", "Line fifty");
+
+		final String delta = HistoryValueDelta.encode(base, value);
+
+		assertTrue(delta.length() < 20);
+		assertEquals(value, HistoryValueDelta.decode(base, delta));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMalformedDelta() {
+		HistoryValueDelta.decode("value", "not a delta");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDeltaOfAnotherBase() {
+		HistoryValueDelta.decode("abc", "2:2:x");
+	}
+
+	private static void assertRoundTrip(final String base, final String value) {
+		assertEquals(value, HistoryValueDelta.decode(base, HistoryValueDelta.encode(base, value)));
+	}
+
+}
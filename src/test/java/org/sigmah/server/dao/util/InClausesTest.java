@@ -0,0 +1,69 @@
+package org.sigmah.server.dao.util;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.TypedQuery;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Unit tests of {@link InClauses}.
+ */
+public class InClausesTest {
+
+	@Test
+	public void testGetResultListExecutesOneQueryPerPart() {
+		final List<Integer> ids = new ArrayList<Integer>();
+		for (int id = 0; id < 2 * InClauses.MAX_PARAMETERS + 1; id++) {
+			ids.add(id);
+		}
+
+		@SuppressWarnings("unchecked")
+		final TypedQuery<String> query = Mockito.mock(TypedQuery.class);
+		Mockito.when(query.getResultList()).thenReturn(Collections.singletonList("a"), Collections.singletonList("b"), Collections.singletonList("c"));
+
+		assertEquals(Arrays.asList("a", "b", "c"), InClauses.getResultList(query, "ids", ids));
+		Mockito.verify(query).setParameter("ids", ids.subList(0, InClauses.MAX_PARAMETERS));
+		Mockito.verify(query).setParameter("ids", ids.subList(2 * InClauses.MAX_PARAMETERS, ids.size()));
+		Mockito.verify(query, Mockito.times(3)).getResultList();
+	}
+
+	@Test
+	public void testGetResultListWithoutValues() {
+		@SuppressWarnings("unchecked")
+		final TypedQuery<String> query = Mockito.mock(TypedQuery.class);
+
+		assertTrue(InClauses.getResultList(query, "ids", Collections.<Integer> emptySet()).isEmpty());
+		Mockito.verifyZeroInteractions(query);
+	}
+
+}
@@ -0,0 +1,50 @@
+package org.sigmah.server.dao.util;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of the write detection of {@link StatementCountingInterceptor}.
+ */
+public class StatementCountingInterceptorTest {
+
+	@Test
+	public void testWrites() {
+		assertTrue(StatementCountingInterceptor.isWrite("insert into project (name) values (?)"));
+		assertTrue(StatementCountingInterceptor.isWrite(" UPDATE value SET value=? WHERE id_value=?"));
+		assertTrue(StatementCountingInterceptor.isWrite("delete from file_version where id=?"));
+		assertFalse(StatementCountingInterceptor.isWrite("select * from project"));
+	}
+
+	@Test
+	public void testSessionWritesAreIgnored() {
+		assertFalse(StatementCountingInterceptor.isWrite("insert into Authentication (dateCreated, id_user, id) values (?, ?, ?)"));
+		assertFalse(StatementCountingInterceptor.isWrite("update authentication set dateLastActive=? where id in (?)"));
+		assertFalse(StatementCountingInterceptor.isWrite("delete from public.\"authentication\" where id=?"));
+	}
+
+}
@@ -0,0 +1,79 @@
+package org.sigmah.server.dispatch.impl;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link DispatchMetrics}.
+ */
+public class DispatchMetricsTest {
+
+	@Test
+	public void testBucketIndex() {
+		assertEquals(0, DispatchMetrics.bucketIndex(0L));
+		assertEquals(0, DispatchMetrics.bucketIndex(TimeUnit.MICROSECONDS.toNanos(1023)));
+		assertEquals(1, DispatchMetrics.bucketIndex(TimeUnit.MICROSECONDS.toNanos(1024)));
+		assertEquals(1, DispatchMetrics.bucketIndex(TimeUnit.MICROSECONDS.toNanos(2047)));
+		assertEquals(2, DispatchMetrics.bucketIndex(TimeUnit.MICROSECONDS.toNanos(2048)));
+		assertEquals(DispatchMetrics.BUCKET_COUNT - 1, DispatchMetrics.bucketIndex(TimeUnit.HOURS.toNanos(1)));
+
+		for (int index = 0; index < DispatchMetrics.BUCKET_COUNT - 1; index++) {
+			final long upperBoundNanos = (long) (DispatchMetrics.bucketUpperBound(index) * 1e9);
+			assertEquals(index, DispatchMetrics.bucketIndex(upperBoundNanos - 1000L));
+			assertEquals(index + 1, DispatchMetrics.bucketIndex(upperBoundNanos));
+		}
+	}
+
+	@Test
+	public void testSnapshots() {
+		final DispatchMetrics metrics = new DispatchMetrics();
+
+		metrics.record(String.class, TimeUnit.MILLISECONDS.toNanos(3), 2, false);
+		metrics.record(String.class, TimeUnit.MILLISECONDS.toNanos(40), 5, true);
+		metrics.record(Integer.class, TimeUnit.MILLISECONDS.toNanos(1), 1, false);
+
+		final List<DispatchMetrics.Snapshot> snapshots = metrics.getSnapshots();
+		assertEquals(2, snapshots.size());
+
+		final DispatchMetrics.Snapshot snapshot = snapshots.get(0);
+		assertEquals("String", snapshot.getCommand());
+		assertEquals(2L, snapshot.getCount());
+		assertEquals(1L, snapshot.getErrors());
+		assertEquals(7L, snapshot.getSqlStatements());
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(43), snapshot.getTotalNanos());
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(40), snapshot.getMaxNanos());
+		assertEquals(1L, snapshot.getBucket(DispatchMetrics.bucketIndex(TimeUnit.MILLISECONDS.toNanos(3))));
+
+		assertEquals("Integer", snapshots.get(1).getCommand());
+
+		metrics.reset();
+		assertEquals(0, metrics.getSnapshots().size());
+	}
+
+}
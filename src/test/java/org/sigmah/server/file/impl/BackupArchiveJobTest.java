@@ -0,0 +1,47 @@
+package org.sigmah.server.file.impl;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link BackupArchiveJob}.
+ */
+public class BackupArchiveJobTest {
+
+	@Test
+	public void testIsCompressed() {
+		assertTrue(BackupArchiveJob.isCompressed("photo_f12.jpg"));
+		assertTrue(BackupArchiveJob.isCompressed("Report.v2_v3.PDF"));
+		assertTrue(BackupArchiveJob.isCompressed("budget.xlsx"));
+
+		assertFalse(BackupArchiveJob.isCompressed("notes.txt"));
+		assertFalse(BackupArchiveJob.isCompressed("data.csv"));
+		assertFalse(BackupArchiveJob.isCompressed("zip"));
+		assertFalse(BackupArchiveJob.isCompressed("no_extension."));
+	}
+
+}
@@ -0,0 +1,88 @@
+package org.sigmah.server.file.util;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link ReceivedSlices}.
+ */
+public class ReceivedSlicesTest {
+
+	@Test
+	public void testOutOfOrderAndRetriedSlices() {
+		final ReceivedSlices slices = new ReceivedSlices();
+
+		slices.add(200, 300);
+		slices.add(0, 100);
+		assertFalse(slices.isComplete(300));
+		assertEquals(200L, slices.getReceivedBytes());
+
+		// Retried slice.
+		slices.add(0, 100);
+		assertEquals(200L, slices.getReceivedBytes());
+
+		slices.add(100, 200);
+		assertTrue(slices.isComplete(300));
+		assertEquals(300L, slices.getReceivedBytes());
+	}
+
+	@Test
+	public void testOverlappingSlices() {
+		final ReceivedSlices slices = new ReceivedSlices();
+
+		slices.add(50, 150);
+		slices.add(300, 400);
+		slices.add(0, 350);
+		assertTrue(slices.isComplete(400));
+
+		assertTrue(new ReceivedSlices().isComplete(0L));
+		assertFalse(new ReceivedSlices().isComplete(1L));
+	}
+
+	@Test
+	public void testReadWrite() throws IOException {
+		final ReceivedSlices slices = new ReceivedSlices();
+		slices.add(0, 10);
+		slices.add(20, 30);
+
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		slices.write(outputStream);
+
+		final ReceivedSlices read = ReceivedSlices.read(new ByteArrayInputStream(outputStream.toByteArray()));
+		assertEquals(20L, read.getReceivedBytes());
+		assertFalse(read.isComplete(30));
+
+		read.add(10, 20);
+		assertTrue(read.isComplete(30));
+	}
+
+}
@@ -0,0 +1,242 @@
+package org.sigmah.server.handler;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.sigmah.server.dispatch.CommandHandler;
+import org.sigmah.server.dispatch.CommandHandlerRegistry;
+import org.sigmah.server.dispatch.ExecutionContext;
+import org.sigmah.server.dispatch.impl.DispatchMetrics;
+import org.sigmah.server.dispatch.impl.ParallelCommandExecutor;
+import org.sigmah.server.dispatch.impl.UserDispatch;
+import org.sigmah.server.dispatch.impl.UserDispatch.UserExecutionContext;
+import org.sigmah.server.servlet.base.ServletExecutionContext;
+import org.sigmah.shared.Language;
+import org.sigmah.shared.command.BatchCommand;
+import org.sigmah.shared.command.GetValue;
+import org.sigmah.shared.command.UpdateProject;
+import org.sigmah.shared.command.base.Command;
+import org.sigmah.shared.command.result.ListResult;
+import org.sigmah.shared.command.result.Result;
+import org.sigmah.shared.command.result.ValueResult;
+import org.sigmah.shared.command.result.VoidResult;
+import org.sigmah.shared.dispatch.CommandException;
+import org.sigmah.shared.dto.element.event.ValueEvent;
+
+import com.google.inject.Provider;
+import com.google.inject.persist.UnitOfWork;
+
+/**
+ * Unit tests of {@link BatchCommandHandler} and of the parallel execution of read-only batches.
+ */
+public class BatchCommandHandlerTest {
+
+	/**
+	 * Element id making the {@link GetValue} handler fail.
+	 */
+	private static final int FAILING_ELEMENT = -1;
+
+	private final List<String> executions = Collections.synchronizedList(new ArrayList<String>());
+	private final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+	private final List<String> rollbacks = Collections.synchronizedList(new ArrayList<String>());
+
+	private ParallelCommandExecutor executor;
+	private UserDispatch dispatch;
+
+	@Before
+	@SuppressWarnings({ "rawtypes", "unchecked"
+	})
+	public void setUp() {
+		final Map<Class<?>, CommandHandler> handlers = new HashMap<Class<?>, CommandHandler>();
+
+		dispatch = new UserDispatch(new CommandHandlerRegistry() {
+
+			@Override
+			public <C extends Command<R>, R extends Result> CommandHandler<C, R> findHandler(final C command) {
+				return handlers.get(command.getClass());
+			}
+
+			@Override
+			public void clearHandlers() {
+				handlers.clear();
+			}
+
+			@Override
+			public <C extends Command<R>, R extends Result> void addHandlerClass(final Class<C> commandClass,
+					final Class<? extends CommandHandler<C, R>> handlerClass) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public <C extends Command<R>, R extends Result> void removeHandlerClass(final Class<C> commandClass,
+					final Class<? extends CommandHandler<C, R>> handlerClass) {
+				throw new UnsupportedOperationException();
+			}
+		}, new DispatchMetrics());
+
+		executor = new ParallelCommandExecutor(dispatch, Mockito.mock(UnitOfWork.class), new Provider<EntityManager>() {
+
+			@Override
+			public EntityManager get() {
+				return null;
+			}
+		});
+
+		final BatchCommandHandler batchHandler = new BatchCommandHandler(executor);
+		handlers.put(BatchCommand.class, new TestHandler<BatchCommand, ListResult<Result>>() {
+
+			@Override
+			public ListResult<Result> execute(final BatchCommand command, final ExecutionContext context) throws CommandException {
+				return batchHandler.execute(command, (UserExecutionContext) context);
+			}
+		});
+
+		handlers.put(GetValue.class, new TestHandler<GetValue, ValueResult>() {
+
+			@Override
+			public ValueResult execute(final GetValue command, final ExecutionContext context) throws CommandException {
+				record("value-" + command.getElementId());
+				if (command.getElementId() == FAILING_ELEMENT) {
+					throw new CommandException("Failure.");
+				}
+				try {
+					// The first commands are the slowest ones.
+					Thread.sleep(10 * (10 - command.getElementId()));
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				final ValueResult result = new ValueResult();
+				result.setValueObject(String.valueOf(command.getElementId()));
+				return result;
+			}
+		});
+
+		handlers.put(UpdateProject.class, new TestHandler<UpdateProject, VoidResult>() {
+
+			@Override
+			public VoidResult execute(final UpdateProject command, final ExecutionContext context) throws CommandException {
+				record("update-" + command.getProjectId());
+				return new VoidResult();
+			}
+
+			@Override
+			public void rollback(final UpdateProject command, final VoidResult result, final ExecutionContext context) throws CommandException {
+				rollbacks.add("update-" + command.getProjectId());
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void testReadOnlyBatchKeepsOrder() throws Exception {
+		final BatchCommand batch = new BatchCommand();
+		for (int elementId = 1; elementId <= 6; elementId++) {
+			batch.add(new GetValue(1, elementId, "element.TextAreaElement"));
+		}
+		batch.setReadOnly(true);
+
+		final ListResult<Result> results = dispatch.execute(batch, new ServletExecutionContext(null, Language.EN));
+
+		assertEquals(6, results.getSize());
+		for (int index = 0; index < 6; index++) {
+			assertEquals(String.valueOf(index + 1), ((ValueResult) results.getList().get(index)).getValueObject());
+		}
+		for (final String thread : threads) {
+			assertTrue(thread.startsWith("sigmah-command-worker-"));
+		}
+	}
+
+	@Test
+	public void testMutatingBatchIsExecutedSequentially() throws Exception {
+		final BatchCommand batch = new BatchCommand(new GetValue(1, 1, "element.TextAreaElement"), new UpdateProject(2, new ArrayList<ValueEvent>()),
+			new GetValue(1, 3, "element.TextAreaElement"));
+		// Flag set by the client, the server must not trust it.
+		batch.setReadOnly(true);
+
+		dispatch.execute(batch, new ServletExecutionContext(null, Language.EN));
+
+		assertEquals(Arrays.asList("value-1", "update-2", "value-3"), executions);
+		for (final String thread : threads) {
+			assertEquals(Thread.currentThread().getName(), thread);
+		}
+	}
+
+	@Test
+	public void testMutatingBatchIsRolledBack() throws Exception {
+		final BatchCommand batch =
+				new BatchCommand(new UpdateProject(2, new ArrayList<ValueEvent>()), new GetValue(1, FAILING_ELEMENT, "element.TextAreaElement"));
+		batch.setReadOnly(true);
+
+		try {
+			dispatch.execute(batch, new ServletExecutionContext(null, Language.EN));
+			fail("The batch should have failed.");
+		} catch (final CommandException e) {
+			// Expected.
+		}
+
+		assertEquals(Collections.singletonList("update-2"), rollbacks);
+	}
+
+	private void record(final String execution) {
+		executions.add(execution);
+		threads.add(Thread.currentThread().getName());
+	}
+
+	/**
+	 * Handler doing nothing on rollback.
+	 */
+	private abstract static class TestHandler<C extends Command<R>, R extends Result> implements CommandHandler<C, R> {
+
+		@Override
+		public Class<C> getCommandType() {
+			return null;
+		}
+
+		@Override
+		public void rollback(final C command, final R result, final ExecutionContext context) throws CommandException {
+			// Nothing to do.
+		}
+
+	}
+
+}
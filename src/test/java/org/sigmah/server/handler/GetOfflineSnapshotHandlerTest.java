@@ -0,0 +1,91 @@
+package org.sigmah.server.handler;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+
+import org.junit.Test;
+import org.sigmah.shared.command.GetOfflineSnapshot;
+import org.sigmah.shared.command.GetValues;
+import org.sigmah.shared.dto.element.ComputationElementDTO;
+import org.sigmah.shared.dto.element.DefaultFlexibleElementDTO;
+import org.sigmah.shared.dto.element.FilesListElementDTO;
+
+/**
+ * Unit tests of the incremental mode of {@link GetOfflineSnapshotHandler}.
+ */
+public class GetOfflineSnapshotHandlerTest {
+
+	@Test
+	public void testRetainChanged() {
+		final GetValues values = new GetValues(7, null);
+		values.add(1, "element.TextAreaElement");
+		values.add(2, DefaultFlexibleElementDTO.ENTITY_NAME);
+		values.add(3, "element.CheckboxElement");
+		values.add(4, ComputationElementDTO.ENTITY_NAME);
+		values.add(5, FilesListElementDTO.ENTITY_NAME);
+
+		final GetValues retained = GetOfflineSnapshotHandler.retainChanged(values, new HashSet<Integer>(Arrays.asList(3)));
+
+		assertEquals(Integer.valueOf(7), retained.getContainerId());
+		assertEquals(Arrays.asList(2, 3, 4, 5), retained.getElementIds());
+		assertEquals(Arrays.asList(DefaultFlexibleElementDTO.ENTITY_NAME, "element.CheckboxElement", ComputationElementDTO.ENTITY_NAME,
+			FilesListElementDTO.ENTITY_NAME), retained.getElementEntityNames());
+	}
+
+	@Test
+	public void testSnapshotDateCoversRunningTransactions() {
+		final Date start = new Date();
+		final Date since = GetOfflineSnapshotHandler.snapshotDate(start);
+
+		// A value dated just before the snapshot started but committed after it is sent by the next snapshot.
+		assertTrue(new Date(start.getTime() - 1).after(since));
+		assertTrue(new Date(start.getTime() - GetOfflineSnapshotHandler.SINCE_MARGIN + 1).after(since));
+		assertFalse(new Date(start.getTime() - GetOfflineSnapshotHandler.SINCE_MARGIN).after(since));
+	}
+
+	@Test
+	public void testOnlyKnownContainersAreIncremental() {
+		final GetOfflineSnapshot snapshot = new GetOfflineSnapshot(false);
+		snapshot.add(new GetValues(1, null), null);
+		snapshot.add(new GetValues(2, null), 12);
+		snapshot.setKnownContainerIds(Collections.singletonList(1));
+
+		// No previous snapshot date: everything is sent.
+		assertFalse(snapshot.isKnown(1));
+
+		snapshot.setSince(new Date());
+		assertTrue(snapshot.isKnown(1));
+		assertFalse(snapshot.isKnown(2));
+		assertEquals(Arrays.asList(1, 2), snapshot.getContainerIds());
+		assertEquals(Integer.valueOf(12), snapshot.getCalendarId(2));
+	}
+
+}
@@ -0,0 +1,136 @@
+package org.sigmah.server.handler;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.sigmah.shared.command.GetProject;
+import org.sigmah.shared.command.UpdateProject;
+import org.sigmah.shared.command.base.Command;
+import org.sigmah.shared.dto.element.TextAreaElementDTO;
+import org.sigmah.shared.dto.element.event.ValueEventWrapper;
+import org.sigmah.shared.dto.referential.ValueEventChangeType;
+import org.sigmah.shared.dto.value.TripletValueDTO;
+
+/**
+ * Unit tests of the grouping of the offline commands by {@link SynchronizeHandler}.
+ */
+public class SynchronizeHandlerTest {
+
+	@Test
+	public void testGroupByContainer() {
+		final UpdateProject first = update(1, single(10, "a"));
+		final UpdateProject second = update(1, single(11, "b"));
+		final UpdateProject third = update(2, single(10, "c"));
+		final UpdateProject fourth = update(1, single(12, "d"));
+
+		final List<List<Command<?>>> groups = SynchronizeHandler.groupByContainer(Arrays.<Command<?>>asList(first, second, third, fourth));
+
+		assertEquals(3, groups.size());
+		assertEquals(Arrays.<Command<?>>asList(first, second), groups.get(0));
+		assertEquals(Arrays.<Command<?>>asList(third), groups.get(1));
+		assertEquals(Arrays.<Command<?>>asList(fourth), groups.get(2));
+	}
+
+	@Test
+	public void testGroupByContainerKeepsInterleavedCommandsOrder() {
+		final UpdateProject first = update(1, single(10, "a"));
+		final GetProject other = new GetProject(3);
+		final UpdateProject second = update(1, single(11, "b"));
+
+		final List<List<Command<?>>> groups = SynchronizeHandler.groupByContainer(Arrays.<Command<?>>asList(first, other, second));
+
+		assertEquals(3, groups.size());
+		assertEquals(Arrays.<Command<?>>asList(first), groups.get(0));
+		assertEquals(Arrays.<Command<?>>asList(other), groups.get(1));
+		assertEquals(Arrays.<Command<?>>asList(second), groups.get(2));
+	}
+
+	@Test
+	public void testMergeKeepsLastValues() {
+		final ValueEventWrapper firstEdit = single(10, "a");
+		final ValueEventWrapper otherElement = single(11, "b");
+		final ValueEventWrapper secondEdit = single(10, "c");
+
+		final UpdateProject merged = SynchronizeHandler.merge(Arrays.<Command<?>>asList(update(1, firstEdit, otherElement), update(1, secondEdit)));
+
+		assertEquals(1, merged.getProjectId());
+		assertEquals(Arrays.asList(otherElement, secondEdit), merged.getValues());
+	}
+
+	@Test
+	public void testCoalesceListValues() {
+		final ValueEventWrapper add = list(20, null, ValueEventChangeType.ADD);
+		final ValueEventWrapper secondAdd = list(20, null, ValueEventChangeType.ADD);
+		final ValueEventWrapper firstEdit = list(20, 5, ValueEventChangeType.EDIT);
+		final ValueEventWrapper remove = list(20, 6, ValueEventChangeType.REMOVE);
+		final ValueEventWrapper secondEdit = list(20, 5, ValueEventChangeType.EDIT);
+
+		final List<ValueEventWrapper> coalesced = SynchronizeHandler.coalesce(Arrays.asList(add, firstEdit, secondAdd, remove, secondEdit));
+
+		assertEquals(4, coalesced.size());
+		assertSame(add, coalesced.get(0));
+		assertSame(secondAdd, coalesced.get(1));
+		assertSame(remove, coalesced.get(2));
+		assertSame(secondEdit, coalesced.get(3));
+	}
+
+	private static UpdateProject update(int containerId, ValueEventWrapper... values) {
+		final UpdateProject update = new UpdateProject();
+		update.setProjectId(containerId);
+		update.setValueEventWrappers(new ArrayList<>(Arrays.asList(values)));
+		return update;
+	}
+
+	private static ValueEventWrapper single(int elementId, String value) {
+		final ValueEventWrapper wrapper = new ValueEventWrapper();
+		wrapper.setSourceElement(element(elementId));
+		wrapper.setSingleValue(value);
+		wrapper.setChangeType(ValueEventChangeType.EDIT);
+		return wrapper;
+	}
+
+	private static ValueEventWrapper list(int elementId, Integer itemId, ValueEventChangeType type) {
+		final TripletValueDTO item = new TripletValueDTO();
+		item.setId(itemId);
+
+		final ValueEventWrapper wrapper = new ValueEventWrapper();
+		wrapper.setSourceElement(element(elementId));
+		wrapper.setListValue(item);
+		wrapper.setChangeType(type);
+		return wrapper;
+	}
+
+	private static TextAreaElementDTO element(int id) {
+		final TextAreaElementDTO element = new TextAreaElementDTO();
+		element.setId(id);
+		return element;
+	}
+
+}
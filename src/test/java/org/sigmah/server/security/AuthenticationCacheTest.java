@@ -0,0 +1,141 @@
+package org.sigmah.server.security;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.sigmah.server.domain.Organization;
+import org.sigmah.server.domain.User;
+import org.sigmah.server.domain.profile.OrgUnitProfile;
+import org.sigmah.server.security.AuthenticationCache.CachedUser;
+
+/**
+ * Authentication cache tests.
+ */
+public class AuthenticationCacheTest {
+
+	/**
+	 * Cache with a manual clock.
+	 */
+	private static final class TestCache extends AuthenticationCache {
+
+		private long now = 0L;
+
+		@Override
+		long currentTimeMillis() {
+			return now;
+		}
+	}
+
+	/**
+	 * Tests that the state needed by the session validation is copied from the user.
+	 */
+	@Test
+	public void testPut() {
+
+		final TestCache cache = new TestCache();
+		cache.put("token", user(1, false));
+
+		final CachedUser cachedUser = cache.get("token");
+		Assert.assertEquals(Integer.valueOf(1), cachedUser.getUserId());
+		Assert.assertEquals(Boolean.FALSE, cachedUser.getActive());
+		Assert.assertEquals(Integer.valueOf(10), cachedUser.getOrganizationId());
+		Assert.assertEquals(Integer.valueOf(100), cachedUser.getOrgUnitProfileId());
+		Assert.assertNull(cache.get("other"));
+	}
+
+	/**
+	 * Tests that entries expire once their time to live is elapsed.
+	 */
+	@Test
+	public void testTimeToLive() {
+
+		final TestCache cache = new TestCache();
+		cache.put("token", user(1, true));
+
+		cache.now = AuthenticationCache.TIME_TO_LIVE;
+		Assert.assertNotNull(cache.get("token"));
+
+		// Accesses do not extend the time to live.
+		cache.now = AuthenticationCache.TIME_TO_LIVE + 1;
+		Assert.assertNull(cache.get("token"));
+		Assert.assertEquals(0, cache.size());
+	}
+
+	/**
+	 * Tests that the least recently used entries are dropped beyond the maximum size.
+	 */
+	@Test
+	public void testMaximumSize() {
+
+		final TestCache cache = new TestCache();
+		final User user = user(1, true);
+
+		for (int index = 0; index < AuthenticationCache.MAXIMUM_SIZE; index++) {
+			cache.put("token" + index, user);
+		}
+
+		// Makes the first token the most recently used.
+		Assert.assertNotNull(cache.get("token0"));
+		cache.put("overflow", user);
+
+		Assert.assertEquals(AuthenticationCache.MAXIMUM_SIZE, cache.size());
+		Assert.assertNotNull(cache.get("token0"));
+		Assert.assertNull(cache.get("token1"));
+		Assert.assertNotNull(cache.get("overflow"));
+	}
+
+	/**
+	 * Tests the eviction of every token of a user.
+	 */
+	@Test
+	public void testEviction() {
+
+		final TestCache cache = new TestCache();
+		cache.put("a1", user(1, true));
+		cache.put("a2", user(1, true));
+		cache.put("b1", user(2, true));
+
+		cache.evictUser(1);
+		Assert.assertNull(cache.get("a1"));
+		Assert.assertNull(cache.get("a2"));
+		Assert.assertNotNull(cache.get("b1"));
+	}
+
+	private static User user(final Integer id, final boolean active) {
+
+		final Organization organization = new Organization();
+		organization.setId(10);
+
+		final OrgUnitProfile orgUnitProfile = new OrgUnitProfile();
+		orgUnitProfile.setId(100);
+
+		final User user = new User();
+		user.setId(id);
+		user.setActive(active);
+		user.setOrganization(organization);
+		user.setOrgUnitWithProfiles(orgUnitProfile);
+		return user;
+	}
+
+}
@@ -0,0 +1,164 @@
+package org.sigmah.server.security;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.sigmah.server.domain.User;
+import org.sigmah.server.domain.profile.GlobalPermission;
+import org.sigmah.server.domain.profile.OrgUnitProfile;
+import org.sigmah.server.domain.profile.PrivacyGroup;
+import org.sigmah.server.domain.profile.PrivacyGroupPermission;
+import org.sigmah.server.domain.profile.Profile;
+import org.sigmah.shared.dto.referential.GlobalPermissionEnum;
+import org.sigmah.shared.dto.referential.PrivacyGroupPermissionEnum;
+
+/**
+ * Permission snapshots tests.
+ */
+public class PermissionSnapshotCacheTest {
+
+	/**
+	 * Tests the aggregation of the profiles of a user.
+	 */
+	@Test
+	public void testAggregateProfiles() {
+
+		final User user = user(1, profile(GlobalPermissionEnum.VIEW_PROJECT, PrivacyGroupPermissionEnum.WRITE),
+			profile(GlobalPermissionEnum.EDIT_PROJECT, PrivacyGroupPermissionEnum.READ));
+
+		final PermissionSnapshot snapshot = PermissionSnapshot.of(user);
+
+		Assert.assertEquals(EnumSet.of(GlobalPermissionEnum.VIEW_PROJECT, GlobalPermissionEnum.EDIT_PROJECT), snapshot.getGlobalPermissions());
+		Assert.assertTrue(snapshot.hasAll(EnumSet.of(GlobalPermissionEnum.VIEW_PROJECT)));
+		Assert.assertFalse(snapshot.hasAll(EnumSet.of(GlobalPermissionEnum.VIEW_PROJECT, GlobalPermissionEnum.DELETE_PROJECT)));
+		Assert.assertEquals(PrivacyGroupPermissionEnum.WRITE, snapshot.getPrivacyGroupPermission(7));
+		Assert.assertNull(snapshot.getPrivacyGroupPermission(8));
+
+		Assert.assertTrue(PermissionSnapshot.of(null).getGlobalPermissions().isEmpty());
+	}
+
+	/**
+	 * Tests that snapshots are cached until invalidated.
+	 */
+	@Test
+	public void testInvalidation() {
+
+		final PermissionSnapshotCache cache = new PermissionSnapshotCache();
+		final User user = user(1, profile(GlobalPermissionEnum.VIEW_PROJECT, null));
+
+		final PermissionSnapshot snapshot = cache.get(user);
+		Assert.assertSame(snapshot, cache.get(user));
+
+		cache.invalidateUser(2);
+		Assert.assertSame(snapshot, cache.get(user));
+
+		cache.invalidateUser(1);
+		Assert.assertNotSame(snapshot, cache.get(user));
+
+		final PermissionSnapshot other = cache.get(user);
+		cache.invalidateAll();
+		Assert.assertNotSame(other, cache.get(user));
+	}
+
+	/**
+	 * Tests that a snapshot cached before the modifying transaction commits is invalidated once it completes.
+	 */
+	@Test
+	public void testInvalidationAfterTransaction() {
+
+		final Transaction transaction = Mockito.mock(Transaction.class);
+		Mockito.when(transaction.isActive()).thenReturn(true);
+		final Session session = Mockito.mock(Session.class);
+		Mockito.when(session.getTransaction()).thenReturn(transaction);
+		final EntityManager em = Mockito.mock(EntityManager.class);
+		Mockito.when(em.unwrap(Session.class)).thenReturn(session);
+
+		final PermissionSnapshotCache cache = new PermissionSnapshotCache();
+		final User user = user(1, profile(GlobalPermissionEnum.VIEW_PROJECT, null));
+
+		cache.invalidateUser(em, 1);
+
+		// Computed from the permissions committed before the modification.
+		final PermissionSnapshot stale = cache.get(user);
+		Assert.assertSame(stale, cache.get(user));
+
+		final ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+		Mockito.verify(transaction).registerSynchronization(synchronization.capture());
+		synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+
+		Assert.assertNotSame(stale, cache.get(user));
+	}
+
+	private static User user(final int id, final Profile... profiles) {
+		final OrgUnitProfile orgUnitProfile = new OrgUnitProfile();
+		orgUnitProfile.setId(id * 10);
+		orgUnitProfile.setProfiles(Arrays.asList(profiles));
+
+		final User user = new User();
+		user.setId(id);
+		user.setOrgUnitWithProfiles(orgUnitProfile);
+		return user;
+	}
+
+	private static Profile profile(final GlobalPermissionEnum globalPermission, final PrivacyGroupPermissionEnum privacyGroupPermission) {
+		final Profile profile = new Profile();
+
+		final GlobalPermission permission = new GlobalPermission();
+		permission.setPermission(globalPermission);
+		permission.setProfile(profile);
+
+		final List<GlobalPermission> globalPermissions = new ArrayList<>();
+		globalPermissions.add(permission);
+		profile.setGlobalPermissions(globalPermissions);
+
+		final List<PrivacyGroupPermission> privacyGroupPermissions = new ArrayList<>();
+		if (privacyGroupPermission != null) {
+			final PrivacyGroup group = new PrivacyGroup();
+			group.setId(7);
+
+			final PrivacyGroupPermission groupPermission = new PrivacyGroupPermission();
+			groupPermission.setPrivacyGroup(group);
+			groupPermission.setPermission(privacyGroupPermission);
+			groupPermission.setProfile(profile);
+			privacyGroupPermissions.add(groupPermission);
+		}
+		profile.setPrivacyGroupPermissions(privacyGroupPermissions);
+
+		return profile;
+	}
+
+}
@@ -0,0 +1,83 @@
+package org.sigmah.server.servlet.exporter.job;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.sigmah.shared.Language;
+import org.sigmah.shared.servlet.ServletConstants;
+
+/**
+ * Unit tests of the cache keys built by {@link ExportJobManager}.
+ */
+public class ExportJobManagerTest {
+
+	@Test
+	public void testInternalParametersAreIgnored() {
+		final Map<String, String[]> parameters = new LinkedHashMap<>();
+		parameters.put("id", new String[] { "12" });
+		parameters.put(ServletConstants.AUTHENTICATION_TOKEN, new String[] { "token" });
+		parameters.put(ServletConstants.RANDOM, new String[] { "0.42" });
+		parameters.put(ServletConstants.AJAX, new String[] { "true" });
+
+		final Map<String, String[]> copy = ExportJobManager.copyParameters(parameters);
+
+		assertEquals(1, copy.size());
+		assertTrue(copy.containsKey("id"));
+		assertFalse(copy.containsKey(ServletConstants.RANDOM));
+	}
+
+	@Test
+	public void testKeyIgnoresParametersOrder() {
+		final Map<String, String[]> first = new LinkedHashMap<>();
+		first.put("id", new String[] { "12" });
+		first.put("type", new String[] { "PROJECT_SYNTHESIS" });
+
+		final Map<String, String[]> second = new LinkedHashMap<>();
+		second.put("type", new String[] { "PROJECT_SYNTHESIS" });
+		second.put("id", new String[] { "12" });
+
+		assertEquals(key(first, 1, 7L), key(second, 1, 7L));
+	}
+
+	@Test
+	public void testKeyDependsOnUserAndDataVersion() {
+		final Map<String, String[]> parameters = new LinkedHashMap<>();
+		parameters.put("id", new String[] { "12" });
+
+		assertNotEquals(key(parameters, 1, 7L), key(parameters, 2, 7L));
+		assertNotEquals(key(parameters, 1, 7L), key(parameters, 1, 8L));
+	}
+
+	private static String key(final Map<String, String[]> parameters, final int userId, final long dataVersion) {
+		return ExportJobManager.buildKey(ExportJobType.PROJECT, ExportJobManager.copyParameters(parameters), userId, Language.EN, dataVersion);
+	}
+
+}
@@ -0,0 +1,142 @@
+package org.sigmah.server.servlet.exporter.utils;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+import org.sigmah.shared.util.ExportUtils.ExportFormat;
+
+/**
+ * Unit tests of {@link ExcelUtils}.
+ */
+public class ExcelUtilsTest {
+
+	@Test
+	public void testCreateWorkbook() {
+		assertTrue(ExcelUtils.createWorkbook(ExportFormat.XLS) instanceof HSSFWorkbook);
+		assertTrue(ExcelUtils.createWorkbook(ExportFormat.XLSX) instanceof SXSSFWorkbook);
+	}
+
+	@Test
+	public void testStylesAreShared() {
+		final Workbook wb = ExcelUtils.createWorkbook(ExportFormat.XLS);
+		final ExcelUtils utils = new ExcelUtils(wb);
+		final Sheet sheet = wb.createSheet("test");
+
+		for (int index = 0; index < 10; index++) {
+			sheet.createRow(index);
+			utils.putBorderedBasicCell(sheet, index, 0, "text");
+			utils.putBorderedBasicCell(sheet, index, 1, 1.5d);
+		}
+		final short styles = wb.getNumCellStyles();
+
+		for (int index = 10; index < 100; index++) {
+			sheet.createRow(index);
+			utils.putBorderedBasicCell(sheet, index, 0, "text");
+			utils.putBorderedBasicCell(sheet, index, 1, 1.5d);
+		}
+
+		assertEquals(styles, wb.getNumCellStyles());
+		assertEquals(sheet.getRow(0).getCell(0).getCellStyle().getIndex(), sheet.getRow(99).getCell(0).getCellStyle().getIndex());
+	}
+
+	@Test
+	public void testStreamedWorkbookExceedsXlsRowsLimit() throws Exception {
+		final Workbook wb = ExcelUtils.createWorkbook(ExportFormat.XLSX);
+		final ExcelUtils utils = new ExcelUtils(wb);
+		final Sheet sheet = wb.createSheet("test");
+		final int rows = 70000;
+
+		for (int index = 0; index < rows; index++) {
+			sheet.createRow(index);
+			utils.putBorderedBasicCell(sheet, index, 0, "row " + index);
+		}
+
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		wb.write(output);
+
+		final Sheet written = new XSSFWorkbook(new ByteArrayInputStream(output.toByteArray())).getSheetAt(0);
+		assertEquals(rows - 1, written.getLastRowNum());
+		assertEquals("row " + (rows - 1), written.getRow(rows - 1).getCell(0).getStringCellValue());
+	}
+
+	@Test
+	public void testBorderedRegionOnManuallyFlushedSheet() throws Exception {
+		final Workbook wb = ExcelUtils.createWorkbook(ExportFormat.XLSX);
+		final ExcelUtils utils = new ExcelUtils(wb);
+		final Sheet sheet = utils.createManuallyFlushedSheet("test");
+
+		for (int index = 0; index < 2 * ExcelUtils.ROW_ACCESS_WINDOW; index++) {
+			sheet.createRow(index);
+		}
+		utils.getBorderedRegion(new CellRangeAddress(0, 2 * ExcelUtils.ROW_ACCESS_WINDOW - 1, 1, 1), sheet);
+
+		// No row of the region has been flushed: every cell of the region is bordered.
+		for (int index = 0; index < 2 * ExcelUtils.ROW_ACCESS_WINDOW; index++) {
+			assertNotNull(sheet.getRow(index));
+			assertEquals(utils.getBoderedBasicStyle().getIndex(), sheet.getRow(index).getCell(1).getCellStyle().getIndex());
+		}
+		utils.flushRows(sheet);
+	}
+
+	@Test
+	public void testBorderedRegionStylesExistingCells() {
+		final Workbook wb = ExcelUtils.createWorkbook(ExportFormat.XLS);
+		final ExcelUtils utils = new ExcelUtils(wb);
+		final Sheet sheet = wb.createSheet("test");
+
+		sheet.createRow(0).createCell(1).setCellValue("group");
+		utils.putHeader(sheet.getRow(0), 2, "header");
+		utils.getBorderedRegion(new CellRangeAddress(0, 0, 1, 3), sheet);
+
+		assertEquals(utils.getBoderedBasicStyle().getIndex(), sheet.getRow(0).getCell(1).getCellStyle().getIndex());
+		assertEquals(utils.getHeaderStyle(CellStyle.ALIGN_CENTER).getIndex(), sheet.getRow(0).getCell(2).getCellStyle().getIndex());
+		assertEquals(utils.getBoderedBasicStyle().getIndex(), sheet.getRow(0).getCell(3).getCellStyle().getIndex());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBorderedRegionOnFlushedRowsFails() {
+		final Workbook wb = ExcelUtils.createWorkbook(ExportFormat.XLSX);
+		final ExcelUtils utils = new ExcelUtils(wb);
+		final Sheet sheet = wb.createSheet("test");
+
+		for (int index = 0; index < 2 * ExcelUtils.ROW_ACCESS_WINDOW; index++) {
+			sheet.createRow(index);
+		}
+		utils.getBorderedRegion(new CellRangeAddress(0, 1, 1, 1), sheet);
+	}
+
+}
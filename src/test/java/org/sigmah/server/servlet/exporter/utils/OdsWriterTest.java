@@ -0,0 +1,145 @@
+package org.sigmah.server.servlet.exporter.utils;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.junit.Test;
+import org.odftoolkit.simple.SpreadsheetDocument;
+import org.odftoolkit.simple.table.Table;
+
+/**
+ * Unit tests of {@link OdsWriter}.
+ */
+public class OdsWriterTest {
+
+	@Test
+	public void testDocumentCanBeLoaded() throws Exception {
+		final OdsWriter writer = new OdsWriter();
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try {
+			final OdsWriter.Table list = writer.newTable("list");
+			CalcUtils.putMainTitle(list, 1, 3, "TITLE");
+			CalcUtils.putHeader(list.getRow(3), 1, "name");
+			CalcUtils.createBasicCell(list, 1, 4, "two  spaces");
+			CalcUtils.createBasicCell(list, 2, 4, 12L);
+			CalcUtils.applyLink(CalcUtils.createBasicCell(list, 3, 4, null), "details", "details");
+			list.setColumnWidth(1, 50);
+
+			final OdsWriter.Table details = writer.newTable("details");
+			CalcUtils.createBasicCell(details, 0, 0, "merged");
+			details.merge(0, 0, 1, 2);
+
+			writer.write(output);
+		} finally {
+			writer.close();
+		}
+
+		final SpreadsheetDocument doc = SpreadsheetDocument.loadDocument(new ByteArrayInputStream(output.toByteArray()));
+		assertEquals(2, doc.getSheetCount());
+
+		final Table list = doc.getSheetByIndex(0);
+		assertEquals("list", list.getTableName());
+		assertEquals("TITLE", list.getCellByPosition(1, 1).getStringValue());
+		assertEquals(3, list.getCellByPosition(1, 1).getColumnSpannedNumber());
+		assertEquals("name", list.getCellByPosition(1, 3).getStringValue());
+		assertEquals("two  spaces", list.getCellByPosition(1, 4).getStringValue());
+		assertEquals("12", list.getCellByPosition(2, 4).getStringValue());
+		assertEquals("details", list.getCellByPosition(3, 4).getStringValue());
+		assertEquals(50, list.getColumnByIndex(1).getWidth(), 0.5);
+
+		final Table details = doc.getSheetByIndex(1);
+		assertEquals("details", details.getTableName());
+		assertEquals("merged", details.getCellByPosition(0, 0).getStringValue());
+		assertEquals(2, details.getCellByPosition(0, 0).getColumnSpannedNumber());
+		assertEquals(3, details.getCellByPosition(0, 0).getRowSpannedNumber());
+		doc.close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFlushedRowsCannotBeAccessed() throws Exception {
+		final OdsWriter writer = new OdsWriter();
+		try {
+			final OdsWriter.Table table = writer.newTable("test");
+			table.getCell(0, 0).setStringValue("value");
+			table.flushRows();
+			table.getRow(0);
+		} finally {
+			writer.close();
+		}
+	}
+
+	@Test
+	public void testStreamedRows() throws Exception {
+		final int rows = 70000;
+		final OdsWriter writer = new OdsWriter();
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try {
+			final OdsWriter.Table table = writer.newTable("test");
+			for (int index = 0; index < rows; index++) {
+				CalcUtils.createBasicCell(table, 0, index, "row " + index);
+				CalcUtils.createBasicCell(table, 1, index, (long) index);
+				table.flushRows();
+			}
+			writer.write(output);
+		} finally {
+			writer.close();
+		}
+
+		final ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()));
+		ZipEntry entry = zip.getNextEntry();
+		assertEquals("mimetype", entry.getName());
+		assertEquals(ZipEntry.STORED, entry.getMethod());
+
+		while (!"content.xml".equals(entry.getName())) {
+			entry = zip.getNextEntry();
+		}
+
+		int rowCount = 0;
+		int styleCount = 0;
+		final XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(zip);
+		while (reader.hasNext()) {
+			if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+				if ("table-row".equals(reader.getLocalName())) {
+					rowCount++;
+				} else if ("style".equals(reader.getLocalName())) {
+					styleCount++;
+				}
+			}
+		}
+		reader.close();
+
+		assertEquals(rows, rowCount);
+		assertEquals("Cell styles must be shared.", 1, styleCount);
+	}
+
+}
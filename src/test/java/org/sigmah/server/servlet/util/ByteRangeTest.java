@@ -0,0 +1,71 @@
+package org.sigmah.server.servlet.util;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link ByteRange}.
+ */
+public class ByteRangeTest {
+
+	@Test
+	public void testParse() {
+		ByteRange range = ByteRange.parse("bytes=100-199", 1000L);
+		assertEquals(100L, range.getStart());
+		assertEquals(199L, range.getEnd());
+		assertEquals(100L, range.getLength());
+		assertEquals("bytes 100-199/1000", range.toContentRange());
+
+		range = ByteRange.parse("bytes=900-", 1000L);
+		assertEquals(900L, range.getStart());
+		assertEquals(999L, range.getEnd());
+
+		range = ByteRange.parse("bytes=-100", 1000L);
+		assertEquals(900L, range.getStart());
+		assertEquals(999L, range.getEnd());
+
+		range = ByteRange.parse("bytes=500-5000", 1000L);
+		assertEquals(999L, range.getEnd());
+		assertTrue(range.isSatisfiable());
+	}
+
+	@Test
+	public void testIgnoredOrUnsatisfiable() {
+		assertNull(ByteRange.parse(null, 1000L));
+		assertNull(ByteRange.parse("items=0-10", 1000L));
+		assertNull(ByteRange.parse("bytes=0-10,20-30", 1000L));
+		assertNull(ByteRange.parse("bytes=20-10", 1000L));
+		assertNull(ByteRange.parse("bytes=abc-", 1000L));
+
+		final ByteRange range = ByteRange.parse("bytes=1000-", 1000L);
+		assertFalse(range.isSatisfiable());
+		assertEquals("bytes */1000", range.toContentRange());
+	}
+
+}
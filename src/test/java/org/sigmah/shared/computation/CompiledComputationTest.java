@@ -0,0 +1,113 @@
+package org.sigmah.shared.computation;
+
+/*
+ * #%L
+ * Sigmah
+ * %%
+ * Copyright (C) 2010 - 2016 URD
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sigmah.shared.computation.value.ComputationError;
+import org.sigmah.shared.computation.value.ComputedValue;
+import org.sigmah.shared.computation.value.ComputedValues;
+import org.sigmah.shared.computation.value.DoubleValue;
+import org.sigmah.shared.dto.element.FlexibleElementDTO;
+import org.sigmah.shared.dto.element.TextAreaElementDTO;
+
+/**
+ * Test of CompiledComputation.
+ */
+public class CompiledComputationTest {
+
+	private static final String[] RULES = {
+		"12 + 3.14 - 4",
+		"12 + 3.14 * 4 + 8 / 2",
+		"12 * -3.14 / 4",
+		"(12 + 3.14) * 4",
+		"-(neuf - quarante_2) / 3",
+		"12 * $9 + 3.14 * quarante_2",
+		"(12 / $9 + 3.14) * 2",
+		"quarante_2 / (neuf - neuf)",
+		"12 * $10 + 3.14 * quarante_3",
+		"neuf / 0 + quarante_3",
+		"9 +- 2"
+	};
+
+	/**
+	 * Compiled computations must return the same values as the interpreter.
+	 */
+	@Test
+	public void testCompiledMatchesInterpreted() {
+		final List<Map<Integer, ComputedValue>> variableSets = new ArrayList<>();
+		variableSets.add(variables(new DoubleValue(9.0), new DoubleValue(42.0)));
+		variableSets.add(variables(new DoubleValue(0.0), new DoubleValue(-1.5)));
+		variableSets.add(variables(ComputedValues.from("quarante deux"), new DoubleValue(42.0)));
+		variableSets.add(variables(new DoubleValue(9.0), ComputationError.NO_VALUE));
+
+		for (final String rule : RULES) {
+			final Computation computation = Computations.parse(rule, getAllElements());
+			Assert.assertNotNull("Rule was not compiled: " + rule, computation.compile());
+
+			for (final Map<Integer, ComputedValue> variables : variableSets) {
+				Assert.assertEquals("Compiled result differs for rule: " + rule,
+						computation.interpretValue(variables), computation.computeValue(variables));
+			}
+		}
+	}
+
+	/**
+	 * Variables missing from the given map are considered as not having a value.
+	 */
+	@Test
+	public void testMissingVariable() {
+		final Computation computation = Computations.parse("neuf + 1", getAllElements());
+		Assert.assertEquals(ComputationError.NO_VALUE, computation.computeValue(new HashMap<Integer, ComputedValue>()));
+	}
+
+	private static Map<Integer, ComputedValue> variables(final ComputedValue neuf, final ComputedValue quaranteDeux) {
+		final HashMap<Integer, ComputedValue> variables = new HashMap<>();
+		variables.put(9, neuf);
+		variables.put(42, quaranteDeux);
+		return variables;
+	}
+
+	private static List<FlexibleElementDTO> getAllElements() {
+		final List<FlexibleElementDTO> allElements = new ArrayList<>();
+
+		final TextAreaElementDTO element9 = new TextAreaElementDTO();
+		element9.setId(9);
+		element9.setCode("neuf");
+		element9.setType('N');
+		allElements.add(element9);
+
+		final TextAreaElementDTO element42 = new TextAreaElementDTO();
+		element42.setId(42);
+		element42.setCode("quarante_2");
+		element42.setType('N');
+		allElements.add(element42);
+
+		return allElements;
+	}
+
+}